@@ -8,7 +8,67 @@ import java.util.List;
 
 
 public abstract class Annotation implements Serializable {
+
+    /** Index in which the annotation has an ordinal, and the ordinal itself (see InverseIndex) */
+    transient InverseIndex inverseIndex;
+    transient int inverseOrdinal;
+    /** Position of the annotation among the annotations of its type, and the list it is kept for (see AnnotationContainer.AnnotationList.getPosition) */
+    transient int position;
+    transient AnnotationContainer.AnnotationList positionList;
+    /** Annotation this one is part of (as the roles of a predicate or the components of a compound term), if any */
+    transient Annotation owner;
     
     abstract Map<AnnotationType, List<Annotation>> getReferencedAnnotations();
-    
+
+    /** Marks the layer of the annotation as modified, so that it is serialized again instead of copied from the loaded XML (see AnnotationContainer.setModified).
+     * Setters call it, and so do the parts, spans and external references of the annotation when they change. An annotation which is part of another one marks that one.
+     * Changes made directly on the lists returned by getters (as getExternalRefs() or Span.getTargets()) are not noticed.
+     */
+    void modified() {
+	if (this.positionList != null) {
+	    this.positionList.modified();
+	} else if (this.owner != null) {
+	    this.owner.modified();
+	}
+    }
+
+    /** Makes this annotation the owner of one of its parts, so that changing the part marks this annotation as modified. Returns the part. */
+    <A extends Annotation> A own(A part) {
+	if (part != null) {
+	    part.owner = this;
+	}
+	return part;
+    }
+
+    /** Makes this annotation the owner of one of its spans. A span only has one owner: the last annotation it was given to. Returns the span. */
+    <T extends IdentifiableAnnotation> Span<T> own(Span<T> span) {
+	if (span != null) {
+	    span.owner = this;
+	}
+	return span;
+    }
+
+    /** Makes this annotation the owner of one of its external references, and of the references nested in it. Returns the reference. */
+    ExternalRef own(ExternalRef externalRef) {
+	if (externalRef != null) {
+	    externalRef.setOwner(this);
+	}
+	return externalRef;
+    }
+
+    /** Owns all the spans of a list (see own(Span)). Returns the list. */
+    <T extends IdentifiableAnnotation> List<Span<T>> ownSpans(List<Span<T>> spans) {
+	for (Span<T> span : spans) {
+	    this.own(span);
+	}
+	return spans;
+    }
+
+    /** Owns all the external references of a list (see own(ExternalRef)). Returns the list. */
+    List<ExternalRef> ownExternalRefs(List<ExternalRef> externalRefs) {
+	for (ExternalRef externalRef : externalRefs) {
+	    this.own(externalRef);
+	}
+	return externalRefs;
+    }
 }
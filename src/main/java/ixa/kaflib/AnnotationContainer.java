@@ -4,15 +4,21 @@ import ixa.kaflib.KAFDocument.AnnotationType;
 import ixa.kaflib.KAFDocument.Layer;
 import ixa.kaflib.KAFDocument.Utils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputValidation;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 
 import org.jdom2.Element;
@@ -26,29 +32,78 @@ class AnnotationContainer implements Serializable {
     private Map<Layer, Map<String, List<Annotation>>> layers; /* (Layer => (Group => Annotations)) */
     private Map<AnnotationType, Map<String, List<Annotation>>> annotations; /* (AnnotationType => (Group => Annotations)) */
     private Set<Element> unknownLayers;
+    /* Attributes and forms of the WFs */
+    private TextColumns textColumns;
     
-    /* Indices */
-    private Map<Annotation, Map<AnnotationType, List<Annotation>>> invRefIndex; /* (Annotation => (AnnotationType => Annotations)) */
-    private Map<AnnotationType, Map<String, Map<Integer, List<Annotation>>> > sentIndex; /* (AnnotationType => (Group => (Sentence => Annotations))) */
-    private Map<AnnotationType, Map<String, Map<Integer, List<Annotation>>> > paraIndex; /* (AnnotationType => (Group => (Paragraph => Annotations))) */
-    private Map<Integer, Set<Integer>> paraSentIndex; /* Para => List<Sent> */
-    private Set<Integer> indexedSents; /* Used to keep count of which sentences have already been indexed by paragraphs
+    /* Indices (not serialized, they are built again on read) */
+    private transient InverseIndex invRefIndex; /* (Annotation => (AnnotationType => Annotations)) */
+    private transient Map<AnnotationType, Map<String, NumberIndex<List<Annotation>>>> sentIndex; /* (AnnotationType => (Group => (Sentence => Annotations))) */
+    private transient Map<AnnotationType, Map<String, NumberIndex<List<Annotation>>>> paraIndex; /* (AnnotationType => (Group => (Paragraph => Annotations))) */
+    private transient NumberIndex<List<Integer>> paraSentIndex; /* Para => Sents, sorted */
+    private transient NumberIndex<Integer> sentParaIndex; /* Sent => Para. Used to keep count of which sentences have already been indexed by paragraphs
     					(to avoid repeating the same sentence in different paragraphs, due to tokenizer bugs */
+    /* Bulk updates: annotations added meanwhile are indexed when the update ends, or as soon as an index is queried */
+    private transient int bulkUpdates;
+    private transient List<Annotation> unindexed;
+    private transient List<AnnotationType> unindexedTypes;
+    private transient boolean paraSentIndexStale; /* An indexed annotation changed its sentence or paragraph during a bulk update */
+    /* Index of the WFs by offset, built again when it is queried after the text layer changes */
+    private transient OffsetIndex offsetIndex;
+    private transient int offsetIndexVersion;
+    private transient int textVersion; /* Number of WFs added and removed */
+    /* Dependency graphs of the sentences, compiled again when they are queried after the dependencies change */
+    private transient NumberIndex<DepGraph> depGraphs;
+    private transient int depVersion; /* Number of terms and dependencies added, removed or moved to another sentence */
+
+    /* Original XML of the loaded layers, written back as it is while a layer is not modified.
+     * The range of a layer is dropped once it is modified, and the source itself once no range is left. */
+    private transient String source;
+    private transient Map<String, int[]> sourceRanges; /* (Layer element => {begin, end} in source) */
+    private transient Map<Layer, String> sourceLayers; /* (Layer => Element) of the layers in sourceRanges */
+    private transient Map<String, int[]> passedThroughRanges; /* (Layer element => {begin, end} in source) of the layers which were not loaded */
+    private transient Map<Layer, String> passedThroughLayers; /* (Layer => Element) of the layers which were not loaded */
+    private Set<Layer> modifiedLayers;
     
     static final String DEFAULT_GROUP = "kaflib_default_group";
 
-
     /** This creates a new AnnotationContainer object */
     AnnotationContainer() {
 	rawText = new String();
 	layers = new HashMap<Layer, Map<String, List<Annotation>>>();
 	annotations = new HashMap<AnnotationType, Map<String, List<Annotation>>>();
-	unknownLayers = new HashSet<Element>();
-	invRefIndex = new HashMap<Annotation, Map<AnnotationType, List<Annotation>>>();
-	sentIndex = new HashMap<AnnotationType, Map<String, Map<Integer, List<Annotation>>>>();
-	paraIndex = new HashMap<AnnotationType, Map<String, Map<Integer, List<Annotation>>>>();
-	paraSentIndex = new HashMap<Integer, Set<Integer>>();
-	indexedSents = new HashSet<Integer>();
+	unknownLayers = new LinkedHashSet<Element>();
+	textColumns = new TextColumns();
+	createIndexes();
+	modifiedLayers = EnumSet.noneOf(Layer.class);
+    }
+
+    private void createIndexes() {
+	invRefIndex = new InverseIndex();
+	sentIndex = new EnumMap<AnnotationType, Map<String, NumberIndex<List<Annotation>>>>(AnnotationType.class);
+	paraIndex = new EnumMap<AnnotationType, Map<String, NumberIndex<List<Annotation>>>>(AnnotationType.class);
+	paraSentIndex = new NumberIndex<List<Integer>>();
+	sentParaIndex = new NumberIndex<Integer>();
+	unindexed = new ArrayList<Annotation>();
+	unindexedTypes = new ArrayList<AnnotationType>();
+    }
+
+    /** Builds the indexes again from the annotations read. This is done once the whole object graph has been read,
+     * as the attributes of the annotations being indexed may not be set yet when the container itself is read.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+	in.defaultReadObject();
+	createIndexes();
+	in.registerValidation(new ObjectInputValidation() {
+		public void validateObject() {
+		    for (Map.Entry<AnnotationType, Map<String, List<Annotation>>> typeEntry : annotations.entrySet()) {
+			for (List<Annotation> groupAnnotations : typeEntry.getValue().values()) {
+			    for (Annotation ann : groupAnnotations) {
+				indexAnnotation(ann, typeEntry.getKey());
+			    }
+			}
+		    }
+		}
+	    }, 0);
     }
 
     
@@ -57,34 +112,43 @@ class AnnotationContainer implements Serializable {
 	return rawText;
     }
 
+    TextColumns getTextColumns() {
+	return textColumns;
+    }
+
+    /** Returns the annotations of a layer. As the rest of the lists of annotations, the list is a read-only view, which reflects later changes. */
     List<Annotation> getLayer(Layer layer) {
-	return Helper.get(layer, this.layers);
+	return Helper.getView(layer, this.layers);
     }
     
     List<Annotation> getAnnotations(AnnotationType type) {
-	return Helper.get(type, this.annotations);
+	return Helper.getView(type, this.annotations);
     }
 
+    /** Returns the annotations of a layer group. */
     List<Annotation> getLayer(Layer layer, String group) {
-	return Helper.get(layer, group, this.layers);
+	return Helper.getView(layer, group, this.layers);
     }
     
     List<Annotation> getAnnotations(AnnotationType type, String group) {
-	return Helper.get(type, group, this.annotations);
+	return Helper.getView(type, group, this.annotations);
     }
 
     List<Annotation> getInverse(Annotation ann) {
-	return Helper.getInvReferences(ann, this.invRefIndex);
+	this.indexPending();
+	return this.invRefIndex.get(ann);
     }
     
     List<Annotation> getInverse(Annotation ann, AnnotationType type) {
-	return Helper.getInvReferences(ann, type, this.invRefIndex);
+	this.indexPending();
+	return this.invRefIndex.get(ann, type);
     }
     
     List<Annotation> getInverse(List<Annotation> anns, AnnotationType type) {
+	this.indexPending();
 	List<Annotation> result = new ArrayList<Annotation>();
 	for (Annotation ann : anns) {
-	    result.addAll(Helper.getInvReferences(ann, type, this.invRefIndex));
+	    result.addAll(this.invRefIndex.get(ann, type));
 	}
 	return result;
     }
@@ -100,6 +164,119 @@ class AnnotationContainer implements Serializable {
     
     void setRawText(String str) {
 	rawText = str;
+	textColumns.setRawText(str);
+    }
+
+    /** Keeps the original XML of the document, so the layers which are not modified can be written back as they were read */
+    void setSource(String source) {
+	this.source = source;
+	this.sourceRanges = new HashMap<String, int[]>();
+	this.sourceLayers = new EnumMap<Layer, String>(Layer.class);
+    }
+
+    /** Sets where the element of the given layers is in the original XML. Elements which don't hold any layer are not kept. */
+    void setSourceRange(String element, int begin, int end, List<Layer> layers) {
+	if (layers.isEmpty()) {
+	    return;
+	}
+	this.sourceRanges.put(element, new int[] {begin, end});
+	for (Layer layer : layers) {
+	    this.sourceLayers.put(layer, element);
+	}
+    }
+
+    /** Drops the original XML of a modified layer, together with the rest of the layers kept in the same element.
+     * The source is released once none of its layers can be copied anymore.
+     */
+    private void releaseSource(Layer layer) {
+	String element = (this.sourceLayers == null) ? null : this.sourceLayers.get(layer);
+	if (element != null) {
+	    this.sourceRanges.remove(element);
+	    this.sourceLayers.values().removeAll(Collections.singleton(element));
+	}
+	this.releaseUnusedSource();
+    }
+
+    private void releaseUnusedSource() {
+	if ((this.source != null) && ((this.sourceRanges == null) || this.sourceRanges.isEmpty())
+		&& ((this.passedThroughRanges == null) || this.passedThroughRanges.isEmpty())) {
+	    this.source = null;
+	    this.sourceRanges = null;
+	    this.sourceLayers = null;
+	}
+    }
+
+    /** Returns {begin, end} of the original XML of a layer element, or null if any of the given layers have been modified (or the element was not read from XML) */
+    int[] getUnmodifiedSourceRange(String element, Layer... layers) {
+	if (this.sourceRanges == null) {
+	    return null;
+	}
+	for (Layer layer : layers) {
+	    if (this.modifiedLayers.contains(layer)) {
+		return null;
+	    }
+	}
+	return this.sourceRanges.get(element);
+    }
+
+    /** Sets where the element of a layer which was not loaded is in the original XML. The element is written back as it is,
+     * and annotations can't be added to its layers, as they would end up in a second element.
+     */
+    void setPassedThroughRange(String element, int begin, int end, List<Layer> layers) {
+	if (this.passedThroughRanges == null) {
+	    this.passedThroughRanges = new HashMap<String, int[]>();
+	    this.passedThroughLayers = new EnumMap<Layer, String>(Layer.class);
+	}
+	this.passedThroughRanges.put(element, new int[] {begin, end});
+	for (Layer layer : layers) {
+	    this.passedThroughLayers.put(layer, element);
+	}
+    }
+
+    /** Returns {begin, end} of the original XML of a layer element which was not loaded, or null if it was loaded */
+    int[] getPassedThroughRange(String element) {
+	return (this.passedThroughRanges == null) ? null : this.passedThroughRanges.get(element);
+    }
+
+    /** Returns the elements of the layers which were not loaded */
+    Set<String> getPassedThroughElements() {
+	return (this.passedThroughRanges == null) ? Collections.<String>emptySet() : this.passedThroughRanges.keySet();
+    }
+
+    String getSource() {
+	return this.source;
+    }
+
+    /** Marks a layer as modified, so it is serialized again instead of copying its original XML. Adding and removing annotations marks their layer,
+     * and so does changing an annotation (see Annotation.modified()). Getting annotations does not.
+     */
+    void setModified(Layer layer) {
+	if (this.modifiedLayers.add(layer)) {
+	    this.releaseSource(layer);
+	}
+    }
+
+    /** Marks the layer of an annotation type as modified. Types which are not mapped to a layer (and null) mark all layers. */
+    private void setModified(AnnotationType type) {
+	if (this.modifiedLayers.size() == Layer.values().length) {
+	    return;
+	}
+	Layer layer = (type == null) ? null : KAFDocument.highLevelAnnotationType2Layer.get(type);
+	if (layer != null) {
+	    this.setModified(layer);
+	} else {
+	    this.modifiedLayers.addAll(EnumSet.allOf(Layer.class));
+	    if (this.sourceRanges != null) {
+		this.sourceRanges.clear();
+		this.sourceLayers.clear();
+		this.releaseUnusedSource();
+	    }
+	}
+    }
+
+    /** Forgets the modifications made so far (after loading a document) */
+    void clearModified() {
+	this.modifiedLayers.clear();
     }
     
     void add(Annotation ann, Layer layer, AnnotationType type) {
@@ -107,29 +284,98 @@ class AnnotationContainer implements Serializable {
     }
     
     void add(Annotation ann, Layer layer, AnnotationType type, Integer position) {
+	if ((this.passedThroughLayers != null) && this.passedThroughLayers.containsKey(layer)) {
+	    throw new IllegalStateException("The " + this.passedThroughLayers.get(layer) + " layer was not loaded, so annotations can't be added to it");
+	}
+	this.setModified(layer);
 	Helper.addAnnotation(ann, layer, getGroupID(ann), position, this.layers);
-	Helper.addAnnotation(ann, type, getGroupID(ann), position, this.annotations);
+	List<Annotation> typeAnnotations = Helper.addAnnotation(ann, type, getGroupID(ann), position, this.annotations);
+	int index = ((position == null) || (position >= typeAnnotations.size())) ? typeAnnotations.size() - 1 : position;
+	((AnnotationList) typeAnnotations).setLayer(this, layer);
+	((AnnotationList) typeAnnotations).setPosition(ann, index);
+	if (type == AnnotationType.WF) {
+	    this.textVersion++;
+	}
+	if ((type == AnnotationType.TERM) || (type == AnnotationType.DEP)) {
+	    this.depVersion++;
+	}
 	/* Index */
-	this.indexAnnotation(ann, type);
+	if (this.bulkUpdates > 0) {
+	    this.unindexed.add(ann);
+	    this.unindexedTypes.add(type);
+	} else {
+	    this.indexAnnotation(ann, type);
+	}
     }
 
     /** Adds an unknown layer to the container in DOM format */
     void add(Element layer) {
 	this.unknownLayers.add(layer);
     }
+
+    /** Starts a bulk update: the annotations added from now on are not indexed one by one, but all together when the update ends. Updates can be nested. */
+    void beginBulkUpdate() {
+	this.bulkUpdates++;
+    }
+
+    /** Ends a bulk update, indexing the annotations added during it once the outermost update ends. */
+    void endBulkUpdate() {
+	if (this.bulkUpdates == 0) {
+	    throw new IllegalStateException("No bulk update in progress");
+	}
+	if (--this.bulkUpdates == 0) {
+	    this.indexPending();
+	}
+    }
+
+    /** Indexes the annotations added during a bulk update. If an annotation indexed before changed its sentence or paragraph meanwhile, the sentence and paragraph indexes are built again. */
+    private void indexPending() {
+	if (this.unindexed.isEmpty() && !this.paraSentIndexStale) {
+	    return;
+	}
+	for (int i = 0; i < this.unindexed.size(); i++) {
+	    this.indexInverseReferences(this.unindexed.get(i), this.unindexedTypes.get(i));
+	}
+	if (this.paraSentIndexStale) {
+	    this.sentIndex.clear();
+	    this.paraIndex.clear();
+	    this.paraSentIndex = new NumberIndex<List<Integer>>();
+	    this.sentParaIndex = new NumberIndex<Integer>();
+	    for (AnnotationType type : AnnotationType.values()) {
+		Map<String, List<Annotation>> groups = this.annotations.get(type);
+		if (groups != null) {
+		    for (List<Annotation> groupAnnotations : groups.values()) {
+			for (Annotation ann : groupAnnotations) {
+			    this.indexAnnotationParaSent(ann, type);
+			}
+		    }
+		}
+	    }
+	    this.paraSentIndexStale = false;
+	} else {
+	    for (int i = 0; i < this.unindexed.size(); i++) {
+		this.indexAnnotationParaSent(this.unindexed.get(i), this.unindexedTypes.get(i));
+	    }
+	}
+	this.unindexed.clear();
+	this.unindexedTypes.clear();
+    }
     
     private void indexAnnotation(Annotation ann, AnnotationType type) {
-	/* Inverse references index*/
+	this.indexInverseReferences(ann, type);
+	/* Sentence and paragraph index */
+	this.indexAnnotationParaSent(ann, type);
+    }
+
+    private void indexInverseReferences(Annotation ann, AnnotationType type) {
 	Map<AnnotationType, List<Annotation>> invReferences = ann.getReferencedAnnotations();
 	Iterator<Map.Entry<AnnotationType, List<Annotation>>> it = invReferences.entrySet().iterator();
 	while (it.hasNext()) {
 	    Map.Entry<AnnotationType, List<Annotation>> pair = it.next();
 	    for (Annotation ref : pair.getValue()) {
-		Helper.addInvReference(ann, ref, type, this.invRefIndex);
+		this.invRefIndex.add(ann, type, ref);
 	    }
 	}
-	/* Sentence and paragraph index */
-	this.indexAnnotationParaSent(ann, type);
     }
     
     private void indexAnnotationParaSent(Annotation ann, AnnotationType type) {
@@ -137,24 +383,62 @@ class AnnotationContainer implements Serializable {
 	if (ann instanceof SentenceLevelAnnotation) {
 	    Integer sent = ((SentenceLevelAnnotation) ann).getSent();
 	    Integer para = ((ParagraphLevelAnnotation) ann).getPara();
-	    Helper.addToIndex(ann, type, groupID, sent, this.sentIndex);
+	    this.keepInOrder(Helper.addToIndex(ann, type, groupID, sent, this.sentIndex), type);
 	    if (para > 0) {
-		Helper.addToIndex(ann, type, groupID, para, this.paraIndex);
-		if (!indexedSents.contains(sent)) {
+		this.keepInOrder(Helper.addToIndex(ann, type, groupID, para, this.paraIndex), type);
+		if ((sent != null) && (sentParaIndex.get(sent) == null)) {
 		    this.addSentToPara(sent, para);
-		    indexedSents.add(sent);
+		    sentParaIndex.put(sent, para);
 		}
 	    }
 	}
 	else if (ann instanceof ParagraphLevelAnnotation) {
 	    Integer para = ((ParagraphLevelAnnotation) ann).getPara();
 	    if (para > 0) {
-		Helper.addToIndex(ann, type, groupID, para, this.paraIndex);
+		this.keepInOrder(Helper.addToIndex(ann, type, groupID, para, this.paraIndex), type);
+	    }
+	}
+    }
+
+    /** The annotations of a sentence or paragraph follow the order of the annotations of their type. An annotation which has just been
+     * appended to the list of its sentence or paragraph, but which comes before others in the list of its type (because it was inserted
+     * at a position, or it was moved to another sentence), is moved to its place.
+     */
+    private void keepInOrder(List<Annotation> indexed, AnnotationType type) {
+	int last = (indexed == null) ? -1 : indexed.size() - 1;
+	if (last < 1) {
+	    return;
+	}
+	Annotation ann = indexed.get(last);
+	int index = this.getIndex(ann, type);
+	if ((index < 0) || (this.getIndex(indexed.get(last - 1), type) < index)) {
+	    return;
+	}
+	int low = 0;
+	int high = last;
+	while (low < high) {
+	    int mid = (low + high) >>> 1;
+	    if (this.getIndex(indexed.get(mid), type) > index) {
+		high = mid;
+	    } else {
+		low = mid + 1;
 	    }
 	}
+	indexed.remove(last);
+	indexed.add(low, ann);
     }
     
     void reindexAnnotationParaSent(Annotation ann, AnnotationType type, Integer oldSent, Integer oldPara) {
+	this.setModified(type);
+	this.depVersion++;
+	if (this.bulkUpdates > 0) {
+	    /* An annotation just added is indexed with its new values later on. Otherwise, the indexes are built again when the update ends. */
+	    int last = this.unindexed.size() - 1;
+	    if ((last < 0) || (this.unindexed.get(last) != ann)) {
+		this.paraSentIndexStale = true;
+	    }
+	    return;
+	}
 	String groupID = getGroupID(ann);
 	/* Remove index */
 	Helper.removeFromIndex(ann, type, groupID, oldSent, this.sentIndex);
@@ -177,26 +461,43 @@ class AnnotationContainer implements Serializable {
     }
 
     void remove(Annotation ann, Layer layer, AnnotationType type, String group) {
+	this.setModified(layer);
 	Helper.remove(ann, layer, this.layers);
 	Helper.remove(ann, type, this.annotations);
+	if (type == AnnotationType.WF) {
+	    this.textVersion++;
+	}
+	if ((type == AnnotationType.TERM) || (type == AnnotationType.DEP)) {
+	    this.depVersion++;
+	}
 	if (ann instanceof SentenceLevelAnnotation) {
+	    this.indexPending();
 	    String groupID = getGroupID(ann);
-	    Integer sent = ((SentenceLevelAnnotation) ann).getSent();
-	    List<Annotation> sentAnnotations = this.getSentAnnotations(sent, type, groupID);
-	    sentAnnotations.remove(ann);
+	    Helper.removeFromIndex(ann, type, groupID, ((SentenceLevelAnnotation) ann).getSent(), this.sentIndex);
 	    if (ann instanceof ParagraphLevelAnnotation) {
-		Integer para = ((ParagraphLevelAnnotation) ann).getPara();
-		List<Annotation> paraAnnotations = this.getParaAnnotations(para, type, groupID);
-		paraAnnotations.remove(ann);
+		Helper.removeFromIndex(ann, type, groupID, ((ParagraphLevelAnnotation) ann).getPara(), this.paraIndex);
 	    }
 	}
     }
     
     void removeLayer(Layer layerName) {
+	this.setModified(layerName);
+	this.removePassedThrough(layerName);
 	this.layers.remove(layerName);
     }
     
+    /** Drops the element of a layer which was not loaded, together with the rest of the layers kept in the same element */
+    private void removePassedThrough(Layer layer) {
+	String element = (this.passedThroughLayers == null) ? null : this.passedThroughLayers.get(layer);
+	if (element != null) {
+	    this.passedThroughRanges.remove(element);
+	    this.passedThroughLayers.values().removeAll(Collections.singleton(element));
+	    this.releaseUnusedSource();
+	}
+    }
+
     void removeLayer(Layer layerName, String groupID) {
+	this.setModified(layerName);
 	Map<String, List<Annotation>> layer = this.layers.get(layerName);
 	if (layer != null) {
 	    layer.remove(groupID);
@@ -209,16 +510,20 @@ class AnnotationContainer implements Serializable {
      * @return
      */
     List<Integer> getParaSents(Integer para) {
-	List<Integer> sentList = new ArrayList<Integer>(this.paraSentIndex.get(para));
-	Collections.sort(sentList);
-	return sentList;
+	this.indexPending();
+	List<Integer> sentList = this.paraSentIndex.get(para);
+	return (sentList == null) ? new ArrayList<Integer>() : Collections.unmodifiableList(sentList);
     }
 
     List<Annotation> getSentAnnotations(Integer sent, AnnotationType type) {
 	return this.getSentAnnotations(sent, type, DEFAULT_GROUP);
     }
     
+    /** Returns a read-only view of the annotations of a type and group in a sentence, which follows later changes of the sentence.
+     * A sentence which has no annotations of the type and group gets an empty list instead, which doesn't show the annotations added to it later on.
+     */
     List<Annotation> getSentAnnotations(Integer sent, AnnotationType type, String groupID) {
+	this.indexPending();
 	return Helper.getIndexedAnnotations(type, groupID, sent, this.sentIndex);
     }
 
@@ -226,17 +531,20 @@ class AnnotationContainer implements Serializable {
 	return this.getParaAnnotations(para, type, DEFAULT_GROUP);
     }
     
+    /** Returns a read-only view of the annotations of a type and group in a paragraph (see getSentAnnotations). */
     List<Annotation> getParaAnnotations(Integer para, AnnotationType type, String groupID) {
+	this.indexPending();
 	return Helper.getIndexedAnnotations(type, groupID, para, this.paraIndex);
     }
     
     Integer getNumSentences() {
-	return this.sentIndex.size();
+	this.indexPending();
+	return Helper.getIndexSize(AnnotationType.WF, DEFAULT_GROUP, this.sentIndex);
     }
     
     Integer getNumParagraphs() {
-	if (this.paraIndex.get(AnnotationType.WF) == null) return 0;
-	return this.paraIndex.get(AnnotationType.WF).get(DEFAULT_GROUP).size();
+	this.indexPending();
+	return Helper.getIndexSize(AnnotationType.WF, DEFAULT_GROUP, this.paraIndex);
     }
     
     /** Returns all tokens classified into sentences */
@@ -244,27 +552,33 @@ class AnnotationContainer implements Serializable {
 	return this.getSentences(type, DEFAULT_GROUP);
     }
     
-    /** Return all annotations of type "type" classified into sentences */
+    /** Return all annotations of type "type" classified into sentences. The list is an unmodifiable view of the index. */
     List<List<Annotation>> getSentences(AnnotationType type, String groupID) {
-	List<List<Annotation>> sentences = new ArrayList<List<Annotation>>();
-	for (int sent : Helper.getIndexKeys(type, groupID, this.sentIndex)) {
-	    sentences.add(this.getSentAnnotations(sent, type));
-	}
-	return sentences;
+	this.indexPending();
+	return Helper.getIndexedLists(type, groupID, this.sentIndex);
     }
     
+    /** Indexes the pending annotations and sets the positions of all the annotations, so that looking up their index afterwards
+     * (getIndex and getSentIndex) only reads the container, and can be done from several threads at the same time.
+     */
+    void prepareConcurrentReads() {
+	this.indexPending();
+	for (Map<String, List<Annotation>> groups : this.annotations.values()) {
+	    for (List<Annotation> groupAnnotations : groups.values()) {
+		((AnnotationList) groupAnnotations).numberIfChanged();
+	    }
+	}
+    }
+
     /** Returns all tokens classified into paragraphs */
     List<List<Annotation>> getParagraphs(AnnotationType type) {
 	return this.getParagraphs(type, DEFAULT_GROUP);
     }
     
-    /** Return all annotations of type "type" classified into paragraphs */
+    /** Return all annotations of type "type" classified into paragraphs. The list is an unmodifiable view of the index. */
     List<List<Annotation>> getParagraphs(AnnotationType type, String groupID) {
-	List<List<Annotation>> paragraphs = new ArrayList<List<Annotation>>();
-	for (int para : Helper.getIndexKeys(type, groupID, this.paraIndex)) {
-	    paragraphs.add(this.getParaAnnotations(para, type));
-	}
-	return paragraphs;
+	this.indexPending();
+	return Helper.getIndexedLists(type, groupID, this.paraIndex);
     }
 
     
@@ -272,17 +586,105 @@ class AnnotationContainer implements Serializable {
 	return (ann instanceof MultiLayerAnnotation) ? ((MultiLayerAnnotation) ann).getGroupID() : DEFAULT_GROUP;
     }
     
+    /** Returns the WF which contains the character at the given offset, or null if there is none. */
+    WF getWFAtOffset(int offset) {
+	return this.getOffsetIndex().get(offset);
+    }
+
+    /** Returns the WFs which overlap the range of characters [begin, end), sorted by offset. */
+    List<WF> getWFsInRange(int begin, int end) {
+	return this.getOffsetIndex().get(begin, end);
+    }
+
+    private OffsetIndex getOffsetIndex() {
+	/* Both counts only grow, so their sum changes whenever any of them does */
+	int version = this.textVersion + this.textColumns.getVersion();
+	if ((this.offsetIndex == null) || (this.offsetIndexVersion != version)) {
+	    this.offsetIndex = new OffsetIndex(Helper.get(AnnotationType.WF, DEFAULT_GROUP, this.annotations));
+	    this.offsetIndexVersion = version;
+	}
+	return this.offsetIndex;
+    }
+
+    /** Returns the dependency graph of the sentence of a term, or null if the term has no sentence. */
+    DepGraph getDepGraph(Term term) {
+	Integer sent = term.getSpan().isEmpty() ? null : term.getSent();
+	if (sent == null) {
+	    return null;
+	}
+	this.indexPending();
+	if (this.depGraphs == null) {
+	    this.depGraphs = new NumberIndex<DepGraph>();
+	}
+	DepGraph graph = this.depGraphs.get(sent);
+	if ((graph == null) || !graph.isValid(this.depVersion)) {
+	    List<Annotation> sentTerms = Helper.getIndexedAnnotations(AnnotationType.TERM, DEFAULT_GROUP, sent, this.sentIndex);
+	    /* The first dependency of each term may come from another sentence, as dependencies are kept in the sentence of their head */
+	    List<Dep> firstDeps = new ArrayList<Dep>(sentTerms.size());
+	    for (Annotation sentTerm : sentTerms) {
+		Dep firstDep = null;
+		for (Annotation ann : this.invRefIndex.get(sentTerm, AnnotationType.DEP)) {
+		    if (((Dep) ann).getTo() == sentTerm) {
+			firstDep = (Dep) ann;
+			break;
+		    }
+		}
+		firstDeps.add(firstDep);
+	    }
+	    graph = new DepGraph(sentTerms, Helper.getIndexedAnnotations(AnnotationType.DEP, DEFAULT_GROUP, sent, this.sentIndex), firstDeps, this.depVersion);
+	    this.depGraphs.put(sent, graph);
+	}
+	return graph;
+    }
+
+    /** Returns the number of annotations of a type (in the default group). */
+    int getSize(AnnotationType type) {
+	return Helper.get(type, DEFAULT_GROUP, this.annotations).size();
+    }
+
+    /** Returns the annotation of a type (in the default group) at the given position. */
+    Annotation getAt(AnnotationType type, int index) {
+	return Helper.get(type, DEFAULT_GROUP, this.annotations).get(index);
+    }
+
+    /** Returns the position of an annotation among the annotations of its type and group, or -1 if it is not among them (see AnnotationList.getPosition). */
+    int getIndex(Annotation ann, AnnotationType type) {
+	List<Annotation> typeAnnotations = Helper.get(type, getGroupID(ann), this.annotations);
+	return (typeAnnotations instanceof AnnotationList) ? ((AnnotationList) typeAnnotations).getPosition(ann) : -1;
+    }
+
+    /** Returns the position of an annotation among the annotations of its type and group in its sentence, or -1 if it is not among them. */
+    int getSentIndex(Annotation ann, AnnotationType type) {
+	this.indexPending();
+	if (!(ann instanceof SentenceLevelAnnotation)) {
+	    return -1;
+	}
+	List<Annotation> sentAnnotations = Helper.getIndexedAnnotations(type, getGroupID(ann), ((SentenceLevelAnnotation) ann).getSent(), this.sentIndex);
+	if (sentAnnotations.isEmpty()) {
+	    return -1;
+	}
+	/* The annotations of a sentence are usually together in the list of their type */
+	int index = this.getIndex(ann, type) - this.getIndex(sentAnnotations.get(0), type);
+	if ((index >= 0) && (index < sentAnnotations.size()) && (sentAnnotations.get(index) == ann)) {
+	    return index;
+	}
+	return sentAnnotations.indexOf(ann);
+    }
+
     Integer getPosition(Layer layer, Annotation ann) {
 	return this.layers.get(layer).get(DEFAULT_GROUP).indexOf(ann);
     }
     
     void addSentToPara(Integer sent, Integer para) {
-	Set<Integer> paraSents = this.paraSentIndex.get(para);
+	List<Integer> paraSents = this.paraSentIndex.get(para);
 	if (paraSents == null) {
-	    paraSents = new HashSet<Integer>();
+	    paraSents = new ArrayList<Integer>();
 	    this.paraSentIndex.put(para, paraSents);
 	}
-	paraSents.add(sent);
+	int pos = Collections.binarySearch(paraSents, sent);
+	if (pos < 0) {
+	    paraSents.add(-pos - 1, sent);
+	}
     }
     
     /*
@@ -300,43 +702,44 @@ class AnnotationContainer implements Serializable {
     
     private static class Helper {
 	
-	static <T> void addToIndex(Annotation ann, T type, String groupID, Integer key, Map<T, Map<String, Map<Integer, List<Annotation>>>> index) {
-	    if (key != null) {
-		Map<String, Map<Integer, List<Annotation>> > typeIndex = index.get(type);
-		if (typeIndex == null) {
-		    typeIndex = new HashMap<String, Map<Integer, List<Annotation>> >();
-		    index.put(type, typeIndex);
-		}
-		Map<Integer, List<Annotation>> groupIndex = typeIndex.get(groupID);
-		if (groupIndex == null) {
-		    groupIndex = new HashMap<Integer, List<Annotation>>();
-		    typeIndex.put(groupID, groupIndex);
-		}
-		List<Annotation> annotations = groupIndex.get(key);
-		if (annotations == null) {
-		    annotations = new ArrayList<Annotation>();
-		    groupIndex.put(key, annotations);
-		}
-		annotations.add(ann);
+	/** Appends an annotation to the list of a key, and returns the list (or null if there is no key) */
+	static <T> List<Annotation> addToIndex(Annotation ann, T type, String groupID, Integer key, Map<T, Map<String, NumberIndex<List<Annotation>>>> index) {
+	    if (key == null) {
+		return null;
+	    }
+	    Map<String, NumberIndex<List<Annotation>>> typeIndex = index.get(type);
+	    if (typeIndex == null) {
+		typeIndex = new HashMap<String, NumberIndex<List<Annotation>>>();
+		index.put(type, typeIndex);
+	    }
+	    NumberIndex<List<Annotation>> groupIndex = typeIndex.get(groupID);
+	    if (groupIndex == null) {
+		groupIndex = new NumberIndex<List<Annotation>>();
+		typeIndex.put(groupID, groupIndex);
 	    }
+	    List<Annotation> annotations = groupIndex.get(key);
+	    if (annotations == null) {
+		annotations = new IndexedList();
+		groupIndex.put(key, annotations);
+	    }
+	    annotations.add(ann);
+	    return annotations;
 	}
 	
-	static <T> void removeFromIndex(Annotation ann, T type, String groupID, Integer key, Map<T, Map<String, Map<Integer, List<Annotation>>>> index) {
+	static <T> void removeFromIndex(Annotation ann, T type, String groupID, Integer key, Map<T, Map<String, NumberIndex<List<Annotation>>>> index) {
 	    if (key != null) {
-		Map<String, Map<Integer, List<Annotation>> > typeIndex = index.get(type);
-		if (typeIndex != null) {
-		    Map<Integer, List<Annotation>> groupIndex = typeIndex.get(groupID);
-		    if (groupIndex != null) {
-			List<Annotation> annotations = groupIndex.get(key);
-			if (annotations != null) {
-			    annotations.remove(ann);
-			}
+		NumberIndex<List<Annotation>> groupIndex = getIndex(type, groupID, index);
+		if (groupIndex != null) {
+		    List<Annotation> annotations = groupIndex.get(key);
+		    if (annotations != null) {
+			annotations.remove(ann);
 		    }
 		}
 	    }
 	}
 	
-	static <T> void addAnnotation(Annotation ann, T type, String groupID, Integer position, Map<T, Map<String, List<Annotation>>> container) {
+	/** Adds an annotation and returns the list it has been added to */
+	static <T> List<Annotation> addAnnotation(Annotation ann, T type, String groupID, Integer position, Map<T, Map<String, List<Annotation>>> container) {
 	    Map<String, List<Annotation>> typeGroups = container.get(type);
 	    if (typeGroups == null) {
 		typeGroups = new HashMap<String, List<Annotation>>();
@@ -344,7 +747,7 @@ class AnnotationContainer implements Serializable {
 	    }
 	    List<Annotation> annotations = typeGroups.get(groupID);
 	    if (annotations == null) {
-		annotations = new ArrayList<Annotation>();
+		annotations = new AnnotationList();
 		typeGroups.put(groupID, annotations);
 	    }
 	    if ((position == null) || (position > annotations.size())) {
@@ -352,69 +755,76 @@ class AnnotationContainer implements Serializable {
 	    } else {
 		annotations.add(position, ann);
 	    }
+	    return annotations;
 	}
 
-	static <T> List<Annotation> getIndexedAnnotations(T type, String groupID, Integer key, Map<T, Map<String, Map<Integer, List<Annotation>>>> index) {
-	    Map<String, Map<Integer, List<Annotation>> > typeIndex = index.get(type);
-	    if (typeIndex == null) return new ArrayList<Annotation>();
-	    Map<Integer, List<Annotation>> groupIndex = typeIndex.get(groupID);
-	    if (groupIndex == null) return new ArrayList<Annotation>();
-	    List<Annotation> annotations = groupIndex.get(key);
-	    return (annotations == null) ? new ArrayList<Annotation>() : annotations;
+	static <T> NumberIndex<List<Annotation>> getIndex(T type, String groupID, Map<T, Map<String, NumberIndex<List<Annotation>>>> index) {
+	    Map<String, NumberIndex<List<Annotation>>> typeIndex = index.get(type);
+	    return (typeIndex == null) ? null : typeIndex.get(groupID);
 	}
-	
-	static <T> List<Integer> getIndexKeys(T type, String groupID, Map<T, Map<String, Map<Integer, List<Annotation>>>> index) {
-	    Map<String, Map<Integer, List<Annotation>>> typeIndex = index.get(type);
-	    if (typeIndex != null) {
-		Map<Integer, List<Annotation>> groupIndex = typeIndex.get(groupID);
-		if (groupIndex != null) {
-		    List<Integer> keys= new ArrayList<Integer>(groupIndex.keySet());
-		    Collections.sort(keys);
-		    return keys;
-		}
-	    }
-	    return new ArrayList<Integer>();
+
+	/** Returns a read-only view of the annotations of a key, or an empty list if there are none yet (which is not updated when some are added). */
+	static <T> List<Annotation> getIndexedAnnotations(T type, String groupID, Integer key, Map<T, Map<String, NumberIndex<List<Annotation>>>> index) {
+	    NumberIndex<List<Annotation>> groupIndex = getIndex(type, groupID, index);
+	    List<Annotation> annotations = ((groupIndex == null) || (key == null)) ? null : groupIndex.get(key);
+	    return (annotations == null) ? Collections.<Annotation>emptyList() : Helper.view(annotations);
 	}
 	
-	static <T> void addInvReference(Annotation src, Annotation ref, T type, Map<Annotation, Map<T, List<Annotation>>> index) {
-	    Map<T, List<Annotation>> annIndex = index.get(ref);
-	    if (annIndex == null) {
-		annIndex = new HashMap<T, List<Annotation>>();
-		index.put(ref, annIndex);
+	/** Returns a read-only view of the lists of all the keys, in key order. Each list is a read-only view too. */
+	static <T> List<List<Annotation>> getIndexedLists(T type, String groupID, Map<T, Map<String, NumberIndex<List<Annotation>>>> index) {
+	    NumberIndex<List<Annotation>> groupIndex = getIndex(type, groupID, index);
+	    if (groupIndex == null) {
+		return Collections.emptyList();
 	    }
-	    List<Annotation> refAnnotations = annIndex.get(type);
-	    if (refAnnotations == null) {
-		refAnnotations = new ArrayList<Annotation>();
-		annIndex.put(type, refAnnotations);
-	    }
-	    refAnnotations.add(src);
+	    final List<List<Annotation>> lists = groupIndex.values();
+	    return new AbstractList<List<Annotation>>() {
+		@Override
+		public List<Annotation> get(int index) {
+		    return Helper.view(lists.get(index));
+		}
+
+		@Override
+		public int size() {
+		    return lists.size();
+		}
+	    };
 	}
-	
-	static <T> List<Annotation> getInvReferences(Annotation ann, T type, Map<Annotation, Map<T, List<Annotation>>> index) {
-	    Map<T, List<Annotation>> annIndex = index.get(ann);
-	    if (annIndex == null) return new ArrayList<Annotation>();
-	    List<Annotation> annotations = annIndex.get(type);
-	    return (annotations == null) ? new ArrayList<Annotation>() : annotations;
+
+	static <T> int getIndexSize(T type, String groupID, Map<T, Map<String, NumberIndex<List<Annotation>>>> index) {
+	    NumberIndex<List<Annotation>> groupIndex = getIndex(type, groupID, index);
+	    return (groupIndex == null) ? 0 : groupIndex.size();
 	}
 	
-	static <T> List<Annotation> getInvReferences(Annotation ann, Map<Annotation, Map<T, List<Annotation>>> index) {
-	    List<Annotation> annotations = new ArrayList<Annotation>();
-	    Map<T, List<Annotation>> annIndex = index.get(ann);
-	    if (annIndex == null) return new ArrayList<Annotation>();
-	    for (T type: annIndex.keySet()) {
-		annotations.addAll(annIndex.get(type));
+	/** Returns a read-only view of the annotations of all the groups of a type. When there are several groups, the view concatenates them. */
+	static <T> List<Annotation> getView(T type, Map<T, Map<String, List<Annotation>>> container) {
+	    Map<String, List<Annotation>> groups = container.get(type);
+	    if ((groups == null) || groups.isEmpty()) {
+		return Collections.emptyList();
 	    }
-	    return annotations;
+	    if (groups.size() == 1) {
+		return Helper.view(groups.values().iterator().next());
+	    }
+	    return new ConcatList(new ArrayList<List<Annotation>>(groups.values()));
+	}
+
+	/** Returns a read-only view of the annotations of a group. */
+	static <T> List<Annotation> getView(T type, String group, Map<T, Map<String, List<Annotation>>> container) {
+	    Map<String, List<Annotation>> groups = container.get(type);
+	    List<Annotation> annotations = (groups == null) ? null : groups.get(group);
+	    return (annotations == null) ? Collections.<Annotation>emptyList() : Helper.view(annotations);
 	}
 
-	static <T> List<Annotation> get(T type, Map<T, Map<String, List<Annotation>>> container) {
-	    List<Annotation> annotations = new ArrayList<Annotation>();
-	    for (String group : Helper.getGroupIDs(type, container)) {
-		annotations.addAll(Helper.get(type, group, container));
+	private static List<Annotation> view(List<Annotation> annotations) {
+	    if (annotations instanceof AnnotationList) {
+		return ((AnnotationList) annotations).view();
 	    }
-	    return annotations;
+	    if (annotations instanceof IndexedList) {
+		return ((IndexedList) annotations).view();
+	    }
+	    return Collections.unmodifiableList(annotations);
 	}
 
+	/** Returns the list where the annotations of a group are kept, to be used only inside the container. */
 	static <T> List<Annotation> get(T type, String group, Map<T, Map<String, List<Annotation>>> container) {
 	    Map<String, List<Annotation>> groups = container.get(type);
 	    if (groups == null) return new ArrayList<Annotation>();
@@ -435,8 +845,147 @@ class AnnotationContainer implements Serializable {
 	    Map<String, List<Annotation>> groups = container.get(type);
 	    if (groups == null) return;
 	    List<Annotation> annotations = groups.get(group);
-	    if (annotations != null) groups.remove(ann);
+	    if (annotations != null) annotations.remove(ann);
 	} 
     }
-    
+
+
+    /** List of the annotations of a sentence or paragraph in the indexes, which keeps its read-only view as AnnotationList does */
+    static class IndexedList extends ArrayList<Annotation> {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient List<Annotation> view;
+
+	List<Annotation> view() {
+	    if (view == null) {
+		view = Collections.unmodifiableList(this);
+	    }
+	    return view;
+	}
+    }
+
+
+    /** List of the annotations of a group, which keeps its read-only view, so that the getters don't need to create one on each call */
+    static class AnnotationList extends ArrayList<Annotation> {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient List<Annotation> view;
+	/** Container and layer of the annotations of the list, marked as modified when any of them changes (see Annotation.modified()) */
+	private transient AnnotationContainer container;
+	private transient Layer layer;
+	/** Whether the positions of the annotations have been set since the list last changed (see getPosition) */
+	private transient boolean numbered;
+	private transient int numberedModCount;
+	/** Positions of the annotations whose position field is kept by the list of another document */
+	private transient Map<Annotation, Integer> foreign;
+
+	List<Annotation> view() {
+	    if (view == null) {
+		view = Collections.unmodifiableList(this);
+	    }
+	    return view;
+	}
+
+	void setLayer(AnnotationContainer container, Layer layer) {
+	    this.container = container;
+	    this.layer = layer;
+	}
+
+	void modified() {
+	    if (this.container != null) {
+		this.container.setModified(this.layer);
+	    }
+	}
+
+	/** Sets the position of an annotation just added to the list. If the annotation kept its position for another list, that list has to set the positions of its annotations again. */
+	void setPosition(Annotation ann, int position) {
+	    if ((ann.positionList != null) && (ann.positionList != this)) {
+		ann.positionList.numbered = false;
+	    }
+	    ann.positionList = this;
+	    ann.position = position;
+	}
+
+	/** Returns the position of an annotation in the list, or -1 if it is not in it.
+	 * Each annotation keeps its position, which is set when it is added. When it turns out to be wrong (after an insertion or a removal),
+	 * the positions of the whole list are set again, but only once until the list changes again: annotations which are not in the list
+	 * (such as the components of compound terms, or the annotations of another document) are then found not to be in it without going through the list.
+	 */
+	int getPosition(Annotation ann) {
+	    int position = this.find(ann);
+	    if (position < 0) {
+		this.numberIfChanged();
+		position = this.find(ann);
+	    }
+	    return position;
+	}
+
+	void numberIfChanged() {
+	    if (!(this.numbered && (this.numberedModCount == this.modCount))) {
+		this.number();
+	    }
+	}
+
+	private int find(Annotation ann) {
+	    int position = (ann.positionList == this) ? ann.position : -1;
+	    if ((position < 0) && (this.foreign != null)) {
+		Integer foreignPosition = this.foreign.get(ann);
+		position = (foreignPosition == null) ? -1 : foreignPosition;
+	    }
+	    return ((position >= 0) && (position < this.size()) && (this.get(position) == ann)) ? position : -1;
+	}
+
+	private void number() {
+	    this.foreign = null;
+	    for (int i = 0; i < this.size(); i++) {
+		Annotation ann = this.get(i);
+		if ((ann.positionList == null) || (ann.positionList == this)) {
+		    ann.positionList = this;
+		    ann.position = i;
+		} else {
+		    if (this.foreign == null) {
+			this.foreign = new IdentityHashMap<Annotation, Integer>();
+		    }
+		    this.foreign.put(ann, i);
+		}
+	    }
+	    this.numbered = true;
+	    this.numberedModCount = this.modCount;
+	}
+    }
+
+
+    /** Read-only view of several lists of annotations, one after the other */
+    private static class ConcatList extends AbstractList<Annotation> {
+
+	private List<List<Annotation>> parts;
+
+	ConcatList(List<List<Annotation>> parts) {
+	    this.parts = parts;
+	}
+
+	@Override
+	public Annotation get(int index) {
+	    int i = index;
+	    for (int p = 0; p < parts.size(); p++) {
+		List<Annotation> part = parts.get(p);
+		if (i < part.size()) {
+		    return part.get(i);
+		}
+		i -= part.size();
+	    }
+	    throw new IndexOutOfBoundsException(index + " >= " + size());
+	}
+
+	@Override
+	public int size() {
+	    int size = 0;
+	    for (int p = 0; p < parts.size(); p++) {
+		size += parts.get(p).size();
+	    }
+	    return size;
+	}
+    }
 }
@@ -0,0 +1,792 @@
+package ixa.kaflib;
+
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/** Builds a KAFDocument from the binary format written by BinaryWriter.
+ * Annotations are created through the same KAFDocument methods the XML loader uses, reading each layer block row by row.
+ */
+class BinaryLoader {
+
+    private static final int SPAN_SIZE = BinaryWriter.SPAN_SIZE;
+    private static final int SPAN_TARGETS = BinaryWriter.SPAN_TARGETS;
+    private static final int EXTREF_COUNT = BinaryWriter.EXTREF_COUNT;
+    private static final int SENTIMENT = BinaryWriter.SENTIMENT;
+
+    private byte[] data;
+    private int position;
+    private String[] strings;
+    private KAFDocument kaf;
+    private List<WF> wfs = new ArrayList<WF>();
+    private List<Term> terms = new ArrayList<Term>();
+    private List<Relational> relationals = new ArrayList<Relational>();
+    private List<Predicate> predicates = new ArrayList<Predicate>();
+    private List<Timex3> timexes = new ArrayList<Timex3>();
+
+    private BinaryLoader(byte[] data) {
+	this.data = data;
+    }
+
+    /** Reads a whole document from the given stream. The stream is not closed. */
+    static KAFDocument load(InputStream stream) throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	byte[] buffer = new byte[65536];
+	int length;
+	while ((length = stream.read(buffer)) != -1) {
+	    out.write(buffer, 0, length);
+	}
+	return new BinaryLoader(out.toByteArray()).load();
+    }
+
+    private KAFDocument load() throws IOException {
+	byte[] magic = BinaryWriter.MAGIC;
+	if ((data.length < magic.length) || !Arrays.equals(magic, Arrays.copyOf(data, magic.length))) {
+	    throw new IOException("Not a binary NAF document");
+	}
+	position = magic.length;
+	int version = readInt();
+	if (version != BinaryWriter.VERSION) {
+	    throw new IOException("Unsupported binary NAF version: " + version);
+	}
+	strings = new String[readInt()];
+	for (int i = 0; i < strings.length; i++) {
+	    int length = readInt();
+	    checkAvailable(length);
+	    strings[i] = new String(data, position, length, "UTF-8");
+	    position += length;
+	}
+	int blockCount = readInt();
+	for (int i = 0; i < blockCount; i++) {
+	    String name = string(readInt());
+	    Block block = new Block(readInt());
+	    for (int j = 0; j < block.columns.length; j++) {
+		int[] column = new int[readInt()];
+		for (int k = 0; k < column.length; k++) {
+		    column[k] = readInt();
+		}
+		block.columns[j] = column;
+	    }
+	    if (name.equals("nafHeader")) {
+		loadHeader(block);
+	    } else if (kaf == null) {
+		throw new IOException("Binary NAF document without header");
+	    } else {
+		loadLayer(name, block);
+	    }
+	}
+	data = null;
+	kaf.endBulkUpdate();
+	kaf.getAnnotationContainer().getTextColumns().trimToSize();
+	kaf.getAnnotationContainer().clearModified();
+	return kaf;
+    }
+
+    private void loadLayer(String name, Block block) throws IOException {
+	if (name.equals("raw")) {
+	    if (block.size(0) > 0) {
+		kaf.setRawText(string(block.next(0)));
+	    }
+	} else if (name.equals("text")) {
+	    loadText(block);
+	} else if (name.equals("terms")) {
+	    while (block.hasNext(0)) {
+		loadTerm(block, null);
+	    }
+	} else if (name.equals("markables")) {
+	    loadMarkables(block);
+	} else if (name.equals("deps")) {
+	    loadDeps(block);
+	} else if (name.equals("chunks")) {
+	    loadChunks(block);
+	} else if (name.equals("entities")) {
+	    loadEntities(block);
+	} else if (name.equals("coreferences")) {
+	    loadCoreferences(block);
+	} else if (name.equals("timeExpressions")) {
+	    loadTimeExpressions(block);
+	} else if (name.equals("factualities")) {
+	    loadFactualities(block);
+	} else if (name.equals("factualityLayer")) {
+	    loadFactualityLayer(block);
+	} else if (name.equals("properties") || name.equals("categories")) {
+	    loadFeatures(block, name.equals("properties"));
+	} else if (name.equals("opinions")) {
+	    loadOpinions(block);
+	} else if (name.equals("relations")) {
+	    loadRelations(block);
+	} else if (name.equals("srl")) {
+	    loadSrl(block);
+	} else if (name.equals("constituency")) {
+	    while (block.hasNext(0)) {
+		kaf.newConstituent(loadTreeNode(block), string(block.next(0)));
+	    }
+	} else if (name.equals("temporalRelations")) {
+	    loadTemporalRelations(block);
+	} else if (name.equals("causalRelations")) {
+	    loadCausalRelations(block);
+	} else if (name.equals("topics")) {
+	    loadTopics(block);
+	} else if (name.equals("attribution")) {
+	    loadAttribution(block);
+	} else if (name.equals("passedThrough")) {
+	    loadPassedThroughLayers(block);
+	} else if (name.equals("unknown")) {
+	    loadUnknownLayers(block);
+	}
+    }
+
+    private void loadHeader(Block block) {
+	kaf = new KAFDocument(string(block.next(0)), string(block.next(1)));
+	kaf.beginBulkUpdate();
+	if (block.next(2) == 1) {
+	    KAFDocument.FileDesc fd = kaf.createFileDesc();
+	    fd.author = string(block.next(3));
+	    fd.title = string(block.next(4));
+	    fd.creationtime = string(block.next(5));
+	    fd.filename = string(block.next(6));
+	    fd.filetype = string(block.next(7));
+	    fd.pages = optInt(block.next(8));
+	    fd.publisher = string(block.next(9));
+	    fd.section = string(block.next(10));
+	    fd.location = string(block.next(11));
+	    fd.magazine = string(block.next(12));
+	}
+	if (block.next(13) == 1) {
+	    KAFDocument.Public pub = kaf.createPublic();
+	    pub.publicId = string(block.next(14));
+	    pub.uri = string(block.next(15));
+	}
+	while (block.hasNext(16)) {
+	    KAFDocument.LinguisticProcessor lp = kaf.addLinguisticProcessor(string(block.next(16)), string(block.next(17)));
+	    lp.timestamp = string(block.next(18));
+	    lp.beginTimestamp = string(block.next(19));
+	    lp.endTimestamp = string(block.next(20));
+	    lp.version = string(block.next(21));
+	    lp.hostname = string(block.next(22));
+	}
+    }
+
+    private void loadText(Block block) {
+	while (block.hasNext(0)) {
+	    WF wf = kaf.newWF(string(block.next(0)), block.next(1), block.next(2), string(block.next(7)), block.next(3));
+	    Integer para = optInt(block.next(4));
+	    if (para != null) {
+		wf.setPara(para);
+	    }
+	    Integer page = optInt(block.next(5));
+	    if (page != null) {
+		wf.setPage(page);
+	    }
+	    String xpath = string(block.next(6));
+	    if (xpath != null) {
+		wf.setXpath(xpath);
+	    }
+	    wfs.add(wf);
+	}
+    }
+
+    private void loadTerm(Block block, Term parent) throws IOException {
+	String id = string(block.next(0));
+	String type = symbol(block.next(1));
+	String lemma = string(block.next(2));
+	String pos = symbol(block.next(3));
+	String morphofeat = symbol(block.next(4));
+	String termcase = symbol(block.next(5));
+	boolean isComponent = block.next(6) == 1;
+	boolean isHead = block.next(7) == 1;
+	int componentCount = block.next(8);
+	Term.Sentiment sentiment = (block.next(9) == 1) ? loadSentiment(block) : null;
+	Term term = kaf.newTerm(id, loadSpan(block, wfs), isComponent);
+	if (type != null) {
+	    term.setType(type);
+	}
+	if (lemma != null) {
+	    term.setLemma(lemma);
+	}
+	if (pos != null) {
+	    term.setPos(pos);
+	}
+	if (morphofeat != null) {
+	    term.setMorphofeat(morphofeat);
+	}
+	if (termcase != null) {
+	    term.setCase(termcase);
+	}
+	if (sentiment != null) {
+	    term.setSentiment(sentiment);
+	}
+	term.addExternalRefs(loadExternalRefs(block));
+	terms.add(term);
+	if (parent != null) {
+	    parent.addComponent(term, isHead);
+	}
+	for (int i = 0; i < componentCount; i++) {
+	    loadTerm(block, term);
+	}
+    }
+
+    private void loadMarkables(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    String source = string(block.next(1));
+	    String type = symbol(block.next(2));
+	    String lemma = string(block.next(3));
+	    String pos = symbol(block.next(4));
+	    String morphofeat = symbol(block.next(5));
+	    String markcase = symbol(block.next(6));
+	    Term.Sentiment sentiment = (block.next(7) == 1) ? loadSentiment(block) : null;
+	    Span<WF> span = loadSpan(block, wfs);
+	    Mark mark = (source == null) ? kaf.newMark(id, span) : kaf.newMark(id, source, span);
+	    if (sentiment != null) {
+		mark.setSentiment(sentiment);
+	    }
+	    if (type != null) {
+		mark.setType(type);
+	    }
+	    if (lemma != null) {
+		mark.setLemma(lemma);
+	    }
+	    if (pos != null) {
+		mark.setPos(pos);
+	    }
+	    if (morphofeat != null) {
+		mark.setMorphofeat(morphofeat);
+	    }
+	    if (markcase != null) {
+		mark.setCase(markcase);
+	    }
+	    mark.addExternalRefs(loadExternalRefs(block));
+	}
+    }
+
+    private void loadDeps(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    Dep dep = kaf.newDep(get(terms, block.next(0)), get(terms, block.next(1)), string(block.next(2)));
+	    String depcase = symbol(block.next(3));
+	    if (depcase != null) {
+		dep.setCase(depcase);
+	    }
+	}
+    }
+
+    private void loadChunks(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    String phrase = string(block.next(1));
+	    String chunkcase = symbol(block.next(2));
+	    Chunk chunk = kaf.newChunk(id, phrase, loadSpan(block, terms));
+	    if (chunkcase != null) {
+		chunk.setCase(chunkcase);
+	    }
+	}
+    }
+
+    private void loadEntities(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    String type = symbol(block.next(1));
+	    String source = symbol(block.next(2));
+	    Entity entity = kaf.newEntity(id, loadSpans(block, 3));
+	    if (type != null) {
+		entity.setType(type);
+	    }
+	    if (source != null) {
+		entity.setSource(source);
+	    }
+	    entity.addExternalRefs(loadExternalRefs(block));
+	    relationals.add(entity);
+	}
+    }
+
+    private void loadCoreferences(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    String type = symbol(block.next(1));
+	    Coref coref = kaf.newCoref(id, loadSpans(block, 2));
+	    if (type != null) {
+		coref.setType(type);
+	    }
+	    coref.addExternalRefs(loadExternalRefs(block));
+	}
+    }
+
+    private void loadTimeExpressions(Block block) throws IOException {
+	List<int[]> points = new ArrayList<int[]>();
+	while (block.hasNext(0)) {
+	    Timex3 timex3 = kaf.newTimex3(string(block.next(0)), string(block.next(1)));
+	    points.add(new int[] { block.next(2), block.next(3) });
+	    String quant = string(block.next(4));
+	    if (quant != null) {
+		timex3.setQuant(quant);
+	    }
+	    String freq = string(block.next(5));
+	    if (freq != null) {
+		timex3.setFreq(freq);
+	    }
+	    String functionInDocument = string(block.next(6));
+	    if (functionInDocument != null) {
+		timex3.setFunctionInDocument(functionInDocument);
+	    }
+	    int temporalFunction = block.next(7);
+	    if (temporalFunction > 0) {
+		timex3.setTemporalFunction(temporalFunction == 2);
+	    }
+	    String value = string(block.next(8));
+	    if (value != null) {
+		timex3.setValue(value);
+	    }
+	    String valueFromFunction = string(block.next(9));
+	    if (valueFromFunction != null) {
+		timex3.setValueFromFunction(valueFromFunction);
+	    }
+	    String mod = string(block.next(10));
+	    if (mod != null) {
+		timex3.setMod(mod);
+	    }
+	    String anchorTimeId = string(block.next(11));
+	    if (anchorTimeId != null) {
+		timex3.setAnchorTimeId(anchorTimeId);
+	    }
+	    String comment = string(block.next(12));
+	    if (comment != null) {
+		timex3.setComment(comment);
+	    }
+	    if (block.next(13) == 1) {
+		timex3.setSpan(loadSpan(block, wfs));
+	    }
+	    timexes.add(timex3);
+	}
+	// Begin and end points may refer to time expressions which come later
+	for (int i = 0; i < points.size(); i++) {
+	    int[] point = points.get(i);
+	    if (point[0] > 0) {
+		timexes.get(i).setBeginPoint(get(timexes, point[0] - 1));
+	    }
+	    if (point[1] > 0) {
+		timexes.get(i).setEndPoint(get(timexes, point[1] - 1));
+	    }
+	}
+    }
+
+    private void loadFactualities(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    Factuality factuality = kaf.newFactuality(string(block.next(0)), loadSpan(block, terms));
+	    int factValCount = block.next(1);
+	    for (int i = 0; i < factValCount; i++) {
+		Factuality.FactVal factVal = kaf.newFactVal(string(block.next(2)), string(block.next(3)));
+		String source = symbol(block.next(4));
+		if (source != null) {
+		    factVal.setSource(source);
+		}
+		String confidence = string(block.next(5));
+		if (confidence != null) {
+		    factVal.setConfidence(Float.valueOf(confidence));
+		}
+		factuality.addFactVal(factVal);
+	    }
+	}
+    }
+
+    private void loadFactualityLayer(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    Factvalue factValue = kaf.newFactvalue(get(wfs, block.next(0)), string(block.next(1)));
+	    String confidence = string(block.next(2));
+	    if (confidence != null) {
+		factValue.setConfidence(Double.valueOf(confidence));
+	    }
+	}
+    }
+
+    private void loadFeatures(Block block, boolean properties) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    String lemma = string(block.next(1));
+	    List<Span<Term>> references = loadSpans(block, 2);
+	    Feature feature = properties ? kaf.newProperty(id, lemma, references) : kaf.newCategory(id, lemma, references);
+	    feature.addExternalRefs(loadExternalRefs(block));
+	    relationals.add(feature);
+	}
+    }
+
+    private void loadOpinions(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    Opinion opinion = kaf.newOpinion(string(block.next(0)));
+	    if (block.next(1) == 1) {
+		String type = symbol(block.next(4));
+		Opinion.OpinionHolder holder = opinion.createOpinionHolder(loadSpan(block, terms));
+		if (type != null) {
+		    holder.setType(type);
+		}
+	    }
+	    if (block.next(2) == 1) {
+		opinion.createOpinionTarget(loadSpan(block, terms));
+	    }
+	    if (block.next(3) == 1) {
+		String polarity = symbol(block.next(5));
+		String strength = symbol(block.next(6));
+		String subjectivity = symbol(block.next(7));
+		String sentimentSemanticType = string(block.next(8));
+		String sentimentProductFeature = string(block.next(9));
+		Opinion.OpinionExpression expression = opinion.createOpinionExpression(loadSpan(block, terms));
+		if (polarity != null) {
+		    expression.setPolarity(polarity);
+		}
+		if (strength != null) {
+		    expression.setStrength(strength);
+		}
+		if (subjectivity != null) {
+		    expression.setSubjectivity(subjectivity);
+		}
+		if (sentimentSemanticType != null) {
+		    expression.setSentimentSemanticType(sentimentSemanticType);
+		}
+		if (sentimentProductFeature != null) {
+		    expression.setSentimentProductFeature(sentimentProductFeature);
+		}
+	    }
+	}
+    }
+
+    private void loadRelations(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    Relation relation = kaf.newRelation(string(block.next(0)), get(relationals, block.next(1)), get(relationals, block.next(2)));
+	    String confidence = string(block.next(3));
+	    if (confidence != null) {
+		relation.setConfidence(Float.parseFloat(confidence));
+	    }
+	}
+    }
+
+    private void loadSrl(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    String uri = string(block.next(1));
+	    String confidence = string(block.next(2));
+	    Predicate predicate = kaf.newPredicate(id, loadSpan(block, terms));
+	    if (uri != null) {
+		predicate.setUri(uri);
+	    }
+	    if (confidence != null) {
+		predicate.setConfidence(Float.valueOf(confidence));
+	    }
+	    predicate.addExternalRefs(loadExternalRefs(block));
+	    int roleCount = block.next(3);
+	    for (int i = 0; i < roleCount; i++) {
+		String roleId = string(block.next(4));
+		String semRole = string(block.next(5));
+		Predicate.Role role = kaf.newRole(roleId, predicate, semRole, loadSpan(block, terms));
+		role.addExternalRefs(loadExternalRefs(block));
+		predicate.addRole(role);
+	    }
+	    predicates.add(predicate);
+	}
+    }
+
+    private TreeNode loadTreeNode(Block block) throws IOException {
+	String id = string(block.next(1));
+	boolean isTerminal = block.next(2) == 1;
+	String edgeId = string(block.next(4));
+	boolean isHead = block.next(5) == 1;
+	TreeNode node;
+	if (isTerminal) {
+	    node = kaf.newTerminal(id, loadSpan(block, terms));
+	} else {
+	    NonTerminal nonTerminal = kaf.newNonTerminal(id, string(block.next(3)));
+	    int childCount = block.next(6);
+	    for (int i = 0; i < childCount; i++) {
+		try {
+		    nonTerminal.addChild(loadTreeNode(block));
+		} catch (Exception e) {
+		    throw new IOException(e.getMessage(), e);
+		}
+	    }
+	    node = nonTerminal;
+	}
+	node.setEdgeId(edgeId);
+	node.setHead(isHead);
+	return node;
+    }
+
+    private void loadTemporalRelations(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    if (block.next(1) == 1) {
+		kaf.newTLink(id, tLinkReferable(block.next(2)), tLinkReferable(block.next(3)), string(block.next(4)));
+	    } else {
+		int anchorTime = block.next(5);
+		int beginPoint = block.next(6);
+		int endPoint = block.next(7);
+		PredicateAnchor predAnchor = kaf.newPredicateAnchor(id, loadSpan(block, predicates));
+		if (anchorTime > 0) {
+		    predAnchor.setAnchorTime(get(timexes, anchorTime - 1));
+		}
+		if (beginPoint > 0) {
+		    predAnchor.setBeginPoint(get(timexes, beginPoint - 1));
+		}
+		if (endPoint > 0) {
+		    predAnchor.setEndPoint(get(timexes, endPoint - 1));
+		}
+	    }
+	}
+    }
+
+    private TLinkReferable tLinkReferable(int value) throws IOException {
+	if ((value & 1) == 1) {
+	    return get(predicates, value >>> 1);
+	}
+	return get(timexes, value >>> 1);
+    }
+
+    private void loadCausalRelations(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    CLink cLink = kaf.newCLink(string(block.next(0)), get(predicates, block.next(1)), get(predicates, block.next(2)));
+	    String relType = symbol(block.next(3));
+	    if (relType != null) {
+		cLink.setRelType(relType);
+	    }
+	}
+    }
+
+    private void loadTopics(Block block) {
+	while (block.hasNext(0)) {
+	    Topic topic = kaf.newTopic(string(block.next(0)));
+	    String source = symbol(block.next(1));
+	    if (source != null) {
+		topic.setSource(source);
+	    }
+	    String method = string(block.next(2));
+	    if (method != null) {
+		topic.setMethod(method);
+	    }
+	    String uri = string(block.next(3));
+	    if (uri != null) {
+		topic.setURI(uri);
+	    }
+	    String confidence = string(block.next(4));
+	    if (confidence != null) {
+		topic.setConfidence(Float.valueOf(confidence));
+	    }
+	}
+    }
+
+    private void loadAttribution(Block block) throws IOException {
+	while (block.hasNext(0)) {
+	    String id = string(block.next(0));
+	    boolean hasSource = block.next(1) == 1;
+	    boolean hasCue = block.next(2) == 1;
+	    Statement statement = kaf.newStatement(id, kaf.newStatementTarget(loadSpan(block, terms)));
+	    if (hasSource) {
+		statement.setSource(kaf.newStatementSource(loadSpan(block, terms)));
+	    }
+	    if (hasCue) {
+		statement.setCue(kaf.newStatementCue(loadSpan(block, terms)));
+	    }
+	}
+    }
+
+    /** The XML of the layers which were not loaded is joined into a new source, from which it is written back */
+    private void loadPassedThroughLayers(Block block) {
+	AnnotationContainer annotationContainer = kaf.getAnnotationContainer();
+	StringBuilder source = new StringBuilder();
+	List<String> elements = new ArrayList<String>();
+	List<int[]> ranges = new ArrayList<int[]>();
+	while (block.hasNext(0)) {
+	    elements.add(string(block.next(0)));
+	    int begin = source.length();
+	    source.append(string(block.next(1)));
+	    ranges.add(new int[] {begin, source.length()});
+	}
+	if (elements.isEmpty()) {
+	    return;
+	}
+	annotationContainer.setSource(source.toString());
+	for (int i = 0; i < elements.size(); i++) {
+	    String element = elements.get(i);
+	    annotationContainer.setPassedThroughRange(element, ranges.get(i)[0], ranges.get(i)[1], StAXLoader.layersOf(element));
+	}
+    }
+
+    private void loadUnknownLayers(Block block) throws IOException {
+	SAXBuilder builder = new SAXBuilder();
+	while (block.hasNext(0)) {
+	    try {
+		kaf.addUnknownLayer(builder.build(new StringReader(string(block.next(0)))).detachRootElement());
+	    } catch (JDOMException e) {
+		throw new IOException(e.getMessage(), e);
+	    }
+	}
+    }
+
+    private List<Span<Term>> loadSpans(Block block, int countColumn) throws IOException {
+	int count = block.next(countColumn);
+	List<Span<Term>> spans = new ArrayList<Span<Term>>(count);
+	for (int i = 0; i < count; i++) {
+	    spans.add(loadSpan(block, terms));
+	}
+	return spans;
+    }
+
+    private <T extends IdentifiableAnnotation> Span<T> loadSpan(Block block, List<T> annotations) throws IOException {
+	int size = block.next(SPAN_SIZE);
+	List<T> targets = new ArrayList<T>(size);
+	T head = null;
+	for (int i = 0; i < size; i++) {
+	    int target = block.next(SPAN_TARGETS);
+	    T annotation = get(annotations, target >>> 1);
+	    targets.add(annotation);
+	    if ((target & 1) == 1) {
+		head = annotation;
+	    }
+	}
+	return new Span<T>(targets, head);
+    }
+
+    private List<ExternalRef> loadExternalRefs(Block block) {
+	int count = block.next(EXTREF_COUNT);
+	List<ExternalRef> externalRefs = new ArrayList<ExternalRef>(count);
+	for (int i = 0; i < count; i++) {
+	    ExternalRef externalRef = kaf.newExternalRef(string(block.next(BinaryWriter.EXTREF_RESOURCE)));
+	    String reference = string(block.next(BinaryWriter.EXTREF_REFERENCE));
+	    if (reference != null) {
+		externalRef.setReference(reference);
+	    }
+	    String confidence = string(block.next(BinaryWriter.EXTREF_CONFIDENCE));
+	    if (confidence != null) {
+		externalRef.setConfidence(Float.valueOf(confidence));
+	    }
+	    String reftype = symbol(block.next(BinaryWriter.EXTREF_REFTYPE));
+	    if (reftype != null) {
+		externalRef.setReftype(reftype);
+	    }
+	    String status = symbol(block.next(BinaryWriter.EXTREF_STATUS));
+	    if (status != null) {
+		externalRef.setStatus(status);
+	    }
+	    String source = symbol(block.next(BinaryWriter.EXTREF_SOURCE));
+	    if (source != null) {
+		externalRef.setSource(source);
+	    }
+	    if (block.next(BinaryWriter.EXTREF_SENTIMENT) == 1) {
+		externalRef.setSentiment(loadSentiment(block));
+	    }
+	    for (ExternalRef subExternalRef : loadExternalRefs(block)) {
+		externalRef.addExternalRef(subExternalRef);
+	    }
+	    externalRefs.add(externalRef);
+	}
+	return externalRefs;
+    }
+
+    private Term.Sentiment loadSentiment(Block block) {
+	Term.Sentiment sentiment = kaf.newSentiment();
+	String resource = symbol(block.next(SENTIMENT));
+	if (resource != null) {
+	    sentiment.setResource(resource);
+	}
+	String polarity = symbol(block.next(SENTIMENT + 1));
+	if (polarity != null) {
+	    sentiment.setPolarity(polarity);
+	}
+	String strength = symbol(block.next(SENTIMENT + 2));
+	if (strength != null) {
+	    sentiment.setStrength(strength);
+	}
+	String subjectivity = symbol(block.next(SENTIMENT + 3));
+	if (subjectivity != null) {
+	    sentiment.setSubjectivity(subjectivity);
+	}
+	String semanticType = string(block.next(SENTIMENT + 4));
+	if (semanticType != null) {
+	    sentiment.setSentimentSemanticType(semanticType);
+	}
+	String modifier = string(block.next(SENTIMENT + 5));
+	if (modifier != null) {
+	    sentiment.setSentimentModifier(modifier);
+	}
+	String marker = string(block.next(SENTIMENT + 6));
+	if (marker != null) {
+	    sentiment.setSentimentMarker(marker);
+	}
+	String productFeature = string(block.next(SENTIMENT + 7));
+	if (productFeature != null) {
+	    sentiment.setSentimentProductFeature(productFeature);
+	}
+	return sentiment;
+    }
+
+    private static <T> T get(List<T> annotations, int position) throws IOException {
+	if (position >= annotations.size()) {
+	    throw new IOException("Invalid annotation reference in binary NAF document: " + position);
+	}
+	return annotations.get(position);
+    }
+
+    private String string(int index) {
+	return (index == 0) ? null : strings[index - 1];
+    }
+
+    /** Returns a string which is the value of a categorical attribute, shared through the symbol table of the document */
+    private String symbol(int index) {
+	return kaf.getSymbolTable().intern(string(index));
+    }
+
+    private static Integer optInt(int value) {
+	if (value == 0) {
+	    return null;
+	}
+	value--;
+	return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readInt() throws IOException {
+	int value = 0;
+	for (int shift = 0; shift < 35; shift += 7) {
+	    checkAvailable(1);
+	    byte b = data[position++];
+	    value |= (b & 0x7F) << shift;
+	    if (b >= 0) {
+		return value;
+	    }
+	}
+	throw new IOException("Malformed binary NAF document");
+    }
+
+    private void checkAvailable(int length) throws IOException {
+	if (position + length > data.length) {
+	    throw new IOException("Unexpected end of binary NAF document");
+	}
+    }
+
+
+    /** The columns of a layer, read one row at a time */
+    private static class Block {
+	int[][] columns;
+	int[] positions;
+
+	Block(int columnCount) {
+	    columns = new int[columnCount][];
+	    positions = new int[columnCount];
+	}
+
+	int size(int column) {
+	    return (column < columns.length) ? columns[column].length : 0;
+	}
+
+	boolean hasNext(int column) {
+	    return (column < columns.length) && (positions[column] < columns[column].length);
+	}
+
+	int next(int column) {
+	    return columns[column][positions[column]++];
+	}
+    }
+}
@@ -0,0 +1,662 @@
+package ixa.kaflib;
+
+import org.jdom2.Element;
+import org.jdom2.output.XMLOutputter;
+
+import ixa.kaflib.KAFDocument.AnnotationType;
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/** Writes a KAFDocument in the binary format read by BinaryLoader.
+ * The document starts with the magic bytes "NAFB" and the format version, followed by a table with every distinct string of the document and one block per layer.
+ * A block is a named set of columns, each of them an array of ints written as variable-length integers. Strings are stored as positions in the string table (0 meaning null) and references between annotations as positions of the referenced annotation in its own layer.
+ */
+class BinaryWriter {
+
+    static final byte[] MAGIC = { 'N', 'A', 'F', 'B' };
+    static final int VERSION = 1;
+
+    /** Columns shared by every block which has spans: the number of targets of each span and the targets themselves, as position * 2 + 1 if the target is the head of the span */
+    static final int SPAN_SIZE = 40;
+    static final int SPAN_TARGETS = 41;
+    /** Columns shared by every block which has external references: the number of references of each list, followed by the fields of each reference */
+    static final int EXTREF_COUNT = 50;
+    static final int EXTREF_RESOURCE = 51;
+    static final int EXTREF_REFERENCE = 52;
+    static final int EXTREF_CONFIDENCE = 53;
+    static final int EXTREF_REFTYPE = 54;
+    static final int EXTREF_STATUS = 55;
+    static final int EXTREF_SOURCE = 56;
+    static final int EXTREF_SENTIMENT = 57;
+    /** Columns shared by every block which has sentiments */
+    static final int SENTIMENT = 60;
+    static final int COLUMNS = 68;
+
+    private Map<String, Integer> strings = new HashMap<String, Integer>();
+    private List<String> stringTable = new ArrayList<String>();
+    private List<Block> blocks = new ArrayList<Block>();
+    private Map<Object, Integer> wfPositions = new IdentityHashMap<Object, Integer>();
+    private Map<Object, Integer> termPositions = new IdentityHashMap<Object, Integer>();
+    private Map<Object, Integer> relationalPositions = new IdentityHashMap<Object, Integer>();
+    private Map<Object, Integer> predicatePositions = new IdentityHashMap<Object, Integer>();
+    private Map<Object, Integer> timexPositions = new IdentityHashMap<Object, Integer>();
+
+    /** Writes the given document to a stream. The stream is not closed. */
+    static void write(KAFDocument kaf, OutputStream stream) throws IOException {
+	BinaryWriter writer = new BinaryWriter();
+	writer.addDocument(kaf);
+	writer.writeTo(stream);
+    }
+
+    /** Returns the annotations of a layer as the type they are created with. */
+    @SuppressWarnings("unchecked")
+    private static <T extends Annotation> List<T> getLayer(AnnotationContainer annotationContainer, Layer layer) {
+	return (List<T>)(List<?>) annotationContainer.getLayer(layer);
+    }
+
+    private void addDocument(KAFDocument kaf) {
+	AnnotationContainer annotationContainer = kaf.getAnnotationContainer();
+	addHeader(kaf);
+	Block raw = newBlock("raw");
+	raw.add(0, string(annotationContainer.getRawText()));
+	addText(BinaryWriter.<WF>getLayer(annotationContainer, Layer.TEXT));
+	addTerms(BinaryWriter.<Term>getLayer(annotationContainer, Layer.TERMS));
+	addMarkables(BinaryWriter.<Mark>getLayer(annotationContainer, Layer.MARKABLES));
+	addDeps(BinaryWriter.<Dep>getLayer(annotationContainer, Layer.DEPS));
+	addChunks(BinaryWriter.<Chunk>getLayer(annotationContainer, Layer.CHUNKS));
+	addEntities(BinaryWriter.<Entity>getLayer(annotationContainer, Layer.ENTITIES));
+	addCoreferences(BinaryWriter.<Coref>getLayer(annotationContainer, Layer.COREFERENCES));
+	addTimeExpressions(BinaryWriter.<Timex3>getLayer(annotationContainer, Layer.TIME_EXPRESSIONS));
+	addFactualities(BinaryWriter.<Factuality>getLayer(annotationContainer, Layer.FACTUALITIES));
+	addFactualityLayer(BinaryWriter.<Factvalue>getLayer(annotationContainer, Layer.FACTUALITY_LAYER));
+	// LinkedEntity objects can not be created through the API, so there is nothing to write for them
+	addFeatures("properties", BinaryWriter.<Feature>getLayer(annotationContainer, Layer.PROPERTIES));
+	addFeatures("categories", BinaryWriter.<Feature>getLayer(annotationContainer, Layer.CATEGORIES));
+	addOpinions(BinaryWriter.<Opinion>getLayer(annotationContainer, Layer.OPINIONS));
+	addRelations(BinaryWriter.<Relation>getLayer(annotationContainer, Layer.RELATIONS));
+	addSrl(BinaryWriter.<Predicate>getLayer(annotationContainer, Layer.SRL));
+	addConstituency(annotationContainer);
+	addTemporalRelations(annotationContainer.getLayer(Layer.TEMPORAL_RELATIONS));
+	addCausalRelations(BinaryWriter.<CLink>getLayer(annotationContainer, Layer.CAUSAL_RELATIONS));
+	addTopics(BinaryWriter.<Topic>getLayer(annotationContainer, Layer.TOPICS));
+	addAttribution(BinaryWriter.<Statement>getLayer(annotationContainer, Layer.ATTRIBUTION));
+	// Layers which were not loaded are kept as their original XML, so they are written back in place. Columns: element, XML
+	Block passedThrough = newBlock("passedThrough");
+	for (String element : annotationContainer.getPassedThroughElements()) {
+	    int[] range = annotationContainer.getPassedThroughRange(element);
+	    passedThrough.add(0, string(element));
+	    passedThrough.add(1, string(annotationContainer.getSource().substring(range[0], range[1])));
+	}
+	// Layers the library does not know are kept as XML
+	Block unknown = newBlock("unknown");
+	XMLOutputter outputter = new XMLOutputter();
+	for (Element layer : annotationContainer.getUnknownLayers()) {
+	    unknown.add(0, string(outputter.outputString(layer)));
+	}
+    }
+
+    /** Columns: lang, version, fileDesc fields (3 to 12), public fields (13 to 15), and the fields of each linguistic processor (16 to 22) */
+    private void addHeader(KAFDocument kaf) {
+	Block block = newBlock("nafHeader");
+	block.add(0, string(kaf.getLang()));
+	block.add(1, string(kaf.getVersion()));
+	KAFDocument.FileDesc fd = kaf.getFileDesc();
+	block.add(2, (fd != null) ? 1 : 0);
+	if (fd != null) {
+	    block.add(3, string(fd.author));
+	    block.add(4, string(fd.title));
+	    block.add(5, string(fd.creationtime));
+	    block.add(6, string(fd.filename));
+	    block.add(7, string(fd.filetype));
+	    block.add(8, optInt(fd.pages));
+	    block.add(9, string(fd.publisher));
+	    block.add(10, string(fd.section));
+	    block.add(11, string(fd.location));
+	    block.add(12, string(fd.magazine));
+	}
+	KAFDocument.Public pub = kaf.getPublic();
+	block.add(13, (pub != null) ? 1 : 0);
+	if (pub != null) {
+	    block.add(14, string(pub.publicId));
+	    block.add(15, string(pub.uri));
+	}
+	for (Map.Entry<String, List<KAFDocument.LinguisticProcessor>> entry : kaf.getLinguisticProcessors().entrySet()) {
+	    for (KAFDocument.LinguisticProcessor lp : entry.getValue()) {
+		block.add(16, string(entry.getKey()));
+		block.add(17, string(lp.name));
+		block.add(18, string(lp.timestamp));
+		block.add(19, string(lp.beginTimestamp));
+		block.add(20, string(lp.endTimestamp));
+		block.add(21, string(lp.version));
+		block.add(22, string(lp.hostname));
+	    }
+	}
+    }
+
+    /** Columns: id, offset, length, sent, para, page, xpath, form */
+    private void addText(List<WF> text) {
+	Block block = newBlock("text");
+	for (WF wf : text) {
+	    wfPositions.put(wf, wfPositions.size());
+	    block.add(0, string(wf.getId()));
+	    block.add(1, wf.getOffset());
+	    block.add(2, wf.getLength());
+	    block.add(3, wf.getSent());
+	    block.add(4, wf.hasPara() ? optInt(wf.getPara()) : 0);
+	    block.add(5, wf.hasPage() ? optInt(wf.getPage()) : 0);
+	    block.add(6, string(wf.getXpath()));
+	    block.add(7, string(wf.getForm()));
+	}
+    }
+
+    /** Columns: id, type, lemma, pos, morphofeat, case, whether it is a component, whether it is the head of its term, number of components and whether it has a sentiment.
+     * Components follow the term they belong to, and terms are referred to by their position in this order.
+     */
+    private void addTerms(List<Term> terms) {
+	Block block = newBlock("terms");
+	for (Term term : terms) {
+	    addTerm(block, term, null);
+	}
+    }
+
+    private void addTerm(Block block, Term term, Term parent) {
+	termPositions.put(term, termPositions.size());
+	block.add(0, string(term.getId()));
+	block.add(1, string(term.getType()));
+	block.add(2, string(term.getLemma()));
+	block.add(3, string(term.getPos()));
+	block.add(4, string(term.getMorphofeat()));
+	block.add(5, string(term.getCase()));
+	block.add(6, term.isComponent() ? 1 : 0);
+	block.add(7, ((parent != null) && (parent.getHead() == term)) ? 1 : 0);
+	block.add(8, term.getComponents().size());
+	block.add(9, term.hasSentiment() ? 1 : 0);
+	if (term.hasSentiment()) {
+	    addSentiment(block, term.getSentiment());
+	}
+	addSpan(block, term.getSpan(), wfPositions);
+	addExternalRefs(block, term.getExternalRefs());
+	for (Term component : term.getComponents()) {
+	    addTerm(block, component, term);
+	}
+    }
+
+    /** Columns: id, source, type, lemma, pos, morphofeat, case and whether it has a sentiment */
+    private void addMarkables(List<Mark> marks) {
+	Block block = newBlock("markables");
+	for (Mark mark : marks) {
+	    block.add(0, string(mark.getId()));
+	    block.add(1, string(mark.getSource()));
+	    block.add(2, string(mark.getType()));
+	    block.add(3, string(mark.getLemma()));
+	    block.add(4, string(mark.getPos()));
+	    block.add(5, string(mark.getMorphofeat()));
+	    block.add(6, string(mark.getCase()));
+	    block.add(7, mark.hasSentiment() ? 1 : 0);
+	    if (mark.hasSentiment()) {
+		addSentiment(block, mark.getSentiment());
+	    }
+	    addSpan(block, mark.getSpan(), wfPositions);
+	    addExternalRefs(block, mark.getExternalRefs());
+	}
+    }
+
+    /** Columns: from, to, rfunc, case */
+    private void addDeps(List<Dep> deps) {
+	Block block = newBlock("deps");
+	for (Dep dep : deps) {
+	    block.add(0, termPositions.get(dep.getFrom()));
+	    block.add(1, termPositions.get(dep.getTo()));
+	    block.add(2, string(dep.getRfunc()));
+	    block.add(3, string(dep.getCase()));
+	}
+    }
+
+    /** Columns: id, phrase, case */
+    private void addChunks(List<Chunk> chunks) {
+	Block block = newBlock("chunks");
+	for (Chunk chunk : chunks) {
+	    block.add(0, string(chunk.getId()));
+	    block.add(1, string(chunk.getPhrase()));
+	    block.add(2, string(chunk.getCase()));
+	    addSpan(block, chunk.getSpan(), termPositions);
+	}
+    }
+
+    /** Columns: id, type, source, number of spans */
+    private void addEntities(List<Entity> entities) {
+	Block block = newBlock("entities");
+	for (Entity entity : entities) {
+	    relationalPositions.put(entity, relationalPositions.size());
+	    block.add(0, string(entity.getId()));
+	    block.add(1, string(entity.getType()));
+	    block.add(2, string(entity.getSource()));
+	    addSpans(block, 3, entity.getSpans());
+	    addExternalRefs(block, entity.getExternalRefs());
+	}
+    }
+
+    /** Columns: id, type, number of spans */
+    private void addCoreferences(List<Coref> corefs) {
+	Block block = newBlock("coreferences");
+	for (Coref coref : corefs) {
+	    block.add(0, string(coref.getId()));
+	    block.add(1, string(coref.getType()));
+	    addSpans(block, 2, coref.getSpans());
+	    addExternalRefs(block, coref.getExternalRefs());
+	}
+    }
+
+    /** Columns: id, type, beginPoint, endPoint (positions + 1, 0 if there is none), quant, freq, functionInDocument, temporalFunction (0 if there is none, 1 false, 2 true), value, valueFromFunction, mod, anchorTimeId, comment and whether it has a span */
+    private void addTimeExpressions(List<Timex3> timeExs) {
+	Block block = newBlock("timeExpressions");
+	for (Timex3 timex3 : timeExs) {
+	    timexPositions.put(timex3, timexPositions.size());
+	}
+	for (Timex3 timex3 : timeExs) {
+	    block.add(0, string(timex3.getId()));
+	    block.add(1, string(timex3.getType()));
+	    block.add(2, timex3.hasBeginPoint() ? timexPositions.get(timex3.getBeginPoint()) + 1 : 0);
+	    block.add(3, timex3.hasEndPoint() ? timexPositions.get(timex3.getEndPoint()) + 1 : 0);
+	    block.add(4, string(timex3.getQuant()));
+	    block.add(5, string(timex3.getFreq()));
+	    block.add(6, string(timex3.getFunctionInDocument()));
+	    block.add(7, timex3.hasTemporalFunction() ? (timex3.getTemporalFunction() ? 2 : 1) : 0);
+	    block.add(8, string(timex3.getValue()));
+	    block.add(9, string(timex3.getValueFromFunction()));
+	    block.add(10, string(timex3.getMod()));
+	    block.add(11, string(timex3.getAnchorTimeId()));
+	    block.add(12, string(timex3.getComment()));
+	    block.add(13, timex3.hasSpan() ? 1 : 0);
+	    if (timex3.hasSpan()) {
+		addSpan(block, timex3.getSpan(), wfPositions);
+	    }
+	}
+    }
+
+    /** Columns: id, number of factVals, and the value, resource, source and confidence of each factVal (2 to 5) */
+    private void addFactualities(List<Factuality> factualities) {
+	Block block = newBlock("factualities");
+	for (Factuality factuality : factualities) {
+	    block.add(0, string(factuality.getId()));
+	    addSpan(block, factuality.getSpan(), termPositions);
+	    List<Factuality.FactVal> factVals = factuality.getFactVals();
+	    block.add(1, factVals.size());
+	    for (Factuality.FactVal factVal : factVals) {
+		block.add(2, string(factVal.getValue()));
+		block.add(3, string(factVal.getResource()));
+		block.add(4, string(factVal.getSource()));
+		block.add(5, factVal.hasConfidence() ? string(factVal.getConfidence().toString()) : 0);
+	    }
+	}
+    }
+
+    /** Columns: word form, prediction, confidence */
+    private void addFactualityLayer(List<Factvalue> factValues) {
+	Block block = newBlock("factualityLayer");
+	for (Factvalue factValue : factValues) {
+	    block.add(0, wfPositions.get(factValue.getWF()));
+	    block.add(1, string(factValue.getPrediction()));
+	    block.add(2, factValue.hasConfidence() ? string(factValue.getConfidence().toString()) : 0);
+	}
+    }
+
+    /** Columns: id, lemma, number of spans */
+    private void addFeatures(String name, List<Feature> features) {
+	Block block = newBlock(name);
+	for (Feature feature : features) {
+	    relationalPositions.put(feature, relationalPositions.size());
+	    block.add(0, string(feature.getId()));
+	    block.add(1, string(feature.getLemma()));
+	    addSpans(block, 2, feature.getSpans());
+	    addExternalRefs(block, feature.getExternalRefs());
+	}
+    }
+
+    /** Columns: id, whether it has a holder, target and expression (1 to 3), holder type and expression polarity, strength, subjectivity, sentiment semantic type and sentiment product feature (4 to 9) */
+    private void addOpinions(List<Opinion> opinions) {
+	Block block = newBlock("opinions");
+	for (Opinion opinion : opinions) {
+	    block.add(0, string(opinion.getId()));
+	    Opinion.OpinionHolder holder = opinion.getOpinionHolder();
+	    block.add(1, (holder != null) ? 1 : 0);
+	    if (holder != null) {
+		block.add(4, string(holder.getType()));
+		addSpan(block, holder.getSpan(), termPositions);
+	    }
+	    Opinion.OpinionTarget target = opinion.getOpinionTarget();
+	    block.add(2, (target != null) ? 1 : 0);
+	    if (target != null) {
+		addSpan(block, target.getSpan(), termPositions);
+	    }
+	    Opinion.OpinionExpression expression = opinion.getOpinionExpression();
+	    block.add(3, (expression != null) ? 1 : 0);
+	    if (expression != null) {
+		block.add(5, string(expression.getPolarity()));
+		block.add(6, string(expression.getStrength()));
+		block.add(7, string(expression.getSubjectivity()));
+		block.add(8, string(expression.getSentimentSemanticType()));
+		block.add(9, string(expression.getSentimentProductFeature()));
+		addSpan(block, expression.getSpan(), termPositions);
+	    }
+	}
+    }
+
+    /** Columns: id, from, to (positions among entities, properties and categories), confidence */
+    private void addRelations(List<Relation> relations) {
+	Block block = newBlock("relations");
+	for (Relation relation : relations) {
+	    block.add(0, string(relation.getId()));
+	    block.add(1, relationalPositions.get(relation.getFrom()));
+	    block.add(2, relationalPositions.get(relation.getTo()));
+	    block.add(3, relation.hasConfidence() ? string(Float.toString(relation.getConfidence())) : 0);
+	}
+    }
+
+    /** Columns: id, uri, confidence, number of roles, and the id and semRole of each role (4 and 5) */
+    private void addSrl(List<Predicate> predicates) {
+	Block block = newBlock("srl");
+	for (Predicate predicate : predicates) {
+	    predicatePositions.put(predicate, predicatePositions.size());
+	    block.add(0, string(predicate.getId()));
+	    block.add(1, string(predicate.getUri()));
+	    block.add(2, predicate.hasConfidence() ? string(Float.toString(predicate.getConfidence())) : 0);
+	    addSpan(block, predicate.getSpan(), termPositions);
+	    addExternalRefs(block, predicate.getExternalRefs());
+	    List<Predicate.Role> roles = predicate.getRoles();
+	    block.add(3, roles.size());
+	    for (Predicate.Role role : roles) {
+		block.add(4, string(role.getId()));
+		block.add(5, string(role.getSemRole()));
+		addSpan(block, role.getSpan(), termPositions);
+		addExternalRefs(block, role.getExternalRefs());
+	    }
+	}
+    }
+
+    /** Columns: tree type, and for every node of the tree, depth first: id, whether it is a terminal, label, edge id, whether it is a head and its number of children (1 to 6) */
+    private void addConstituency(AnnotationContainer annotationContainer) {
+	Block block = newBlock("constituency");
+	for (String type : annotationContainer.getGroupIDs(AnnotationType.TREE)) {
+	    for (Annotation annotation : annotationContainer.getLayer(Layer.CONSTITUENCY, type)) {
+		Tree tree = (Tree) annotation;
+		block.add(0, string(tree.getType()));
+		addTreeNode(block, tree.getRoot());
+	    }
+	}
+    }
+
+    private void addTreeNode(Block block, TreeNode node) {
+	block.add(1, string(node.getId()));
+	block.add(2, node.isTerminal() ? 1 : 0);
+	block.add(4, string(node.getEdgeId()));
+	block.add(5, node.getHead() ? 1 : 0);
+	if (node.isTerminal()) {
+	    addSpan(block, ((Terminal) node).getSpan(), termPositions);
+	} else {
+	    NonTerminal nonTerminal = (NonTerminal) node;
+	    block.add(3, string(nonTerminal.getLabel()));
+	    List<TreeNode> children = nonTerminal.getChildren();
+	    block.add(6, children.size());
+	    for (TreeNode child : children) {
+		addTreeNode(block, child);
+	    }
+	}
+    }
+
+    /** Columns: id, whether it is a tlink, tlink from and to (positions * 2 + 1 for predicates, positions * 2 for time expressions) and relType, and the anchorTime, beginPoint and endPoint of predicate anchors (positions + 1, 0 if there is none) */
+    private void addTemporalRelations(List<Annotation> tempRels) {
+	Block block = newBlock("temporalRelations");
+	for (Annotation tempRel : tempRels) {
+	    if (tempRel instanceof TLink) {
+		TLink tLink = (TLink) tempRel;
+		block.add(0, string(tLink.getId()));
+		block.add(1, 1);
+		block.add(2, tLinkReferable(tLink.getFrom()));
+		block.add(3, tLinkReferable(tLink.getTo()));
+		block.add(4, string(tLink.getRelType()));
+	    } else if (tempRel instanceof PredicateAnchor) {
+		PredicateAnchor predAnchor = (PredicateAnchor) tempRel;
+		block.add(0, string(predAnchor.getId()));
+		block.add(1, 0);
+		block.add(5, predAnchor.hasAnchorTime() ? timexPositions.get(predAnchor.getAnchorTime()) + 1 : 0);
+		block.add(6, predAnchor.hasBeginPoint() ? timexPositions.get(predAnchor.getBeginPoint()) + 1 : 0);
+		block.add(7, predAnchor.hasEndPoint() ? timexPositions.get(predAnchor.getEndPoint()) + 1 : 0);
+		addSpan(block, predAnchor.getSpan(), predicatePositions);
+	    }
+	}
+    }
+
+    private int tLinkReferable(TLinkReferable referable) {
+	if (referable instanceof Predicate) {
+	    return predicatePositions.get(referable) * 2 + 1;
+	}
+	return timexPositions.get(referable) * 2;
+    }
+
+    /** Columns: id, from, to, relType */
+    private void addCausalRelations(List<CLink> cLinks) {
+	Block block = newBlock("causalRelations");
+	for (CLink cLink : cLinks) {
+	    block.add(0, string(cLink.getId()));
+	    block.add(1, predicatePositions.get(cLink.getFrom()));
+	    block.add(2, predicatePositions.get(cLink.getTo()));
+	    block.add(3, string(cLink.getRelType()));
+	}
+    }
+
+    /** Columns: value, source, method, uri, confidence */
+    private void addTopics(List<Topic> topics) {
+	Block block = newBlock("topics");
+	for (Topic topic : topics) {
+	    block.add(0, string(topic.getTopicValue()));
+	    block.add(1, string(topic.getSource()));
+	    block.add(2, string(topic.getMethod()));
+	    block.add(3, string(topic.getURI()));
+	    block.add(4, topic.hasConfidence() ? string(topic.getConfidence().toString()) : 0);
+	}
+    }
+
+    /** Columns: id, whether it has a source and a cue. The spans are those of the target, the source and the cue. */
+    private void addAttribution(List<Statement> statements) {
+	Block block = newBlock("attribution");
+	for (Statement statement : statements) {
+	    block.add(0, string(statement.getId()));
+	    block.add(1, statement.hasSource() ? 1 : 0);
+	    block.add(2, statement.hasCue() ? 1 : 0);
+	    addSpan(block, statement.getTarget().getSpan(), termPositions);
+	    if (statement.hasSource()) {
+		addSpan(block, statement.getSource().getSpan(), termPositions);
+	    }
+	    if (statement.hasCue()) {
+		addSpan(block, statement.getCue().getSpan(), termPositions);
+	    }
+	}
+    }
+
+    private void addSpans(Block block, int countColumn, List<Span<Term>> spans) {
+	block.add(countColumn, spans.size());
+	for (Span<Term> span : spans) {
+	    addSpan(block, span, termPositions);
+	}
+    }
+
+    private <T extends IdentifiableAnnotation> void addSpan(Block block, Span<T> span, Map<Object, Integer> positions) {
+	List<T> targets = span.getTargets();
+	T head = span.getHead();
+	block.add(SPAN_SIZE, targets.size());
+	for (T target : targets) {
+	    Integer position = positions.get(target);
+	    if (position == null) {
+		throw new IllegalStateException("Span target " + target.getId() + " is not in the document");
+	    }
+	    block.add(SPAN_TARGETS, (position << 1) | ((target == head) ? 1 : 0));
+	}
+    }
+
+    private void addExternalRefs(Block block, List<ExternalRef> externalRefs) {
+	block.add(EXTREF_COUNT, externalRefs.size());
+	for (ExternalRef externalRef : externalRefs) {
+	    block.add(EXTREF_RESOURCE, string(externalRef.getResource()));
+	    block.add(EXTREF_REFERENCE, string(externalRef.getReference()));
+	    block.add(EXTREF_CONFIDENCE, externalRef.hasConfidence() ? string(externalRef.getConfidence().toString()) : 0);
+	    block.add(EXTREF_REFTYPE, string(externalRef.getReftype()));
+	    block.add(EXTREF_STATUS, string(externalRef.getStatus()));
+	    block.add(EXTREF_SOURCE, string(externalRef.getSource()));
+	    block.add(EXTREF_SENTIMENT, externalRef.hasSentiment() ? 1 : 0);
+	    if (externalRef.hasSentiment()) {
+		addSentiment(block, externalRef.getSentiment());
+	    }
+	    addExternalRefs(block, externalRef.getExternalRefs());
+	}
+    }
+
+    private void addSentiment(Block block, Term.Sentiment sentiment) {
+	block.add(SENTIMENT, string(sentiment.getResource()));
+	block.add(SENTIMENT + 1, string(sentiment.getPolarity()));
+	block.add(SENTIMENT + 2, string(sentiment.getStrength()));
+	block.add(SENTIMENT + 3, string(sentiment.getSubjectivity()));
+	block.add(SENTIMENT + 4, string(sentiment.getSentimentSemanticType()));
+	block.add(SENTIMENT + 5, string(sentiment.getSentimentModifier()));
+	block.add(SENTIMENT + 6, string(sentiment.getSentimentMarker()));
+	block.add(SENTIMENT + 7, string(sentiment.getSentimentProductFeature()));
+    }
+
+    private Block newBlock(String name) {
+	Block block = new Block(string(name));
+	blocks.add(block);
+	return block;
+    }
+
+    /** Returns the position of the given string in the string table plus one, or 0 for null */
+    private int string(String str) {
+	if (str == null) {
+	    return 0;
+	}
+	Integer index = strings.get(str);
+	if (index == null) {
+	    stringTable.add(str);
+	    index = stringTable.size();
+	    strings.put(str, index);
+	}
+	return index;
+    }
+
+    /** Encodes an optional int, which may be negative, as a non-negative int, 0 meaning null */
+    private static int optInt(Integer value) {
+	if (value == null) {
+	    return 0;
+	}
+	return ((value << 1) ^ (value >> 31)) + 1;
+    }
+
+    private void writeTo(OutputStream stream) throws IOException {
+	Output out = new Output(stream);
+	out.write(MAGIC, 0, MAGIC.length);
+	out.writeInt(VERSION);
+	out.writeInt(stringTable.size());
+	for (String str : stringTable) {
+	    byte[] bytes = str.getBytes("UTF-8");
+	    out.writeInt(bytes.length);
+	    out.write(bytes, 0, bytes.length);
+	}
+	out.writeInt(blocks.size());
+	for (Block block : blocks) {
+	    out.writeInt(block.name);
+	    int columnCount = 0;
+	    for (int i = 0; i < COLUMNS; i++) {
+		if (block.sizes[i] > 0) {
+		    columnCount = i + 1;
+		}
+	    }
+	    out.writeInt(columnCount);
+	    for (int i = 0; i < columnCount; i++) {
+		int size = block.sizes[i];
+		out.writeInt(size);
+		for (int j = 0; j < size; j++) {
+		    out.writeInt(block.columns[i][j]);
+		}
+	    }
+	}
+	out.flush();
+    }
+
+
+    /** The columns of a layer, filled one row at a time */
+    private static class Block {
+	int name;
+	int[][] columns = new int[COLUMNS][];
+	int[] sizes = new int[COLUMNS];
+
+	Block(int name) {
+	    this.name = name;
+	}
+
+	void add(int column, int value) {
+	    int[] values = columns[column];
+	    if (values == null) {
+		values = new int[16];
+		columns[column] = values;
+	    } else if (sizes[column] == values.length) {
+		values = Arrays.copyOf(values, values.length * 2);
+		columns[column] = values;
+	    }
+	    values[sizes[column]++] = value;
+	}
+    }
+
+    /** Buffers the bytes written to a stream, writing ints as unsigned variable-length integers (7 bits per byte) */
+    private static class Output {
+	private OutputStream out;
+	private byte[] buffer = new byte[65536];
+	private int size;
+
+	Output(OutputStream out) {
+	    this.out = out;
+	}
+
+	void writeInt(int value) throws IOException {
+	    if (size + 5 > buffer.length) {
+		flushBuffer();
+	    }
+	    while ((value & ~0x7F) != 0) {
+		buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+		value >>>= 7;
+	    }
+	    buffer[size++] = (byte) value;
+	}
+
+	void write(byte[] bytes, int offset, int length) throws IOException {
+	    if (length > buffer.length - size) {
+		flushBuffer();
+		if (length > buffer.length) {
+		    out.write(bytes, offset, length);
+		    return;
+		}
+	    }
+	    System.arraycopy(bytes, offset, buffer, size, length);
+	    size += length;
+	}
+
+	void flush() throws IOException {
+	    flushBuffer();
+	    out.flush();
+	}
+
+	private void flushBuffer() throws IOException {
+	    if (size > 0) {
+		out.write(buffer, 0, size);
+		size = 0;
+	    }
+	}
+    }
+}
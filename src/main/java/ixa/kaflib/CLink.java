@@ -30,6 +30,7 @@ public class CLink extends IdentifiableAnnotation {
 
     public void setFrom(Predicate from) {
 	this.from = from;
+	this.modified();
     }
 
     public Predicate getTo() {
@@ -38,6 +39,7 @@ public class CLink extends IdentifiableAnnotation {
 
     public void setTo(Predicate to) {
 	this.to = to;
+	this.modified();
     }
 
     public boolean hasRelType() {
@@ -50,6 +52,7 @@ public class CLink extends IdentifiableAnnotation {
 
     public void setRelType(String relType) {
 	this.relType = relType;
+	this.modified();
     }
     
     Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
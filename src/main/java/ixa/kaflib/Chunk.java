@@ -26,7 +26,7 @@ public class Chunk extends IdentifiableAnnotation implements SentenceLevelAnnota
 	if (span.size() < 1) {
 	    throw new IllegalStateException("Chunks must contain at least one term target");
 	}
-	this.span = span;
+	this.span = own(span);
     }
 
     Chunk(Chunk chunk, HashMap<String, Term> terms) {
@@ -47,10 +47,10 @@ public class Chunk extends IdentifiableAnnotation implements SentenceLevelAnnota
 	}
 	if (span.hasHead()) {
 	    Term copiedHead = terms.get(span.getHead().getId());
-	    this.span = new Span<Term>(copiedTargets, copiedHead);
+	    this.span = own(new Span<Term>(copiedTargets, copiedHead));
 	}
 	else {
-	    this.span = new Span<Term>(copiedTargets);
+	    this.span = own(new Span<Term>(copiedTargets));
 	}
     }
 
@@ -72,6 +72,7 @@ public class Chunk extends IdentifiableAnnotation implements SentenceLevelAnnota
 
     public void setPhrase(String phrase) {
 	this.phrase = phrase;
+	this.modified();
     }
 
     public boolean hasCase() {
@@ -84,6 +85,7 @@ public class Chunk extends IdentifiableAnnotation implements SentenceLevelAnnota
 
     public void setCase(String chunkcase) {
 	this.chunkcase = chunkcase;
+	this.modified();
     }
 
     public List<Term> getTerms() {
@@ -92,10 +94,12 @@ public class Chunk extends IdentifiableAnnotation implements SentenceLevelAnnota
 
     public void addTerm(Term term) {
 	this.span.addTarget(term);
+	this.modified();
     }
 
     public void addTerm(Term term, boolean isHead) {
 	this.span.addTarget(term, isHead);
+	this.modified();
     }
 
     public Span<Term> getSpan() {
@@ -103,7 +107,8 @@ public class Chunk extends IdentifiableAnnotation implements SentenceLevelAnnota
     }
 
     public void setSpan(Span<Term> span) {
-	this.span = span;
+	this.span = own(span);
+	this.modified();
     }
 
     public String getStr() {
@@ -136,6 +141,7 @@ public class Chunk extends IdentifiableAnnotation implements SentenceLevelAnnota
     /** Deprecated */
     public void setHead(Term term) {
         this.span.setHead(term);
+        this.modified();
     }
     
     /*
@@ -5,6 +5,8 @@ import org.jdom2.IllegalDataException;
 import org.jdom2.Parent;
 import org.jdom2.Verifier;
 
+import java.util.regex.Pattern;
+
 /**
  * An XML comment. Methods allow the user to get and set the text of the
  * comment.
@@ -14,16 +16,22 @@ import org.jdom2.Verifier;
  */
 public class Comment extends org.jdom2.Comment {
 
+	private static final Pattern DASHES = Pattern.compile("-+");
+
 	public Comment(String text) {
 		super();
 
+		setText(fixText(text));
+	}
+
+	/** Returns the given text changed so it can be the text of an XML comment */
+	static String fixText(String text) {
 		text = text.trim();
-		text = text.replaceAll("-+", "-");
+		text = DASHES.matcher(text).replaceAll("-");
 		if (text.endsWith("-")) {
 			text += " .";
 		}
-
-		setText(text);
+		return text;
 	}
 
 }
\ No newline at end of file
@@ -30,7 +30,7 @@ public class Coref extends IdentifiableAnnotation {
 	if (mentions.get(0).size() < 1) {
 	    throw new IllegalStateException("Coreferences' reference's spans must contain at least one target");
 	}
-	this.mentions = mentions;
+	this.mentions = ownSpans(mentions);
 	this.externalReferences = new ArrayList<ExternalRef>();
     }
 
@@ -52,10 +52,10 @@ public class Coref extends IdentifiableAnnotation {
 	    }
 	    if (span.hasHead()) {
 		Term copiedHead = terms.get(span.getHead().getId());
-		this.mentions.add(new Span<Term>(copiedTargets, copiedHead));
+		this.mentions.add(own(new Span<Term>(copiedTargets, copiedHead)));
 	    }
 	    else {
-		this.mentions.add(new Span<Term>(copiedTargets));
+		this.mentions.add(own(new Span<Term>(copiedTargets)));
 	    }
 	}
     }
@@ -70,6 +70,7 @@ public class Coref extends IdentifiableAnnotation {
 
     public void setType(String type) {
 	this.type = type;
+	this.modified();
     }
 
     public List<ExternalRef> getExternalRefs() {
@@ -77,11 +78,13 @@ public class Coref extends IdentifiableAnnotation {
     }
 
     public void addExternalRef(ExternalRef externalRef) {
-	externalReferences.add(externalRef);
+	externalReferences.add(own(externalRef));
+	this.modified();
     }
 
     public void addExternalRefs(List<ExternalRef> externalRefs) {
-	externalReferences.addAll(externalRefs);
+	externalReferences.addAll(ownExternalRefs(externalRefs));
+	this.modified();
     }
 
     /** Returns the term targets of the first span. When targets of other spans are needed getReferences() method should be used. */ 
@@ -92,11 +95,13 @@ public class Coref extends IdentifiableAnnotation {
     /** Adds a term to the first span. */
     public void addTerm(Term term) {
 	this.mentions.get(0).addTarget(term);
+	this.modified();
     }
 
     /** Adds a term to the first span. */
     public void addTerm(Term term, boolean isHead) {
 	this.mentions.get(0).addTarget(term, isHead);
+	this.modified();
     }
 
     public List<Span<Term>> getSpans() {
@@ -104,7 +109,8 @@ public class Coref extends IdentifiableAnnotation {
     }
 
     public void addSpan(Span<Term> span) {
-	this.mentions.add(span);
+	this.mentions.add(own(span));
+	this.modified();
     }
 
     public String getSpanStr(Span<Term> span) {
@@ -139,7 +145,8 @@ public class Coref extends IdentifiableAnnotation {
 
     /** Deprecated */
     public void addReference(List<Target> span) {
-	this.mentions.add(KAFDocument.targetList2Span(span));
+	this.mentions.add(own(KAFDocument.targetList2Span(span)));
+	this.modified();
     }
     
     /*
@@ -49,6 +49,7 @@ public class Dep extends Annotation implements SentenceLevelAnnotation {
 
     public void setFrom(Term term) {
 	this.from = term;
+	this.modified();
     }
 
     public Term getTo() {
@@ -57,6 +58,7 @@ public class Dep extends Annotation implements SentenceLevelAnnotation {
 
     public void setTo(Term term) {
 	this.to = term;
+	this.modified();
     }
 
     public String getRfunc() {
@@ -65,6 +67,7 @@ public class Dep extends Annotation implements SentenceLevelAnnotation {
 
      public void setRfunc(String rfunc) {
 	 this.rfunc = rfunc;
+	 this.modified();
     }
 
     public boolean hasCase() {
@@ -77,6 +80,7 @@ public class Dep extends Annotation implements SentenceLevelAnnotation {
 
     public void setCase(String depcase) {
 	this.depcase = depcase;
+	this.modified();
     }
 
     public String getStr() {
@@ -0,0 +1,195 @@
+package ixa.kaflib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/** Dependency tree of a sentence, compiled into arrays. Each term of the sentence is a node numbered by its position,
+ * and keeps the number of its head, the dependency which links it to its head and its depth in the tree.
+ * The dependents of all the nodes are kept in a single array, so the dependents of node i are children[childBegins[i]..childBegins[i + 1]).
+ * Terms of other sentences which a dependency of this sentence points to are added as extra nodes.
+ * When a term has several heads, the first dependency is the one kept, as KAFDocument.getDepToTerm() does, even when it comes from another sentence:
+ * the term is then a root of the graph, whose head dependency is that one.
+ * A dependency which would close a cycle is not kept as a head.
+ * The graph is not updated: it is compiled again when terms or dependencies are added or removed (see isValid()).
+ */
+class DepGraph {
+
+    private Term[] terms;
+    private Map<Term, Integer> nodes;
+    private int[] heads;
+    private Dep[] headDeps;
+    private int[] depths;
+    private int[] childBegins;
+    private int[] children;
+    /** Version of the dependencies of the document when the graph was compiled */
+    private int version;
+
+    DepGraph(List<Annotation> sentTerms, List<Annotation> sentDeps, int version) {
+	this(sentTerms, sentDeps, null, version);
+    }
+
+    /** Compiles the graph of a sentence. firstDeps has, for each term of the sentence, the first dependency of the document which has the term as dependent
+     * (or null if there is none). Without it, the heads are taken from the dependencies of the sentence only.
+     */
+    DepGraph(List<Annotation> sentTerms, List<Annotation> sentDeps, List<Dep> firstDeps, int version) {
+	this.version = version;
+	List<Term> nodeTerms = new ArrayList<Term>(sentTerms.size());
+	nodes = new IdentityHashMap<Term, Integer>(2 * sentTerms.size());
+	for (Annotation term : sentTerms) {
+	    addNode((Term) term, nodeTerms);
+	}
+	for (Annotation ann : sentDeps) {
+	    Dep dep = (Dep) ann;
+	    addNode(dep.getFrom(), nodeTerms);
+	    addNode(dep.getTo(), nodeTerms);
+	}
+	int size = nodeTerms.size();
+	terms = nodeTerms.toArray(new Term[size]);
+	heads = new int[size];
+	headDeps = new Dep[size];
+	Arrays.fill(heads, -1);
+	if (firstDeps != null) {
+	    for (int i = 0; i < sentTerms.size(); i++) {
+		Dep dep = firstDeps.get(i);
+		if (dep != null) {
+		    int to = nodes.get(sentTerms.get(i));
+		    Integer from = nodes.get(dep.getFrom());
+		    heads[to] = (from == null) ? -1 : from;
+		    headDeps[to] = dep;
+		}
+	    }
+	}
+	/* Dependents, counted first and then placed */
+	childBegins = new int[size + 1];
+	for (Annotation ann : sentDeps) {
+	    Dep dep = (Dep) ann;
+	    int from = nodes.get(dep.getFrom());
+	    int to = nodes.get(dep.getTo());
+	    if (headDeps[to] == null) {
+		heads[to] = from;
+		headDeps[to] = dep;
+	    }
+	    childBegins[from + 1]++;
+	}
+	for (int i = 0; i < size; i++) {
+	    childBegins[i + 1] += childBegins[i];
+	}
+	children = new int[childBegins[size]];
+	int[] next = childBegins.clone();
+	for (Annotation ann : sentDeps) {
+	    Dep dep = (Dep) ann;
+	    children[next[nodes.get(dep.getFrom())]++] = nodes.get(dep.getTo());
+	}
+	computeDepths();
+    }
+
+    private void addNode(Term term, List<Term> nodeTerms) {
+	if (!nodes.containsKey(term)) {
+	    nodes.put(term, nodeTerms.size());
+	    nodeTerms.add(term);
+	}
+    }
+
+    /** Sets the depth of each node, walking up from the nodes whose depth is not known yet. Cycles are broken where they are found. */
+    private void computeDepths() {
+	depths = new int[terms.length];
+	Arrays.fill(depths, -1);
+	int[] walk = new int[terms.length];
+	int[] onWalk = new int[terms.length];
+	for (int i = 0; i < terms.length; i++) {
+	    int length = 0;
+	    int node = i;
+	    while ((node >= 0) && (depths[node] < 0)) {
+		if (onWalk[node] == i + 1) {
+		    /* The head of the last node of the walk closes a cycle */
+		    int last = walk[length - 1];
+		    heads[last] = -1;
+		    headDeps[last] = null;
+		    break;
+		}
+		onWalk[node] = i + 1;
+		walk[length++] = node;
+		node = heads[node];
+	    }
+	    int depth = ((node >= 0) && (depths[node] >= 0)) ? depths[node] : -1;
+	    while (length > 0) {
+		int walked = walk[--length];
+		depth = (heads[walked] < 0) ? 0 : depth + 1;
+		depths[walked] = depth;
+	    }
+	}
+    }
+
+    /** Checks that no term nor dependency has been added to the document, removed or moved to another sentence since the graph was compiled.
+     * As with the inverse references, changes made through Dep.setFrom() and Dep.setTo() are not followed.
+     */
+    boolean isValid(int version) {
+	return version == this.version;
+    }
+
+    /** Returns the node of a term, or -1 if the term is not in the graph. */
+    int node(Term term) {
+	Integer node = nodes.get(term);
+	return (node == null) ? -1 : node;
+    }
+
+    Term term(int node) {
+	return terms[node];
+    }
+
+    /** Returns the dependency from the head of a node, or null if it is a root. */
+    Dep headDep(int node) {
+	return headDeps[node];
+    }
+
+    int depth(int node) {
+	return depths[node];
+    }
+
+    /** Adds the terms which depend on a node to a list. */
+    void addDependents(int node, List<Term> dependents) {
+	for (int c = childBegins[node]; c < childBegins[node + 1]; c++) {
+	    dependents.add(terms[children[c]]);
+	}
+    }
+
+    /** Returns the dependencies which link two nodes: first up from the first node to their lowest common ancestor, then down to the second one.
+     * Returns null if the nodes are not connected.
+     */
+    List<Dep> path(int from, int to) {
+	if (from == to) {
+	    return Collections.emptyList();
+	}
+	int up = from;
+	int down = to;
+	while (depths[up] > depths[down]) {
+	    up = heads[up];
+	}
+	while (depths[down] > depths[up]) {
+	    down = heads[down];
+	}
+	while (up != down) {
+	    up = heads[up];
+	    down = heads[down];
+	    if ((up < 0) || (down < 0)) {
+		return null;
+	    }
+	}
+	int ancestor = up;
+	List<Dep> path = new ArrayList<Dep>(depths[from] + depths[to] - 2 * depths[ancestor]);
+	for (int node = from; node != ancestor; node = heads[node]) {
+	    path.add(headDeps[node]);
+	}
+	int upLength = path.size();
+	for (int node = to; node != ancestor; node = heads[node]) {
+	    path.add(headDeps[node]);
+	}
+	Collections.reverse(path.subList(upLength, path.size()));
+	return path;
+    }
+}
@@ -40,7 +40,7 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
 	if (references.get(0).size() < 1) {
 	    throw new IllegalStateException("Entities' reference's spans must contain at least one target");
 	}
-	this.references = references;
+	this.references = ownSpans(references);
 	this.externalReferences = new ArrayList<ExternalRef>();
     }
 
@@ -63,16 +63,16 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
 	    }
 	    if (span.hasHead()) {
 		Term copiedHead = terms.get(span.getHead().getId());
-		this.references.add(new Span<Term>(copiedTargets, copiedHead));
+		this.references.add(own(new Span<Term>(copiedTargets, copiedHead)));
 	    }
 	    else {
-		this.references.add(new Span<Term>(copiedTargets));
+		this.references.add(own(new Span<Term>(copiedTargets)));
 	    }
 	}
 	/* Copy external references */
 	this.externalReferences = new ArrayList<ExternalRef>();
 	for (ExternalRef externalRef : entity.getExternalRefs()) {
-	    this.externalReferences.add(new ExternalRef(externalRef));
+	    this.externalReferences.add(own(new ExternalRef(externalRef)));
 	}
     }
 
@@ -86,6 +86,7 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
 
     public void setType(String type) {
 	this.type = type;
+	this.modified();
     }
 
     public boolean hasSource() {
@@ -98,6 +99,7 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
 
     public void setSource(String source) {
 	this.source = source;
+	this.modified();
     }
 
     /** Returns the term targets of the first span. When targets of other spans are needed getReferences() method should be used. */ 
@@ -108,11 +110,13 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
     /** Adds a term to the first span. */
     public void addTerm(Term term) {
 	this.references.get(0).addTarget(term);
+	this.modified();
     }
 
     /** Adds a term to the first span. */
     public void addTerm(Term term, boolean isHead) {
 	this.references.get(0).addTarget(term, isHead);
+	this.modified();
     }
 
     public List<Span<Term>> getSpans() {
@@ -120,7 +124,8 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
     }
 
     public void addSpan(Span<Term> span) {
-	this.references.add(span);
+	this.references.add(own(span));
+	this.modified();
     }
 
     public List<ExternalRef> getExternalRefs() {
@@ -128,11 +133,13 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
     }
 
     public void addExternalRef(ExternalRef externalRef) {
-	externalReferences.add(externalRef);
+	externalReferences.add(own(externalRef));
+	this.modified();
     }
 
     public void addExternalRefs(List<ExternalRef> externalRefs) {
-	externalReferences.addAll(externalRefs);
+	externalReferences.addAll(ownExternalRefs(externalRefs));
+	this.modified();
     }
 
     public String getSpanStr(Span<Term> span) {
@@ -179,7 +186,8 @@ public class Entity extends IdentifiableAnnotation implements Relational, Senten
 
     /** Deprecated */
     public void addReference(List<Term> span) {
-	this.references.add(KAFDocument.<Term>list2Span(span));
+	this.references.add(own(KAFDocument.<Term>list2Span(span)));
+	this.modified();
     }    
     
     /*
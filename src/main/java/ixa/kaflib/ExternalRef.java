@@ -16,6 +16,8 @@ public class ExternalRef implements Serializable {
     private String source;
     private List<ExternalRef> externalRefs;
     private Term.Sentiment sentiment;
+    /** Annotation the reference belongs to, which is marked as modified when the reference changes (see Annotation.modified()) */
+    private transient Annotation owner;
 
 
     ExternalRef(String resource, String reference) {
@@ -41,6 +43,7 @@ public class ExternalRef implements Serializable {
 
     public void setResource(String val) {
 	resource = val;
+	this.modified();
     }
     
     public boolean hasReference() {
@@ -53,6 +56,7 @@ public class ExternalRef implements Serializable {
 
     public void setReference(String val) {
 	reference = val;
+	this.modified();
     }
 
     public boolean hasReftype() {
@@ -65,6 +69,7 @@ public class ExternalRef implements Serializable {
 
     public void setReftype(String reftype) {
 	this.reftype = reftype;
+	this.modified();
     }
 
     public boolean hasStatus() {
@@ -77,6 +82,7 @@ public class ExternalRef implements Serializable {
 
     public void setStatus(String status) {
 	this.status = status;
+	this.modified();
     }
 
     public boolean hasSource() {
@@ -89,6 +95,7 @@ public class ExternalRef implements Serializable {
 
     public void setSource(String source) {
 	this.source = source;
+	this.modified();
     }
 
     public boolean hasConfidence() {
@@ -101,6 +108,7 @@ public class ExternalRef implements Serializable {
 
     public void setConfidence(Float val) {
 	confidence = val;
+	this.modified();
     }
 
     public boolean hasExternalRef() {
@@ -113,12 +121,14 @@ public class ExternalRef implements Serializable {
 
     public void addExternalRef(ExternalRef externalRef) {
 	this.externalRefs.add(externalRef);
+	externalRef.setOwner(this.owner);
+	this.modified();
     }
 
     // Deprecated. Add to the end of the list.
 
     public void setExternalRef(ExternalRef externalRef) {
-	this.externalRefs.add(externalRef);
+	this.addExternalRef(externalRef);
     }
 
     public boolean hasSentiment() {
@@ -131,6 +141,27 @@ public class ExternalRef implements Serializable {
 
     public void setSentiment(Term.Sentiment sentiment) {
 	this.sentiment = sentiment;
+	if (sentiment != null) {
+	    sentiment.owner = this.owner;
+	}
+	this.modified();
+    }
+
+    /** Sets the annotation the reference belongs to, and to which its nested references and sentiment belong too */
+    void setOwner(Annotation owner) {
+	this.owner = owner;
+	for (ExternalRef externalRef : this.externalRefs) {
+	    externalRef.setOwner(owner);
+	}
+	if (this.sentiment != null) {
+	    this.sentiment.owner = owner;
+	}
+    }
+
+    private void modified() {
+	if (this.owner != null) {
+	    this.owner.modified();
+	}
     }
     
     /*
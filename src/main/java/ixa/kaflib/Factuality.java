@@ -16,7 +16,7 @@ public class Factuality extends IdentifiableAnnotation implements SentenceLevelA
     
     Factuality(String id, Span<Term> span) {
 	super(id);
-	this.span = span;
+	this.span = own(span);
 	this.factVals = new ArrayList<FactVal>();
     }
     
@@ -33,7 +33,8 @@ public class Factuality extends IdentifiableAnnotation implements SentenceLevelA
     }
     
     public void addFactVal(FactVal factVal) {
-	this.factVals.add(factVal);
+	this.factVals.add(own(factVal));
+	this.modified();
     }
     
     @Override
@@ -94,6 +95,7 @@ public class Factuality extends IdentifiableAnnotation implements SentenceLevelA
 	
 	public void setValue(String value) {
 	    this.value = value;
+	    this.modified();
 	}
 	
 	public String getResource() {
@@ -102,6 +104,7 @@ public class Factuality extends IdentifiableAnnotation implements SentenceLevelA
 	
 	public void setResource(String resource) {
 	    this.resource = resource;
+	    this.modified();
 	}
 	
 	public boolean hasSource() {
@@ -114,6 +117,7 @@ public class Factuality extends IdentifiableAnnotation implements SentenceLevelA
 	
 	public void setSource(String source) {
 	    this.source = source;
+	    this.modified();
 	}
 	
 	public boolean hasConfidence() {
@@ -126,6 +130,7 @@ public class Factuality extends IdentifiableAnnotation implements SentenceLevelA
 	
 	public void setConfidence(Float confidence) {
 	    this.confidence = confidence;
+	    this.modified();
 	}
 	
 	@Override
@@ -38,6 +38,7 @@ public class Factvalue extends Annotation implements SentenceLevelAnnotation {
 
     public void setPrediction(String prediction) {
 	this.prediction = prediction;
+	this.modified();
     }
 
     public boolean hasConfidence() {
@@ -46,6 +47,7 @@ public class Factvalue extends Annotation implements SentenceLevelAnnotation {
 
     public void setConfidence(Double confidence) {
 	this.confidence = confidence;
+	this.modified();
     }
 
     public Double getConfidence() {
@@ -89,10 +91,12 @@ public class Factvalue extends Annotation implements SentenceLevelAnnotation {
 
     public void addFactualityPart(FactualityPart part) {
 	this.factualityParts.add(part);
+	this.modified();
     }
 
     public void addFactualityPart(String prediction, double confidence) {
 	this.addFactualityPart(new FactualityPart(prediction, confidence));
+	this.modified();
     }
     
     public List<WF> getWFs() {
@@ -133,6 +137,7 @@ public class Factvalue extends Annotation implements SentenceLevelAnnotation {
 
 	void setPrediction(String prediction) {
 	    this.prediction = prediction;
+	    Factvalue.this.modified();
 	}
 
 	boolean hasConfidence() {
@@ -145,6 +150,7 @@ public class Factvalue extends Annotation implements SentenceLevelAnnotation {
 
 	void setConfidence(Double confidence) {
 	    this.confidence = confidence;
+	    Factvalue.this.modified();
 	}
 
 	@Override
@@ -30,7 +30,7 @@ public class Feature extends IdentifiableAnnotation implements Relational, Seria
 	}
 	this.id = id;
 	this.lemma = lemma;
-	this.references = references;
+	this.references = ownSpans(references);
 	this.externalReferences = new ArrayList<ExternalRef>();
     }
 
@@ -54,16 +54,16 @@ public class Feature extends IdentifiableAnnotation implements Relational, Seria
 	    }
 	    if (span.hasHead()) {
 		Term copiedHead = terms.get(span.getHead().getId());
-		this.references.add(new Span<Term>(copiedTargets, copiedHead));
+		this.references.add(own(new Span<Term>(copiedTargets, copiedHead)));
 	    }
 	    else {
-		this.references.add(new Span<Term>(copiedTargets));
+		this.references.add(own(new Span<Term>(copiedTargets)));
 	    }
 	}
 	/* Copy external references */
 	this.externalReferences = new ArrayList<ExternalRef>();
 	for (ExternalRef externalRef : feature.getExternalRefs()) {
-	    this.externalReferences.add(new ExternalRef(externalRef));
+	    this.externalReferences.add(own(new ExternalRef(externalRef)));
 	}
     }
 
@@ -89,6 +89,7 @@ public class Feature extends IdentifiableAnnotation implements Relational, Seria
 
     public void setLemma(String lemma) {
 	this.lemma = lemma;
+	this.modified();
     }
 
     /** Returns the term targets of the first span. When targets of other spans are needed getReferences() method should be used. */ 
@@ -99,11 +100,13 @@ public class Feature extends IdentifiableAnnotation implements Relational, Seria
     /** Adds a term to the first span. */
     public void addTerm(Term term) {
 	this.references.get(0).addTarget(term);
+	this.modified();
     }
 
     /** Adds a term to the first span. */
     public void addTerm(Term term, boolean isHead) {
 	this.references.get(0).addTarget(term, isHead);
+	this.modified();
     }
 
     public List<Span<Term>> getSpans() {
@@ -111,7 +114,8 @@ public class Feature extends IdentifiableAnnotation implements Relational, Seria
     }
 
     public void addSpan(Span<Term> span) {
-	references.add(span);
+	references.add(own(span));
+	this.modified();
     }
 
     public List<ExternalRef> getExternalRefs() {
@@ -119,11 +123,13 @@ public class Feature extends IdentifiableAnnotation implements Relational, Seria
     }
 
     public void addExternalRef(ExternalRef externalRef) {
-	externalReferences.add(externalRef);
+	externalReferences.add(own(externalRef));
+	this.modified();
     }
 
     public void addExternalRefs(List<ExternalRef> externalRefs) {
-	externalReferences.addAll(externalRefs);
+	externalReferences.addAll(ownExternalRefs(externalRefs));
+	this.modified();
     }
 
     public String getSpanStr(Span<Term> span) {
@@ -163,7 +169,8 @@ public class Feature extends IdentifiableAnnotation implements Relational, Seria
 
     /** Deprecated */
     public void addReference(List<Term> span) {
-	this.references.add(KAFDocument.<Term>list2Span(span));
+	this.references.add(own(KAFDocument.<Term>list2Span(span)));
+	this.modified();
     }
     
     /*
@@ -0,0 +1,57 @@
+package ixa.kaflib;
+
+
+/** Reads the numeric part of IDs (as in "t12", "nter_3" or "t.mw4"), scanning them by hand instead of matching regular expressions. */
+class IdCodec {
+
+    /** Returned when an ID doesn't have the expected format */
+    static final int NO_NUMBER = -1;
+
+    private IdCodec() {
+    }
+
+    /** Returns the number at the end of an ID, whatever precedes it, or NO_NUMBER if the ID doesn't end in a digit. */
+    static int counter(String id) {
+	int begin = id.length();
+	while ((begin > 0) && isDigit(id.charAt(begin - 1))) {
+	    begin--;
+	}
+	return parse(id, begin);
+    }
+
+    /** Returns the number of an ID made of a lowercase prefix, an optional "_" and the number ([a-z]*_?[0-9]+), or NO_NUMBER if the ID is not like that. */
+    static int number(String id) {
+	int begin = 0;
+	while ((begin < id.length()) && (id.charAt(begin) >= 'a') && (id.charAt(begin) <= 'z')) {
+	    begin++;
+	}
+	if ((begin < id.length()) && (id.charAt(begin) == '_')) {
+	    begin++;
+	}
+	for (int i = begin; i < id.length(); i++) {
+	    if (!isDigit(id.charAt(i))) {
+		return NO_NUMBER;
+	    }
+	}
+	return parse(id, begin);
+    }
+
+    /** Parses the digits from begin to the end of the ID. Numbers which don't fit in an int have no number either. */
+    private static int parse(String id, int begin) {
+	if (begin == id.length()) {
+	    return NO_NUMBER;
+	}
+	long number = 0;
+	for (int i = begin; i < id.length(); i++) {
+	    number = 10 * number + (id.charAt(i) - '0');
+	    if (number > Integer.MAX_VALUE) {
+		return NO_NUMBER;
+	    }
+	}
+	return (int) number;
+    }
+
+    private static boolean isDigit(char c) {
+	return (c >= '0') && (c <= '9');
+    }
+}
@@ -1,10 +1,12 @@
 package ixa.kaflib;
 
-import java.util.regex.*;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import ixa.kaflib.KAFDocument.AnnotationType;
 
 
@@ -97,12 +99,11 @@ class IdManager implements Serializable {
     }
 
     private int extractCounterFromId(String id) {
-	//Matcher matcher = Pattern.compile(".*?(\\d+)$").matcher(id);
-	Matcher matcher = Pattern.compile("\\d+$").matcher(id);
-	if (!matcher.find()) {
+	int counter = IdCodec.counter(id);
+	if (counter == IdCodec.NO_NUMBER) {
 	    throw new IllegalStateException("IdManager doesn't recognise the given id's (" + id  + ") format.");
 	}
-	return Integer.valueOf(matcher.group(0));
+	return counter;
     }
     
     String getNextId(AnnotationType ann) {
@@ -116,6 +117,32 @@ class IdManager implements Serializable {
 	return id;
     }
 
+    /** Writes the counters of each annotation type. The IDs are not written, as they are added again when the annotations are created. */
+    void writeCounters(DataOutput out) throws IOException {
+	out.writeInt(this.counters.size());
+	for (Map.Entry<AnnotationType, Integer> entry : this.counters.entrySet()) {
+	    out.writeUTF(entry.getKey().name());
+	    out.writeInt(entry.getValue());
+	    out.writeBoolean(this.inconsistentId.get(entry.getKey()));
+	}
+    }
+
+    /** Reads the counters written by writeCounters, keeping the greatest of each counter */
+    void readCounters(DataInput in) throws IOException {
+	int size = in.readInt();
+	for (int i = 0; i < size; i++) {
+	    AnnotationType ann = AnnotationType.valueOf(in.readUTF());
+	    int counter = in.readInt();
+	    boolean inconsistent = in.readBoolean();
+	    if (this.counters.get(ann) < counter) {
+		this.counters.put(ann, counter);
+	    }
+	    if (inconsistent) {
+		this.inconsistentId.put(ann, true);
+	    }
+	}
+    }
+
     void updateCounter(AnnotationType ann, String id) {
 	this.insertId(id);
 	try {
@@ -8,6 +8,8 @@ public abstract class IdentifiableAnnotation
     implements Comparable<IdentifiableAnnotation> {
 
     protected String id;
+    /** Numeric part of the ID plus one, read when it is first needed (see IdCodec.number). 0 until it is read. */
+    private transient int idNumber;
 
     IdentifiableAnnotation(String id) {
 	this.id = id;
@@ -19,6 +21,16 @@ public abstract class IdentifiableAnnotation
 
     void setId(String id) {
 	this.id = id;
+	this.idNumber = 0;
+	this.modified();
+    }
+
+    /** Returns the number of the ID, or IdCodec.NO_NUMBER if the ID is not a lowercase prefix followed by a number. */
+    int getIdNumber() {
+	if (this.idNumber == 0) {
+	    this.idNumber = IdCodec.number(this.id) + 1;
+	}
+	return this.idNumber - 1;
     }
 
     @Override
@@ -0,0 +1,141 @@
+package ixa.kaflib;
+
+import ixa.kaflib.KAFDocument.AnnotationType;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/** Inverse references of the annotations of a document: for each annotation, the annotations of each type which refer to it.
+ * Each referenced annotation gets a dense ordinal, which it keeps itself, and the referring annotations of each type are kept in an array indexed by that ordinal.
+ * An annotation already indexed by another document is looked up in a map instead.
+ */
+class InverseIndex {
+
+    private static final AnnotationType[] TYPES = AnnotationType.values();
+
+    private int size;
+    /** Ordinals of the annotations indexed by other documents */
+    private Map<Annotation, Integer> foreign;
+    /** (AnnotationType => (Ordinal - base => Annotations)) */
+    private RefList[][] refs = new RefList[TYPES.length][];
+    private int[] bases = new int[TYPES.length];
+
+    /** Indexes src, of type srcType, as referring to ref. */
+    void add(Annotation src, AnnotationType srcType, Annotation ref) {
+	int ordinal = ordinal(ref, true);
+	int t = srcType.ordinal();
+	RefList[] typeRefs = refs[t];
+	if (typeRefs == null) {
+	    typeRefs = new RefList[16];
+	    bases[t] = ordinal;
+	} else if (ordinal < bases[t]) {
+	    int shift = bases[t] - ordinal;
+	    RefList[] shifted = new RefList[typeRefs.length + shift];
+	    System.arraycopy(typeRefs, 0, shifted, shift, typeRefs.length);
+	    typeRefs = shifted;
+	    bases[t] = ordinal;
+	}
+	int i = ordinal - bases[t];
+	if (i >= typeRefs.length) {
+	    typeRefs = Arrays.copyOf(typeRefs, Math.max(2 * typeRefs.length, i + 1));
+	}
+	refs[t] = typeRefs;
+	if (typeRefs[i] == null) {
+	    typeRefs[i] = new RefList();
+	}
+	typeRefs[i].append(src);
+    }
+
+    /** Returns the annotations of the given type which refer to ann. The list is a read-only view of the index. */
+    List<Annotation> get(Annotation ann, AnnotationType type) {
+	int ordinal = ordinal(ann, false);
+	List<Annotation> annotations = (ordinal < 0) ? null : get(ordinal, type.ordinal());
+	return (annotations == null) ? Collections.<Annotation>emptyList() : annotations;
+    }
+
+    /** Returns all the annotations which refer to ann, in a new list (or an empty read-only one if there are none). */
+    List<Annotation> get(Annotation ann) {
+	int ordinal = ordinal(ann, false);
+	if (ordinal < 0) {
+	    return Collections.emptyList();
+	}
+	List<Annotation> annotations = new ArrayList<Annotation>();
+	for (int t = 0; t < TYPES.length; t++) {
+	    List<Annotation> typeAnnotations = get(ordinal, t);
+	    if (typeAnnotations != null) {
+		annotations.addAll(typeAnnotations);
+	    }
+	}
+	return annotations;
+    }
+
+    private RefList get(int ordinal, int t) {
+	RefList[] typeRefs = refs[t];
+	if (typeRefs == null) {
+	    return null;
+	}
+	int i = ordinal - bases[t];
+	return ((i >= 0) && (i < typeRefs.length)) ? typeRefs[i] : null;
+    }
+
+    /** Returns the ordinal of an annotation, or -1 if it has none and create is false. */
+    private int ordinal(Annotation ann, boolean create) {
+	if (ann.inverseIndex == this) {
+	    return ann.inverseOrdinal;
+	}
+	if (ann.inverseIndex == null) {
+	    if (!create) {
+		return -1;
+	    }
+	    ann.inverseIndex = this;
+	    ann.inverseOrdinal = size;
+	    return size++;
+	}
+	Integer ordinal = (foreign == null) ? null : foreign.get(ann);
+	if (ordinal == null) {
+	    if (!create) {
+		return -1;
+	    }
+	    if (foreign == null) {
+		foreign = new HashMap<Annotation, Integer>();
+	    }
+	    ordinal = size++;
+	    foreign.put(ann, ordinal);
+	}
+	return ordinal;
+    }
+
+
+    /** Read-only list of the annotations referring to an annotation */
+    private static class RefList extends AbstractList<Annotation> {
+
+	private Annotation[] annotations = new Annotation[1];
+	private int size;
+
+	void append(Annotation ann) {
+	    if (size == annotations.length) {
+		annotations = Arrays.copyOf(annotations, 2 * size);
+	    }
+	    annotations[size++] = ann;
+	}
+
+	@Override
+	public Annotation get(int index) {
+	    if (index >= size) {
+		throw new IndexOutOfBoundsException(index + " >= " + size);
+	    }
+	    return annotations[index];
+	}
+
+	@Override
+	public int size() {
+	    return size;
+	}
+    }
+}
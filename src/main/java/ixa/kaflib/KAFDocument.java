@@ -7,9 +7,11 @@ import ixa.kaflib.Predicate.Role;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -17,7 +19,11 @@ import java.util.Map;
 import java.util.Set;
 import java.io.File;
 import java.io.Reader;
+import java.io.Writer;
+import java.io.OutputStream;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.io.ObjectStreamException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.regex.Pattern;
@@ -98,6 +104,89 @@ public class KAFDocument implements Serializable {
     static List<AnnotationType> highLevelAnnotationTypes;
     static Map<AnnotationType, Layer> highLevelAnnotationType2Layer;
     static Map<AnnotationType, Class<?>> annotationTypeClasses;
+
+    /* Built once for all documents, so that documents can be created and loaded concurrently */
+    static {
+	highLevelAnnotationTypes = Arrays.asList(
+		AnnotationType.WF,
+		AnnotationType.TERM,
+		AnnotationType.ENTITY,
+		AnnotationType.CHUNK,
+		AnnotationType.DEP,
+		AnnotationType.TREE,
+		AnnotationType.COREF,
+		AnnotationType.OPINION,
+		AnnotationType.CLINK,
+		AnnotationType.TLINK,
+		AnnotationType.PREDICATE_ANCHOR,
+		AnnotationType.PREDICATE,
+		AnnotationType.TIMEX3,
+		AnnotationType.FACTUALITY,
+		AnnotationType.FACTVALUE,
+		AnnotationType.MARK,
+		AnnotationType.PROPERTY,
+		AnnotationType.CATEGORY,
+		AnnotationType.LINKED_ENTITY,
+		AnnotationType.RELATION,
+		AnnotationType.TOPIC,
+		AnnotationType.STATEMENT);
+	
+	highLevelAnnotationType2Layer = new HashMap<AnnotationType, Layer>();
+	highLevelAnnotationType2Layer.put(AnnotationType.WF, Layer.TEXT);
+	highLevelAnnotationType2Layer.put(AnnotationType.TERM, Layer.TERMS);
+	highLevelAnnotationType2Layer.put(AnnotationType.ENTITY, Layer.ENTITIES);
+	highLevelAnnotationType2Layer.put(AnnotationType.CHUNK, Layer.CHUNKS);
+	highLevelAnnotationType2Layer.put(AnnotationType.DEP, Layer.DEPS);
+	highLevelAnnotationType2Layer.put(AnnotationType.TREE, Layer.CONSTITUENCY);
+	highLevelAnnotationType2Layer.put(AnnotationType.COREF, Layer.COREFERENCES);
+	highLevelAnnotationType2Layer.put(AnnotationType.OPINION, Layer.OPINIONS);
+	highLevelAnnotationType2Layer.put(AnnotationType.CLINK, Layer.CAUSAL_RELATIONS);
+	highLevelAnnotationType2Layer.put(AnnotationType.TLINK, Layer.TEMPORAL_RELATIONS);
+	highLevelAnnotationType2Layer.put(AnnotationType.PREDICATE_ANCHOR, Layer.TEMPORAL_RELATIONS);
+	highLevelAnnotationType2Layer.put(AnnotationType.PREDICATE, Layer.SRL);
+	highLevelAnnotationType2Layer.put(AnnotationType.TIMEX3, Layer.TIME_EXPRESSIONS);
+	highLevelAnnotationType2Layer.put(AnnotationType.FACTUALITY, Layer.FACTUALITIES);
+	highLevelAnnotationType2Layer.put(AnnotationType.FACTVALUE, Layer.FACTUALITY_LAYER);
+	highLevelAnnotationType2Layer.put(AnnotationType.MARK, Layer.MARKABLES);
+	highLevelAnnotationType2Layer.put(AnnotationType.PROPERTY, Layer.PROPERTIES);
+	highLevelAnnotationType2Layer.put(AnnotationType.CATEGORY, Layer.CATEGORIES);
+	highLevelAnnotationType2Layer.put(AnnotationType.LINKED_ENTITY, Layer.LINKED_ENTITIES);
+	highLevelAnnotationType2Layer.put(AnnotationType.RELATION, Layer.RELATIONS);
+	highLevelAnnotationType2Layer.put(AnnotationType.TOPIC, Layer.TOPICS);
+	highLevelAnnotationType2Layer.put(AnnotationType.STATEMENT, Layer.ATTRIBUTION);
+	
+	annotationTypeClasses = new HashMap<AnnotationType, Class<?>>();
+	annotationTypeClasses.put(AnnotationType.WF, WF.class);
+	annotationTypeClasses.put(AnnotationType.TERM, Term.class);
+	annotationTypeClasses.put(AnnotationType.COMPONENT, Term.class);
+	annotationTypeClasses.put(AnnotationType.MW, Term.class);
+	annotationTypeClasses.put(AnnotationType.ENTITY, Entity.class);
+	annotationTypeClasses.put(AnnotationType.CHUNK, Chunk.class);
+	annotationTypeClasses.put(AnnotationType.DEP, Dep.class);
+	annotationTypeClasses.put(AnnotationType.TREE, Tree.class);
+	annotationTypeClasses.put(AnnotationType.NON_TERMINAL, NonTerminal.class);
+	annotationTypeClasses.put(AnnotationType.TERMINAL, Terminal.class);
+	//annotationTypeClasses.put(AnnotationType.EDGE, .class);
+	annotationTypeClasses.put(AnnotationType.COREF, Coref.class);
+	annotationTypeClasses.put(AnnotationType.OPINION, Opinion.class);
+	annotationTypeClasses.put(AnnotationType.OPINION_HOLDER, OpinionHolder.class);
+	annotationTypeClasses.put(AnnotationType.OPINION_TARGET, OpinionTarget.class);
+	annotationTypeClasses.put(AnnotationType.OPINION_EXPRESSION, OpinionExpression.class);
+	annotationTypeClasses.put(AnnotationType.CLINK, CLink.class);
+	annotationTypeClasses.put(AnnotationType.TLINK, TLink.class);
+	annotationTypeClasses.put(AnnotationType.PREDICATE, Predicate.class);
+	annotationTypeClasses.put(AnnotationType.ROLE, Role.class);
+	annotationTypeClasses.put(AnnotationType.TIMEX3, Timex3.class);
+	annotationTypeClasses.put(AnnotationType.FACTUALITY, Factuality.class);
+	annotationTypeClasses.put(AnnotationType.FACTVALUE, Factvalue.class);
+	annotationTypeClasses.put(AnnotationType.MARK, Mark.class);
+	annotationTypeClasses.put(AnnotationType.PROPERTY, Feature.class);
+	annotationTypeClasses.put(AnnotationType.CATEGORY, Feature.class);
+	annotationTypeClasses.put(AnnotationType.LINKED_ENTITY, LinkedEntity.class);
+	annotationTypeClasses.put(AnnotationType.RELATION, Relation.class);
+	annotationTypeClasses.put(AnnotationType.TOPIC, Topic.class);
+	annotationTypeClasses.put(AnnotationType.STATEMENT, Statement.class);
+    }
     private static final long serialVersionUID = 42L; // Serializable...
     
     private Map<String, List<Term>> wfId2Terms; // Rodrirekin hitz egin hau kentzeko
@@ -299,6 +388,9 @@ public class KAFDocument implements Serializable {
     /** Keeps all the annotations of the document */
     private AnnotationContainer annotationContainer;
 
+    /** Shares the values of categorical attributes. It is created when first needed (see getSymbolTable). */
+    private transient SymbolTable symbolTable;
+
     /** Creates an empty KAFDocument element */
     public KAFDocument(String lang, String version) {
 	this.lang = lang;
@@ -307,90 +399,10 @@ public class KAFDocument implements Serializable {
 	idManager = new IdManager();
 	annotationContainer = new AnnotationContainer();
 	
-	highLevelAnnotationTypes = Arrays.asList(
-		AnnotationType.WF,
-		AnnotationType.TERM,
-		AnnotationType.ENTITY,
-		AnnotationType.CHUNK,
-		AnnotationType.DEP,
-		AnnotationType.TREE,
-		AnnotationType.COREF,
-		AnnotationType.OPINION,
-		AnnotationType.CLINK,
-		AnnotationType.TLINK,
-		AnnotationType.PREDICATE_ANCHOR,
-		AnnotationType.PREDICATE,
-		AnnotationType.TIMEX3,
-		AnnotationType.FACTUALITY,
-		AnnotationType.FACTVALUE,
-		AnnotationType.MARK,
-		AnnotationType.PROPERTY,
-		AnnotationType.CATEGORY,
-		AnnotationType.LINKED_ENTITY,
-		AnnotationType.RELATION,
-		AnnotationType.TOPIC,
-		AnnotationType.STATEMENT);
-	
-	highLevelAnnotationType2Layer = new HashMap<AnnotationType, Layer>();
-	highLevelAnnotationType2Layer.put(AnnotationType.WF, Layer.TEXT);
-	highLevelAnnotationType2Layer.put(AnnotationType.TERM, Layer.TERMS);
-	highLevelAnnotationType2Layer.put(AnnotationType.ENTITY, Layer.ENTITIES);
-	highLevelAnnotationType2Layer.put(AnnotationType.CHUNK, Layer.CHUNKS);
-	highLevelAnnotationType2Layer.put(AnnotationType.DEP, Layer.DEPS);
-	highLevelAnnotationType2Layer.put(AnnotationType.TREE, Layer.CONSTITUENCY);
-	highLevelAnnotationType2Layer.put(AnnotationType.COREF, Layer.COREFERENCES);
-	highLevelAnnotationType2Layer.put(AnnotationType.OPINION, Layer.OPINIONS);
-	highLevelAnnotationType2Layer.put(AnnotationType.CLINK, Layer.CAUSAL_RELATIONS);
-	highLevelAnnotationType2Layer.put(AnnotationType.TLINK, Layer.TEMPORAL_RELATIONS);
-	highLevelAnnotationType2Layer.put(AnnotationType.PREDICATE_ANCHOR, Layer.TEMPORAL_RELATIONS);
-	highLevelAnnotationType2Layer.put(AnnotationType.PREDICATE, Layer.SRL);
-	highLevelAnnotationType2Layer.put(AnnotationType.TIMEX3, Layer.TIME_EXPRESSIONS);
-	highLevelAnnotationType2Layer.put(AnnotationType.FACTUALITY, Layer.FACTUALITIES);
-	highLevelAnnotationType2Layer.put(AnnotationType.FACTVALUE, Layer.FACTUALITY_LAYER);
-	highLevelAnnotationType2Layer.put(AnnotationType.MARK, Layer.MARKABLES);
-	highLevelAnnotationType2Layer.put(AnnotationType.PROPERTY, Layer.PROPERTIES);
-	highLevelAnnotationType2Layer.put(AnnotationType.CATEGORY, Layer.CATEGORIES);
-	highLevelAnnotationType2Layer.put(AnnotationType.LINKED_ENTITY, Layer.LINKED_ENTITIES);
-	highLevelAnnotationType2Layer.put(AnnotationType.RELATION, Layer.RELATIONS);
-	highLevelAnnotationType2Layer.put(AnnotationType.TOPIC, Layer.TOPICS);
-	highLevelAnnotationType2Layer.put(AnnotationType.STATEMENT, Layer.ATTRIBUTION);
-	
-	annotationTypeClasses = new HashMap<AnnotationType, Class<?>>();
-	annotationTypeClasses.put(AnnotationType.WF, WF.class);
-	annotationTypeClasses.put(AnnotationType.TERM, Term.class);
-	annotationTypeClasses.put(AnnotationType.COMPONENT, Term.class);
-	annotationTypeClasses.put(AnnotationType.MW, Term.class);
-	annotationTypeClasses.put(AnnotationType.ENTITY, Entity.class);
-	annotationTypeClasses.put(AnnotationType.CHUNK, Chunk.class);
-	annotationTypeClasses.put(AnnotationType.DEP, Dep.class);
-	annotationTypeClasses.put(AnnotationType.TREE, Tree.class);
-	annotationTypeClasses.put(AnnotationType.NON_TERMINAL, NonTerminal.class);
-	annotationTypeClasses.put(AnnotationType.TERMINAL, Terminal.class);
-	//annotationTypeClasses.put(AnnotationType.EDGE, .class);
-	annotationTypeClasses.put(AnnotationType.COREF, Coref.class);
-	annotationTypeClasses.put(AnnotationType.OPINION, Opinion.class);
-	annotationTypeClasses.put(AnnotationType.OPINION_HOLDER, OpinionHolder.class);
-	annotationTypeClasses.put(AnnotationType.OPINION_TARGET, OpinionTarget.class);
-	annotationTypeClasses.put(AnnotationType.OPINION_EXPRESSION, OpinionExpression.class);
-	annotationTypeClasses.put(AnnotationType.CLINK, CLink.class);
-	annotationTypeClasses.put(AnnotationType.TLINK, TLink.class);
-	annotationTypeClasses.put(AnnotationType.PREDICATE, Predicate.class);
-	annotationTypeClasses.put(AnnotationType.ROLE, Role.class);
-	annotationTypeClasses.put(AnnotationType.TIMEX3, Timex3.class);
-	annotationTypeClasses.put(AnnotationType.FACTUALITY, Factuality.class);
-	annotationTypeClasses.put(AnnotationType.FACTVALUE, Factvalue.class);
-	annotationTypeClasses.put(AnnotationType.MARK, Mark.class);
-	annotationTypeClasses.put(AnnotationType.PROPERTY, Feature.class);
-	annotationTypeClasses.put(AnnotationType.CATEGORY, Feature.class);
-	annotationTypeClasses.put(AnnotationType.LINKED_ENTITY, LinkedEntity.class);
-	annotationTypeClasses.put(AnnotationType.RELATION, Relation.class);
-	annotationTypeClasses.put(AnnotationType.TOPIC, Topic.class);
-	annotationTypeClasses.put(AnnotationType.STATEMENT, Statement.class);
-	
 	this.wfId2Terms = new HashMap<String, List<Term>>();
     }
 
-    /** Creates a new KAFDocument and loads the contents of the file passed as argument
+    /** Creates a new KAFDocument and loads the contents of the file passed as argument. Gzipped files are decompressed.
      * @param file an existing KAF file to be loaded into the library.
      */
     public static KAFDocument createFromFile(File file) throws IOException {
@@ -403,6 +415,22 @@ public class KAFDocument implements Serializable {
 	return kaf;
     }
 
+    /** Creates a new KAFDocument and loads only the given layers of the file passed as argument. The layers the given ones refer to (e.g. text and terms for entities) are loaded too.
+     * The rest of the layers are skipped, and their original XML is written back in their place when the document is saved. Adding annotations to them throws IllegalStateException.
+     * @param file an existing KAF file to be loaded into the library.
+     * @param layers the layers to load.
+     */
+    public static KAFDocument createFromFile(File file, EnumSet<Layer> layers) throws IOException, JDOMException {
+	return ReadWriteManager.load(file, layers);
+    }
+
+    /** Creates a new KAFDocument with the language, version and header (fileDesc, public and linguistic processors) of the file passed as argument, and no annotations. The file is read only up to the end of the header, so this is much faster than loading the whole document.
+     * @param file an existing KAF file.
+     */
+    public static KAFDocument readHeader(File file) throws IOException, JDOMException {
+	return ReadWriteManager.loadHeader(file);
+    }
+
     /** Creates a new KAFDocument loading the content read from the reader given on argument.
      * @param stream Reader to read KAF content.
      */
@@ -412,6 +440,21 @@ public class KAFDocument implements Serializable {
 	return kaf;
     }
 
+    /** Creates a new KAFDocument loading only the given layers (and the layers they refer to) from the reader given on argument. The rest of the layers are skipped and written back as they are, as in createFromFile(File, EnumSet).
+     * @param stream Reader to read KAF content.
+     * @param layers the layers to load.
+     */
+    public static KAFDocument createFromStream(Reader stream, EnumSet<Layer> layers) throws IOException, JDOMException {
+	return ReadWriteManager.load(stream, layers);
+    }
+
+    /** Creates a new KAFDocument from the binary format written by saveBinary. The stream is not closed.
+     * @param stream InputStream to read the binary content from.
+     */
+    public static KAFDocument createFromBinary(InputStream stream) throws IOException {
+	return BinaryLoader.load(stream);
+    }
+
     /** Sets the language of the processed document */
     public void setLang(String lang) {
 	this.lang = lang;
@@ -532,6 +575,42 @@ public class KAFDocument implements Serializable {
 	return annotationContainer;
     }
 
+    /** Returns the identifier manager used by this object */
+    IdManager getIdManager() {
+	return idManager;
+    }
+
+    /** Returns the table which shares the values of categorical attributes (part of speech tags, dependency functions, semantic roles...) among the annotations of this document.
+     * A document which has not been given one creates its own the first time it is needed.
+     */
+    public SymbolTable getSymbolTable() {
+	if (symbolTable == null) {
+	    symbolTable = new SymbolTable();
+	}
+	return symbolTable;
+    }
+
+    /** Makes the document share the values of categorical attributes through the given table, which may be shared with other documents.
+     * Values already in the document are not changed.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+	this.symbolTable = symbolTable;
+    }
+
+    /** Starts a bulk update, for producers which add many annotations at once (a tagger annotating a whole document, for instance).
+     * Until endBulkUpdate() is called, added annotations are not indexed one by one: they are indexed together when the update ends.
+     * Queries made in the meantime still see all the annotations, as they index the pending ones first.
+     * Updates can be nested; annotations are indexed when the outermost one ends.
+     */
+    public void beginBulkUpdate() {
+	annotationContainer.beginBulkUpdate();
+    }
+
+    /** Ends a bulk update started with beginBulkUpdate(). */
+    public void endBulkUpdate() {
+	annotationContainer.endBulkUpdate();
+    }
+
     /** Set raw text **/
     public void setRawText(String rawText) {
 	annotationContainer.setRawText(rawText);
@@ -670,14 +749,14 @@ public class KAFDocument implements Serializable {
     
     public Mark newMark(Span<WF> span, String source) {
 	Mark newMark = this.newMark(span);
-	newMark.setSource(source);
+	newMark.setSource(getSymbolTable().intern(source));
 	return newMark;
     }
 
     public Mark newMark(String id, String source, Span<WF> span) {
 	idManager.updateCounter(AnnotationType.MARK, id);
 	Mark newMark = new Mark(id, span);
-	newMark.setSource(source);
+	newMark.setSource(getSymbolTable().intern(source));
 	annotationContainer.add(newMark, Layer.MARKABLES, AnnotationType.MARK);
 	return newMark;
     }
@@ -689,7 +768,7 @@ public class KAFDocument implements Serializable {
      * @return a new dependency.
      */
 public Dep newDep(Term from, Term to, String rfunc) {
-    Dep newDep = new Dep(from, to, rfunc);
+    Dep newDep = new Dep(from, to, getSymbolTable().intern(rfunc));
     annotationContainer.add(newDep, Layer.DEPS, AnnotationType.DEP);
     return newDep;
 }
@@ -704,7 +783,7 @@ public Dep newDep(Term from, Term to, String rfunc) {
 public Chunk newChunk(String id, String phrase, Span<Term> span) {
     idManager.updateCounter(AnnotationType.CHUNK, id);
     Chunk newChunk = new Chunk(id, span);
-    newChunk.setPhrase(phrase);
+    newChunk.setPhrase(getSymbolTable().intern(phrase));
     annotationContainer.add(newChunk, Layer.CHUNKS, AnnotationType.CHUNK);
     return newChunk;
 }
@@ -718,7 +797,7 @@ public Chunk newChunk(String id, String phrase, Span<Term> span) {
 public Chunk newChunk(String phrase, Span<Term> span) {
     String newId = idManager.getNextId(AnnotationType.CHUNK);
     Chunk newChunk = new Chunk(newId, span);
-    newChunk.setPhrase(phrase);
+    newChunk.setPhrase(getSymbolTable().intern(phrase));
     annotationContainer.add(newChunk, Layer.CHUNKS, AnnotationType.CHUNK);
     return newChunk;
 }
@@ -778,7 +857,7 @@ public Entity newEntity(List<Span<Term>> references) {
      */
     public Timex3 newTimex3(String id, String type) {
 	idManager.updateCounter(AnnotationType.TIMEX3, id);
-	Timex3 newTimex3 = new Timex3(id, type);
+	Timex3 newTimex3 = new Timex3(id, getSymbolTable().intern(type));
 	annotationContainer.add(newTimex3, Layer.TIME_EXPRESSIONS, AnnotationType.TIMEX3);
 	return newTimex3;
     }
@@ -789,21 +868,21 @@ public Entity newEntity(List<Span<Term>> references) {
      */
     public Timex3 newTimex3(String type) {
 	String newId = idManager.getNextId(AnnotationType.TIMEX3);
-	Timex3 newTimex3 = new Timex3(newId, type);
+	Timex3 newTimex3 = new Timex3(newId, getSymbolTable().intern(type));
 	annotationContainer.add(newTimex3, Layer.TIME_EXPRESSIONS, AnnotationType.TIMEX3);
 	return newTimex3;
     }
 
     public TLink newTLink(String id, TLinkReferable from, TLinkReferable to, String relType) {
 	idManager.updateCounter(AnnotationType.TLINK, id);
-	TLink newTLink = new TLink(id, from, to, relType);
+	TLink newTLink = new TLink(id, from, to, getSymbolTable().intern(relType));
 	annotationContainer.add(newTLink, Layer.TEMPORAL_RELATIONS, AnnotationType.TLINK);
 	return newTLink;
     }
 
     public TLink newTLink(TLinkReferable from, TLinkReferable to, String relType) {
 	String newId = idManager.getNextId(AnnotationType.TLINK);
-	TLink newTLink = new TLink(newId, from, to, relType);
+	TLink newTLink = new TLink(newId, from, to, getSymbolTable().intern(relType));
 	annotationContainer.add(newTLink, Layer.TEMPORAL_RELATIONS, AnnotationType.TLINK);
 	return newTLink;
     }
@@ -867,7 +946,7 @@ public Entity newEntity(List<Span<Term>> references) {
     }
     
     public Factuality.FactVal newFactVal(String value, String resource) {
-	return new Factuality.FactVal(value, resource);
+	return new Factuality.FactVal(getSymbolTable().intern(value), getSymbolTable().intern(resource));
     }
     
 	/** Creates a factualitylayer object and add it to the document
@@ -875,7 +954,7 @@ public Entity newEntity(List<Span<Term>> references) {
 	 * @return a new factuality.
 	 */
     public Factvalue newFactvalue(WF wf, String prediction) {
-	Factvalue factuality = new Factvalue(wf, prediction);
+	Factvalue factuality = new Factvalue(wf, getSymbolTable().intern(prediction));
 	annotationContainer.add(factuality, Layer.FACTUALITY_LAYER, AnnotationType.FACTVALUE);
 	return factuality;
     }
@@ -1020,7 +1099,7 @@ public Entity newEntity(List<Span<Term>> references) {
      */
     public Predicate.Role newRole(String id, Predicate predicate, String semRole, Span<Term> span) {
 	idManager.updateCounter(AnnotationType.ROLE, id);
-	Predicate.Role newRole = new Predicate.Role(id, semRole, span);
+	Predicate.Role newRole = new Predicate.Role(id, getSymbolTable().intern(semRole), span);
 	return newRole;
     }
 
@@ -1032,7 +1111,7 @@ public Entity newEntity(List<Span<Term>> references) {
      */
     public Predicate.Role newRole(Predicate predicate, String semRole, Span<Term> span) {
 	String newId = idManager.getNextId(AnnotationType.ROLE);
-	Predicate.Role newRole = new Predicate.Role(newId, semRole, span);
+	Predicate.Role newRole = new Predicate.Role(newId, getSymbolTable().intern(semRole), span);
 	return newRole;
     }
 
@@ -1042,15 +1121,15 @@ public Entity newEntity(List<Span<Term>> references) {
      * @return a new external reference object.
      */
     public ExternalRef newExternalRef(String resource, String reference) {
-	return new ExternalRef(resource, reference);
+	return new ExternalRef(getSymbolTable().intern(resource), reference);
     }
     
     public ExternalRef newExternalRef(String resource) {
-	return new ExternalRef(resource, null);
+	return new ExternalRef(getSymbolTable().intern(resource), null);
     }
 
     public Tree newConstituent(TreeNode root, String type) {
-	Tree tree = new Tree(root, type);
+	Tree tree = new Tree(root, getSymbolTable().intern(type));
 	annotationContainer.add(tree, Layer.CONSTITUENCY, AnnotationType.TREE);
 	return tree;
     }
@@ -1064,7 +1143,7 @@ public Entity newEntity(List<Span<Term>> references) {
     }
 
     public NonTerminal newNonTerminal(String id, String label) {
-	NonTerminal tn = new NonTerminal(id, label);
+	NonTerminal tn = new NonTerminal(id, getSymbolTable().intern(label));
 	String newEdgeId = idManager.getNextId(AnnotationType.EDGE);
 	tn.setEdgeId(newEdgeId);
 	return tn;
@@ -1073,7 +1152,7 @@ public Entity newEntity(List<Span<Term>> references) {
     public NonTerminal newNonTerminal(String label) {
 	String newId = idManager.getNextId(AnnotationType.NON_TERMINAL);
 	String newEdgeId = idManager.getNextId(AnnotationType.EDGE);
-	NonTerminal newNonterminal = new NonTerminal(newId, label);
+	NonTerminal newNonterminal = new NonTerminal(newId, getSymbolTable().intern(label));
 	newNonterminal.setEdgeId(newEdgeId);
 	return newNonterminal;
     }
@@ -1138,6 +1217,7 @@ public Entity newEntity(List<Span<Term>> references) {
     }
 
     
+    /** Returns the annotations of a type, of all its groups. As the rest of the getters of annotations, it returns a read-only view, not a copy: it reflects later changes, and the document must not get annotations of the same type while iterating over it. */
     public List<Annotation> getAnnotations(AnnotationType type) {
 	return annotationContainer.getAnnotations(type);
     }
@@ -1159,12 +1239,12 @@ public Entity newEntity(List<Span<Term>> references) {
 	return annotationContainer.getRawText();
     }
     
-    /** Returns a list containing all WFs in the document */
+    /** Returns a read-only view of all WFs in the document */
     public List<WF> getWFs() {
 	return (List<WF>)(List<?>) this.getAnnotations(AnnotationType.WF);
     }
 
-    /** Returns a list with all terms in the document. */
+    /** Returns a read-only view of all terms in the document. */
     public List<Term> getTerms() {
 	return (List<Term>)(List<?>) this.getAnnotations(AnnotationType.TERM);
     }
@@ -1266,11 +1346,34 @@ public Entity newEntity(List<Span<Term>> references) {
     }
 
 
-    /** Returns a list with all sentences. Each sentence is a list of WFs. */
+    /** Returns a list with all sentences. Each sentence is a read-only list of WFs. */
     public List<List<WF>> getSentences() {
 	return (List<List<WF>>)(List<?>) annotationContainer.getSentences(AnnotationType.WF);
     }
 
+    /** Returns the annotations of a type classified into sentences, in sentence order. The list and the list of each sentence are read-only views of the sentence index (see getBySent). */
+    public List<List<Annotation>> getSentences(AnnotationType type) {
+	return annotationContainer.getSentences(type);
+    }
+
+    /** Applies a function to the annotations of each sentence in parallel, using as many threads as processors, and returns the results in sentence order. See mapSentences(AnnotationType, SentenceFunction, int). */
+    public <A extends Annotation, T> List<T> mapSentences(AnnotationType type, SentenceFunction<A, T> function) {
+	return this.mapSentences(type, function, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Applies a function to the annotations of each sentence on the given number of threads, and returns the results in sentence order.
+     * The function gets read-only lists. Besides the lists, it may only call these methods, which don't change any shared state:
+     * the getters of the attributes, spans and references of the annotations (such as Term.getLemma(), Term.getSpan() or WF.getForm()),
+     * and Term.getIndex(), Term.getSentenceIndex(), WF.getIndex() and WF.getSentenceIndex(), whose positions are set before the function is called.
+     * It must not call the methods of the document, which build indexes when they are first needed, nor change any annotation (which marks its layer as modified).
+     * An exception thrown by the function is thrown again by this method.
+     */
+    public <A extends Annotation, T> List<T> mapSentences(AnnotationType type, SentenceFunction<A, T> function, int threads) {
+	List<List<Annotation>> sentences = annotationContainer.getSentences(type);
+	annotationContainer.prepareConcurrentReads();
+	return SentenceMapper.map(sentences, function, threads);
+    }
+
     public Integer getFirstSentence() {
 	return this.getWFs().get(0).getSent();
     }
@@ -1292,6 +1395,10 @@ public Entity newEntity(List<Span<Term>> references) {
     }
 
 
+    /** Returns the annotations of a type in a sentence. The list is a read-only view of the sentence index, which shows the annotations added to
+     * the sentence or removed from it later on. A sentence without annotations of the type gets an empty list, which doesn't show the annotations added afterwards,
+     * and neither do the views got before a bulk update which moved annotations to other sentences. The same goes for the rest of the getters by sentence and paragraph.
+     */
     public List<Annotation> getBySent(AnnotationType type, Integer sent) {
 	return this.annotationContainer.getSentAnnotations(sent, type);
     }
@@ -1588,15 +1695,7 @@ public Entity newEntity(List<Span<Term>> references) {
 	for (KAFDocument nafPart : nafs) {
 	    for (AnnotationType type : highLevelAnnotationTypes) {
 		Layer layer = highLevelAnnotationType2Layer.get(type);
-		List<Annotation> annotations = new ArrayList<Annotation>();
-		if (isMultiLayerAnnotationType(type)) {
-		    for (String groupId : nafPart.annotationContainer.getGroupIDs(type)) {
-			annotations.addAll(nafPart.getAnnotations(type, groupId));
-		    }
-		} else {
-		    annotations = nafPart.getAnnotations(type);
-		}
-		for (Annotation ann : annotations) {
+		for (Annotation ann : nafPart.getAnnotations(type)) {
 		    joinedNaf.addExistingAnnotation(ann, layer, type);
 		}
 	    }
@@ -1664,6 +1763,41 @@ public Entity newEntity(List<Span<Term>> references) {
 	ReadWriteManager.save(this, filename);
     }
 
+    /** Saves the KAF document to an XML file, writing each layer as it is serialized. If the name of the file ends with ".gz", it is gzipped.
+     * @param file the file in which the document will be saved.
+     */
+    public void save(File file) throws IOException {
+	ReadWriteManager.save(this, file);
+    }
+
+    /** Saves the KAF document to a gzipped XML file.
+     * @param file the file in which the document will be saved.
+     * @param compressionLevel the gzip compression level, from 0 (no compression) to 9 (best compression), or -1 for the default level.
+     */
+    public void save(File file, int compressionLevel) throws IOException {
+	ReadWriteManager.save(this, file, compressionLevel);
+    }
+
+    /** Writes the KAF document to an output stream, encoded in UTF-8. The stream is not closed. */
+    public void save(OutputStream stream) throws IOException {
+	ReadWriteManager.save(this, stream);
+    }
+
+    /** Writes the XML content of the KAF document to a writer. The writer is flushed but not closed. */
+    public void write(Writer writer) throws IOException {
+	ReadWriteManager.write(this, writer);
+    }
+
+    /** Writes the KAF document to an output stream in a compact binary format, which createFromBinary reads much faster than XML. The stream is not closed. */
+    public void saveBinary(OutputStream stream) throws IOException {
+	BinaryWriter.write(this, stream);
+    }
+
+    /** Java serialization writes the binary format instead of the object graph, so the indexes are not written and references between annotations are stored as positions. */
+    private Object writeReplace() throws ObjectStreamException {
+	return new SerializedKAFDocument(this);
+    }
+
     public String toString() {
 	return ReadWriteManager.kafToStr(this);
     }
@@ -1697,27 +1831,27 @@ public Entity newEntity(List<Span<Term>> references) {
     /** Deprecated */
     public Term newTerm(String id, String type, String lemma, String pos, Span<WF> span) {
         Term term = newTerm(id, span);
-	term.setType(type);
+	term.setType(getSymbolTable().intern(type));
 	term.setLemma(lemma);
-	term.setPos(pos);
+	term.setPos(getSymbolTable().intern(pos));
 	return term;
     }
 
     /** Deprecated */
     public Term newTerm(String type, String lemma, String pos, Span<WF> span) {
         Term term = newTerm(span);
-	term.setType(type);
+	term.setType(getSymbolTable().intern(type));
 	term.setLemma(lemma);
-	term.setPos(pos);
+	term.setPos(getSymbolTable().intern(pos));
 	return term;
     }
 
     /** Deprecated */
     public Term newTermOptions(String type, String lemma, String pos, String morphofeat, Span<WF> span) {
 	Term newTerm = newTermOptions(morphofeat, span);
-	newTerm.setType(type);
+	newTerm.setType(getSymbolTable().intern(type));
 	newTerm.setLemma(lemma);
-	newTerm.setPos(pos);
+	newTerm.setPos(getSymbolTable().intern(pos));
 	return newTerm;
     }
 
@@ -1739,7 +1873,7 @@ public Entity newEntity(List<Span<Term>> references) {
     public Term newTermOptions(String morphofeat, Span<WF> span) {
 	String newId = idManager.getNextId(AnnotationType.TERM);
 	Term newTerm = new Term(newId, span, false);
-	newTerm.setMorphofeat(morphofeat);
+	newTerm.setMorphofeat(getSymbolTable().intern(morphofeat));
 	annotationContainer.add(newTerm, Layer.TERMS, AnnotationType.TERM);
 	return newTerm;
     }
@@ -1866,37 +2000,29 @@ public Entity newEntity(List<Span<Term>> references) {
 
     /** Converts a List into a Span */
     static <T extends IdentifiableAnnotation> Span<T> list2Span(List<T> list) {
-	Span<T> span = new Span<T>();
-	for (T elem : list) {
-	    span.addTarget(elem);
-	}
-	return span;
+	return new Span<T>(new ArrayList<T>(list));
     }
 
     /** Converts a List into a Span */
     static <T extends IdentifiableAnnotation> Span<T> list2Span(List<T> list, T head) {
-	Span<T> span = new Span<T>();
-	for (T elem : list) {
-	    if (head == elem) {
-		span.addTarget(elem, true);
-	    } else {
-		span.addTarget(elem);
-	    }
+	Span<T> span = new Span<T>(new ArrayList<T>(list));
+	if ((head != null) && span.hasTarget(head)) {
+	    span.setHead(head);
 	}
 	return span;
     }
 
     /** Converts a Target list into a Span of terms */
     static Span<Term> targetList2Span(List<Target> list) {
-	Span<Term> span = new Span<Term>();
+	List<Term> terms = new ArrayList<Term>(list.size());
+	Term head = null;
 	for (Target target : list) {
+	    terms.add(target.getTerm());
 	    if (target.isHead()) {
-		span.addTarget(target.getTerm(), true);
-	    } else {
-		span.addTarget(target.getTerm());
+		head = target.getTerm();
 	    }
 	}
-	return span;
+	return new Span<Term>(terms, head);
     }
 
     /** Converts a Span into a Target list */
@@ -1913,7 +2039,90 @@ public Entity newEntity(List<Span<Term>> references) {
      * @return the required term.
      */
     public Term termNth(Integer index) {
-        return this.getTerms().get(index) ;
+        return this.getTermAt(index);
+    }
+
+    /** Returns the number of word forms in the text layer. */
+    public int getNumWFs() {
+	return this.annotationContainer.getSize(AnnotationType.WF);
+    }
+
+    /** Returns the word form at the given position of the text layer (see WF.getIndex()), without copying the layer. */
+    public WF getWFAt(int index) {
+	return (WF) this.annotationContainer.getAt(AnnotationType.WF, index);
+    }
+
+    /** Returns the word form before the given one in the text layer, or null if it is the first one or it is not in the layer. */
+    public WF prevWF(WF wf) {
+	int index = this.annotationContainer.getIndex(wf, AnnotationType.WF);
+	return (index > 0) ? this.getWFAt(index - 1) : null;
+    }
+
+    /** Returns the word form after the given one in the text layer, or null if it is the last one or it is not in the layer. */
+    public WF nextWF(WF wf) {
+	int index = this.annotationContainer.getIndex(wf, AnnotationType.WF);
+	return ((index >= 0) && (index + 1 < this.getNumWFs())) ? this.getWFAt(index + 1) : null;
+    }
+
+    /** Returns the word form which contains the character at the given offset of the raw text, or null if there is none.
+     * Word forms are indexed by offset the first time it is needed after the text layer changes, so the lookup doesn't scan the layer.
+     */
+    public WF getWFAtOffset(int offset) {
+	return this.annotationContainer.getWFAtOffset(offset);
+    }
+
+    /** Returns the word forms which overlap the range of characters [begin, end) of the raw text, sorted by offset. */
+    public List<WF> getWFsInRange(int begin, int end) {
+	return this.annotationContainer.getWFsInRange(begin, end);
+    }
+
+    /** Returns the terms whose span has a word form which overlaps the range of characters [begin, end). */
+    public List<Term> getTermsInRange(int begin, int end) {
+	Set<Term> terms = new LinkedHashSet<Term>();
+	for (WF wf : this.getWFsInRange(begin, end)) {
+	    terms.addAll((List<Term>)(List<?>) this.annotationContainer.getInverse(wf, AnnotationType.TERM));
+	}
+	return new ArrayList<Term>(terms);
+    }
+
+    /** Returns the entities whose span has a term which overlaps the range of characters [begin, end). */
+    public List<Entity> getEntitiesInRange(int begin, int end) {
+	Set<Entity> entities = new LinkedHashSet<Entity>();
+	for (Term term : this.getTermsInRange(begin, end)) {
+	    entities.addAll(this.getEntitiesByTerm(term));
+	}
+	return new ArrayList<Entity>(entities);
+    }
+
+    /** Returns the marks whose span has a word form which overlaps the range of characters [begin, end). */
+    public List<Mark> getMarksInRange(int begin, int end) {
+	Set<Mark> marks = new LinkedHashSet<Mark>();
+	for (WF wf : this.getWFsInRange(begin, end)) {
+	    marks.addAll((List<Mark>)(List<?>) this.annotationContainer.getInverse(wf, AnnotationType.MARK));
+	}
+	return new ArrayList<Mark>(marks);
+    }
+
+    /** Returns the number of terms in the term layer. */
+    public int getNumTerms() {
+	return this.annotationContainer.getSize(AnnotationType.TERM);
+    }
+
+    /** Returns the term at the given position of the term layer (see Term.getIndex()), without copying the layer. */
+    public Term getTermAt(int index) {
+	return (Term) this.annotationContainer.getAt(AnnotationType.TERM, index);
+    }
+
+    /** Returns the term before the given one in the term layer, or null if it is the first one or it is not in the layer. */
+    public Term prevTerm(Term term) {
+	int index = this.annotationContainer.getIndex(term, AnnotationType.TERM);
+	return (index > 0) ? this.getTermAt(index - 1) : null;
+    }
+
+    /** Returns the term after the given one in the term layer, or null if it is the last one or it is not in the layer. */
+    public Term nextTerm(Term term) {
+	int index = this.annotationContainer.getIndex(term, AnnotationType.TERM);
+	return ((index >= 0) && (index + 1 < this.getNumTerms())) ? this.getTermAt(index + 1) : null;
     }
 
     public List<Entity> getEntitiesByTerm(Term term) {
@@ -2044,17 +2253,42 @@ public Entity newEntity(List<Span<Term>> references) {
     return pathRegex.matcher(pathString).matches();
     }
 
+    /** Returns the dependencies which link two terms, going up from the first one to their lowest common ancestor and then down to the second one,
+     * or null if they are not connected. Terms of the same sentence are linked through the compiled graph of the sentence.
+     * Each step up follows the dependency getDepToTerm() returns, so the path doesn't depend on which of both ways is taken.
+     */
     public List<Dep> getDepPath(final Term from, final Term to) {
     if (from == to) {
         return Collections.emptyList();
     }
+    final DepGraph graph = this.annotationContainer.getDepGraph(from);
+    if (graph != null && Utils.areEquals(from.getSent(), to.getSent())) {
+        final int fromNode = graph.node(from);
+        final int toNode = graph.node(to);
+        if (fromNode >= 0 && toNode >= 0) {
+            final List<Dep> path = graph.path(fromNode, toNode);
+            if (path != null) {
+                return path;
+            }
+        }
+    }
+    return getDepPathAcrossSentences(from, to);
+    }
+
+    /** Walks up from both terms through the inverse references, for paths which go through dependencies between sentences. */
+    private List<Dep> getDepPathAcrossSentences(final Term from, final Term to) {
     final List<Dep> toPath = new ArrayList<Dep>();
+    final Map<Term, Integer> toAncestors = new IdentityHashMap<Term, Integer>();
     for (Dep dep = getDepToTerm(to); dep != null; dep = getDepToTerm(dep.getFrom())) {
         toPath.add(dep);
         if (dep.getFrom() == from) {
             Collections.reverse(toPath);
             return toPath;
         }
+        if (toAncestors.containsKey(dep.getFrom())) {
+            break; // cycle
+        }
+        toAncestors.put(dep.getFrom(), toPath.size() - 1);
     }
     final List<Dep> fromPath = new ArrayList<Dep>();
     for (Dep dep = getDepToTerm(from); dep != null; dep = getDepToTerm(dep.getFrom())) {
@@ -2062,20 +2296,30 @@ public Entity newEntity(List<Span<Term>> references) {
         if (dep.getFrom() == to) {
             return fromPath;
         }
-        for (int i = 0; i < toPath.size(); ++i) {
-            if (dep.getFrom() == toPath.get(i).getFrom()) {
-                for (int j = i; j >= 0; --j) {
-                    fromPath.add(toPath.get(j));
-                }
-                return fromPath;
+        final Integer i = toAncestors.get(dep.getFrom());
+        if (i != null) {
+            for (int j = i; j >= 0; --j) {
+                fromPath.add(toPath.get(j));
             }
+            return fromPath;
+        }
+        if (fromPath.size() > this.getNumTerms()) {
+            break; // cycle
         }
     }
     return null; // unconnected nodes
     }
 
-    
+    /** Returns the dependency from the head of a term, or null if it has none. A term with several heads gets the first dependency which was added,
+     * whether its head is in the same sentence or not.
+     */
     public Dep getDepToTerm(final Term term) {
+    final DepGraph graph = this.annotationContainer.getDepGraph(term);
+    final int node = (graph == null) ? -1 : graph.node(term);
+    if (node >= 0 && graph.headDep(node) != null) {
+        return graph.headDep(node);
+    }
+    // The head may be in another sentence, as dependencies are kept in the sentence of their head
     for (final Dep dep : getDepsByTerm(term)) {
         if (dep.getTo() == term) {
             return dep;
@@ -2109,21 +2353,32 @@ public Entity newEntity(List<Span<Term>> references) {
 
     public Set<Term> getTermsByDepAncestors(final Iterable<Term> ancestors) {
     final Set<Term> terms = new HashSet<Term>();
-    final List<Term> queue = new LinkedList<Term>();
+    final List<Term> queue = new ArrayList<Term>();
     for (final Term term : ancestors) {
-        terms.add(term);
-        queue.add(term);
-    }
-    while (!queue.isEmpty()) {
-        final Term term = queue.remove(0);
-        final List<Dep> deps = getDepsByTerm(term);
-        for (final Dep dep : deps) {
-            if (dep.getFrom() == term) {
-                if (terms.add(dep.getTo())) {
-                    queue.add(dep.getTo());
+        if (terms.add(term)) {
+            queue.add(term);
+        }
+    }
+    final List<Term> dependents = new ArrayList<Term>();
+    for (int i = 0; i < queue.size(); ++i) {
+        final Term term = queue.get(i);
+        final DepGraph graph = this.annotationContainer.getDepGraph(term);
+        final int node = (graph == null) ? -1 : graph.node(term);
+        dependents.clear();
+        if (node >= 0) {
+            graph.addDependents(node, dependents);
+        } else {
+            for (final Dep dep : getDepsByTerm(term)) {
+                if (dep.getFrom() == term) {
+                    dependents.add(dep.getTo());
                 }
             }
         }
+        for (final Term dependent : dependents) {
+            if (terms.add(dependent)) {
+                queue.add(dependent);
+            }
+        }
     }
     return terms;
     }
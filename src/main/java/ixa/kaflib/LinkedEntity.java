@@ -27,7 +27,7 @@ public class LinkedEntity extends IdentifiableAnnotation {
 
 	LinkedEntity(String id) {
 	    super(id);
-		this.mentions = new Span<WF>();
+		this.mentions = own(new Span<WF>());
 	}
 
 	LinkedEntity(String id, Span<WF> mentions) {
@@ -38,7 +38,7 @@ public class LinkedEntity extends IdentifiableAnnotation {
 //		if (mentions.get(0).size() < 1) {
 //			throw new IllegalStateException("LinkedEntity' reference's spans must contain at least one target");
 //		}
-		this.mentions = mentions;
+		this.mentions = own(mentions);
 	}
 
 	LinkedEntity(LinkedEntity linkedEntity, HashMap<String, WF> WFs) {
@@ -75,6 +75,7 @@ public class LinkedEntity extends IdentifiableAnnotation {
 
 	public void setResource(String resource) {
 		this.resource = resource;
+		this.modified();
 	}
 
 	public String getReference() {
@@ -83,6 +84,7 @@ public class LinkedEntity extends IdentifiableAnnotation {
 
 	public void setReference(String reference) {
 		this.reference = reference;
+		this.modified();
 	}
 
 	public double getConfidence() {
@@ -91,6 +93,7 @@ public class LinkedEntity extends IdentifiableAnnotation {
 
 	public void setConfidence(double confidence) {
 		this.confidence = confidence;
+		this.modified();
 	}
 	
 	public Span<WF> getSpan() {
@@ -48,7 +48,7 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
 	}
 	*/
 	super(id);
-	this.span = span;
+	this.span = own(span);
 	this.externalReferences = new ArrayList<ExternalRef>();
     }
 
@@ -62,6 +62,7 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setSource(String source) {
 	this.source = source;
+	this.modified();
     }
     
     public boolean hasType() {
@@ -74,6 +75,7 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setType(String type) {
 	this.type = type;
+	this.modified();
     }
 
     public boolean hasLemma() {
@@ -86,6 +88,7 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setLemma(String lemma) {
 	this.lemma = lemma;
+	this.modified();
     }
 
     public boolean hasPos() {
@@ -98,6 +101,7 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setPos(String pos) {
 	this.pos = pos;
+	this.modified();
     }
 
     public boolean hasMorphofeat() {
@@ -110,6 +114,7 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setMorphofeat(String morphofeat) {
 	this.morphofeat = morphofeat;
+	this.modified();
     }
 
     public boolean hasCase() {
@@ -122,6 +127,7 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setCase(String markcase) {
 	this.markcase = markcase;
+	this.modified();
     }
 
     public String getStr() {
@@ -140,7 +146,8 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
     }
 
     public void setSpan(Span<WF> span) {
-	this.span = span;
+	this.span = own(span);
+	this.modified();
     }
     
     public boolean hasSentiment() {
@@ -152,7 +159,8 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
     }
     
     public void setSentiment(Term.Sentiment sentiment) {
-	this.sentiment = sentiment;
+	this.sentiment = own(sentiment);
+	this.modified();
     }
 
     public List<ExternalRef> getExternalRefs() {
@@ -160,11 +168,13 @@ public class Mark extends IdentifiableAnnotation implements SentenceLevelAnnotat
     }
 
     public void addExternalRef(ExternalRef externalRef) {
-	externalReferences.add(externalRef);
+	externalReferences.add(own(externalRef));
+	this.modified();
     }
 
     public void addExternalRefs(List<ExternalRef> externalRefs) {
-	externalReferences.addAll(externalRefs);
+	externalReferences.addAll(ownExternalRefs(externalRefs));
+	this.modified();
     }
     
     Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
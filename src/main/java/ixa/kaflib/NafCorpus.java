@@ -0,0 +1,281 @@
+package ixa.kaflib;
+
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/** A set of NAF files which are loaded in parallel.
+ * Iterating the corpus parses the files on a pool of worker threads and returns them in file order.
+ * At most prefetch documents are parsed ahead of the one being consumed, so memory use is bounded.
+ * A file which fails to load doesn't stop the iteration: its entry carries the error instead of a document.
+ * An iteration which stops before the last entry has to close its iterator, or its worker threads are left waiting (see CorpusIterator).
+ */
+public class NafCorpus implements Iterable<NafCorpus.Entry> {
+
+    /** Accepts NAF and KAF files, gzipped or not. */
+    public static final FileFilter NAF_FILES = new FileFilter() {
+	    public boolean accept(File file) {
+		String name = file.getName().toLowerCase();
+		if (name.endsWith(".gz")) {
+		    name = name.substring(0, name.length() - 3);
+		}
+		return name.endsWith(".naf") || name.endsWith(".kaf");
+	    }
+	};
+
+    private List<File> files;
+    private int threads;
+    private int prefetch;
+    private Set<Layer> layers;
+    private SymbolTable symbolTable;
+
+    private NafCorpus(List<File> files) {
+	this.files = files;
+	this.threads = Runtime.getRuntime().availableProcessors();
+	this.prefetch = 2 * this.threads;
+    }
+
+    /** Creates a corpus with the NAF files found under the given directory and its subdirectories. */
+    public static NafCorpus open(File directory) {
+	return open(directory, NAF_FILES);
+    }
+
+    /** Creates a corpus with the files accepted by the filter under the given directory and its subdirectories. Files are sorted by path. */
+    public static NafCorpus open(File directory, FileFilter filter) {
+	if (!directory.isDirectory()) {
+	    throw new IllegalArgumentException(directory + " is not a directory");
+	}
+	List<File> files = new ArrayList<File>();
+	collect(directory, filter, files);
+	Collections.sort(files);
+	return new NafCorpus(files);
+    }
+
+    /** Creates a corpus with the given files, which are returned in the same order. */
+    public static NafCorpus open(List<File> files) {
+	return new NafCorpus(new ArrayList<File>(files));
+    }
+
+    private static void collect(File directory, FileFilter filter, List<File> files) {
+	File[] children = directory.listFiles();
+	if (children == null) {
+	    return;
+	}
+	for (File child : children) {
+	    if (child.isDirectory()) {
+		collect(child, filter, files);
+	    } else if (filter.accept(child)) {
+		files.add(child);
+	    }
+	}
+    }
+
+    /** Sets the number of worker threads which parse files (default: number of processors). */
+    public NafCorpus setThreads(int threads) {
+	if (threads < 1) {
+	    throw new IllegalArgumentException("threads must be positive");
+	}
+	this.threads = threads;
+	return this;
+    }
+
+    /** Sets how many documents are parsed ahead of the consumer (default: twice the number of threads). */
+    public NafCorpus setPrefetch(int prefetch) {
+	if (prefetch < 1) {
+	    throw new IllegalArgumentException("prefetch must be positive");
+	}
+	this.prefetch = prefetch;
+	return this;
+    }
+
+    /** Loads only the given layers of each document. See KAFDocument.createFromFile(File, Set). */
+    public NafCorpus setLayers(Set<Layer> layers) {
+	if (layers == null) {
+	    this.layers = null;
+	} else {
+	    this.layers = EnumSet.noneOf(Layer.class);
+	    this.layers.addAll(layers);
+	}
+	return this;
+    }
+
+    /** Makes all the documents of the corpus share the values of categorical attributes through the given table. By default each document has its own. */
+    public NafCorpus setSymbolTable(SymbolTable symbolTable) {
+	this.symbolTable = symbolTable;
+	return this;
+    }
+
+    public List<File> getFiles() {
+	return Collections.unmodifiableList(files);
+    }
+
+    public int size() {
+	return files.size();
+    }
+
+    /** Returns an iterator which loads the documents in parallel. Each iterator runs its own worker threads,
+     * which are stopped when the last entry is returned. Callers which may stop earlier must call close().
+     */
+    public CorpusIterator iterator() {
+	return new CorpusIterator();
+    }
+
+
+    /** A file of the corpus together with its loaded document, or with the error which prevented loading it. */
+    public static class Entry {
+
+	private File file;
+	private KAFDocument document;
+	private Throwable error;
+
+	Entry(File file, KAFDocument document, Throwable error) {
+	    this.file = file;
+	    this.document = document;
+	    this.error = error;
+	}
+
+	public File getFile() {
+	    return file;
+	}
+
+	/** Returns the loaded document, or null if the file failed to load. */
+	public KAFDocument getDocument() {
+	    return document;
+	}
+
+	/** Returns the exception thrown while loading the file, or null if it was loaded. */
+	public Throwable getError() {
+	    return error;
+	}
+
+	public boolean isFailed() {
+	    return error != null;
+	}
+    }
+
+
+    /** Iterates the entries of the corpus while the next ones are parsed in the background.
+     * The worker threads are stopped once the last entry is returned; an iteration which may end earlier (by a break or an exception)
+     * must close the iterator, in a finally block, so that the threads and the documents they have loaded are released.
+     * Workers catch the Exceptions thrown while loading a file and return them as failed entries. Other Throwables, as an OutOfMemoryError,
+     * end the iteration instead: next() closes the iterator and throws an IllegalStateException caused by the ExecutionException of the worker.
+     */
+    public class CorpusIterator implements Iterator<Entry>, Closeable {
+
+	private ExecutorService executor;
+	/** Readers of the worker threads */
+	private ThreadLocal<NafReader> readers;
+	private Deque<Future<Entry>> pending;
+	private int submitted;
+	private int returned;
+
+	private CorpusIterator() {
+	    pending = new ArrayDeque<Future<Entry>>();
+	    final SymbolTable symbolTable = NafCorpus.this.symbolTable;
+	    readers = new ThreadLocal<NafReader>() {
+		    @Override
+		    protected NafReader initialValue() {
+			return new NafReader().setSymbolTable(symbolTable);
+		    }
+		};
+	    if (!files.isEmpty()) {
+		executor = Executors.newFixedThreadPool(Math.min(threads, files.size()), new WorkerFactory());
+		while (submitted < files.size() && pending.size() < prefetch) {
+		    submitNext();
+		}
+	    }
+	}
+
+	private void submitNext() {
+	    final File file = files.get(submitted++);
+	    final Set<Layer> layers = NafCorpus.this.layers;
+	    pending.addLast(executor.submit(new Callable<Entry>() {
+		    /** Only Exceptions become failed entries; Errors are left to the Future (see next()). */
+		    public Entry call() {
+			try {
+			    return new Entry(file, readers.get().read(file, layers), null);
+			} catch (Exception e) {
+			    return new Entry(file, null, e);
+			}
+		    }
+		}));
+	}
+
+	public boolean hasNext() {
+	    return !pending.isEmpty();
+	}
+
+	public Entry next() {
+	    if (pending.isEmpty()) {
+		throw new NoSuchElementException();
+	    }
+	    Future<Entry> head = pending.removeFirst();
+	    File file = files.get(returned++);
+	    Entry entry;
+	    try {
+		entry = head.get();
+	    } catch (InterruptedException e) {
+		close();
+		Thread.currentThread().interrupt();
+		throw new IllegalStateException("Interrupted while loading the corpus", e);
+	    } catch (ExecutionException e) {
+		close();
+		throw new IllegalStateException("Failed to load " + file, e);
+	    }
+	    /* The next file is submitted once the head is taken, so that no more than prefetch documents are held at once */
+	    if (submitted < files.size()) {
+		submitNext();
+	    }
+	    if (pending.isEmpty()) {
+		close();
+	    }
+	    return entry;
+	}
+
+	public void remove() {
+	    throw new UnsupportedOperationException();
+	}
+
+	/** Stops the worker threads. Documents not yet returned are discarded. */
+	public void close() {
+	    if (executor != null) {
+		executor.shutdownNow();
+		executor = null;
+	    }
+	    pending.clear();
+	}
+    }
+
+
+    private static class WorkerFactory implements ThreadFactory {
+
+	private static final AtomicInteger POOLS = new AtomicInteger();
+	private final int pool = POOLS.incrementAndGet();
+	private final AtomicInteger count = new AtomicInteger();
+
+	public Thread newThread(Runnable runnable) {
+	    Thread thread = new Thread(runnable, "naf-corpus-" + pool + "-" + count.incrementAndGet());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+}
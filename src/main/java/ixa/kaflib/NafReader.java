@@ -0,0 +1,82 @@
+package ixa.kaflib;
+
+import org.jdom2.JDOMException;
+
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+
+
+/** Reads NAF documents reusing a configured XML parser factory, which saves setting up the parser for every document.
+ * DTDs are not loaded and external entities are not resolved.
+ * A reader is not thread-safe: each thread should use its own.
+ */
+public class NafReader {
+
+    private XMLInputFactory factory;
+    private SymbolTable symbolTable;
+    private boolean keepSource;
+
+    public NafReader() {
+	factory = ReadWriteManager.newInputFactory();
+    }
+
+    /** Makes all the documents read share the values of categorical attributes (part of speech tags, dependency functions...) through the given table.
+     * By default (null) each document has a table of its own.
+     */
+    public NafReader setSymbolTable(SymbolTable symbolTable) {
+	this.symbolTable = symbolTable;
+	return this;
+    }
+
+    public SymbolTable getSymbolTable() {
+	return symbolTable;
+    }
+
+    /** Sets whether the documents read keep their original XML (false by default), so that saving them copies the layers which were not modified instead of serializing them again.
+     * Keeping it costs a copy of the whole XML per document, and reading it as a whole before parsing it. Documents which only load some of their layers always keep it,
+     * as they need it to write back the rest.
+     */
+    public NafReader setKeepSource(boolean keepSource) {
+	this.keepSource = keepSource;
+	return this;
+    }
+
+    public boolean isKeepSource() {
+	return keepSource;
+    }
+
+    /** Reads a NAF file, which may be gzipped. */
+    public KAFDocument read(File file) throws IOException, JDOMException, KAFNotValidException {
+	return read(file, null);
+    }
+
+    /** Reads a NAF file, building objects only for the given layers (all of them if null). */
+    public KAFDocument read(File file, Set<Layer> layers) throws IOException, JDOMException, KAFNotValidException {
+	return ReadWriteManager.load(factory, file, layers, symbolTable, keepSource);
+    }
+
+    public KAFDocument read(Reader stream) throws IOException, JDOMException, KAFNotValidException {
+	return read(stream, null);
+    }
+
+    /** Reads a NAF document from a Reader, building objects only for the given layers (all of them if null). The reader is not closed. */
+    public KAFDocument read(Reader stream, Set<Layer> layers) throws IOException, JDOMException, KAFNotValidException {
+	return ReadWriteManager.load(factory, stream, layers, symbolTable, keepSource);
+    }
+
+    /** Reads a NAF document from a String. */
+    public KAFDocument read(String xml) throws IOException, JDOMException, KAFNotValidException {
+	return read(new StringReader(xml), null);
+    }
+
+    /** Reads only the root attributes and the header of a NAF file. See KAFDocument.readHeader(File). */
+    public KAFDocument readHeader(File file) throws IOException, JDOMException {
+	return ReadWriteManager.loadHeader(factory, file);
+    }
+}
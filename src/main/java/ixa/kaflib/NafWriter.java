@@ -0,0 +1,92 @@
+package ixa.kaflib;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.zip.Deflater;
+
+
+/** Writes NAF documents reusing the buffers of its XML emitter from one document to the next.
+ * A writer is not thread-safe: each thread should use its own.
+ */
+public class NafWriter {
+
+    private XMLEmitter emitter;
+    /** Whether the emitter is in use, so that a nested write gets an emitter of its own */
+    private boolean writing;
+    private boolean compact;
+
+    public NafWriter() {
+	emitter = new XMLEmitter(null);
+    }
+
+    /** Sets whether documents are written in compact form (false by default).
+     * Compact documents have no comments and no whitespace between elements, and are smaller and faster to write and read.
+     * All layers are serialized, including those which could otherwise be copied unmodified from the loaded XML.
+     */
+    public NafWriter setCompact(boolean compact) {
+	this.compact = compact;
+	return this;
+    }
+
+    public boolean isCompact() {
+	return compact;
+    }
+
+    /** Writes a document to a file. Files whose name ends with ".gz" are gzipped with the default compression level. */
+    public void write(KAFDocument kaf, File file) throws IOException {
+	write(kaf, file, file.getName().endsWith(".gz") ? Integer.valueOf(Deflater.DEFAULT_COMPRESSION) : null);
+    }
+
+    /** Writes a document to a gzipped file, compressed with the given level (from 0 to 9, or -1 for the default level). */
+    public void write(KAFDocument kaf, File file, int compressionLevel) throws IOException {
+	write(kaf, file, Integer.valueOf(compressionLevel));
+    }
+
+    private void write(KAFDocument kaf, File file, Integer compressionLevel) throws IOException {
+	OutputStream stream = ReadWriteManager.createFile(file, compressionLevel);
+	try {
+	    write(kaf, stream);
+	} finally {
+	    stream.close();
+	}
+    }
+
+    /** Writes a document to an output stream, encoded in UTF-8. The stream is not closed. */
+    public void write(KAFDocument kaf, OutputStream stream) throws IOException {
+	write(kaf, new OutputStreamWriter(stream, "UTF-8"));
+    }
+
+    /** Writes a document to a writer. The writer is flushed but not closed. */
+    public void write(KAFDocument kaf, Writer writer) throws IOException {
+	if (writing) {
+	    XMLEmitter nested = new XMLEmitter(writer);
+	    nested.setCompact(compact);
+	    ReadWriteManager.write(kaf, nested);
+	    return;
+	}
+	writing = true;
+	try {
+	    emitter.reset(writer);
+	    emitter.setCompact(compact);
+	    ReadWriteManager.write(kaf, emitter);
+	} finally {
+	    emitter.reset(null);
+	    writing = false;
+	}
+    }
+
+    /** Returns the XML of a document as a String. */
+    public String toString(KAFDocument kaf) {
+	StringWriter out = new StringWriter();
+	try {
+	    write(kaf, out);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+	return out.toString();
+    }
+}
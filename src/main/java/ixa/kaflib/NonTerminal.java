@@ -30,10 +30,12 @@ public class NonTerminal extends TreeNode implements SentenceLevelAnnotation {
 
     public void setLabel(String label) {
 	this.label = label;
+	this.modified();
     }
 
     public void addChild(TreeNode tn) throws Exception {
-	this.children.add(tn);
+	this.children.add(own(tn));
+	this.modified();
     }
 
     public List<TreeNode> getChildren() {
@@ -0,0 +1,131 @@
+package ixa.kaflib;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/** Maps sentence or paragraph numbers to values. As these numbers are small and dense, values are kept in an array indexed by the number
+ * itself, so lookups don't need hashing nor boxing. Numbers far away from the rest (which would make the array grow too much) are kept in a map.
+ * Keys are never removed.
+ */
+class NumberIndex<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    /** Free room allowed in the array, besides twice the number of keys, before numbers go to the map */
+    private static final int MAX_GAP = 1024;
+
+    /** values[key - base] */
+    private Object[] values;
+    private int base;
+    /** Keys in ascending order */
+    private int[] keys;
+    private int size;
+    private Map<Integer, T> sparse;
+    private List<T> view;
+
+    NumberIndex() {
+	values = new Object[INITIAL_CAPACITY];
+	keys = new int[INITIAL_CAPACITY];
+    }
+
+    /** Returns the value of a number, or null if it has none. */
+    @SuppressWarnings("unchecked")
+    T get(int key) {
+	int i = key - base;
+	if ((i >= 0) && (i < values.length)) {
+	    return (T) values[i];
+	}
+	return (sparse == null) ? null : sparse.get(key);
+    }
+
+    void put(int key, T value) {
+	if (get(key) == null) {
+	    addKey(key);
+	}
+	if (!fits(key)) {
+	    if (sparse == null) {
+		sparse = new HashMap<Integer, T>();
+	    }
+	    sparse.put(key, value);
+	    return;
+	}
+	values[key - base] = value;
+    }
+
+    /** Number of keys */
+    int size() {
+	return size;
+    }
+
+    /** Returns the values ordered by key. The list is a view, which reflects later changes. */
+    List<T> values() {
+	if (view == null) {
+	    view = new AbstractList<T>() {
+		    @Override
+		    public T get(int index) {
+			if (index >= size) {
+			    throw new IndexOutOfBoundsException(index + " >= " + size);
+			}
+			return NumberIndex.this.get(keys[index]);
+		    }
+
+		    @Override
+		    public int size() {
+			return size;
+		    }
+		};
+	}
+	return view;
+    }
+
+    /** Makes room for a key in the array, if that doesn't leave too many empty positions. */
+    private boolean fits(int key) {
+	int i = key - base;
+	if ((i >= 0) && (i < values.length)) {
+	    return true;
+	}
+	int first = (size == 1) ? key : Math.min(key, base);
+	int last = (size == 1) ? key : Math.max(key, base + values.length - 1);
+	long capacity = (long) last - first + 1;
+	if (capacity > 2L * size + MAX_GAP) {
+	    return false;
+	}
+	int newCapacity = (int) Math.max(capacity, Math.min(2L * values.length, 2L * size + MAX_GAP));
+	Object[] newValues = new Object[newCapacity];
+	if (size > 1) {
+	    System.arraycopy(values, 0, newValues, base - first, values.length);
+	}
+	values = newValues;
+	base = first;
+	/* Numbers kept in the map which the array covers now are moved to it, as get() only looks in the map for numbers out of the array */
+	if (sparse != null) {
+	    for (Iterator<Map.Entry<Integer, T>> it = sparse.entrySet().iterator(); it.hasNext(); ) {
+		Map.Entry<Integer, T> entry = it.next();
+		int j = entry.getKey() - base;
+		if ((j >= 0) && (j < values.length)) {
+		    values[j] = entry.getValue();
+		    it.remove();
+		}
+	    }
+	}
+	return true;
+    }
+
+    private void addKey(int key) {
+	if (size == keys.length) {
+	    keys = Arrays.copyOf(keys, 2 * size);
+	}
+	if ((size == 0) || (key > keys[size - 1])) {
+	    keys[size++] = key;
+	    return;
+	}
+	int pos = -Arrays.binarySearch(keys, 0, size, key) - 1;
+	System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+	keys[pos] = key;
+	size++;
+    }
+}
@@ -0,0 +1,102 @@
+package ixa.kaflib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+
+/** Index of the word forms of a document by their character offsets. WFs are sorted by their begin offset,
+ * and each position keeps the maximum end offset of the WFs up to it, so the WFs which overlap a range
+ * are found with two binary searches plus a scan of the WFs which begin inside the range.
+ * WFs without offset are not indexed. The index is not updated: it is built again when the text layer changes.
+ */
+class OffsetIndex {
+
+    private WF[] wfs;
+    private int[] begins;
+    private int[] ends;
+    /** maxEnds[i] = max(ends[0..i]) */
+    private int[] maxEnds;
+    private int size;
+
+    OffsetIndex(List<Annotation> text) {
+	wfs = new WF[text.size()];
+	for (int i = 0; i < text.size(); i++) {
+	    WF wf = (WF) text.get(i);
+	    if (wf.hasOffset()) {
+		wfs[size++] = wf;
+	    }
+	}
+	if (!isSorted()) {
+	    /* Stable, so WFs with the same offset keep the order of the layer */
+	    Arrays.sort(wfs, 0, size, new Comparator<WF>() {
+		    public int compare(WF wf1, WF wf2) {
+			int offset1 = wf1.getOffset();
+			int offset2 = wf2.getOffset();
+			return (offset1 < offset2) ? -1 : ((offset1 == offset2) ? 0 : 1);
+		    }
+		});
+	}
+	begins = new int[size];
+	ends = new int[size];
+	maxEnds = new int[size];
+	int maxEnd = Integer.MIN_VALUE;
+	for (int i = 0; i < size; i++) {
+	    begins[i] = wfs[i].getOffset();
+	    ends[i] = begins[i] + wfs[i].getLength();
+	    maxEnd = Math.max(maxEnd, ends[i]);
+	    maxEnds[i] = maxEnd;
+	}
+    }
+
+    private boolean isSorted() {
+	for (int i = 1; i < size; i++) {
+	    if (wfs[i].getOffset() < wfs[i - 1].getOffset()) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /** Returns the WF which contains the character at the given offset, or null if there is none. */
+    WF get(int offset) {
+	int last = firstGreater(begins, offset);
+	for (int i = firstGreater(maxEnds, offset); i < last; i++) {
+	    if (ends[i] > offset) {
+		return wfs[i];
+	    }
+	}
+	return null;
+    }
+
+    /** Returns the WFs which overlap the range [begin, end), sorted by offset. */
+    List<WF> get(int begin, int end) {
+	List<WF> result = new ArrayList<WF>();
+	if (end <= begin) {
+	    return result;
+	}
+	int last = firstGreater(begins, end - 1);
+	for (int i = firstGreater(maxEnds, begin); i < last; i++) {
+	    if (ends[i] > begin) {
+		result.add(wfs[i]);
+	    }
+	}
+	return result;
+    }
+
+    /** Returns the first position whose value is greater than the given one (values are sorted) */
+    private int firstGreater(int[] values, int value) {
+	int low = 0;
+	int high = size;
+	while (low < high) {
+	    int mid = (low + high) >>> 1;
+	    if (values[mid] > value) {
+		high = mid;
+	    } else {
+		low = mid + 1;
+	    }
+	}
+	return low;
+    }
+}
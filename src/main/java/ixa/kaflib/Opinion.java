@@ -16,7 +16,7 @@ public class Opinion extends IdentifiableAnnotation {
 	private Span<Term> span;
 
 	OpinionHolder(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
 	}
 
 	OpinionHolder(OpinionHolder oh, HashMap<String, Term> terms) {
@@ -34,9 +34,9 @@ public class Opinion extends IdentifiableAnnotation {
 	    }
 	    if (span.hasHead()) {
 		Term copiedHead = terms.get(span.getHead().getId());
-		this.span = new Span<Term>(copiedTargets, copiedHead);
+		this.span = own(new Span<Term>(copiedTargets, copiedHead));
 	    } else {
-		this.span = new Span<Term>(copiedTargets);
+		this.span = own(new Span<Term>(copiedTargets));
 	    }
 	}
 
@@ -50,6 +50,7 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void setType(String type) {
 	    this.type = type;
+	    this.modified();
 	}
 
 	public List<Term> getTerms() {
@@ -58,10 +59,12 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void addTerm(Term term) {
 	    this.span.addTarget(term);
+	    this.modified();
 	}
 
 	public void addTerm(Term term, boolean isHead) {
 	    this.span.addTarget(term, isHead);
+	    this.modified();
 	}
 
 	public Span<Term> getSpan() {
@@ -69,7 +72,8 @@ public class Opinion extends IdentifiableAnnotation {
 	}
 
 	public void setSpan(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
+	    this.modified();
 	}
 
 	Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -95,7 +99,7 @@ public class Opinion extends IdentifiableAnnotation {
 	private Span<Term> span;
 
 	OpinionTarget(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
 	}
 
 	OpinionTarget(OpinionTarget ot, HashMap<String, Term> terms) {
@@ -113,9 +117,9 @@ public class Opinion extends IdentifiableAnnotation {
 	    }
 	    if (span.hasHead()) {
 		Term copiedHead = terms.get(span.getHead().getId());
-		this.span = new Span<Term>(copiedTargets, copiedHead);
+		this.span = own(new Span<Term>(copiedTargets, copiedHead));
 	    } else {
-		this.span = new Span<Term>(copiedTargets);
+		this.span = own(new Span<Term>(copiedTargets));
 	    }
 	}
 
@@ -125,10 +129,12 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void addTerm(Term term) {
 	    this.span.addTarget(term);
+	    this.modified();
 	}
 
 	public void addTerm(Term term, boolean isHead) {
 	    this.span.addTarget(term, isHead);
+	    this.modified();
 	}
 
 	public Span<Term> getSpan() {
@@ -136,7 +142,8 @@ public class Opinion extends IdentifiableAnnotation {
 	}
 
 	public void setSpan(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
+	    this.modified();
 	}
 
 	Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -177,7 +184,7 @@ public class Opinion extends IdentifiableAnnotation {
 	private Span<Term> span;
 
 	OpinionExpression(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
 	}
 
 	OpinionExpression(OpinionExpression oe, HashMap<String, Term> terms) {
@@ -200,9 +207,9 @@ public class Opinion extends IdentifiableAnnotation {
 	    }
 	    if (span.hasHead()) {
 		Term copiedHead = terms.get(span.getHead().getId());
-		this.span = new Span<Term>(copiedTargets, copiedHead);
+		this.span = own(new Span<Term>(copiedTargets, copiedHead));
 	    } else {
-		this.span = new Span<Term>(copiedTargets);
+		this.span = own(new Span<Term>(copiedTargets));
 	    }
 	}
 
@@ -216,6 +223,7 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void setPolarity(String polarity) {
 	    this.polarity = polarity;
+	    this.modified();
 	}
 
 	public boolean hasStrength() {
@@ -228,6 +236,7 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void setStrength(String strength) {
 	    this.strength = strength;
+	    this.modified();
 	}
 
 	public boolean hasSubjectivity() {
@@ -240,6 +249,7 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void setSubjectivity(String subjectivity) {
 	    this.subjectivity = subjectivity;
+	    this.modified();
 	}
 
 	public boolean hasSentimentSemanticType() {
@@ -252,6 +262,7 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void setSentimentSemanticType(String sentimentSemanticType) {
 	    this.sentimentSemanticType = sentimentSemanticType;
+	    this.modified();
 	}
 
 	public boolean hasSentimentProductFeature() {
@@ -264,6 +275,7 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void setSentimentProductFeature(String sentimentProductFeature) {
 	    this.sentimentProductFeature = sentimentProductFeature;
+	    this.modified();
 	}
 
 	public List<Term> getTerms() {
@@ -272,10 +284,12 @@ public class Opinion extends IdentifiableAnnotation {
 
 	public void addTerm(Term term) {
 	    this.span.addTarget(term);
+	    this.modified();
 	}
 
 	public void addTerm(Term term, boolean isHead) {
 	    this.span.addTarget(term, isHead);
+	    this.modified();
 	}
 
 	public Span<Term> getSpan() {
@@ -283,7 +297,8 @@ public class Opinion extends IdentifiableAnnotation {
 	}
 
 	public void setSpan(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
+	    this.modified();
 	}
 
 	Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -319,14 +334,14 @@ public class Opinion extends IdentifiableAnnotation {
     Opinion(Opinion opinion, HashMap<String, Term> terms) {
 	super(opinion.getId());
 	if (opinion.opinionHolder != null) {
-	    this.opinionHolder = new OpinionHolder(opinion.opinionHolder, terms);
+	    this.opinionHolder = own(new OpinionHolder(opinion.opinionHolder, terms));
 	}
 	if (opinion.opinionTarget != null) {
-	    this.opinionTarget = new OpinionTarget(opinion.opinionTarget, terms);
+	    this.opinionTarget = own(new OpinionTarget(opinion.opinionTarget, terms));
 	}
 	if (opinion.opinionExpression != null) {
-	    this.opinionExpression = new OpinionExpression(
-		    opinion.opinionExpression, terms);
+	    this.opinionExpression = own(new OpinionExpression(
+		    opinion.opinionExpression, terms));
 	}
     }
 
@@ -355,17 +370,20 @@ public class Opinion extends IdentifiableAnnotation {
     }
 
     public OpinionHolder createOpinionHolder(Span<Term> span) {
-	this.opinionHolder = new Opinion.OpinionHolder(span);
+	this.opinionHolder = own(new Opinion.OpinionHolder(span));
+	this.modified();
 	return this.opinionHolder;
     }
 
     public OpinionTarget createOpinionTarget(Span<Term> span) {
-	this.opinionTarget = new Opinion.OpinionTarget(span);
+	this.opinionTarget = own(new Opinion.OpinionTarget(span));
+	this.modified();
 	return this.opinionTarget;
     }
 
     public OpinionExpression createOpinionExpression(Span<Term> span) {
-	this.opinionExpression = new Opinion.OpinionExpression(span);
+	this.opinionExpression = own(new Opinion.OpinionExpression(span));
+	this.modified();
 	return this.opinionExpression;
     }
 
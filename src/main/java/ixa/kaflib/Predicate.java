@@ -18,7 +18,7 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 	Role(String id, String semRole, Span span) {
 	    super(id);
 	    this.semRole = semRole;
-	    this.span = span;
+	    this.span = own(span);
 	    this.externalReferences = new ArrayList<ExternalRef>();
 	}
 
@@ -28,6 +28,7 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 
 	public void setSemRole(String semRole) {
 	    this.semRole = semRole;
+	    this.modified();
 	}
 
 	public Span<Term> getSpan() {
@@ -35,7 +36,8 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 	}
 
 	public void setSpan(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
+	    this.modified();
 	}
 
 	public List<Term> getTerms() {
@@ -44,10 +46,12 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 
 	public void addTerm(Term term) {
 	    this.span.addTarget(term);
+	    this.modified();
 	}
 
 	public void addTerm(Term term, boolean isHead) {
 	    this.span.addTarget(term, isHead);
+	    this.modified();
 	}
 
 	Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -74,11 +78,13 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 	}
 
 	public void addExternalRef(ExternalRef externalRef) {
-	    externalReferences.add(externalRef);
+	    externalReferences.add(own(externalRef));
+	    this.modified();
 	}
 
 	public void addExternalRefs(List<ExternalRef> externalRefs) {
-	    externalReferences.addAll(externalRefs);
+	    externalReferences.addAll(ownExternalRefs(externalRefs));
+	    this.modified();
 	}
 	
 	/*
@@ -102,7 +108,7 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 
     Predicate(String id, Span<Term> span) {
 	super(id);
-	this.span = span;
+	this.span = own(span);
 	this.roles = new ArrayList<Role>();
 	this.confidence = -1.0f;
 	this.externalReferences = new ArrayList<ExternalRef>();
@@ -118,6 +124,7 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 
     public void setUri(String uri) {
 	this.uri = uri;
+	this.modified();
     }
 
     public boolean hasConfidence() {
@@ -130,6 +137,7 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 
     public void setConfidence(float confidence) {
 	this.confidence = confidence;
+	this.modified();
     }
 
     public Span<Term> getSpan() {
@@ -137,7 +145,8 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
     }
 
     public void setSpan(Span<Term> span) {
-	this.span = span;
+	this.span = own(span);
+	this.modified();
     }
 
     public List<Term> getTerms() {
@@ -146,10 +155,12 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
 
     public void addTerm(Term term) {
 	this.span.addTarget(term);
+	this.modified();
     }
 
     public void addTerm(Term term, boolean isHead) {
 	this.span.addTarget(term, isHead);
+	this.modified();
     }
     
     public Integer getSent() {
@@ -201,11 +212,13 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
     }
 
     public void addExternalRef(ExternalRef externalRef) {
-	externalReferences.add(externalRef);
+	externalReferences.add(own(externalRef));
+	this.modified();
     }
 
     public void addExternalRefs(List<ExternalRef> externalRefs) {
-	externalReferences.addAll(externalRefs);
+	externalReferences.addAll(ownExternalRefs(externalRefs));
+	this.modified();
     }
 
     public List<Role> getRoles() {
@@ -213,7 +226,8 @@ public class Predicate extends IdentifiableAnnotation implements SentenceLevelAn
     }
 
     public void addRole(Role role) {
-	this.roles.add(role);
+	this.roles.add(own(role));
+	this.modified();
     }
     
     /*
@@ -18,7 +18,7 @@ public class PredicateAnchor extends IdentifiableAnnotation implements SentenceL
     
     public PredicateAnchor(String id, Span<Predicate> span) {
 	super(id);
-	this.span = span;
+	this.span = own(span);
     }
     
     public boolean hasAnchorTime() {
@@ -31,6 +31,7 @@ public class PredicateAnchor extends IdentifiableAnnotation implements SentenceL
     
     public void setAnchorTime(Timex3 anchorTime) {
 	this.anchorTime = anchorTime;
+	this.modified();
     }
     
     public boolean hasBeginPoint() {
@@ -43,6 +44,7 @@ public class PredicateAnchor extends IdentifiableAnnotation implements SentenceL
     
     public void setBeginPoint(Timex3 beginPoint) {
 	this.beginPoint = beginPoint;
+	this.modified();
     }
     
     public boolean hasEndPoint() {
@@ -55,6 +57,7 @@ public class PredicateAnchor extends IdentifiableAnnotation implements SentenceL
     
     public void setEndPoint(Timex3 endPoint) {
 	this.endPoint = endPoint;
+	this.modified();
     }
     
     public Span<Predicate> getSpan() {
@@ -62,7 +65,8 @@ public class PredicateAnchor extends IdentifiableAnnotation implements SentenceL
     }
     
     public void setSpan(Span<Predicate> span) {
-	this.span = span;
+	this.span = own(span);
+	this.modified();
     }
     
     public Integer getSent() {
@@ -1,15 +1,7 @@
 package ixa.kaflib;
 
-import org.jdom2.Document;
 import org.jdom2.Element;
-import org.jdom2.Namespace;
-import org.jdom2.CDATA;
-import org.jdom2.output.XMLOutputter;
-import org.jdom2.output.Format;
-import org.jdom2.output.LineSeparator;
-import org.jdom2.input.SAXBuilder;
 import org.jdom2.JDOMException;
-import org.jdom2.xpath.XPathExpression;
 
 import ixa.kaflib.KAFDocument.AnnotationType;
 import ixa.kaflib.KAFDocument.Layer;
@@ -24,14 +16,24 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Set;
 import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
 import java.io.Writer;
+import java.io.StringReader;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.io.BufferedWriter;
 import java.io.OutputStreamWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.regex.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 // xml entity conversion (isanvicente) 
 import org.apache.commons.lang3.StringEscapeUtils;
@@ -40,1272 +42,243 @@ import org.apache.commons.lang3.StringEscapeUtils;
 
 /** Reads XML files in KAF format and loads the content in a KAFDocument object, and writes the content into XML files. */
 class ReadWriteManager {
+
+    /** Size of the buffers used to read and write files */
+    private static final int BUFFER_SIZE = 65536;
+
+    /** Reader and writer of each thread, with the default options, used by the static methods so that their parser factory and buffers are reused */
+    private static final ThreadLocal<NafReader> THREAD_READERS = new ThreadLocal<NafReader>() {
+	    @Override
+	    protected NafReader initialValue() {
+		return new NafReader();
+	    }
+	};
+    private static final ThreadLocal<NafWriter> THREAD_WRITERS = new ThreadLocal<NafWriter>() {
+	    @Override
+	    protected NafWriter initialValue() {
+		return new NafWriter();
+	    }
+	};
     
     /** Loads the content of a KAF file into the given KAFDocument object */
     static KAFDocument load(File file) throws IOException, JDOMException, KAFNotValidException {
-	SAXBuilder builder = new SAXBuilder();
-	Document document = (Document) builder.build(file);
-	Element rootElem = document.getRootElement();
-	return DOMToKAF(document);
+	return load(file, null);
     }
 
-    /** Loads the content of a String in KAF format into the given KAFDocument object */
-    static KAFDocument load(Reader stream) throws IOException, JDOMException, KAFNotValidException {
-	SAXBuilder builder = new SAXBuilder();
-	Document document = (Document) builder.build(stream);
-	Element rootElem = document.getRootElement();
-	return DOMToKAF(document);
+    /** Loads the content of a KAF file, building objects only for the given layers (all of them if null) */
+    static KAFDocument load(File file, Set<Layer> layers) throws IOException, JDOMException, KAFNotValidException {
+	return THREAD_READERS.get().read(file, layers);
     }
 
-    /** Writes the content of a given KAFDocument to a file. */
-    static void save(KAFDocument kaf, String filename) {
-	try {
-	    File file = new File(filename);
-	    Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF8"));
-	    out.write(kafToStr(kaf));
-	    out.flush();
-	} catch (Exception e) {
-	    System.out.println("Error writing to file");
-	}
+    /** Loads the root attributes and the header of a KAF file, reading the file only up to the end of the header */
+    static KAFDocument loadHeader(File file) throws IOException, JDOMException {
+	return THREAD_READERS.get().readHeader(file);
     }
 
-    /** Writes the content of a KAFDocument object to standard output. */
-    static void print(KAFDocument kaf) {
-	try {
-	    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, "UTF8"));
-	    out.write(kafToStr(kaf));
-	    out.flush();
-	} catch (Exception e) {
-	    System.out.println(e);
-	}
+    /** Loads the content of a String in KAF format into the given KAFDocument object */
+    static KAFDocument load(Reader stream) throws IOException, JDOMException, KAFNotValidException {
+	return load(stream, null);
     }
 
-    /** Returns a string containing the XML content of a KAFDocument object. */
-    static String kafToStr(KAFDocument kaf) {
-	XMLOutputter out = new XMLOutputter(Format.getPrettyFormat().setLineSeparator(LineSeparator.UNIX).setTextMode(Format.TextMode.TRIM_FULL_WHITE));
-	Document jdom = KAFToDOM(kaf);
-	return out.outputString(jdom);
+    /** Loads the content of a String in KAF format, building objects only for the given layers (all of them if null) */
+    static KAFDocument load(Reader stream, Set<Layer> layers) throws IOException, JDOMException, KAFNotValidException {
+	return THREAD_READERS.get().read(stream, layers);
     }
 
-    /** Loads a KAFDocument object from XML content in DOM format */
-    private static KAFDocument DOMToKAF(Document dom) throws KAFNotValidException {
-	HashMap<String, WF> wfIndex = new HashMap<String, WF>();
-	HashMap<String, Term> termIndex = new HashMap<String, Term>();
-	HashMap<String, Relational> relationalIndex = new HashMap<String, Relational>();
-	HashMap<String, Predicate> predicateIndex = new HashMap<String, Predicate>();
-	HashMap<String, Timex3> timexIndex = new HashMap<String, Timex3>();
-	Element rootElem = dom.getRootElement();
-	String lang = getAttribute("lang", rootElem, Namespace.XML_NAMESPACE);
-	String kafVersion = getAttribute("version", rootElem);
-	KAFDocument kaf = new KAFDocument(lang, kafVersion);
-
-	List<Element> rootChildrenElems = rootElem.getChildren();
-
-	Element elem = rootElem.getChild("nafHeader");
-	if (elem != null) {
-	    List<Element> lpsElems = elem.getChildren("linguisticProcessors");
-	    for (Element lpsElem : lpsElems) {
-		String layer = getAttribute("layer", lpsElem);
-		List<Element> lpElems = lpsElem.getChildren();
-		for (Element lpElem : lpElems) {
-		    String name = getAttribute("name", lpElem);
-		    KAFDocument.LinguisticProcessor newLp = kaf.addLinguisticProcessor(layer, name);
-		    String timestamp = getOptAttribute("timestamp", lpElem);
-		    if (timestamp != null) {
-			newLp.setTimestamp(timestamp);
-		    }
-		    String beginTimestamp = getOptAttribute("beginTimestamp", lpElem);
-		    if (beginTimestamp != null) {
-			newLp.beginTimestamp = beginTimestamp;
-		    }
-		    String endTimestamp = getOptAttribute("endTimestamp", lpElem);
-		    if (endTimestamp != null) {
-			newLp.setEndTimestamp(endTimestamp);
-		    }
-		    String version = getOptAttribute("version", lpElem);
-		    if (version != null) {
-			newLp.setVersion(version);
-		    }
-		    String hostname = getOptAttribute("hostname", lpElem);
-		    if (hostname != null) {
-			newLp.setHostname(hostname);
-		    }
-		}
-	    }
-	    Element fileDescElem = elem.getChild("fileDesc");
-	    if (fileDescElem != null) {
-		KAFDocument.FileDesc fd = kaf.createFileDesc();
-		String author = getOptAttribute("author", fileDescElem);
-		if (author != null) {
-		    fd.author = author;
-		}
-		String title = getOptAttribute("title", fileDescElem);
-		if (title != null) {
-		    fd.title = title;
-		}
-		String publisher = getOptAttribute("publisher", fileDescElem);
-		if (publisher != null) {
-		    fd.publisher = publisher;
-		}
-		String section = getOptAttribute("section", fileDescElem);
-		if (section != null) {
-		    fd.section = section;
-		}
-		String location = getOptAttribute("location", fileDescElem);
-		if (location != null) {
-		    fd.location = location;
-		}
-		String magazine = getOptAttribute("magazine", fileDescElem);
-		if (magazine != null) {
-		    fd.magazine = magazine;
-		}
-		String filename = getOptAttribute("filename", fileDescElem);
-		if (filename != null) {
-		    fd.filename = filename;
-		}
-		String filetype = getOptAttribute("filetype", fileDescElem);
-		if (filetype != null) {
-		    fd.filetype = filetype;
-		}
-		String pages = getOptAttribute("pages", fileDescElem);
-		if (pages != null) {
-		    fd.pages = Integer.parseInt(pages);
-		}
-		String creationtime = getOptAttribute("creationtime", fileDescElem);
-		if (creationtime != null) {
-		    fd.creationtime = creationtime;
-		}
-	    }
-	    Element publicElem = elem.getChild("public");
-	    if (publicElem != null) {
-		KAFDocument.Public pub = kaf.createPublic();
-		String publicId = getOptAttribute("publicId", publicElem);
-		if (publicId != null) {
-		    pub.publicId = publicId;
-		}
-		String uri = getOptAttribute("uri", publicElem);
-		if (uri != null) {
-		    pub.uri = uri;
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("raw");
-	if (elem != null) {
-	    kaf.setRawText(elem.getText());
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("text");
-	if (elem != null) {
-	    List<Element> wfElems = elem.getChildren();
-	    for (Element wfElem : wfElems) {
-		String wid = getAttribute("id", wfElem);
-		String wOffset = getAttribute("offset", wfElem);
-		String wLength = getAttribute("length", wfElem);
-		String wForm = wfElem.getText();
-		String wSent = getAttribute("sent", wfElem);
-		WF newWf = kaf.newWF(wid, Integer.valueOf(wOffset), Integer.valueOf(wLength), wForm, Integer.valueOf(wSent));
-		String wPara = getOptAttribute("para", wfElem);
-		if (wPara != null) {
-		    newWf.setPara(Integer.valueOf(wPara));
-		}
-		String wPage = getOptAttribute("page", wfElem);
-		if (wPage != null) {
-		    newWf.setPage(Integer.valueOf(wPage));
-		}
-		String wXpath = getOptAttribute("xpath", wfElem);
-		if (wXpath != null) {
-		    newWf.setXpath(wXpath);
-		}
-		wfIndex.put(newWf.getId(), newWf);
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("terms");
-	if (elem != null) {
-	    List<Element> termElems = elem.getChildren();
-	    for (Element termElem : termElems) {
-		DOMToTerm(termElem, kaf, false, wfIndex, termIndex, null);
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-
-	elem = rootElem.getChild("entities");
-	if (elem != null) {
-	    List<Element> entityElems = elem.getChildren();
-	    for (Element entityElem : entityElems) {
-		String entId = getAttribute("id", entityElem);
-		List<Element> referencesElem = entityElem.getChildren("references");
-		if (referencesElem.size() < 1) {
-		    throw new IllegalStateException("Every entity must contain a 'references' element");
-		}
-		List<Element> spanElems = referencesElem.get(0).getChildren();
-		if (spanElems.size() < 1) {
-		    throw new IllegalStateException("Every entity must contain a 'span' element inside 'references'");
-		}
-		List<Span<Term>> references = new ArrayList<Span<Term>>();
-		for (Element spanElem : spanElems) {
-		    Span<Term> span = kaf.newTermSpan();
-		    List<Element> targetElems = spanElem.getChildren();
-		    if (targetElems.size() < 1) {
-			throw new IllegalStateException("Every span in an entity must contain at least one target inside");  
-		    }
-		    for (Element targetElem : targetElems) {
-			String targetTermId = getAttribute("id", targetElem);
-			Term targetTerm = termIndex.get(targetTermId);
-			if (targetTerm == null) {
-			    throw new KAFNotValidException("Term " + targetTermId + " not found when loading entity " + entId);
-			}
-			boolean isHead = isHead(targetElem);
-			span.addTarget(targetTerm, isHead);
-		    }
-		    references.add(span);
-		}
-		Entity newEntity = kaf.newEntity(entId, references);
-		String entType = getOptAttribute("type", entityElem);
-		if (entType != null) {
-		    newEntity.setType(entType);
-		}
-		String entSource= getOptAttribute("source", entityElem);
-		if (entSource != null) {
-		    newEntity.setSource(entSource);
-		}
-		List<Element> externalReferencesElems = entityElem.getChildren("externalReferences");
-		if (externalReferencesElems.size() > 0) {
-		    List<ExternalRef> externalRefs = getExternalReferences(externalReferencesElems.get(0), kaf);
-		    newEntity.addExternalRefs(externalRefs);
-		}
-		relationalIndex.put(newEntity.getId(), newEntity);
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("constituency");
-	if (elem != null) {
-	    List<Element> treeElems = elem.getChildren("tree");
-	    for (Element treeElem : treeElems) {
-		String type = getOptAttribute("type", treeElem);
-		HashMap<String, TreeNode> treeNodes = new HashMap<String, TreeNode>();
-		HashMap<String, Boolean> rootNodes = new HashMap<String, Boolean>();
-		// Terminals
-		List<Element> terminalElems = treeElem.getChildren("t");
-		for (Element terminalElem : terminalElems) {
-		    String id = getAttribute("id", terminalElem);
-		    Element spanElem = terminalElem.getChild("span");
-		    if (spanElem == null) {
-			throw new KAFNotValidException("Constituent non terminal nodes need a span");
-		    }
-		    Span<Term> span = loadTermSpan(spanElem, termIndex, id);
-		    treeNodes.put(id, kaf.newTerminal(id, span));
-		    rootNodes.put(id, true);
-		}
-		// NonTerminals
-		List<Element> nonTerminalElems = treeElem.getChildren("nt");
-		for (Element nonTerminalElem : nonTerminalElems) {
-		    String id = getAttribute("id", nonTerminalElem);
-		    String label = getAttribute("label", nonTerminalElem);
-		    treeNodes.put(id, kaf.newNonTerminal(id, label));
-		    rootNodes.put(id, true);
-		}
-		// Edges
-		List<Element> edgeElems = treeElem.getChildren("edge");
-		for (Element edgeElem : edgeElems) {
-		    String fromId = getAttribute("from", edgeElem);
-		    String toId = getAttribute("to", edgeElem);
-		    String edgeId = getOptAttribute("id", edgeElem);
-		    String head = getOptAttribute("head", edgeElem);
-		    boolean isHead = (head != null && head.equals("yes")) ? true : false;
-		    TreeNode parentNode = treeNodes.get(toId);
-		    TreeNode childNode = treeNodes.get(fromId);
-		    if ((parentNode == null) || (childNode == null)) {
-			throw new KAFNotValidException("There is a problem with the edge(" + fromId + ", " + toId + "). One of its targets doesn't exist.");
-		    }
-		    try {
-			((NonTerminal) parentNode).addChild(childNode);
-		    } catch(Exception e) {}
-		    rootNodes.put(fromId, false);
-		    if (edgeId != null) {
-			childNode.setEdgeId(edgeId);
-		    }
-		    if (isHead) {
-			((NonTerminal) childNode).setHead(isHead);
-		    }
-		}
-		// Constituent objects
-		for (Map.Entry<String, Boolean> areRoot : rootNodes.entrySet()) {
-		    if (areRoot.getValue()) {
-			TreeNode rootNode = treeNodes.get(areRoot.getKey());
-			if (type == null) {
-			    kaf.newConstituent(rootNode);
-			} else {
-			    kaf.newConstituent(rootNode, type);
-			}
-		    }
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("chunks");
-	if (elem != null) {
-	    //System.out.println("chunks");
-	    List<Element> chunkElems = elem.getChildren();
-	    for (Element chunkElem : chunkElems) {
-		String chunkId = getAttribute("id", chunkElem);
-		String headId = getAttribute("head", chunkElem);
-		Term chunkHead = termIndex.get(headId);
-		if (chunkHead == null) {
-		    throw new KAFNotValidException("Term " + headId + " not found when loading chunk " + chunkId);
-		}
-		Element spanElem = chunkElem.getChild("span");
-		if (spanElem == null) {
-		    throw new IllegalStateException("Every chunk must contain a span element");
-		}
-		List<Element> chunksTermElems = spanElem.getChildren("target");
-		Span<Term> span = kaf.newTermSpan();
-		for (Element chunksTermElem : chunksTermElems) {
-		    String termId = getAttribute("id", chunksTermElem);
-		    boolean isHead = isHead(chunksTermElem);
-		    Term targetTerm = termIndex.get(termId);
-		    if (targetTerm == null) {
-			throw new KAFNotValidException("Term " + termId + " not found when loading chunk " + chunkId);
-		    }
-		    span.addTarget(targetTerm, ((targetTerm == chunkHead) || isHead));
-		}
-		if (!span.hasTarget(chunkHead)) {
-		    throw new KAFNotValidException("The head of the chunk is not in it's span.");
-		}
-		Chunk newChunk = kaf.newChunk(chunkId, span);
-		String chunkPhrase = getOptAttribute("phrase", chunkElem);
-		if (chunkPhrase != null) {
-		    newChunk.setPhrase(chunkPhrase);
-		}
-		String chunkCase = getOptAttribute("case", chunkElem);
-		if (chunkCase != null) {
-		    newChunk.setCase(chunkCase);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("coreferences");
-	if (elem != null) {
-	    List<Element> corefElems = elem.getChildren();
-	    for (Element corefElem : corefElems) {
-		String coId = getAttribute("id", corefElem);
-		List<Element> spanElems = corefElem.getChildren("span");
-		if (spanElems.size() < 1) {
-		    throw new IllegalStateException("Every coref must contain a 'span' element inside 'references'");
-		}
-		List<Span<Term>> mentions = new ArrayList<Span<Term>>();
-		for (Element spanElem : spanElems) {
-		    Span<Term> span = kaf.newTermSpan();
-		    List<Element> targetElems = spanElem.getChildren();
-		    if (targetElems.size() < 1) {
-			throw new IllegalStateException("Every span in an entity must contain at least one target inside");  
-		    }
-		    for (Element targetElem : targetElems) {
-			String targetTermId = getAttribute("id", targetElem);
-			Term targetTerm = termIndex.get(targetTermId);
-			if (targetTerm == null) {
-			    throw new KAFNotValidException("Term " + targetTermId + " not found when loading coref " + coId);
-			}
-			boolean isHead = isHead(targetElem);
-			span.addTarget(targetTerm, isHead);
-		    }
-		    mentions.add(span);
-		}
-		Coref newCoref = kaf.newCoref(coId, mentions);
-		String corefType = getOptAttribute("type", corefElem);
-		if (corefType != null) {
-		    newCoref.setType(corefType);
-		}
-		List<Element> externalReferencesElems = corefElem.getChildren("externalReferences");
-		if (externalReferencesElems.size() > 0) {
-		    List<ExternalRef> externalRefs = getExternalReferences(externalReferencesElems.get(0), kaf);
-		    newCoref.addExternalRefs(externalRefs);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("opinions");
-	if (elem != null) {	    List<Element> opinionElems = elem.getChildren("opinion");
-	    for (Element opinionElem : opinionElems) {
-		String opinionId = getAttribute("id", opinionElem);
-		Opinion opinion = kaf.newOpinion(opinionId);
-		Element opinionHolderElem = opinionElem.getChild("opinion_holder");
-		if (opinionHolderElem != null) {
-		    Span<Term> span = kaf.newTermSpan();
-		    Opinion.OpinionHolder opinionHolder = opinion.createOpinionHolder(span);
-		    String ohType = getOptAttribute("type", opinionHolderElem);
-		    if (ohType != null) {
-			opinionHolder.setType(ohType);
-		    }
-		    Element spanElem = opinionHolderElem.getChild("span");
-		    if (spanElem != null) {
-			List<Element> targetElems = spanElem.getChildren("target");
-			for (Element targetElem : targetElems) {
-			    String refId = getOptAttribute("id", targetElem);
-			    boolean isHead = isHead(targetElem);
-			    Term targetTerm = termIndex.get(refId);
-			    if (targetTerm == null) {
-				throw new KAFNotValidException("Term " + refId + " not found when loading opinion " + opinionId);
-			    }
-			    span.addTarget(targetTerm, isHead);
-			}
-		    }
-		}
-		Element opinionTargetElem = opinionElem.getChild("opinion_target");
-		if (opinionTargetElem != null) {
-		    Span<Term> span = kaf.newTermSpan();
-		    Opinion.OpinionTarget opinionTarget = opinion.createOpinionTarget(span);
-		    Element spanElem = opinionTargetElem.getChild("span");
-		    if (spanElem != null) {
-			List<Element> targetElems = spanElem.getChildren("target");
-			for (Element targetElem : targetElems) {
-			    String refId = getOptAttribute("id", targetElem);
-			    boolean isHead = isHead(targetElem);
-			    Term targetTerm = termIndex.get(refId);
-			    if (targetTerm == null) {
-				throw new KAFNotValidException("Term " + refId + " not found when loading opinion " + opinionId);
-			    }
-			    span.addTarget(targetTerm, isHead);
-			}
-		    }
-		}
-		Element opinionExpressionElem = opinionElem.getChild("opinion_expression");
-		if (opinionExpressionElem != null) {
-		    Span<Term> span = kaf.newTermSpan();
-		    String polarity = getOptAttribute("polarity", opinionExpressionElem);
-		    String strength = getOptAttribute("strength", opinionExpressionElem);
-		    String subjectivity = getOptAttribute("subjectivity", opinionExpressionElem);
-		    String sentimentSemanticType = getOptAttribute("sentiment_semantic_type", opinionExpressionElem);
-		    String sentimentProductFeature = getOptAttribute("sentiment_product_feature", opinionExpressionElem);
-		    Opinion.OpinionExpression opinionExpression = opinion.createOpinionExpression(span);
-		    if (polarity != null) {
-			opinionExpression.setPolarity(polarity);
-		    }
-		    if (strength != null) {
-			opinionExpression.setStrength(strength);
-		    }
-		    if (subjectivity != null) {
-			opinionExpression.setSubjectivity(subjectivity);
-		    }
-		    if (sentimentSemanticType != null) {
-			opinionExpression.setSentimentSemanticType(sentimentSemanticType);
-		    }
-		    if (sentimentProductFeature != null) {
-			opinionExpression.setSentimentProductFeature(sentimentProductFeature);
-		    }
-
-		    Element spanElem = opinionExpressionElem.getChild("span");
-		    if (spanElem != null) {
-			List<Element> targetElems = spanElem.getChildren("target");
-			for (Element targetElem : targetElems) {
-			    String refId = getOptAttribute("id", targetElem);
-			    boolean isHead = isHead(targetElem);
-			    Term targetTerm = termIndex.get(refId);
-			    if (targetTerm == null) {
-				throw new KAFNotValidException("Term " + refId + " not found when loading opinion " + opinionId);
-			    }
-			    span.addTarget(targetTerm, isHead);
-			}
-		    }
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("deps");
-	if (elem != null) {
-	    List<Element> depElems = elem.getChildren();
-	    for (Element depElem : depElems) {
-		String fromId = getAttribute("from", depElem);
-		String toId = getAttribute("to", depElem);
-		Term from = termIndex.get(fromId);
-		if (from == null) {
-		    throw new KAFNotValidException("Term " + fromId + " not found when loading Dep (" + fromId + ", " + toId + ")");
-		}
-		Term to = termIndex.get(toId);
-		if (to == null) {
-		    throw new KAFNotValidException("Term " + toId + " not found when loading Dep (" + fromId + ", " + toId + ")");
-		}
-		String rfunc = getAttribute("rfunc", depElem);
-		Dep newDep = kaf.newDep(from, to, rfunc);
-		String depcase = getOptAttribute("case", depElem);
-		if (depcase != null) {
-		    newDep.setCase(depcase);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("srl");
-	if (elem != null) {
-	    List<Element> predicateElems = elem.getChildren("predicate");
-	    for (Element predicateElem : predicateElems) {
-		String id = getAttribute("id", predicateElem);
-		Span<Term> span = kaf.newTermSpan();
-		Element spanElem = predicateElem.getChild("span");
-		if (spanElem != null) {
-		    List<Element> targetElems = spanElem.getChildren("target");
-		    for (Element targetElem : targetElems) {
-			String targetId = getAttribute("id", targetElem);
-			boolean isHead = isHead(targetElem);
-			Term targetTerm = termIndex.get(targetId);
-			if (targetTerm == null) {
-			    throw new KAFNotValidException("Term object " + targetId + " not found when loading predicate " + id);				
-			}
-			span.addTarget(targetTerm, isHead);
-		    }
-		}
-		List<String> predTypes = new ArrayList<String>();
-		List<Element> predTypeElems = predicateElem.getChildren("predType");
-		for (Element predTypeElem : predTypeElems) {
-		    String ptUri = getAttribute("uri", predTypeElem);
-		    predTypes.add(ptUri);
-		}
-		Predicate newPredicate = kaf.newPredicate(id, span);
-		String uri = getOptAttribute("uri", predicateElem);
-		if (uri != null) {
-		    newPredicate.setUri(uri);
-		}
-		List<Element> externalReferencesElems = predicateElem.getChildren("externalReferences");
-		if (externalReferencesElems.size() > 0) {
-		    List<ExternalRef> externalRefs = getExternalReferences(externalReferencesElems.get(0), kaf);
-		    newPredicate.addExternalRefs(externalRefs);
-		}
-		String confidence = getOptAttribute("confidence", predicateElem);
-		if (confidence != null) {
-		    newPredicate.setConfidence(Float.valueOf(confidence));
-		}
-		List<Element> roleElems = predicateElem.getChildren("role");
-		for (Element roleElem : roleElems) {
-		    String rid = getAttribute("id", roleElem);
-		    String semRole = getAttribute("semRole", roleElem);
-		    Span<Term> roleSpan = kaf.newTermSpan();
-		    Element roleSpanElem = roleElem.getChild("span");
-		    if (roleSpanElem != null) {
-			List<Element> targetElems = roleSpanElem.getChildren("target");
-			for (Element targetElem : targetElems) {
-			    String targetId = getAttribute("id", targetElem);
-			    boolean isHead = isHead(targetElem);
-			    Term targetTerm = termIndex.get(targetId);
-			    if (targetTerm == null) {
-				throw new KAFNotValidException("Term object " + targetId + " not found when loading role " + rid);				
-			    }
-			    roleSpan.addTarget(targetTerm, isHead);
-			}
-		    }
-		    Predicate.Role newRole = kaf.newRole(rid, newPredicate, semRole, roleSpan);
-		    List<Element> rExternalReferencesElems = roleElem.getChildren("externalReferences");
-		    if (rExternalReferencesElems.size() > 0) {
-			List<ExternalRef> externalRefs = getExternalReferences(rExternalReferencesElems.get(0), kaf);
-			newRole.addExternalRefs(externalRefs);
-		    }
-		    newPredicate.addRole(newRole);
-		}
-		predicateIndex.put(newPredicate.getId(), newPredicate);
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("timeExpressions");
-	if (elem != null) {
-	    List<Element> timex3Elems = elem.getChildren();
-	    Map<Timex3, String> uncompleteBeginPointRefs = new HashMap<Timex3, String>();
-	    Map<Timex3, String> uncompleteEndPointRefs = new HashMap<Timex3, String>();
-	    for (Element timex3Elem : timex3Elems) {
-		String timex3Id = getAttribute("id", timex3Elem);
-		String timex3Type = getAttribute("type", timex3Elem);
-		Timex3 timex3 = kaf.newTimex3(timex3Id, timex3Type);
-		String timex3BeginPointId = getOptAttribute("beginPoint", timex3Elem);
-		if (timex3BeginPointId != null) {
-		    Timex3 beginPoint = timexIndex.get(timex3BeginPointId);
-		    if (beginPoint == null) {
-			uncompleteBeginPointRefs.put(timex3, timex3BeginPointId);
-		    } else {
-			timex3.setBeginPoint(beginPoint);
-		    }
-		}
-		String timex3EndPointId = getOptAttribute("endPoint", timex3Elem);
-		if (timex3EndPointId != null) {
-		    Timex3 endPoint = timexIndex.get(timex3EndPointId);
-		    if (endPoint == null) {
-			uncompleteEndPointRefs.put(timex3, timex3EndPointId);
-		    } else {
-			timex3.setEndPoint(endPoint);
-		    }
-		}
-		String timex3Quant = getOptAttribute("quant", timex3Elem);
-		if (timex3Quant != null) {
-		    timex3.setQuant(timex3Quant);
-		}
-		String timex3Freq = getOptAttribute("freq", timex3Elem);
-		if (timex3Freq != null) {
-		    timex3.setFreq(timex3Freq);
-		}
-		String timex3FuncInDoc = getOptAttribute("functionInDocument", timex3Elem);
-		if (timex3FuncInDoc != null) {
-		    timex3.setFunctionInDocument(timex3FuncInDoc);
-		}
-		String timex3TempFunc = getOptAttribute("temporalFunction", timex3Elem);
-		if (timex3TempFunc != null) {
-		    Boolean tempFunc = timex3TempFunc.equals("true");
-		    timex3.setTemporalFunction(tempFunc);
-		}
-		String timex3Value = getOptAttribute("value", timex3Elem);
-		if (timex3Value != null) {
-		    timex3.setValue(timex3Value);
-		}
-		String timex3ValueFromFunction = getOptAttribute("valueFromFunction", timex3Elem);
-		if (timex3ValueFromFunction != null) {
-		    timex3.setValueFromFunction(timex3ValueFromFunction);
-		}
-		String timex3Mod = getOptAttribute("mod", timex3Elem);
-		if (timex3Mod != null) {
-		    timex3.setMod(timex3Mod);
-		}
-		String timex3AnchorTimeId = getOptAttribute("anchorTimeId", timex3Elem);
-		if (timex3AnchorTimeId != null) {
-		    timex3.setAnchorTimeId(timex3AnchorTimeId);
-		}
-		String timex3Comment = getOptAttribute("comment", timex3Elem);
-		if (timex3Comment != null) {
-		    timex3.setComment(timex3Comment);
-		}
-		Element spanElem = timex3Elem.getChild("span");
-		if (spanElem != null) {
-		    Span<WF> timex3Span = kaf.newWFSpan();
-		    for (Element targetElem : spanElem.getChildren("target")) {
-			String targetId = getAttribute("id", targetElem);
-			WF wf = wfIndex.get(targetId);
-			if (wf == null) {
-			    throw new KAFNotValidException("Word form " + targetId + " not found when loading timex3 " + timex3Id);
-			}
-			boolean isHead = isHead(targetElem);
-			timex3Span.addTarget(wf, isHead);
-		    }
-		    timex3.setSpan(timex3Span);
-		}
-		timexIndex.put(timex3.getId(), timex3);
-	    }
-	    for (Timex3 timex3 : uncompleteBeginPointRefs.keySet()) {
-		timex3.setBeginPoint(timexIndex.get(uncompleteBeginPointRefs.get(timex3)));
-	    }
-	    for (Timex3 timex3 : uncompleteEndPointRefs.keySet()) {
-		timex3.setEndPoint(timexIndex.get(uncompleteEndPointRefs.get(timex3)));
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("temporalRelations");
-	if (elem != null) {
-	    List<Element> tLinkElems = elem.getChildren("tlink");
-	    for (Element tLinkElem : tLinkElems) {
-		String tlid = getAttribute("id", tLinkElem);
-		String fromId = getAttribute("from", tLinkElem);
-		String toId = getAttribute("to", tLinkElem);
-		String fromType = getAttribute("fromType", tLinkElem);
-		String toType = getAttribute("toType", tLinkElem);
-		String relType = getAttribute("relType", tLinkElem);
-		TLinkReferable from = fromType.equals("event")
-			? predicateIndex.get(fromId) : timexIndex.get(fromId);
-		TLinkReferable to = toType.equals("event")
-			? predicateIndex.get(toId) : timexIndex.get(toId);
-		TLink tLink = kaf.newTLink(tlid, from, to, relType);
-	    }
+    /** Creates the StAX factory used to read KAF. DTDs are neither loaded nor processed and external entities are not resolved. */
+    static XMLInputFactory newInputFactory() {
+	XMLInputFactory factory = XMLInputFactory.newInstance();
+	factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	return factory;
+    }
 
-	    List<Element> predAnchorElems = elem.getChildren("predicateAnchor");
-	    for (Element predAnchorElem : predAnchorElems) {
-		String id = getAttribute("id", predAnchorElem);
-		Element spanElem = predAnchorElem.getChild("span");
-		Span<Predicate> predAnchorSpan = KAFDocument.newSpan();
-		if (spanElem != null) {
-		    for (Element targetElem : spanElem.getChildren("target")) {
-			String targetId = getAttribute("id", targetElem);
-			Predicate predicate = predicateIndex.get(targetId);
-			if (predicate == null) {
-			    throw new KAFNotValidException("Predicate " + targetId + " not found when loading PredicateAnchor " + id);
-			}
-			boolean isHead = isHead(targetElem);
-			predAnchorSpan.addTarget(predicate, isHead);
-		    }
-		}
-		PredicateAnchor newPa = kaf.newPredicateAnchor(id, predAnchorSpan);
-		String anchorTimeId = getOptAttribute("anchorTime", predAnchorElem);
-		if (anchorTimeId != null) {
-		    Timex3 anchorTime = timexIndex.get(anchorTimeId);
-		    if (anchorTime == null) {
-			throw new IllegalStateException("Invalid timex ID (" + anchorTimeId + ") in predicateAnchor " + id);
-		    }
-		    newPa.setAnchorTime(anchorTime);
-		}
-		String beginPointId = getOptAttribute("beginPoint", predAnchorElem);
-		if (beginPointId != null) {
-		    Timex3 beginPoint = timexIndex.get(beginPointId);
-		    if (beginPoint == null) {
-			throw new IllegalStateException("Invalid timex ID (" + beginPointId + ") in predicateAnchor " + id);
-		    }
-		    newPa.setBeginPoint(beginPoint);
-		}
-		String endPointId = getOptAttribute("endPoint", predAnchorElem);
-		if (endPointId != null) {
-		    Timex3 endPoint = timexIndex.get(endPointId);
-		    if (endPoint == null) {
-			throw new IllegalStateException("Invalid timex ID (" + endPointId + ") in predicateAnchor " + id);
-		    }
-		    newPa.setEndPoint(endPoint);
-		}
-	    }
-	    
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("causalRelations");
-	if (elem != null) {
-	    List<Element> clinkElems = elem.getChildren("clink");
-	    for (Element clinkElem : clinkElems) {
-		String clid = getAttribute("id", clinkElem);
-		String fromId = getAttribute("from", clinkElem);
-		String toId = getAttribute("to", clinkElem);
-		String relType = getOptAttribute("relType", clinkElem);
-		Predicate from = predicateIndex.get(fromId);
-		Predicate to = predicateIndex.get(toId);
-		CLink clink = kaf.newCLink(clid, from, to);
-		if (relType != null) {
-		    clink.setRelType(relType);
-		}
+    /** Loads the content of a KAF file with the given factory, building objects only for the given layers (all of them if null).
+     * The values of categorical attributes are shared through the given symbol table, or through a table of the document if it is null.
+     * The document keeps the original XML of its layers, and can write back the ones which are not modified, if keepSource is true or some layers are not loaded
+     * (their XML is needed to write them back). Otherwise the XML events are pulled straight from the file, which is never held in memory as a whole.
+     */
+    static KAFDocument load(XMLInputFactory factory, File file, Set<Layer> layers, SymbolTable symbolTable, boolean keepSource) throws IOException, JDOMException, KAFNotValidException {
+	InputStream stream = openFile(file);
+	try {
+	    if (keepSource || (layers != null)) {
+		return load(factory, readSource(factory, stream, file.length()), layers, symbolTable);
 	    }
-	    rootChildrenElems.remove(elem);
+	    return load(factory, factory.createXMLStreamReader(stream), null, null, symbolTable);
+	} catch (XMLStreamException e) {
+	    throw new JDOMException(e.getMessage(), e);
+	} finally {
+	    stream.close();
 	}
+    }
 
-	elem = rootElem.getChild("factualities");
-	if (elem != null) {
-	    List<Element> factualityElems = elem.getChildren("factuality");
-	    for (Element factualityElem : factualityElems) {
-		String id = getAttribute("id", factualityElem);
-		Element spanElem = factualityElem.getChild("span");
-		if (spanElem == null) {
-		    throw new IllegalStateException("Every factuality must contain a 'span' element");
-		}
-		Span<Term> span = loadTermSpan(spanElem, termIndex, id);
-		Factuality newFactuality = kaf.newFactuality(id, span);
-		List<Element> factValElems = factualityElem.getChildren("factVal");
-		for (Element factValElem : factValElems) {
-		    newFactuality.addFactVal(DOMToFactVal(factValElem, kaf));
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("factualityLayer");
-	if (elem != null) {
-	    List<Element> factualityElems = elem.getChildren("factvalue");
-	    for (Element factualityElem : factualityElems) {
-		String id = getAttribute("id", factualityElem);
-		String prediction = getAttribute("prediction", factualityElem);
-		String confidenceStr = getAttribute("confidence", factualityElem);
-		Double confidence = null;
-		if (confidenceStr != null) {
-		    confidence = Double.parseDouble(confidenceStr);
-		}
-		Factvalue factuality = kaf.newFactvalue(wfIndex.get(id), prediction);
-		if (confidence != null) {
-		    factuality.setConfidence(confidence);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("features");
-	if (elem != null) {
-	    Element propertiesElem = elem.getChild("properties");
-	    Element categoriesElem = elem.getChild("categories");
-	    if (propertiesElem != null) {
-		List<Element> propertyElems = propertiesElem.getChildren("property");
-		for (Element propertyElem : propertyElems) {
-		    String pid = getAttribute("id", propertyElem);
-		    String lemma = getAttribute("lemma", propertyElem);
-		    Element referencesElem = propertyElem.getChild("references");
-		    if (referencesElem == null) {
-			throw new IllegalStateException("Every property must contain a 'references' element");
-		    }
-		    List<Element> spanElems = referencesElem.getChildren("span");
-		    if (spanElems.size() < 1) {
-			throw new IllegalStateException("Every property must contain a 'span' element inside 'references'");
-		    }
-		    List<Span<Term>> references = new ArrayList<Span<Term>>();
-		    for (Element spanElem : spanElems) {
-			Span<Term> span = kaf.newTermSpan();
-			List<Element> targetElems = spanElem.getChildren();
-			if (targetElems.size() < 1) {
-			    throw new IllegalStateException("Every span in a property must contain at least one target inside");  
-			}
-			for (Element targetElem : targetElems) {
-			    String targetTermId = getAttribute("id", targetElem);
-			    Term targetTerm = termIndex.get(targetTermId);
-			    if (targetTerm == null) {
-				throw new KAFNotValidException("Term " + targetTermId + " not found when loading property " + pid);
-			    }
-			    boolean isHead = isHead(targetElem);
-			    span.addTarget(targetTerm, isHead);
-			}
-			references.add(span);
-		    }
-		    Feature newProperty = kaf.newProperty(pid, lemma, references);
-		    List<Element> externalReferencesElems = propertyElem.getChildren("externalReferences");
-		    if (externalReferencesElems.size() > 0) {
-			List<ExternalRef> externalRefs = getExternalReferences(externalReferencesElems.get(0), kaf);
-			newProperty.addExternalRefs(externalRefs);
-		    }
-		    relationalIndex.put(newProperty.getId(), newProperty);
-		}
-	    }
-	    if (categoriesElem != null) {
-		List<Element> categoryElems = categoriesElem.getChildren("category");
-		for (Element categoryElem : categoryElems) {
-		    String cid = getAttribute("id", categoryElem);
-		    String lemma = getAttribute("lemma", categoryElem);
-		    Element referencesElem = categoryElem.getChild("references");
-		    if (referencesElem == null) {
-			throw new IllegalStateException("Every category must contain a 'references' element");
-		    }
-		    List<Element> spanElems = referencesElem.getChildren("span");
-		    if (spanElems.size() < 1) {
-			throw new IllegalStateException("Every category must contain a 'span' element inside 'references'");
-		    }
-		    List<Span<Term>> references = new ArrayList<Span<Term>>();
-		    for (Element spanElem : spanElems) {
-			Span<Term> span = kaf.newTermSpan();
-			List<Element> targetElems = spanElem.getChildren();
-			if (targetElems.size() < 1) {
-			    throw new IllegalStateException("Every span in a property must contain at least one target inside");  
-			}
-			for (Element targetElem : targetElems) {
-			    String targetTermId = getAttribute("id", targetElem);
-			    Term targetTerm = termIndex.get(targetTermId);
-			    if (targetTerm == null) {
-				throw new KAFNotValidException("Term " + targetTermId + " not found when loading category " + cid);
-			    }
-			    boolean isHead = isHead(targetElem);
-			    span.addTarget(targetTerm, isHead);
-			}
-			references.add(span);
-		    }
-		    Feature newCategory = kaf.newCategory(cid, lemma, references);
-		    List<Element> externalReferencesElems = categoryElem.getChildren("externalReferences");
-		    if (externalReferencesElems.size() > 0) {
-			List<ExternalRef> externalRefs = getExternalReferences(externalReferencesElems.get(0), kaf);
-			newCategory.addExternalRefs(externalRefs);
-		    }
-		    relationalIndex.put(newCategory.getId(), newCategory);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("relations");
-	if (elem != null) {	    List<Element> relationElems = elem.getChildren("relation");
-	    for (Element relationElem : relationElems) {
-		String id = getAttribute("id", relationElem);
-		String fromId = getAttribute("from", relationElem);
-		String toId = getAttribute("to", relationElem);
-		String confidenceStr = getOptAttribute("confidence", relationElem);
-		float confidence = -1.0f;
-		if (confidenceStr != null) {
-		    confidence = Float.parseFloat(confidenceStr);
-		}
-		Relational from = relationalIndex.get(fromId);
-		if (from == null) {
-		    throw new KAFNotValidException("Entity/feature object " + fromId + " not found when loading relation " + id);
-		}
-		Relational to = relationalIndex.get(toId);
-		if (to == null) {
-		    throw new KAFNotValidException("Entity/feature object " + toId + " not found when loading relation " + id);
-		}
-		Relation newRelation = kaf.newRelation(id, from, to);
-		if (confidence >= 0) {
-		    newRelation.setConfidence(confidence);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("topics");
-	if (elem != null) {
-	    List<Element> topicElems = elem.getChildren("topic");
-	    for (Element topicElem : topicElems) {
-		String value = topicElem.getText();
-		Topic topic = kaf.newTopic(value); 
-		String source = getOptAttribute("source", topicElem);
-		if (source != null){
-		    topic.setSource(source);
-		}
-		String method = getOptAttribute("method", topicElem);
-		if (method != null){
-		    topic.setMethod(method);
-		}
-		String confidenceStr = getOptAttribute("confidence", topicElem);
-		float confidence = -1.0f;
-		if (confidenceStr != null) {
-		    confidence = Float.parseFloat(confidenceStr);
-		    topic.setConfidence(confidence);
-		}
-		String URI = getOptAttribute("uri", topicElem);
-		if (URI != null){
-		    topic.setURI(URI);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("markables");
-	if (elem != null) {
-	    List<Element> markElems = elem.getChildren();
-	    for (Element markElem : markElems) {
-		String sid = getAttribute("id", markElem);
-
-		Element spanElem = markElem.getChild("span");
-		if (spanElem == null) {
-		    throw new IllegalStateException("Every mark must contain a span element");
-		}
-		List<Element> marksWfElems = spanElem.getChildren("target");
-		Span<WF> span = kaf.newWFSpan();
-		for (Element marksWfElem : marksWfElems) {
-		    String wfId = getAttribute("id", marksWfElem);
-		    boolean isHead = isHead(marksWfElem);
-		    WF wf = wfIndex.get(wfId);
-		    if (wf == null) {
-			throw new KAFNotValidException("WF " + wfId + " not found when loading mark " + sid);
-		    }
-		    span.addTarget(wf, isHead);
-		}
-		String source = getOptAttribute("source", markElem);
-		Mark newMark = (source == null) ? kaf.newMark(sid, span) : kaf.newMark(sid, source, span); 
-		Element sentimentElem = markElem.getChild("sentiment");
-		if (sentimentElem != null) {
-		    newMark.setSentiment(DOMToSentiment(sentimentElem, kaf));
-		}
-		String type = getOptAttribute("type", markElem);
-		if (type != null) {
-		    newMark.setType(type);
-		}
-		String lemma = getOptAttribute("lemma", markElem);
-		if (lemma != null) {
-		    newMark.setLemma(lemma);
-		}
-		String pos = getOptAttribute("pos", markElem);
-		if (pos != null) {
-		    newMark.setPos(pos);
-		}
-		String tMorphofeat = getOptAttribute("morphofeat", markElem);
-		if (tMorphofeat != null) {
-		    newMark.setMorphofeat(tMorphofeat);
-		}
-		String markcase = getOptAttribute("case", markElem);
-		if (markcase != null) {
-		    newMark.setCase(markcase);
-		}
-		List<Element> externalReferencesElems = markElem.getChildren("externalReferences");
-		if (externalReferencesElems.size() > 0) {
-		    List<ExternalRef> externalRefs = getExternalReferences(externalReferencesElems.get(0), kaf);
-		    newMark.addExternalRefs(externalRefs);
-		}
-	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	elem = rootElem.getChild("attribution");
-	if (elem != null) {
-	    List<Element> statementElems = elem.getChildren("statement");
-	    for (Element statementElem : statementElems) {
-		String statementId = getAttribute("id", statementElem);
-		Element stTargetElem = statementElem.getChild("statement_target");
-		if (stTargetElem == null) {
-		    throw new KAFNotValidException("Statement " + statementId + " does not contain the compulsory StatementTarget element.");
-		}
-		Span<Term> span = kaf.newTermSpan();
-		Statement.StatementTarget target = kaf.newStatementTarget(span);
-		Element spanElem = stTargetElem.getChild("span");
-		if (spanElem != null) {
-		    List<Element> targetElems = spanElem.getChildren("target");
-		    for (Element targetElem : targetElems) {
-			String refId = getOptAttribute("id", targetElem);
-			boolean isHead = isHead(targetElem);
-			Term targetTerm = termIndex.get(refId);
-			if (targetTerm == null) {
-			    throw new KAFNotValidException("Term " + refId + " not found when loading statement " + statementId);
-			}
-			span.addTarget(targetTerm, isHead);
-		    }
-		}
-		Statement statement = kaf.newStatement(statementId, target);
-			
-		Element stSourceElem = statementElem.getChild("statement_source");
-		if (stSourceElem != null) {
-		    Element sourceSpanElem = stSourceElem.getChild("span");
-		    if (sourceSpanElem == null) {
-			throw new KAFNotValidException("StatementSource elements need to contain the span element");
-		    }
-		    Span<Term> sourceSpan = loadTermSpan(sourceSpanElem, termIndex, statementId);
-		    statement.setSource(kaf.newStatementSource(sourceSpan));
-		}
-		Element cueElem = statementElem.getChild("statement_cue");
-		if (cueElem != null) {
-		    Element cueSpanElem = cueElem.getChild("span");
-		    if (cueSpanElem == null) {
-			throw new KAFNotValidException("StatementCue elements need to contain the span element");
-		    }
-		    Span<Term> cueSpan = loadTermSpan(cueSpanElem, termIndex, statementId);
-		    statement.setCue(kaf.newStatementCue(cueSpan));
-		}
+    /** Loads the root attributes and the header of a KAF file with the given factory */
+    static KAFDocument loadHeader(XMLInputFactory factory, File file) throws IOException, JDOMException {
+	InputStream stream = openFile(file);
+	try {
+	    XMLStreamReader reader = factory.createXMLStreamReader(stream);
+	    try {
+		return new StAXLoader(factory, reader).loadHeaderOnly();
+	    } finally {
+		reader.close();
 	    }
-	    rootChildrenElems.remove(elem);
-	}
-	
-	
-	for (Element unknownLayerElem : rootChildrenElems) { // These layers are not recognised by the library
-	    kaf.addUnknownLayer(unknownLayerElem);
+	} catch (XMLStreamException e) {
+	    throw new JDOMException(e.getMessage(), e);
+	} finally {
+	    stream.close();
 	}
-
-	return kaf;
     }
 
-    private static void DOMToTerm(Element termElem, KAFDocument kaf, boolean isComponent, Map<String, WF> wfIndex, Map<String, Term> termIndex, Term parentTerm) throws KAFNotValidException {
-	String tid = getAttribute("id", termElem);
-	Element spanElem = termElem.getChild("span");
-	List<Element> termsWfElems = new ArrayList<Element>();
-	if (!isComponent) {
-	    if (spanElem == null) {
-		throw new IllegalStateException("Every term must contain a span element");
-	    }
-	    termsWfElems = spanElem.getChildren("target");
-	}
-	Span<WF> span = kaf.newWFSpan();
-	for (Element termsWfElem : termsWfElems) {
-	    String wfId = getAttribute("id", termsWfElem);
-	    boolean isHead = isHead(termsWfElem);
-	    WF wf = wfIndex.get(wfId);
-	    if (wf == null) {
-		throw new KAFNotValidException("Wf " + wfId + " not found when loading term " + tid);
+    /** Loads the content of a String in KAF format with the given factory. As with files, the source is only read as a whole if keepSource is true or some layers are not loaded. */
+    static KAFDocument load(XMLInputFactory factory, Reader stream, Set<Layer> layers, SymbolTable symbolTable, boolean keepSource) throws IOException, JDOMException, KAFNotValidException {
+	try {
+	    if (keepSource || (layers != null)) {
+		return load(factory, readSource(stream, 0), layers, symbolTable);
 	    }
-	    span.addTarget(wf, isHead);
-	}
-	Term newTerm = kaf.newTerm(tid, span, isComponent);
-	String type = getOptAttribute("type", termElem);
-	if (type != null) {
-	    newTerm.setType(type);
-	}
-	String lemma = getOptAttribute("lemma", termElem);
-	if (lemma != null) {
-	    newTerm.setLemma(lemma);
-	}
-	String pos = getOptAttribute("pos", termElem);
-	if (pos != null) {
-	    newTerm.setPos(pos);
-	}
-	String tMorphofeat = getOptAttribute("morphofeat", termElem);
-	if (tMorphofeat != null) {
-	    newTerm.setMorphofeat(tMorphofeat);
+	    return load(factory, factory.createXMLStreamReader(stream), null, null, symbolTable);
+	} catch (XMLStreamException e) {
+	    throw new JDOMException(e.getMessage(), e);
 	}
-	String tHead = getOptAttribute("head", termElem);
-	String termcase = getOptAttribute("case", termElem);
-	if (termcase != null) {
-	    newTerm.setCase(termcase);
-	}
-	List<Element> sentimentElems = termElem.getChildren("sentiment");
-	if (sentimentElems.size() > 0) {
-	    Term.Sentiment sentiment = DOMToSentiment(sentimentElems.get(0), kaf);
-	    newTerm.setSentiment(sentiment);
+    }
+
+    /** Loads a KAFDocument object pulling the XML events of the given XML, which the document keeps as its source */
+    private static KAFDocument load(XMLInputFactory factory, String source, Set<Layer> layers, SymbolTable symbolTable) throws XMLStreamException, JDOMException, KAFNotValidException {
+	if (source.startsWith("\uFEFF")) { // Byte order mark
+	    source = source.substring(1);
 	}
-	    
-	if (!isComponent) {
-	    List<Element> termsComponentElems = termElem.getChildren("component");
-	    for (Element termsComponentElem : termsComponentElems) {
-	        DOMToTerm(termsComponentElem, kaf, true, wfIndex, termIndex, newTerm);
-	    }
-	} else {
-	    parentTerm.addComponent(newTerm);
+	StringReader input = new StringReader(source);
+	try {
+	    return load(factory, factory.createXMLStreamReader(input), source, layers, symbolTable);
+	} finally {
+	    // The JDK factory keeps its last reader to reuse it; closing the input releases the source of the document
+	    input.close();
 	}
-	List<Element> externalReferencesElems = termElem.getChildren("externalReferences");
-	if (externalReferencesElems.size() > 0) {
-	    List<ExternalRef> externalRefs = getExternalReferences(externalReferencesElems.get(0), kaf);
-	    newTerm.addExternalRefs(externalRefs);
+    }
+
+    /** Loads a KAFDocument object pulling the XML events of the given reader, without building a DOM tree. The reader is closed. */
+    private static KAFDocument load(XMLInputFactory factory, XMLStreamReader reader, String source, Set<Layer> layers, SymbolTable symbolTable) throws XMLStreamException, JDOMException, KAFNotValidException {
+	try {
+	    StAXLoader loader = new StAXLoader(factory, reader, layers);
+	    loader.setSource(source);
+	    loader.setSymbolTable(symbolTable);
+	    return loader.load();
+	} finally {
+	    reader.close();
 	}
-	termIndex.put(newTerm.getId(), newTerm);
     }
 
-    private static Term.Sentiment DOMToSentiment(Element sentimentElem, KAFDocument kaf) {
-	Term.Sentiment newSentiment = kaf.newSentiment();
-	String sentResource = getOptAttribute("resource", sentimentElem);
-	if (sentResource != null) {
-	    newSentiment.setResource(sentResource);
-	}
-	String sentPolarity = getOptAttribute("polarity", sentimentElem);
-	if (sentPolarity != null) {
-	    newSentiment.setPolarity(sentPolarity);
-	}		
-	String sentStrength = getOptAttribute("strength", sentimentElem);
-	if (sentStrength != null) {
-	    newSentiment.setStrength(sentStrength);
-	}
-	String sentSubjectivity = getOptAttribute("subjectivity", sentimentElem);
-	if (sentSubjectivity != null) {
-	    newSentiment.setSubjectivity(sentSubjectivity);
-	}
-	String sentSentimentSemanticType = getOptAttribute("sentiment_semantic_type", sentimentElem);
-	if (sentSentimentSemanticType != null) {
-	    newSentiment.setSentimentSemanticType(sentSentimentSemanticType);
-	}
-	String sentSentimentModifier = getOptAttribute("sentiment_modifier", sentimentElem);
-	if (sentSentimentModifier != null) {
-	    newSentiment.setSentimentModifier(sentSentimentModifier);
-	}
-	String sentSentimentMarker = getOptAttribute("sentiment_marker", sentimentElem);
-	if (sentSentimentMarker != null) {
-	    newSentiment.setSentimentMarker(sentSentimentMarker);
-	}
-	String sentSentimentProductFeature = getOptAttribute("sentiment_product_feature", sentimentElem);
-	if (sentSentimentProductFeature != null) {
-	    newSentiment.setSentimentProductFeature(sentSentimentProductFeature);
-	}
-        return newSentiment;
+    /** Reads the text of an XML file in the encoding its declaration gives (UTF-8 if none), decoding it as it is read. */
+    private static String readSource(XMLInputFactory factory, InputStream stream, long sizeHint) throws IOException, XMLStreamException {
+	if (!stream.markSupported()) {
+	    stream = new BufferedInputStream(stream, BUFFER_SIZE);
+	}
+	stream.mark(BUFFER_SIZE);
+	XMLStreamReader encodingReader = factory.createXMLStreamReader(stream);
+	String encoding = encodingReader.getEncoding();
+	encodingReader.close();
+	stream.reset();
+	return readSource(new InputStreamReader(stream, (encoding != null) ? encoding : "UTF-8"), sizeHint);
     }
-    
-    private static Factuality.FactVal DOMToFactVal(Element factValElem, KAFDocument kaf) {
-	String value = getAttribute("value", factValElem);
-	String resource = getAttribute("resource", factValElem);
-	Factuality.FactVal newFactVal = kaf.newFactVal(value, resource);
-	String source = getOptAttribute("source", factValElem);
-	if (source != null) {
-	    newFactVal.setSource(source);
-	}
-	String confidence = getOptAttribute("confidence", factValElem);
-	if (confidence != null) {
-	    newFactVal.setConfidence(Float.valueOf(confidence));
-	}
-	return newFactVal;
+
+    /** Reads the whole content of a reader. The size hint (0 if unknown) saves growing the buffer. */
+    private static String readSource(Reader stream, long sizeHint) throws IOException {
+	StringBuilder source = new StringBuilder((sizeHint > 0) && (sizeHint < Integer.MAX_VALUE) ? (int) sizeHint : 8192);
+	char[] buffer = new char[8192];
+	int length;
+	while ((length = stream.read(buffer)) != -1) {
+	    source.append(buffer, 0, length);
+	}
+	return source.toString();
     }
 
+    /** Opens a file for reading, decompressing it if it is gzipped (whatever its name is). */
+    private static InputStream openFile(File file) throws IOException {
+	InputStream stream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+	try {
+	    stream.mark(2);
+	    int b1 = stream.read();
+	    int b2 = stream.read();
+	    stream.reset();
+	    if ((b1 == (GZIPInputStream.GZIP_MAGIC & 0xFF)) && (b2 == (GZIPInputStream.GZIP_MAGIC >>> 8))) {
+		stream = new GZIPInputStream(stream, BUFFER_SIZE);
+	    }
+	} catch (IOException e) {
+	    stream.close();
+	    throw e;
+	}
+	return stream;
+    }
 
-    private static Span<Term> loadTermSpan(Element spanElem, HashMap<String, Term> terms, String objId) throws KAFNotValidException {
-	List<Element> targetElems = spanElem.getChildren("target");
-	if (targetElems.size() < 1) {
-	    throw new KAFNotValidException("A span element can not be empty");
-	}
-	Span<Term> span = KAFDocument.newTermSpan();
-	for (Element targetElem : targetElems) {
-	    String targetId = getAttribute("id", targetElem);
-	    boolean isHead = isHead(targetElem);
-	    Term targetTerm = terms.get(targetId);
-	    if (targetTerm == null) {
-		throw new KAFNotValidException("Term object " + targetId + " not found when loading object " + objId);
-	    }
-	    span.addTarget(targetTerm, isHead);
+    /** Writes the content of a given KAFDocument to a file. */
+    static void save(KAFDocument kaf, String filename) {
+	try {
+	    save(kaf, new File(filename));
+	} catch (Exception e) {
+	    System.out.println("Error writing to file");
 	}
-	return span;
     }
 
-    private static Element createTermSpanElem(Span<Term> span) {
-	Element spanElem = new Element("span");
-	for (Term term : span.getTargets()) {
-	    Element targetElem = new Element("target");
-	    String targetId = term.getId();
-	    targetElem.setAttribute("id", targetId);
-	    if (span.isHead(term)) {
-		targetElem.setAttribute("head", "yes");
-	    }
-	    spanElem.addContent(targetElem);
-	}
-	return spanElem;
+    /** Writes the content of a given KAFDocument to a file, serializing each layer as it goes. Files whose name ends with ".gz" are gzipped with the default compression level. */
+    static void save(KAFDocument kaf, File file) throws IOException {
+	THREAD_WRITERS.get().write(kaf, file);
     }
 
-    private static List<ExternalRef> getExternalReferences(Element externalReferencesElem, KAFDocument kaf) {
-	List<ExternalRef> externalRefs = new ArrayList<ExternalRef>();
-	List<Element> externalRefElems = externalReferencesElem.getChildren();
-	for (Element externalRefElem : externalRefElems) {
-	    ExternalRef externalRef = getExternalRef(externalRefElem, kaf);
-	    externalRefs.add(externalRef);
-	}
-	return externalRefs;
+    /** Writes the content of a given KAFDocument to a gzipped file, compressed with the given level (from 0 to 9, or -1 for the default level). */
+    static void save(KAFDocument kaf, File file, int compressionLevel) throws IOException {
+	THREAD_WRITERS.get().write(kaf, file, compressionLevel);
     }
 
-    private static ExternalRef getExternalRef(Element externalRefElem, KAFDocument kaf) {
-	String resource = getAttribute("resource", externalRefElem);
-	ExternalRef newExternalRef = kaf.newExternalRef(resource);
-	String references = getOptAttribute("reference", externalRefElem);
-	if (references != null) {
-	    newExternalRef.setReference(references);
-	}
-	String confidence = getOptAttribute("confidence", externalRefElem);
-	if (confidence != null) {
-	    newExternalRef.setConfidence(Float.valueOf(confidence));
-	}
-	String reftype = getOptAttribute("reftype", externalRefElem);
-	if (reftype != null) {
-	    newExternalRef.setReftype(reftype);
-	}
-	String status = getOptAttribute("status", externalRefElem);
-	if (status != null) {
-	    newExternalRef.setStatus(status);
-	}
-	String source = getOptAttribute("source", externalRefElem);
-	if (source != null) {
-	    newExternalRef.setSource(source);
-	}
-	List<Element> sentimentElems = externalRefElem.getChildren("sentiment");
-	if (sentimentElems.size() > 0) {
-	    Term.Sentiment sentiment = DOMToSentiment(sentimentElems.get(0), kaf);
-	    newExternalRef.setSentiment(sentiment);
-	}
-	List<Element> subRefElems = externalRefElem.getChildren("externalRef");
-	for(Element subRefElem :  subRefElems) {
-	    ExternalRef subRef = getExternalRef(subRefElem, kaf);
-	    newExternalRef.addExternalRef(subRef);
-	}
-	return newExternalRef;
+    /** Writes the content of a given KAFDocument to an output stream, encoded in UTF-8. The stream is not closed. */
+    static void save(KAFDocument kaf, OutputStream stream) throws IOException {
+	THREAD_WRITERS.get().write(kaf, stream);
     }
 
-    private static String getAttribute(String attName, Element elem) {
-	String value = elem.getAttributeValue(attName);
-	if (value==null) {
-	    throw new IllegalStateException(attName+" attribute must be defined for element "+elem.getName());
-	}
-	return value;
+    /** Writes the XML content of a given KAFDocument to a writer. The writer is flushed but not closed. */
+    static void write(KAFDocument kaf, Writer writer) throws IOException {
+	THREAD_WRITERS.get().write(kaf, writer);
     }
 
-    private static String getAttribute(String attName, Element elem, Namespace nmspace) {
-	String value = elem.getAttributeValue(attName, nmspace);
-	if (value==null) {
-	    throw new IllegalStateException(attName+" attribute must be defined for element "+elem.getName());
+    /** Writes the content of a KAFDocument object to standard output. */
+    static void print(KAFDocument kaf) {
+	try {
+	    write(kaf, new OutputStreamWriter(System.out, "UTF8"));
+	} catch (Exception e) {
+	    System.out.println(e);
 	}
-	return value;
     }
 
-    private static String getOptAttribute(String attName, Element elem) {
-	String value = elem.getAttributeValue(attName);
-	if (value==null) {
-	    return null;
-	}
-	return value;
+    /** Returns a string containing the XML content of a KAFDocument object. */
+    static String kafToStr(KAFDocument kaf) {
+	return THREAD_WRITERS.get().toString(kaf);
     }
 
-    private static boolean isHead(Element elem) {
-	String value = elem.getAttributeValue("head");
-	if (value == null) {
-	    return false;
-	}
-	if (value.equals("yes")) {
-	    return true;
+    /** Opens a file for writing, gzipping its content with the given level if it isn't null. */
+    static OutputStream createFile(File file, Integer compressionLevel) throws IOException {
+	OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+	if (compressionLevel != null) {
+	    try {
+		stream = new LevelGZIPOutputStream(stream, compressionLevel);
+	    } catch (IOException e) {
+		stream.close();
+		throw e;
+	    }
 	}
-	return false;
+	return stream;
+    }
+
+    /** Writes the XML content of a given KAFDocument through an emitter. The emitter is flushed. */
+    static void write(KAFDocument kaf, XMLEmitter out) throws IOException {
+	KAFToXML(kaf, out);
+	out.flush();
     }
 
+    /** A GZIPOutputStream which compresses with a given level */
+    private static class LevelGZIPOutputStream extends GZIPOutputStream {
+	LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+	    super(out, BUFFER_SIZE);
+	    def.setLevel(level);
+	}
+    }
 
     private static class Edge {
 	String id;
@@ -1323,699 +296,541 @@ class ReadWriteManager {
 	}
     }
 
-    /** Returns the content of the given KAFDocument in a DOM document. */
-    private static Document KAFToDOM(KAFDocument kaf) {
+    /** Writes the content of the given KAFDocument as XML, layer by layer. */
+    private static void KAFToXML(KAFDocument kaf, XMLEmitter out) throws IOException {
 	AnnotationContainer annotationContainer = kaf.getAnnotationContainer();
-	Element root = new Element("NAF");
-	root.setAttribute("lang", kaf.getLang(), Namespace.XML_NAMESPACE);
-	root.setAttribute("version", kaf.getVersion());
-
-	Document doc = new Document(root);
+	out.startDocument();
+	out.startElement("NAF");
+	out.attribute("xml:lang", kaf.getLang());
+	out.attribute("version", kaf.getVersion());
 
-	Element kafHeaderElem = new Element("nafHeader");
-	root.addContent(kafHeaderElem);
+	out.startElement("nafHeader");
 
 	KAFDocument.FileDesc fd = kaf.getFileDesc();
 	if (fd != null) {
-	    Element fdElem = new Element("fileDesc");
+	    out.startElement("fileDesc");
 	    if (fd.author != null) {
-		fdElem.setAttribute("author", fd.author);
+		out.attribute("author", fd.author);
 	    }
 	    if (fd.creationtime != null) {
-		fdElem.setAttribute("creationtime", fd.creationtime);
+		out.attribute("creationtime", fd.creationtime);
 	    }
 	    if (fd.title != null) {
-		fdElem.setAttribute("title", fd.title);
+		out.attribute("title", fd.title);
 	    }
 	    if (fd.publisher != null) {
-		fdElem.setAttribute("publisher", fd.publisher);
+		out.attribute("publisher", fd.publisher);
 	    }
 	    if (fd.section != null) {
-		fdElem.setAttribute("section", fd.section);
+		out.attribute("section", fd.section);
 	    }
 	    if (fd.location != null) {
-		fdElem.setAttribute("location", fd.location);
+		out.attribute("location", fd.location);
 	    }
 	    if (fd.magazine != null) {
-		fdElem.setAttribute("magazine", fd.magazine);
+		out.attribute("magazine", fd.magazine);
 	    }
 	    if (fd.filename != null) {
-		fdElem.setAttribute("filename", fd.filename);
+		out.attribute("filename", fd.filename);
 	    }
 	    if (fd.filetype != null) {
-		fdElem.setAttribute("filetype", fd.filetype);
+		out.attribute("filetype", fd.filetype);
 	    }
 	    if (fd.pages != null) {
-		fdElem.setAttribute("pages", Integer.toString(fd.pages));
+		out.attribute("pages", Integer.toString(fd.pages));
 	    }
-	    kafHeaderElem.addContent(fdElem);
+	    out.endElement();
 	}
 
 	KAFDocument.Public pub = kaf.getPublic();
 	if (pub != null) {
-	    Element pubElem = new Element("public");
+	    out.startElement("public");
 	    if (pub.publicId != null) {
-		pubElem.setAttribute("publicId", pub.publicId);
+		out.attribute("publicId", pub.publicId);
 	    }
 	    if (pub.uri != null) {
-		pubElem.setAttribute("uri", pub.uri);
+		out.attribute("uri", pub.uri);
 	    }
-	    kafHeaderElem.addContent(pubElem);
+	    out.endElement();
 	}
 
 	Map<String, List<KAFDocument.LinguisticProcessor>> lps = kaf.getLinguisticProcessors();
-	for (Map.Entry entry : lps.entrySet()) {
-	    Element lpsElem = new Element("linguisticProcessors");
-	    lpsElem.setAttribute("layer", (String) entry.getKey());
-	    for (KAFDocument.LinguisticProcessor lp : (List<KAFDocument.LinguisticProcessor>) entry.getValue()) {
-		Element lpElem = new Element("lp");
-		lpElem.setAttribute("name", lp.name);
+	for (Map.Entry<String, List<KAFDocument.LinguisticProcessor>> entry : lps.entrySet()) {
+	    out.startElement("linguisticProcessors");
+	    out.attribute("layer", entry.getKey());
+	    for (KAFDocument.LinguisticProcessor lp : entry.getValue()) {
+		out.startElement("lp");
+		out.attribute("name", lp.name);
 		if (lp.hasTimestamp()) {
-		    lpElem.setAttribute("timestamp", lp.timestamp);
+		    out.attribute("timestamp", lp.timestamp);
 		}
 		if (lp.hasBeginTimestamp()) {
-		    lpElem.setAttribute("beginTimestamp", lp.beginTimestamp);
+		    out.attribute("beginTimestamp", lp.beginTimestamp);
 		}
 		if (lp.hasEndTimestamp()) {
-		    lpElem.setAttribute("endTimestamp", lp.endTimestamp);
+		    out.attribute("endTimestamp", lp.endTimestamp);
 		}
 		if (lp.hasVersion()) {
-		    lpElem.setAttribute("version", lp.version);
+		    out.attribute("version", lp.version);
 		}
 		if (lp.hasHostname()) {
-		    lpElem.setAttribute("hostname", lp.hostname);
+		    out.attribute("hostname", lp.hostname);
 		}
-		lpsElem.addContent(lpElem);
+		out.endElement();
 	    }
-	    kafHeaderElem.addContent(lpsElem);
+	    out.endElement();
 	}
+	out.endElement();
 
 	String rawText = annotationContainer.getRawText();
 	if (rawText.length() > 0) {
-	    Element rawElem = new Element("raw");
-	    CDATA cdataElem =  new CDATA(rawText);
-	    rawElem.addContent(cdataElem);
-	    root.addContent(rawElem);
+	    out.startElement("raw");
+	    out.cdata(rawText);
+	    out.endElement();
 	}
 
 	List<WF> text = (List<WF>)(List<?>)annotationContainer.getLayer(Layer.TEXT);
-	if (text.size() > 0) {
-	    Element textElem = new Element("text");
+	if (!copyUnmodified(annotationContainer, "text", out, Layer.TEXT) && (text.size() > 0)) {
+	    out.startElement("text");
 	    for (WF wf : text) {
-		Element wfElem = new Element("wf");
-		wfElem.setAttribute("id", wf.getId());
-		wfElem.setAttribute("offset", Integer.toString(wf.getOffset()));
-		wfElem.setAttribute("length", Integer.toString(wf.getLength()));
-		wfElem.setAttribute("sent", Integer.toString(wf.getSent()));
+		out.startElement("wf");
+		out.attribute("id", wf.getId());
+		out.attribute("offset", Integer.toString(wf.getOffset()));
+		out.attribute("length", Integer.toString(wf.getLength()));
+		out.attribute("sent", Integer.toString(wf.getSent()));
 		if (wf.hasPara()) {
-		    wfElem.setAttribute("para", Integer.toString(wf.getPara()));
+		    out.attribute("para", Integer.toString(wf.getPara()));
 		}
 		if (wf.hasPage()) {
-		    wfElem.setAttribute("page", Integer.toString(wf.getPage()));
+		    out.attribute("page", Integer.toString(wf.getPage()));
 		}
 		if (wf.hasXpath()) {
-		    wfElem.setAttribute("xpath", wf.getXpath());
+		    out.attribute("xpath", wf.getXpath());
 		}
-		wfElem.setText(wf.getForm());
-		textElem.addContent(wfElem);
+		out.text(wf.getForm());
+		out.endElement();
 	    }
-	    root.addContent(textElem);
+	    out.endElement();
 	}
 
 	List<Term> terms = (List<Term>)(List<?>)annotationContainer.getLayer(Layer.TERMS);
-	if (terms.size() > 0) {
-	    Element termsElem = new Element("terms");
+	if (!copyUnmodified(annotationContainer, "terms", out, Layer.TERMS) && (terms.size() > 0)) {
+	    out.startElement("terms");
 	    for (Term term : terms) {
-		termToDOM(term, false, termsElem);
+		termToXML(term, false, out);
 	    }
-	    root.addContent(termsElem);
+	    out.endElement();
 	}
 
 	List<Mark> marks = (List<Mark>)(List<?>)annotationContainer.getLayer(Layer.MARKABLES);
-	if (marks.size() > 0) {
-	    Element marksElem = new Element("markables");
+	if (!copyUnmodified(annotationContainer, "markables", out, Layer.MARKABLES) && (marks.size() > 0)) {
+	    out.startElement("markables");
 	    for (Mark mark : marks) {
-		Comment markComment = new Comment(StringEscapeUtils.escapeXml11(mark.getStr()));
-		marksElem.addContent(markComment);
-		Element markElem = new Element("mark");
-		markElem.setAttribute("id", mark.getId());
+		if (out.writesComments()) {
+		    out.comment(StringEscapeUtils.escapeXml11(mark.getStr()));
+		}
+		out.startElement("mark");
+		out.attribute("id", mark.getId());
 		if (mark.hasSource()) {
-		    markElem.setAttribute("source", mark.getSource());
+		    out.attribute("source", mark.getSource());
 		}
 		if (mark.hasType()) {
-		    markElem.setAttribute("type", mark.getType());
+		    out.attribute("type", mark.getType());
 		}
 		if (mark.hasLemma()) {
-		    markElem.setAttribute("lemma", mark.getLemma());
+		    out.attribute("lemma", mark.getLemma());
 		}
 		if (mark.hasPos()) {
-		    markElem.setAttribute("pos", mark.getPos());
+		    out.attribute("pos", mark.getPos());
 		}
 		if (mark.hasMorphofeat()) {
-		    markElem.setAttribute("morphofeat", mark.getMorphofeat());
+		    out.attribute("morphofeat", mark.getMorphofeat());
 		}
 		if (mark.hasCase()) {
-		    markElem.setAttribute("case", mark.getCase());
+		    out.attribute("case", mark.getCase());
 		}
 		if (mark.hasSentiment()) {
-		    markElem.addContent(sentimentToDOM(mark.getSentiment()));
-		}
-		Element spanElem = new Element("span");
-		Span<WF> span = mark.getSpan();
-		for (WF target : span.getTargets()) {
-		    Element targetElem = new Element("target");
-		    targetElem.setAttribute("id", target.getId());
-		    if (target == span.getHead()) {
-			targetElem.setAttribute("head", "yes");
-		    }
-		    spanElem.addContent(targetElem);
+		    sentimentToXML(mark.getSentiment(), out);
 		}
-		markElem.addContent(spanElem);
+		spanToXML(mark.getSpan(), out);
 		List<ExternalRef> externalReferences = mark.getExternalRefs();
 		if (externalReferences.size() > 0) {
-		    Element externalReferencesElem = externalReferencesToDOM(externalReferences);
-		    markElem.addContent(externalReferencesElem);
+		    externalReferencesToXML(externalReferences, out);
 		}
-		marksElem.addContent(markElem);
+		out.endElement();
 	    }
-	    root.addContent(marksElem);
+	    out.endElement();
 	}
 
 	List<Dep> deps = (List<Dep>)(List<?>)annotationContainer.getLayer(Layer.DEPS);
-	if (deps.size() > 0) {
-	    Element depsElem = new Element("deps");
+	if (!copyUnmodified(annotationContainer, "deps", out, Layer.DEPS) && (deps.size() > 0)) {
+	    out.startElement("deps");
 	    for (Dep dep : deps) {
-		Comment depComment = new Comment(StringEscapeUtils.escapeXml11(dep.getStr()));
-		depsElem.addContent(depComment);
-		Element depElem = new Element("dep");
-		depElem.setAttribute("from", dep.getFrom().getId());
-		depElem.setAttribute("to", dep.getTo().getId());
-		depElem.setAttribute("rfunc", dep.getRfunc());
+		if (out.writesComments()) {
+		    out.comment(StringEscapeUtils.escapeXml11(dep.getStr()));
+		}
+		out.startElement("dep");
+		out.attribute("from", dep.getFrom().getId());
+		out.attribute("to", dep.getTo().getId());
+		out.attribute("rfunc", dep.getRfunc());
 		if (dep.hasCase()) {
-		    depElem.setAttribute("case", dep.getCase());
+		    out.attribute("case", dep.getCase());
 		}
-		depsElem.addContent(depElem);
+		out.endElement();
 	    }
-	    root.addContent(depsElem);
+	    out.endElement();
 	}
 
 	List<Chunk> chunks = (List<Chunk>)(List<?>)annotationContainer.getLayer(Layer.CHUNKS);
-	if (chunks.size() > 0) {
-	    Element chunksElem = new Element("chunks");
+	if (!copyUnmodified(annotationContainer, "chunks", out, Layer.CHUNKS) && (chunks.size() > 0)) {
+	    out.startElement("chunks");
 	    for (Chunk chunk : chunks) {
-		Comment chunkComment = new Comment(StringEscapeUtils.escapeXml11(chunk.getStr()));
-		chunksElem.addContent(chunkComment);
-		Element chunkElem = new Element("chunk");
-		chunkElem.setAttribute("id", chunk.getId());
-		chunkElem.setAttribute("head", chunk.getHead().getId());
+		if (out.writesComments()) {
+		    out.comment(StringEscapeUtils.escapeXml11(chunk.getStr()));
+		}
+		out.startElement("chunk");
+		out.attribute("id", chunk.getId());
+		out.attribute("head", chunk.getHead().getId());
 		if (chunk.hasPhrase()) {
-		    chunkElem.setAttribute("phrase", chunk.getPhrase());
+		    out.attribute("phrase", chunk.getPhrase());
 		}
 		if (chunk.hasCase()) {
-		    chunkElem.setAttribute("case", chunk.getCase());
+		    out.attribute("case", chunk.getCase());
 		}
-		Element spanElem = new Element("span");
+		out.startElement("span");
 		for (Term target : chunk.getTerms()) {
-		    Element targetElem = new Element("target");
-		    targetElem.setAttribute("id", target.getId());
-		    spanElem.addContent(targetElem);
+		    out.startElement("target");
+		    out.attribute("id", target.getId());
+		    out.endElement();
 		}
-		chunkElem.addContent(spanElem);
-		chunksElem.addContent(chunkElem);
+		out.endElement();
+		out.endElement();
 	    }
-	    root.addContent(chunksElem);
+	    out.endElement();
 	}
 
 	List<Entity> entities = (List<Entity>)(List<?>)annotationContainer.getLayer(Layer.ENTITIES);
-	if (entities.size() > 0) {
-	    Element entitiesElem = new Element("entities");
+	if (!copyUnmodified(annotationContainer, "entities", out, Layer.ENTITIES) && (entities.size() > 0)) {
+	    out.startElement("entities");
 	    for (Entity entity : entities) {
-		Element entityElem = new Element("entity");
-		entityElem.setAttribute("id", entity.getId());
+		out.startElement("entity");
+		out.attribute("id", entity.getId());
 		if (entity.hasType()) {
-		    entityElem.setAttribute("type", entity.getType());
+		    out.attribute("type", entity.getType());
 		}
 		if (entity.hasSource()) {
-		    entityElem.setAttribute("source", entity.getSource());
+		    out.attribute("source", entity.getSource());
 		}
-		Element referencesElem = new Element("references");
+		out.startElement("references");
 		for (Span<Term> span : entity.getSpans()) {
-		    Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(entity.getSpanStr(span)));
-		    referencesElem.addContent(spanComment);
-		    Element spanElem = new Element("span");
-		    for (Term term : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", term.getId());
-			if (term == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(entity.getSpanStr(span)));
 		    }
-		    referencesElem.addContent(spanElem);
+		    spanToXML(span, out);
 		}
-		entityElem.addContent(referencesElem);
+		out.endElement();
 		List<ExternalRef> externalReferences = entity.getExternalRefs();
 		if (externalReferences.size() > 0) {
-		    Element externalReferencesElem = externalReferencesToDOM(externalReferences);
-		    entityElem.addContent(externalReferencesElem);
+		    externalReferencesToXML(externalReferences, out);
 		}
-		entitiesElem.addContent(entityElem);
+		out.endElement();
 	    }
-	    root.addContent(entitiesElem);
+	    out.endElement();
 	}
 
 	List<Coref> corefs = (List<Coref>)(List<?>)annotationContainer.getLayer(Layer.COREFERENCES);
-	if (corefs.size() > 0) {
-	    Element corefsElem = new Element("coreferences");
+	if (!copyUnmodified(annotationContainer, "coreferences", out, Layer.COREFERENCES) && (corefs.size() > 0)) {
+	    out.startElement("coreferences");
 	    for (Coref coref : corefs) {
-		Element corefElem = new Element("coref");
-		corefElem.setAttribute("id", coref.getId());
+		out.startElement("coref");
+		out.attribute("id", coref.getId());
 		if (coref.hasType()) {
-		    corefElem.setAttribute("type", coref.getType());
+		    out.attribute("type", coref.getType());
 		}
 		for (Span<Term> span : coref.getSpans()) {
-		    Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(coref.getSpanStr(span)));
-		    corefElem.addContent(spanComment);
-		    Element spanElem = new Element("span");
-		    for (Term target : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", target.getId());
-			if (target == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(coref.getSpanStr(span)));
 		    }
-		    corefElem.addContent(spanElem);
+		    spanToXML(span, out);
 		}
 		List<ExternalRef> externalReferences = coref.getExternalRefs();
 		if (externalReferences.size() > 0) {
-		    Element externalReferencesElem = externalReferencesToDOM(externalReferences);
-		    corefElem.addContent(externalReferencesElem);
+		    externalReferencesToXML(externalReferences, out);
 		}
-		corefsElem.addContent(corefElem);
+		out.endElement();
 	    }
-	    root.addContent(corefsElem);
+	    out.endElement();
 	}
 
 	List<Timex3> timeExs = (List<Timex3>)(List<?>)annotationContainer.getLayer(Layer.TIME_EXPRESSIONS);
-	if (timeExs.size() > 0){
-	    Element timeExsElem = new Element("timeExpressions");
+	if (!copyUnmodified(annotationContainer, "timeExpressions", out, Layer.TIME_EXPRESSIONS) && (timeExs.size() > 0)) {
+	    out.startElement("timeExpressions");
 	    for (Timex3 timex3 : timeExs) {
-		Element timex3Elem = new Element("timex3");
-		timex3Elem.setAttribute("id", timex3.getId());
-		timex3Elem.setAttribute("type", timex3.getType());
+		out.startElement("timex3");
+		out.attribute("id", timex3.getId());
+		out.attribute("type", timex3.getType());
 		if (timex3.hasBeginPoint()) {
-		    timex3Elem.setAttribute("beginPoint", timex3.getBeginPoint().getId());
+		    out.attribute("beginPoint", timex3.getBeginPoint().getId());
 		}
 		if (timex3.hasEndPoint()) {
-		    timex3Elem.setAttribute("endPoint", timex3.getEndPoint().getId());
+		    out.attribute("endPoint", timex3.getEndPoint().getId());
 		}
 		if (timex3.hasQuant()) {
-		    timex3Elem.setAttribute("quant", timex3.getQuant());
+		    out.attribute("quant", timex3.getQuant());
 		}
 		if (timex3.hasFreq()) {
-		    timex3Elem.setAttribute("freq", timex3.getFreq());
+		    out.attribute("freq", timex3.getFreq());
 		}
 		if (timex3.hasFunctionInDocument()) {
-		    timex3Elem.setAttribute("functionInDocument", timex3.getFunctionInDocument());
+		    out.attribute("functionInDocument", timex3.getFunctionInDocument());
 		}
 		if (timex3.hasTemporalFunction()) {
 		    String tempFun = timex3.getTemporalFunction() ? "true" : "false";
-		    timex3Elem.setAttribute("temporalFunction", tempFun);
+		    out.attribute("temporalFunction", tempFun);
 		}
 		if (timex3.hasValue()) {
-		    timex3Elem.setAttribute("value", timex3.getValue());
+		    out.attribute("value", timex3.getValue());
 		}
 		if (timex3.hasValueFromFunction()) {
-		    timex3Elem.setAttribute("valueFromFunction", timex3.getValueFromFunction());
+		    out.attribute("valueFromFunction", timex3.getValueFromFunction());
 		}
 		if (timex3.hasMod()) {
-		    timex3Elem.setAttribute("mod", timex3.getMod());
+		    out.attribute("mod", timex3.getMod());
 		}
 		if (timex3.hasAnchorTimeId()) {
-		    timex3Elem.setAttribute("anchorTimeId", timex3.getAnchorTimeId());
+		    out.attribute("anchorTimeId", timex3.getAnchorTimeId());
 		}
 		if (timex3.hasComment()) {
-		    timex3Elem.setAttribute("comment", timex3.getComment());
+		    out.attribute("comment", timex3.getComment());
 		}
 		if (timex3.hasSpan()) {
 		    Span<WF> span = timex3.getSpan();
-		    Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(timex3.getSpanStr(span)));
-		    timex3Elem.addContent(spanComment);
-		    Element spanElem = new Element("span");
-		    for (WF target : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", target.getId());
-			if (target == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(timex3.getSpanStr(span)));
 		    }
-		    timex3Elem.addContent(spanElem);
-		}
-		/*
-		for (Span<WF> span : timex3.getSpans()) {
-		    Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(timex3.getSpanStr(span)));
-		    timex3Elem.addContent(spanComment);
-		    Element spanElem = new Element("span");
-		    for (WF target : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", target.getId());
-			if (target == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
-		    }
-		    timex3Elem.addContent(spanElem);
+		    spanToXML(span, out);
 		}
-		*/
-		timeExsElem.addContent(timex3Elem);
+		out.endElement();
 	    }
-	    root.addContent(timeExsElem);
+	    out.endElement();
 	}
-	
+
 	List<Factuality> factualities = (List<Factuality>)(List<?>)annotationContainer.getLayer(Layer.FACTUALITIES);
-	if (factualities.size() > 0) {
-		Element factsElement = new Element("factualities");
-		for (Factuality f : factualities) {
-			Element factElem = new Element("factuality");
-			factElem.setAttribute("id", f.getId());
-			Span<Term> span = f.getSpan();
-			Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(f.getSpanStr(span)));
-			factElem.addContent(spanComment);
-			Element spanElem = new Element("span");
-			for (Term term : span.getTargets()) {
-			    Element targetElem = new Element("target");
-			    targetElem.setAttribute("id", term.getId());
-			    if (term == span.getHead()) {
-				targetElem.setAttribute("head", "yes");
-			    }
-			    spanElem.addContent(targetElem);
-			}
-			factElem.addContent(spanElem);
-			for (Factuality.FactVal factVal : f.getFactVals()) {
-			    factElem.addContent(factValToDOM(factVal));			    
-			}
-			factsElement.addContent(factElem);
+	if (!copyUnmodified(annotationContainer, "factualities", out, Layer.FACTUALITIES) && (factualities.size() > 0)) {
+	    out.startElement("factualities");
+	    for (Factuality f : factualities) {
+		out.startElement("factuality");
+		out.attribute("id", f.getId());
+		Span<Term> span = f.getSpan();
+		if (out.writesComments()) {
+		    out.comment(StringEscapeUtils.escapeXml11(f.getSpanStr(span)));
+		}
+		spanToXML(span, out);
+		for (Factuality.FactVal factVal : f.getFactVals()) {
+		    factValToXML(factVal, out);
 		}
-		root.addContent(factsElement);
+		out.endElement();
+	    }
+	    out.endElement();
 	}
 
 	List<Factvalue> factValues = (List<Factvalue>)(List<?>)annotationContainer.getLayer(Layer.FACTUALITY_LAYER);
-	if (factValues.size() > 0) {
-		Element factsElement = new Element("factualitylayer");
-		for (Factvalue f : factValues) {
-			Element fact = new Element("factvalue");
-			fact.setAttribute("id", f.getId());
-			fact.setAttribute("prediction", f.getPrediction());
-			fact.setAttribute("confidence", Double.toString(f.getConfidence()));
-			/*
-			for (Factuality.FactualityPart p : f.getFactualityParts()) {
-				Element factPartial = new Element("factuality");
-				factPartial.setAttribute("prediction", p.getPrediction());
-				factPartial.setAttribute("confidence", Double.toString(p.getConfidence()));
-				fact.addContent(factPartial);
-			}
-			*/
-
-			factsElement.addContent(fact);
-		}
-		root.addContent(factsElement);
+	if (!copyUnmodified(annotationContainer, "factualityLayer", out, Layer.FACTUALITY_LAYER) && (factValues.size() > 0)) {
+	    out.startElement("factualitylayer");
+	    for (Factvalue f : factValues) {
+		out.startElement("factvalue");
+		out.attribute("id", f.getId());
+		out.attribute("prediction", f.getPrediction());
+		out.attribute("confidence", Double.toString(f.getConfidence()));
+		out.endElement();
+	    }
+	    out.endElement();
 	}
 
 	List<LinkedEntity> linkedEntities = (List<LinkedEntity>)(List<?>)annotationContainer.getLayer(Layer.LINKED_ENTITIES);
 	if (linkedEntities.size() > 0) {
-		Element linkedEntityElement = new Element("linkedEntities");
-		for (LinkedEntity e : linkedEntities) {
-			Element lEnt = new Element("linkedEntity");
-			lEnt.setAttribute("id", e.getId());
-			lEnt.setAttribute("resource", e.getResource());
-			lEnt.setAttribute("reference", e.getReference());
-			lEnt.setAttribute("confidence", Double.toString(e.getConfidence()));
-
-			Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(e.getSpanStr()));
-			lEnt.addContent(spanComment);
-			Element spanElem = new Element("span");
-			for (WF target : e.getWFs().getTargets()) {
-				Element targetElem = new Element("target");
-				targetElem.setAttribute("id", target.getId());
-				spanElem.addContent(targetElem);
-			}
-			lEnt.addContent(spanElem);
-
-			linkedEntityElement.addContent(lEnt);
+	    out.startElement("linkedEntities");
+	    for (LinkedEntity e : linkedEntities) {
+		out.startElement("linkedEntity");
+		out.attribute("id", e.getId());
+		out.attribute("resource", e.getResource());
+		out.attribute("reference", e.getReference());
+		out.attribute("confidence", Double.toString(e.getConfidence()));
+		if (out.writesComments()) {
+		    out.comment(StringEscapeUtils.escapeXml11(e.getSpanStr()));
+		}
+		out.startElement("span");
+		for (WF target : e.getWFs().getTargets()) {
+		    out.startElement("target");
+		    out.attribute("id", target.getId());
+		    out.endElement();
 		}
-		root.addContent(linkedEntityElement);
+		out.endElement();
+		out.endElement();
+	    }
+	    out.endElement();
 	}
 
-	Element featuresElem = new Element("features");
 	List<Feature> properties = (List<Feature>)(List<?>)annotationContainer.getLayer(Layer.PROPERTIES);
-	if (properties.size() > 0) {
-	    Element propertiesElem = new Element("properties");
-	    for (Feature property : properties) {
-		Element propertyElem = new Element("property");
-		propertyElem.setAttribute("id", property.getId());
-		propertyElem.setAttribute("lemma", property.getLemma());
-		List<Span<Term>> references = property.getSpans();
-		Element referencesElem = new Element("references");
-		for (Span<Term> span : references) {
-		    Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(property.getSpanStr(span)));
-		    referencesElem.addContent(spanComment);
-		    Element spanElem = new Element("span");
-		    for (Term term : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", term.getId());
-			if (term == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
-		    }
-		    referencesElem.addContent(spanElem);
+	List<Feature> categories = (List<Feature>)(List<?>)annotationContainer.getLayer(Layer.CATEGORIES);
+	if (!copyUnmodified(annotationContainer, "features", out, Layer.PROPERTIES, Layer.CATEGORIES) && ((properties.size() > 0) || (categories.size() > 0))) {
+	    out.startElement("features");
+	    if (properties.size() > 0) {
+		out.startElement("properties");
+		for (Feature property : properties) {
+		    featureToXML(property, "property", out);
 		}
-		propertyElem.addContent(referencesElem);
-		propertiesElem.addContent(propertyElem);
+		out.endElement();
 	    }
-	    featuresElem.addContent(propertiesElem);
-	}
-	List<Feature> categories = (List<Feature>)(List<?>)annotationContainer.getLayer(Layer.CATEGORIES);
-	if (categories.size() > 0) {
-	    Element categoriesElem = new Element("categories");
-	    for (Feature category : categories) {
-		Element categoryElem = new Element("category");
-		categoryElem.setAttribute("id", category.getId());
-		categoryElem.setAttribute("lemma", category.getLemma());
-		List<Span<Term>> references = category.getSpans();
-		Element referencesElem = new Element("references");
-		for (Span<Term> span : references) {
-		    Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(category.getSpanStr(span)));
-		    referencesElem.addContent(spanComment);
-		    Element spanElem = new Element("span");
-		    for (Term term : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", term.getId());
-			if (term == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
-		    }
-		    referencesElem.addContent(spanElem);
+	    if (categories.size() > 0) {
+		out.startElement("categories");
+		for (Feature category : categories) {
+		    featureToXML(category, "category", out);
 		}
-		categoryElem.addContent(referencesElem);
-		categoriesElem.addContent(categoryElem);
+		out.endElement();
 	    }
-	    featuresElem.addContent(categoriesElem);
-	}
-	if (featuresElem.getChildren().size() > 0) {
-	    root.addContent(featuresElem);
+	    out.endElement();
 	}
 
 	List<Opinion> opinions = (List<Opinion>)(List<?>)annotationContainer.getLayer(Layer.OPINIONS);
-	if (opinions.size() > 0) {
-	    Element opinionsElem = new Element("opinions");
+	if (!copyUnmodified(annotationContainer, "opinions", out, Layer.OPINIONS) && (opinions.size() > 0)) {
+	    out.startElement("opinions");
 	    for (Opinion opinion : opinions) {
-		Element opinionElem = new Element("opinion");
-		opinionElem.setAttribute("id", opinion.getId());
+		out.startElement("opinion");
+		out.attribute("id", opinion.getId());
 		Opinion.OpinionHolder holder = opinion.getOpinionHolder();
 		if (holder != null) {
-		    Element opinionHolderElem = new Element("opinion_holder");
+		    out.startElement("opinion_holder");
 		    if (holder.hasType()) {
-			opinionHolderElem.setAttribute("type", holder.getType());
+			out.attribute("type", holder.getType());
 		    }
-		    Comment comment = new Comment(StringEscapeUtils.escapeXml11(opinion.getSpanStr(opinion.getOpinionHolder().getSpan())));
-		    opinionHolderElem.addContent(comment);
-		    List<Term> targets = holder.getTerms();
-		    Span<Term> span = holder.getSpan();
-		    if (targets.size() > 0) {
-			Element spanElem = new Element("span");
-			opinionHolderElem.addContent(spanElem);
-			for (Term target : targets) {
-			    Element targetElem = new Element("target");
-			    targetElem.setAttribute("id", target.getId());
-			    if (target == span.getHead()) {
-				targetElem.setAttribute("head", "yes");
-			    }
-			    spanElem.addContent(targetElem);
-			}
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(opinion.getSpanStr(holder.getSpan())));
+		    }
+		    if (holder.getTerms().size() > 0) {
+			spanToXML(holder.getSpan(), out);
 		    }
-		    opinionElem.addContent(opinionHolderElem);
+		    out.endElement();
 		}
 		Opinion.OpinionTarget opTarget = opinion.getOpinionTarget();
 		if (opTarget != null) {
-		    Element opinionTargetElem = new Element("opinion_target");
-		    Comment comment = new Comment(StringEscapeUtils.escapeXml11(opinion.getSpanStr(opinion.getOpinionTarget().getSpan())));
-		    opinionTargetElem.addContent(comment);
-		    List<Term> targets = opTarget.getTerms();
-		    Span<Term> span = opTarget.getSpan();
-		    if (targets.size() > 0) {
-			Element spanElem = new Element("span");
-			opinionTargetElem.addContent(spanElem);
-			for (Term target : targets) {
-			    Element targetElem = new Element("target");
-			    targetElem.setAttribute("id", target.getId());
-			    if (target == span.getHead()) {
-				targetElem.setAttribute("head", "yes");
-			    }
-			    spanElem.addContent(targetElem);
-			}
+		    out.startElement("opinion_target");
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(opinion.getSpanStr(opTarget.getSpan())));
 		    }
-		    opinionElem.addContent(opinionTargetElem);
+		    if (opTarget.getTerms().size() > 0) {
+			spanToXML(opTarget.getSpan(), out);
+		    }
+		    out.endElement();
 		}
 		Opinion.OpinionExpression expression = opinion.getOpinionExpression();
 		if (expression != null) {
-		    Element opinionExpressionElem = new Element("opinion_expression");
-		    Comment comment = new Comment(StringEscapeUtils.escapeXml11(opinion.getSpanStr(opinion.getOpinionExpression().getSpan())));
-		    opinionExpressionElem.addContent(comment);
+		    out.startElement("opinion_expression");
 		    if (expression.hasPolarity()) {
-			opinionExpressionElem.setAttribute("polarity", expression.getPolarity());
+			out.attribute("polarity", expression.getPolarity());
 		    }
 		    if (expression.hasStrength()) {
-			opinionExpressionElem.setAttribute("strength", expression.getStrength());
+			out.attribute("strength", expression.getStrength());
 		    }
 		    if (expression.hasSubjectivity()) {
-			opinionExpressionElem.setAttribute("subjectivity", expression.getSubjectivity());
+			out.attribute("subjectivity", expression.getSubjectivity());
 		    }
 		    if (expression.hasSentimentSemanticType()) {
-		    opinionExpressionElem.setAttribute("sentiment_semantic_type", expression.getSentimentSemanticType());
+			out.attribute("sentiment_semantic_type", expression.getSentimentSemanticType());
 		    }
 		    if (expression.hasSentimentProductFeature()) {
-			opinionExpressionElem.setAttribute("sentiment_product_feature", expression.getSentimentProductFeature());
+			out.attribute("sentiment_product_feature", expression.getSentimentProductFeature());
 		    }
-		    List<Term> targets = expression.getTerms();
-		    Span<Term> span = expression.getSpan();
-		    if (targets.size() > 0) {
-			Element spanElem = new Element("span");
-			opinionExpressionElem.addContent(spanElem);
-			for (Term target : targets) {
-			    Element targetElem = new Element("target");
-			    targetElem.setAttribute("id", target.getId());
-			    if (target == span.getHead()) {
-				targetElem.setAttribute("head", "yes");
-			    }
-			    spanElem.addContent(targetElem);
-			}
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(opinion.getSpanStr(expression.getSpan())));
 		    }
-		    opinionElem.addContent(opinionExpressionElem);
+		    if (expression.getTerms().size() > 0) {
+			spanToXML(expression.getSpan(), out);
+		    }
+		    out.endElement();
 		}
-
-		opinionsElem.addContent(opinionElem);
+		out.endElement();
 	    }
-	    root.addContent(opinionsElem);
+	    out.endElement();
 	}
 
 	List<Relation> relations = (List<Relation>)(List<?>)annotationContainer.getLayer(Layer.RELATIONS);
-	if (relations.size() > 0) {
-	    Element relationsElem = new Element("relations");
+	if (!copyUnmodified(annotationContainer, "relations", out, Layer.RELATIONS) && (relations.size() > 0)) {
+	    out.startElement("relations");
 	    for (Relation relation : relations) {
-		Comment comment = new Comment(StringEscapeUtils.escapeXml11(relation.getStr()));
-		relationsElem.addContent(comment);
-		Element relationElem = new Element("relation");
-		relationElem.setAttribute("id", relation.getId());
-		relationElem.setAttribute("from", relation.getFrom().getId());
-		relationElem.setAttribute("to", relation.getTo().getId());
+		if (out.writesComments()) {
+		    out.comment(StringEscapeUtils.escapeXml11(relation.getStr()));
+		}
+		out.startElement("relation");
+		out.attribute("id", relation.getId());
+		out.attribute("from", relation.getFrom().getId());
+		out.attribute("to", relation.getTo().getId());
 		if (relation.hasConfidence()) {
-		    relationElem.setAttribute("confidence", String.valueOf(relation.getConfidence()));
+		    out.attribute("confidence", String.valueOf(relation.getConfidence()));
 		}
-		relationsElem.addContent(relationElem);
+		out.endElement();
 	    }
-	    root.addContent(relationsElem);
+	    out.endElement();
 	}
 
 	List<Predicate> predicates = (List<Predicate>)(List<?>)annotationContainer.getLayer(Layer.SRL);
-	if (predicates.size() > 0) {
-	    Element predicatesElem = new Element("srl");
+	if (!copyUnmodified(annotationContainer, "srl", out, Layer.SRL) && (predicates.size() > 0)) {
+	    out.startElement("srl");
 	    for (Predicate predicate : predicates) {
-		Comment predicateComment = new Comment(StringEscapeUtils.escapeXml11(predicate.getStr()));
-		predicatesElem.addContent(predicateComment);
-		Element predicateElem = new Element("predicate");
-		predicateElem.setAttribute("id", predicate.getId());
+		if (out.writesComments()) {
+		    out.comment(StringEscapeUtils.escapeXml11(predicate.getStr()));
+		}
+		out.startElement("predicate");
+		out.attribute("id", predicate.getId());
 		if (predicate.hasUri()) {
-		    predicateElem.setAttribute("uri", predicate.getUri());
+		    out.attribute("uri", predicate.getUri());
 		}
 		if (predicate.hasConfidence()) {
-		    predicateElem.setAttribute("confidence", Float.toString(predicate.getConfidence()));
+		    out.attribute("confidence", Float.toString(predicate.getConfidence()));
 		}
 		Span<Term> span = predicate.getSpan();
 		if (span.getTargets().size() > 0) {
-		    Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(predicate.getSpanStr()));
-		    Element spanElem = new Element("span");
-		    predicateElem.addContent(spanComment);
-		    predicateElem.addContent(spanElem);
-		    for (Term target : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", target.getId());
-			if (target == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(predicate.getSpanStr()));
 		    }
+		    spanToXML(span, out);
 		}
 		List<ExternalRef> externalReferences = predicate.getExternalRefs();
 		if (externalReferences.size() > 0) {
-		    Element externalReferencesElem = externalReferencesToDOM(externalReferences);
-		    predicateElem.addContent(externalReferencesElem);
+		    externalReferencesToXML(externalReferences, out);
 		}
 		for (Predicate.Role role : predicate.getRoles()) {
-		    Element roleElem = new Element("role");
-		    roleElem.setAttribute("id", role.getId());
-		    roleElem.setAttribute("semRole", role.getSemRole());
+		    out.startElement("role");
+		    out.attribute("id", role.getId());
+		    out.attribute("semRole", role.getSemRole());
 		    Span<Term> roleSpan = role.getSpan();
 		    if (roleSpan.getTargets().size() > 0) {
-			Comment spanComment = new Comment(StringEscapeUtils.escapeXml11(role.getStr()));
-			Element spanElem = new Element("span");
-			roleElem.addContent(spanComment);
-			roleElem.addContent(spanElem);
-			for (Term target : roleSpan.getTargets()) {
-			    Element targetElem = new Element("target");
-			    targetElem.setAttribute("id", target.getId());
-			    if (target == roleSpan.getHead()) {
-				targetElem.setAttribute("head", "yes");
-			    }
-			    spanElem.addContent(targetElem);
+			if (out.writesComments()) {
+			    out.comment(StringEscapeUtils.escapeXml11(role.getStr()));
 			}
+			spanToXML(roleSpan, out);
 		    }
 		    List<ExternalRef> rExternalReferences = role.getExternalRefs();
 		    if (rExternalReferences.size() > 0) {
-			Element externalReferencesElem = externalReferencesToDOM(rExternalReferences);
-			roleElem.addContent(externalReferencesElem);
+			externalReferencesToXML(rExternalReferences, out);
 		    }
-		    predicateElem.addContent(roleElem);
+		    out.endElement();
 		}
-		predicatesElem.addContent(predicateElem);
+		out.endElement();
 	    }
-	    root.addContent(predicatesElem);
+	    out.endElement();
 	}
 
         List<String> treeTypes = annotationContainer.getGroupIDs(AnnotationType.TREE);
-	if (treeTypes.size() > 0) {
-	    Element constituentsElem = new Element("constituency");	
+	if (!copyUnmodified(annotationContainer, "constituency", out, Layer.CONSTITUENCY) && (treeTypes.size() > 0)) {
+	    out.startElement("constituency");
 	    for (String type : treeTypes) {
 		List<Tree> trees = (List<Tree>)(List<?>)annotationContainer.getLayer(Layer.CONSTITUENCY, type);
 		for (Tree tree : trees) {
-		    Element treeElem = new Element("tree");
+		    out.startElement("tree");
 		    if (!tree.getType().equals(annotationContainer.DEFAULT_GROUP)) {
-			treeElem.setAttribute("type", tree.getType());
+			out.attribute("type", tree.getType());
 		    }
-		    constituentsElem.addContent(treeElem);
 		    List<NonTerminal> nonTerminals = new LinkedList<NonTerminal>();
 		    List<Terminal> terminals = new LinkedList<Terminal>();
 		    List<Edge> edges = new ArrayList<Edge>();
@@ -2023,7 +838,7 @@ class ReadWriteManager {
 		    extractTreeNodes(rootNode, nonTerminals, terminals, edges);
 		    Collections.sort(nonTerminals, new Comparator<NonTerminal>() {
 			    public int compare(NonTerminal nt1, NonTerminal nt2) {
-				if (cmpId(nt1.getId(), nt2.getId()) < 0) {
+				if (cmpId(nt1, nt2) < 0) {
 				    return -1;
 				} else if (nt1.getId().equals(nt2.getId())) {
 				    return 0;
@@ -2034,7 +849,7 @@ class ReadWriteManager {
 			});
 		    Collections.sort(terminals, new Comparator<Terminal>() {
 			    public int compare(Terminal t1, Terminal t2) {
-				if (cmpId(t1.getId(), t2.getId()) < 0) {
+				if (cmpId(t1, t2) < 0) {
 				    return -1;
 				} else if (t1.getId().equals(t2.getId())) {
 				    return 0;
@@ -2043,244 +858,246 @@ class ReadWriteManager {
 				}
 			    }
 			});
-		    Comment ntCom = new Comment("Non-terminals");
-		    treeElem.addContent(ntCom);
+		    out.comment("Non-terminals");
 		    for (NonTerminal node : nonTerminals) {
-			Element nodeElem = new Element("nt");
-			nodeElem.setAttribute("id", node.getId());
-			nodeElem.setAttribute("label", node.getLabel());
-			treeElem.addContent(nodeElem);
+			out.startElement("nt");
+			out.attribute("id", node.getId());
+			out.attribute("label", node.getLabel());
+			out.endElement();
 		    }
-		    Comment tCom = new Comment("Terminals");
-		    treeElem.addContent(tCom);
+		    out.comment("Terminals");
 		    for (Terminal node : terminals) {
-			Element nodeElem = new Element("t");
-			nodeElem.setAttribute("id", node.getId());
-			nodeElem.addContent(createTermSpanElem(node.getSpan()));
 			// Comment
-			Comment tStrCom = new Comment(StringEscapeUtils.escapeXml11(node.getStr()));
-			treeElem.addContent(tStrCom);
-			treeElem.addContent(nodeElem);
+			if (out.writesComments()) {
+			    out.comment(StringEscapeUtils.escapeXml11(node.getStr()));
+			}
+			out.startElement("t");
+			out.attribute("id", node.getId());
+			spanToXML(node.getSpan(), out);
+			out.endElement();
 		    }
-		    Comment edgeCom = new Comment("Tree edges");
-		    treeElem.addContent(edgeCom);
+		    out.comment("Tree edges");
 		    for (Edge edge : edges) {
-			Element edgeElem = new Element("edge");
+			out.startElement("edge");
 			if (edge.id != null) {
-			    edgeElem.setAttribute("id", edge.id);
+			    out.attribute("id", edge.id);
 			}
-			edgeElem.setAttribute("from", edge.from);
-			edgeElem.setAttribute("to", edge.to);
+			out.attribute("from", edge.from);
+			out.attribute("to", edge.to);
 			if (edge.head) {
-			    edgeElem.setAttribute("head", "yes");
+			    out.attribute("head", "yes");
 			}
-			treeElem.addContent(edgeElem);
+			out.endElement();
 		    }
-		}  
+		    out.endElement();
+		}
 	    }
-	    root.addContent(constituentsElem); 
+	    out.endElement();
 	}
 
 	List<Annotation> tempRels = (List<Annotation>)(List<?>)annotationContainer.getLayer(Layer.TEMPORAL_RELATIONS);
-	if (tempRels.size() > 0) {
-	    Element tempRelsElem = new Element("temporalRelations");
+	if (!copyUnmodified(annotationContainer, "temporalRelations", out, Layer.TEMPORAL_RELATIONS) && (tempRels.size() > 0)) {
+	    out.startElement("temporalRelations");
 	    for (Annotation tempRel : tempRels) {
 		if (tempRel instanceof TLink) {
 		    TLink tLink = (TLink)tempRel;
-		    Comment tLinkComment = new Comment
-			(StringEscapeUtils.escapeXml11(tLink.getRelType() + "(" + tLink.getFrom().getId() + ", " + tLink.getTo().getId() + ")"));
-		    tempRelsElem.addContent(tLinkComment);
-		    Element tLinkElem = new Element("tlink");
-		    tLinkElem.setAttribute("id", tLink.getId());
-		    tLinkElem.setAttribute("from", tLink.getFrom().getId());
-		    tLinkElem.setAttribute("to", tLink.getTo().getId());
-		    tLinkElem.setAttribute("fromType", tLink.getFromType());
-		    tLinkElem.setAttribute("toType", tLink.getToType());
-		    tLinkElem.setAttribute("relType", tLink.getRelType());
-		    tempRelsElem.addContent(tLinkElem);
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(tLink.getRelType() + "(" + tLink.getFrom().getId() + ", " + tLink.getTo().getId() + ")"));
+		    }
+		    out.startElement("tlink");
+		    out.attribute("id", tLink.getId());
+		    out.attribute("from", tLink.getFrom().getId());
+		    out.attribute("to", tLink.getTo().getId());
+		    out.attribute("fromType", tLink.getFromType());
+		    out.attribute("toType", tLink.getToType());
+		    out.attribute("relType", tLink.getRelType());
+		    out.endElement();
 		} else if (tempRel instanceof PredicateAnchor) {
 		    PredicateAnchor predAnchor = (PredicateAnchor)tempRel;
-		    Element predAnchorElem = new Element("predicateAnchor");
-		    predAnchorElem.setAttribute("id", predAnchor.getId());
-		    if (predAnchor.hasAnchorTime()) predAnchorElem.setAttribute("anchorTime", predAnchor.getAnchorTime().getId());
-		    if (predAnchor.hasBeginPoint()) predAnchorElem.setAttribute("beginPoint", predAnchor.getBeginPoint().getId());
-		    if (predAnchor.hasEndPoint()) predAnchorElem.setAttribute("endPoint", predAnchor.getEndPoint().getId());
-		    Element spanElem = new Element("span");
-		    Span<Predicate> span = predAnchor.getSpan();
-		    for (Predicate target : span.getTargets()) {
-			Element targetElem = new Element("target");
-			targetElem.setAttribute("id", target.getId());
-			if (target == span.getHead()) {
-			    targetElem.setAttribute("head", "yes");
-			}
-			spanElem.addContent(targetElem);
-		    }
-		    predAnchorElem.addContent(spanElem);
-		    tempRelsElem.addContent(predAnchorElem);
+		    out.startElement("predicateAnchor");
+		    out.attribute("id", predAnchor.getId());
+		    if (predAnchor.hasAnchorTime()) out.attribute("anchorTime", predAnchor.getAnchorTime().getId());
+		    if (predAnchor.hasBeginPoint()) out.attribute("beginPoint", predAnchor.getBeginPoint().getId());
+		    if (predAnchor.hasEndPoint()) out.attribute("endPoint", predAnchor.getEndPoint().getId());
+		    spanToXML(predAnchor.getSpan(), out);
+		    out.endElement();
 		}
 	    }
-	    root.addContent(tempRelsElem);
+	    out.endElement();
 	}
 
 	List<CLink> cLinks = (List<CLink>)(List<?>)annotationContainer.getLayer(Layer.CAUSAL_RELATIONS);
-	if (cLinks.size() > 0) {
-	    Element cLinksElem = new Element("causalRelations");
+	if (!copyUnmodified(annotationContainer, "causalRelations", out, Layer.CAUSAL_RELATIONS) && (cLinks.size() > 0)) {
+	    out.startElement("causalRelations");
 	    for (CLink cLink : cLinks) {
-		String commentStr = "";
-		if (cLink.hasRelType()) {
-		    commentStr += cLink.getRelType();
-		}
-		commentStr += "(" + cLink.getFrom().getId() + ", " + cLink.getTo().getId() + ")";
-		Comment cLinkComment = new Comment(StringEscapeUtils.escapeXml11(commentStr));
-		cLinksElem.addContent(cLinkComment);
-		Element cLinkElem = new Element("clink");
-		cLinkElem.setAttribute("id", cLink.getId());
-		cLinkElem.setAttribute("from", cLink.getFrom().getId());
-		cLinkElem.setAttribute("to", cLink.getTo().getId());
+		if (out.writesComments()) {
+		    String commentStr = "";
+		    if (cLink.hasRelType()) {
+			commentStr += cLink.getRelType();
+		    }
+		    commentStr += "(" + cLink.getFrom().getId() + ", " + cLink.getTo().getId() + ")";
+		    if (out.writesComments()) {
+			out.comment(StringEscapeUtils.escapeXml11(commentStr));
+		    }
+		}
+		out.startElement("clink");
+		out.attribute("id", cLink.getId());
+		out.attribute("from", cLink.getFrom().getId());
+		out.attribute("to", cLink.getTo().getId());
 		if (cLink.hasRelType()) {
-		    cLinkElem.setAttribute("relType", cLink.getRelType());
+		    out.attribute("relType", cLink.getRelType());
 		}
-		cLinksElem.addContent(cLinkElem);
+		out.endElement();
 	    }
-	    root.addContent(cLinksElem);
+	    out.endElement();
 	}
-	
+
 	List<Topic> topics = (List<Topic>)(List<?>)annotationContainer.getLayer(Layer.TOPICS);
-	if (topics.size() > 0) {
-	    Element topicsElem = new Element("topics");
+	if (!copyUnmodified(annotationContainer, "topics", out, Layer.TOPICS) && (topics.size() > 0)) {
+	    out.startElement("topics");
 	    for (Topic topic : topics) {
-		Element topicElem = new Element("topic");
-		topicElem.setText(topic.getTopicValue());
+		out.startElement("topic");
 		if (topic.hasSource()) {
-		    topicElem.setAttribute("source", topic.getSource());
+		    out.attribute("source", topic.getSource());
 		}
 		if (topic.hasMethod()) {
-		    topicElem.setAttribute("method", topic.getMethod());
+		    out.attribute("method", topic.getMethod());
 		}
 		if (topic.hasURI()) {
-		    topicElem.setAttribute("uri", topic.getURI());
+		    out.attribute("uri", topic.getURI());
 		}
 		if (topic.hasConfidence()) {
-		    topicElem.setAttribute("confidence", Double.toString(topic.getConfidence()));
+		    out.attribute("confidence", Double.toString(topic.getConfidence()));
 		}
-		topicsElem.addContent(topicElem);
+		out.text(topic.getTopicValue());
+		out.endElement();
 	    }
-	    root.addContent(topicsElem);
+	    out.endElement();
 	}
-	
+
 	List<Statement> statements = (List<Statement>)(List<?>)annotationContainer.getLayer(Layer.ATTRIBUTION);
-	if (statements.size() > 0) {
-	    Element attributionElem = new Element("attribution");
+	if (!copyUnmodified(annotationContainer, "attribution", out, Layer.ATTRIBUTION) && (statements.size() > 0)) {
+	    out.startElement("attribution");
 	    for (Statement statement : statements) {
-		Element statementElem = new Element("statement");
-		statementElem.setAttribute("id", statement.getId());
-		Statement.StatementTarget stTarget = statement.getTarget();
-		Element stTargetElem = new Element("statement_target");
-		statementElem.addContent(stTargetElem);
-		stTargetElem.addContent(spanToDOM(stTarget.getSpan()));
+		out.startElement("statement");
+		out.attribute("id", statement.getId());
+		out.startElement("statement_target");
+		spanToXML(statement.getTarget().getSpan(), out);
+		out.endElement();
 		if (statement.hasSource()) {
-		    Statement.StatementSource stSource = statement.getSource();
-		    Element stSourceElem = new Element("statement_source");
-		    statementElem.addContent(stSourceElem);
-		    stSourceElem.addContent(spanToDOM(stSource.getSpan()));
+		    out.startElement("statement_source");
+		    spanToXML(statement.getSource().getSpan(), out);
+		    out.endElement();
 		}
 		if (statement.hasCue()) {
-		    Statement.StatementCue stCue= statement.getCue();
-		    Element stCueElem = new Element("statement_cue");
-		    statementElem.addContent(stCueElem);
-		    stCueElem.addContent(spanToDOM(stCue.getSpan()));
+		    out.startElement("statement_cue");
+		    spanToXML(statement.getCue().getSpan(), out);
+		    out.endElement();
 		}
-		attributionElem.addContent(statementElem);
+		out.endElement();
 	    }
-	    root.addContent(attributionElem);
+	    out.endElement();
 	}
-	
-	
+
 	Set<Element> unknownLayers = annotationContainer.getUnknownLayers();
 	for (Element layer : unknownLayers) {
-	    layer.detach();
-	    root.addContent(layer);
+	    out.element(layer);
 	}
-	
 
-	return doc;
+	out.endElement();
+	out.endDocument();
     }
-    
-    private static <T extends IdentifiableAnnotation> Element spanToDOM(Span<T> span) {
-	Element spanElem = new Element("span");
-	for ( T target : span.getTargets()) {
-	    Element targetElem = new Element("target");
-	    targetElem.setAttribute("id", target.getId());
+
+    /** Copies the original XML of a layer if the layer was not loaded, or if it has not been modified since the document was loaded. Returns false if the layer has to be serialized, which is always the case for loaded layers in compact output. */
+    private static boolean copyUnmodified(AnnotationContainer annotationContainer, String element, XMLEmitter out, Layer... layers) throws IOException {
+	int[] passedThrough = annotationContainer.getPassedThroughRange(element);
+	if (passedThrough != null) {
+	    out.raw(annotationContainer.getSource(), passedThrough[0], passedThrough[1]);
+	    return true;
+	}
+	if (out.isCompact()) {
+	    return false; // The original XML has its own comments and indentation
+	}
+	int[] range = annotationContainer.getUnmodifiedSourceRange(element, layers);
+	if (range == null) {
+	    return false;
+	}
+	out.raw(annotationContainer.getSource(), range[0], range[1]);
+	return true;
+    }
+
+    private static <T extends IdentifiableAnnotation> void spanToXML(Span<T> span, XMLEmitter out) throws IOException {
+	out.startElement("span");
+	for (T target : span.getTargets()) {
+	    out.startElement("target");
+	    out.attribute("id", target.getId());
 	    if (target == span.getHead()) {
-		targetElem.setAttribute("head", "yes");
+		out.attribute("head", "yes");
 	    }
-	    spanElem.addContent(targetElem);
+	    out.endElement();
 	}
-	return spanElem;
+	out.endElement();
     }
 
-    private static void termToDOM(Term term, boolean isComponent, Element termsElem) {
-	String morphofeat;
-	Term head;
-	String termcase;
+    private static void featureToXML(Feature feature, String tag, XMLEmitter out) throws IOException {
+	out.startElement(tag);
+	out.attribute("id", feature.getId());
+	out.attribute("lemma", feature.getLemma());
+	out.startElement("references");
+	for (Span<Term> span : feature.getSpans()) {
+	    if (out.writesComments()) {
+		out.comment(StringEscapeUtils.escapeXml11(feature.getSpanStr(span)));
+	    }
+	    spanToXML(span, out);
+	}
+	out.endElement();
+	out.endElement();
+    }
+
+    private static void termToXML(Term term, boolean isComponent, XMLEmitter out) throws IOException {
 	if (!isComponent) {
-	    Comment termComment = new Comment(StringEscapeUtils.escapeXml11(term.getStr()));
-		//Comment termComment = new Comment(term.getStr());
-	    termsElem.addContent(termComment);
+	    if (out.writesComments()) {
+		out.comment(StringEscapeUtils.escapeXml11(term.getStr()));
+	    }
 	}
 	String tag = (isComponent) ? "component" : "term";
-	Element termElem = new Element(tag);
-	termElem.setAttribute("id", term.getId());
+	out.startElement(tag);
+	out.attribute("id", term.getId());
 	if (term.hasType()) {
-	    termElem.setAttribute("type", term.getType());
+	    out.attribute("type", term.getType());
 	}
 	if (term.hasLemma()) {
-		//System.err.println(StringEscapeUtils.escapeHtml4(term.getLemma())+" "+StringEscapeUtils.escapeXml11(term.getLemma()));
-	    termElem.setAttribute("lemma", StringEscapeUtils.escapeXml11(term.getLemma()));
+	    out.attribute("lemma", StringEscapeUtils.escapeXml11(term.getLemma()));
 	}
 	if (term.hasPos()) {
-	    termElem.setAttribute("pos", term.getPos());
+	    out.attribute("pos", term.getPos());
 	}
 	if (term.hasMorphofeat()) {
-	    termElem.setAttribute("morphofeat", term.getMorphofeat());
+	    out.attribute("morphofeat", term.getMorphofeat());
 	}
 	if (term.hasHead()) {
-	    termElem.setAttribute("head", term.getHead().getId());
+	    out.attribute("head", term.getHead().getId());
 	}
 	if (term.hasCase()) {
-	    termElem.setAttribute("case", term.getCase());
+	    out.attribute("case", term.getCase());
 	}
 	if (term.hasSentiment()) {
-	    Term.Sentiment sentiment = term.getSentiment();
-	    Element sentimentElem = sentimentToDOM(sentiment);
-	    termElem.addContent(sentimentElem);
+	    sentimentToXML(term.getSentiment(), out);
 	}
 	if (!isComponent) {
-	    Element spanElem = new Element("span");
-	    Span<WF> span = term.getSpan();
-	    for (WF target : term.getWFs()) {
-		Element targetElem = new Element("target");
-		targetElem.setAttribute("id", target.getId());
-		if (target == span.getHead()) {
-		    targetElem.setAttribute("head", "yes");
-		}
-		spanElem.addContent(targetElem);
-	    }
-	    termElem.addContent(spanElem);
-
+	    spanToXML(term.getSpan(), out);
 	    List<Term> components = term.getComponents();
 	    if (components.size() > 0) {
 		for (Term component : components) {
-		    termToDOM(component, true, termElem);
+		    termToXML(component, true, out);
 		}
 	    }
 	}
 	List<ExternalRef> externalReferences = term.getExternalRefs();
 	if (externalReferences.size() > 0) {
-	    Element externalReferencesElem = externalReferencesToDOM(externalReferences);
-	    termElem.addContent(externalReferencesElem);
+	    externalReferencesToXML(externalReferences, out);
 	}
-	termsElem.addContent(termElem);
+	out.endElement();
     }
 
     private static void extractTreeNodes(TreeNode node, List<NonTerminal> nonTerminals, List<Terminal> terminals, List<Edge> edges) {
@@ -2296,89 +1113,86 @@ class ReadWriteManager {
 	}
     }
 
-    private static Element externalReferencesToDOM(List<ExternalRef> externalRefs) {
-	Element externalReferencesElem = new Element("externalReferences");
+    private static void externalReferencesToXML(List<ExternalRef> externalRefs, XMLEmitter out) throws IOException {
+	out.startElement("externalReferences");
 	for (ExternalRef externalRef : externalRefs) {
-	    Element externalRefElem = externalRefToDOM(externalRef);
-	    externalReferencesElem.addContent(externalRefElem);
+	    externalRefToXML(externalRef, out);
 	}
-	return externalReferencesElem;
+	out.endElement();
     }
 
-    private static Element externalRefToDOM(ExternalRef externalRef) {
-	Element externalRefElem = new Element("externalRef");
-	externalRefElem.setAttribute("resource", externalRef.getResource());
+    private static void externalRefToXML(ExternalRef externalRef, XMLEmitter out) throws IOException {
+	out.startElement("externalRef");
+	out.attribute("resource", externalRef.getResource());
 	if (externalRef.hasReference()) {
-	    externalRefElem.setAttribute("reference", externalRef.getReference());
+	    out.attribute("reference", externalRef.getReference());
 	}
 	if (externalRef.hasConfidence()) {
-	    externalRefElem.setAttribute("confidence", Float.toString(externalRef.getConfidence()));
+	    out.attribute("confidence", Float.toString(externalRef.getConfidence()));
 	}
 	if (externalRef.hasReftype()) {
-	    externalRefElem.setAttribute("reftype", externalRef.getReftype());
+	    out.attribute("reftype", externalRef.getReftype());
 	}
 	if (externalRef.hasStatus()) {
-	    externalRefElem.setAttribute("status", externalRef.getStatus());
+	    out.attribute("status", externalRef.getStatus());
 	}
 	if (externalRef.hasSource()) {
-	    externalRefElem.setAttribute("source", externalRef.getSource());
+	    out.attribute("source", externalRef.getSource());
 	}
 	if (externalRef.hasSentiment()) {
-	    Element sentimentElem = sentimentToDOM(externalRef.getSentiment());
-	    externalRefElem.addContent(sentimentElem);
+	    sentimentToXML(externalRef.getSentiment(), out);
 	}
 	for(ExternalRef subExternalRef : externalRef.getExternalRefs()) {
-	    Element subExternalRefElem = externalRefToDOM(subExternalRef);
-	    externalRefElem.addContent(subExternalRefElem);
+	    externalRefToXML(subExternalRef, out);
 	}
-	return externalRefElem;
+	out.endElement();
     }
 
-    private static Element sentimentToDOM(Term.Sentiment sentiment) {
-	Element sentimentElem = new Element("sentiment");
+    private static void sentimentToXML(Term.Sentiment sentiment, XMLEmitter out) throws IOException {
+	out.startElement("sentiment");
 	if (sentiment.hasResource()) {
-	    sentimentElem.setAttribute("resource", sentiment.getResource());
+	    out.attribute("resource", sentiment.getResource());
 	}
 	if (sentiment.hasPolarity()) {
-	    sentimentElem.setAttribute("polarity", sentiment.getPolarity());
+	    out.attribute("polarity", sentiment.getPolarity());
 	}
 	if (sentiment.hasStrength()) {
-	    sentimentElem.setAttribute("strength", sentiment.getStrength());
+	    out.attribute("strength", sentiment.getStrength());
 	}
 	if (sentiment.hasSubjectivity()) {
-	    sentimentElem.setAttribute("subjectivity", sentiment.getSubjectivity());
+	    out.attribute("subjectivity", sentiment.getSubjectivity());
 	}
 	if (sentiment.hasSentimentSemanticType()) {
-	    sentimentElem.setAttribute("sentiment_semantic_type", sentiment.getSentimentSemanticType());
+	    out.attribute("sentiment_semantic_type", sentiment.getSentimentSemanticType());
 	}
 	if (sentiment.hasSentimentModifier()) {
-	    sentimentElem.setAttribute("sentiment_modifier", sentiment.getSentimentModifier());
+	    out.attribute("sentiment_modifier", sentiment.getSentimentModifier());
 	}
 	if (sentiment.hasSentimentMarker()) {
-	    sentimentElem.setAttribute("sentiment_marker", sentiment.getSentimentMarker());
+	    out.attribute("sentiment_marker", sentiment.getSentimentMarker());
 	}
 	if (sentiment.hasSentimentProductFeature()) {
-	    sentimentElem.setAttribute("sentiment_product_feature", sentiment.getSentimentProductFeature());
+	    out.attribute("sentiment_product_feature", sentiment.getSentimentProductFeature());
 	}
-	return sentimentElem;
+	out.endElement();
     }
-    
-    private static Element factValToDOM(Factuality.FactVal factVal) {
-	Element factValElem = new Element("factVal");
-	factValElem.setAttribute("value", factVal.getValue());
-	factValElem.setAttribute("resource", factVal.getResource());
+
+    private static void factValToXML(Factuality.FactVal factVal, XMLEmitter out) throws IOException {
+	out.startElement("factVal");
+	out.attribute("value", factVal.getValue());
+	out.attribute("resource", factVal.getResource());
 	if (factVal.hasSource()) {
-	    factValElem.setAttribute("source", factVal.getSource());
+	    out.attribute("source", factVal.getSource());
 	}
 	if (factVal.hasConfidence()) {
-	    factValElem.setAttribute("confidence", factVal.getConfidence().toString());
+	    out.attribute("confidence", factVal.getConfidence().toString());
 	}
-	return factValElem;
+	out.endElement();
     }
 
-    private static int cmpId(String id1, String id2) {
-	int nbr1 = extractNumberFromId(id1);
-	int nbr2 = extractNumberFromId(id2);
+    private static int cmpId(IdentifiableAnnotation ann1, IdentifiableAnnotation ann2) {
+	int nbr1 = extractNumberFromId(ann1);
+	int nbr2 = extractNumberFromId(ann2);
 	if (nbr1 < nbr2) {
 	    return -1;
 	} else if (nbr1 == nbr2) {
@@ -2388,12 +1202,12 @@ class ReadWriteManager {
 	}
     }
 
-    private static int extractNumberFromId(String id) {
-	Matcher matcher = Pattern.compile("^[a-z]*_?(\\d+)$").matcher(id);
-	if (!matcher.find()) {
-	    throw new IllegalStateException("IdManager doesn't recognise the given id's (" + id  + ") format. Should be [a-z]*_?[0-9]+");
+    private static int extractNumberFromId(IdentifiableAnnotation ann) {
+	int number = ann.getIdNumber();
+	if (number == IdCodec.NO_NUMBER) {
+	    throw new IllegalStateException("IdManager doesn't recognise the given id's (" + ann.getId()  + ") format. Should be [a-z]*_?[0-9]+");
 	}
-	return Integer.valueOf(matcher.group(1));
+	return number;
     }
 
 }
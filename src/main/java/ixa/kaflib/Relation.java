@@ -53,6 +53,7 @@ public class Relation extends IdentifiableAnnotation implements Serializable {
 
     public void setId(String id) {
 	this.id = id;
+	this.modified();
     }
 
     public Relational getFrom() {
@@ -61,6 +62,7 @@ public class Relation extends IdentifiableAnnotation implements Serializable {
 
     public void setFrom(Relational obj) {
 	this.from = obj;
+	this.modified();
     }
 
     public Relational getTo() {
@@ -69,6 +71,7 @@ public class Relation extends IdentifiableAnnotation implements Serializable {
 
     public void setTo(Relational obj) {
 	this.to = obj;
+	this.modified();
     }
 
     public boolean hasConfidence() {
@@ -87,6 +90,7 @@ public class Relation extends IdentifiableAnnotation implements Serializable {
 	    throw new IllegalStateException("Confidence's value in a relation must be >=0 and <=1. [0, 1].");
 	}
 	this.confidence = confidence;
+	this.modified();
     }
 
     public String getStr() {
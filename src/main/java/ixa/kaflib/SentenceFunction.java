@@ -0,0 +1,10 @@
+package ixa.kaflib;
+
+import java.util.List;
+
+/** Computes a value from the annotations of a sentence. Used by KAFDocument.mapSentences, which may call it from several threads at the same time. */
+public interface SentenceFunction<A extends Annotation, T> {
+
+    T apply(List<A> sentence);
+
+}
@@ -0,0 +1,92 @@
+package ixa.kaflib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/** Applies a function to the sentences of a document on a pool of worker threads.
+ * Sentences are split into runs of consecutive sentences, a few per thread, so that threads which end early can take more work.
+ * The results are returned in sentence order.
+ */
+class SentenceMapper {
+
+    /** Runs per thread */
+    private static final int RUNS_PER_THREAD = 4;
+
+    private SentenceMapper() {}
+
+    /** Maps the sentences, which are read-only lists (see AnnotationContainer.getSentences). */
+    @SuppressWarnings("unchecked")
+    static <A extends Annotation, T> List<T> map(List<List<Annotation>> sentences, final SentenceFunction<A, T> function, int threads) {
+	if (threads < 1) {
+	    throw new IllegalArgumentException("threads must be positive");
+	}
+	final List<List<A>> input = (List<List<A>>)(List<?>) sentences;
+	int numSentences = input.size();
+	List<T> results = new ArrayList<T>(numSentences);
+	if ((threads == 1) || (numSentences < 2)) {
+	    for (int i = 0; i < numSentences; i++) {
+		results.add(function.apply(input.get(i)));
+	    }
+	    return results;
+	}
+	int numThreads = Math.min(threads, numSentences);
+	int numRuns = Math.min(numThreads * RUNS_PER_THREAD, numSentences);
+	ExecutorService executor = Executors.newFixedThreadPool(numThreads, new WorkerFactory());
+	try {
+	    List<Future<List<T>>> runs = new ArrayList<Future<List<T>>>(numRuns);
+	    for (int run = 0; run < numRuns; run++) {
+		final int begin = (int) ((long) numSentences * run / numRuns);
+		final int end = (int) ((long) numSentences * (run + 1) / numRuns);
+		runs.add(executor.submit(new Callable<List<T>>() {
+			public List<T> call() {
+			    List<T> runResults = new ArrayList<T>(end - begin);
+			    for (int i = begin; i < end; i++) {
+				runResults.add(function.apply(input.get(i)));
+			    }
+			    return runResults;
+			}
+		    }));
+	    }
+	    for (Future<List<T>> run : runs) {
+		results.addAll(run.get());
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("Interrupted while processing the sentences", e);
+	} catch (ExecutionException e) {
+	    Throwable cause = e.getCause();
+	    if (cause instanceof RuntimeException) {
+		throw (RuntimeException) cause;
+	    }
+	    if (cause instanceof Error) {
+		throw (Error) cause;
+	    }
+	    throw new IllegalStateException(cause);
+	} finally {
+	    executor.shutdownNow();
+	}
+	return results;
+    }
+
+
+    private static class WorkerFactory implements ThreadFactory {
+
+	private static final AtomicInteger pools = new AtomicInteger();
+	private final int pool = pools.incrementAndGet();
+	private final AtomicInteger count = new AtomicInteger();
+
+	public Thread newThread(Runnable runnable) {
+	    Thread thread = new Thread(runnable, "naf-sentences-" + pool + "-" + count.incrementAndGet());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+}
@@ -0,0 +1,46 @@
+package ixa.kaflib;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+
+
+/** The serialized form of a KAFDocument: the document in the binary format plus the ID counters.
+ * The annotation indexes are not written; they are built again as the annotations are created on read.
+ */
+class SerializedKAFDocument implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private KAFDocument kaf;
+
+    public SerializedKAFDocument() {
+    }
+
+    SerializedKAFDocument(KAFDocument kaf) {
+	this.kaf = kaf;
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+	ByteArrayOutputStream binary = new ByteArrayOutputStream();
+	BinaryWriter.write(kaf, binary);
+	out.writeInt(binary.size());
+	out.write(binary.toByteArray());
+	kaf.getIdManager().writeCounters(out);
+    }
+
+    public void readExternal(ObjectInput in) throws IOException {
+	byte[] binary = new byte[in.readInt()];
+	in.readFully(binary);
+	kaf = BinaryLoader.load(new ByteArrayInputStream(binary));
+	kaf.getIdManager().readCounters(in);
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+	return kaf;
+    }
+}
@@ -1,33 +1,35 @@
 package ixa.kaflib;
 
-import ixa.kaflib.KAFDocument.Utils;
-
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.io.Serializable;
 
 public class Span<T extends IdentifiableAnnotation> implements Serializable {
 
     //private List<String> targets;
     private List<T> targets;
-    private List<T> sortedTargets;
     private T head;
+    private transient int hash;
+    private transient int hashedSize;
+    private transient boolean hashed;
+    /** Annotation the span belongs to, which is marked as modified when targets are added or the head changes (see Annotation.own(Span)) */
+    transient Annotation owner;
 
 
     Span() {
 	this.targets = new ArrayList<T>();
-	this.sortedTargets = new ArrayList<T>();
 	this.head = null;
     }
 
+    /** Creates a span with all its targets at once. The list is used as it is, not copied. */
     Span(List<T> targets) {
 	this(targets, null);
     }
 
     Span(List<T> targets, T head) {
 	this.targets = targets;
-	this.sortedTargets = new ArrayList<T>();
 	this.head = head;
     }
 
@@ -57,12 +59,13 @@ public class Span<T extends IdentifiableAnnotation> implements Serializable {
 
     public void setHead(T head) {
 	this.head = head;
+	this.modified();
     }
 
     public void addTarget(T target) {
 	this.targets.add(target);
-	this.sortedTargets.add(target);
-	Collections.sort(this.sortedTargets);
+	this.hashed = false;
+	this.modified();
     }
 
     public void addTarget(T target, boolean isHead) {
@@ -73,8 +76,14 @@ public class Span<T extends IdentifiableAnnotation> implements Serializable {
     }
 
     public void addTargets(List<T> targets) {
-	for (T target : targets) {
-	    this.addTarget(target);
+	this.targets.addAll(targets);
+	this.hashed = false;
+	this.modified();
+    }
+
+    private void modified() {
+	if (this.owner != null) {
+	    this.owner.modified();
 	}
     }
 
@@ -91,26 +100,63 @@ public class Span<T extends IdentifiableAnnotation> implements Serializable {
 	return this.targets.size();
     }
 
-    /*
+    /** Two spans are equal if they have the same targets (the same annotations, in any order) and the same head.
+     * Lists of spans (as Entity.getSpans()) use it too, so their indexOf, contains and remove find any span equal to the given one,
+     * not necessarily that same span; use == to look for a particular span. The library itself doesn't look spans up in lists.
+     */
     @Override
     public boolean equals(Object o) {
 	if (this == o) return true;
 	if (!(o instanceof Span)) return false;
-	Span ann = (Span) o;
-	return Utils.areEquals(this.sortedTargets, ann.sortedTargets) &&
-		Utils.areEquals(this.head, ann.head);
+	Span<?> span = (Span<?>) o;
+	if ((this.targets.size() != span.targets.size()) || (this.head != span.head) || (this.hashCode() != span.hashCode())) {
+	    return false;
+	}
+	/* Usually both have their targets in the same order */
+	int i = 0;
+	while ((i < this.targets.size()) && (this.targets.get(i) == span.targets.get(i))) {
+	    i++;
+	}
+	if (i == this.targets.size()) {
+	    return true;
+	}
+	Map<Object, Integer> counts = new IdentityHashMap<Object, Integer>();
+	for (int j = i; j < this.targets.size(); j++) {
+	    Integer count = counts.get(this.targets.get(j));
+	    counts.put(this.targets.get(j), (count == null) ? 1 : count + 1);
+	}
+	for (int j = i; j < span.targets.size(); j++) {
+	    Integer count = counts.get(span.targets.get(j));
+	    if (count == null) {
+		return false;
+	    }
+	    if (count == 1) {
+		counts.remove(span.targets.get(j));
+	    } else {
+		counts.put(span.targets.get(j), count - 1);
+	    }
+	}
+	return true;
     }
-    */
 
+    /** Hash of the identities of the targets, regardless of their order. The head is left out, although equals compares it,
+     * so spans with the same targets and different heads have the same hash (and are told apart by equals).
+     * It is cached, and computed again when targets are added (changes made directly on the list returned by getTargets() are only noticed if they change its size). */
     @Override
 	public int hashCode() {
-	String spanId = "";
-	for (T target : this.sortedTargets) {
-	    if (!spanId.isEmpty()) spanId += "_";
-	    spanId += target.getId();
+	if (!this.hashed || (this.hashedSize != this.targets.size())) {
+	    int hash = 0;
+	    for (T target : this.targets) {
+		int h = System.identityHashCode(target) * 0x9E3779B9;
+		hash += h ^ (h >>> 16);
+	    }
+	    this.hash = hash;
+	    this.hashedSize = this.targets.size();
+	    this.hashed = true;
 	}
-	return spanId.hashCode();
+	return this.hash;
     }
+
     @Override
 	public String toString() {
 	return "Span{" +
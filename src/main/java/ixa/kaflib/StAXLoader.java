@@ -0,0 +1,1548 @@
+package ixa.kaflib;
+
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.StAXStreamBuilder;
+import org.jdom2.output.XMLOutputter;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/** Builds a KAFDocument straight from the events of a StAX reader, without building an intermediate DOM tree.
+ * Span targets are resolved through per-document id indexes, the same way the DOM loader used to do it. Layers not recognised by the library are kept as DOM elements.
+ */
+class StAXLoader {
+
+    /** Layers the loader knows how to read, in the order they are loaded when they need to be deferred. */
+    private static final List<String> LAYERS = Arrays.asList("nafHeader", "raw", "text", "terms", "entities", "constituency", "chunks", "coreferences", "opinions", "deps", "srl", "timeExpressions", "temporalRelations", "causalRelations", "factualities", "factualityLayer", "features", "relations", "topics", "markables", "attribution");
+
+    /** Layers whose objects must exist before a layer can resolve its references. */
+    private static final Map<String, List<String>> DEPENDENCIES = new HashMap<String, List<String>>();
+
+    static {
+	List<String> onText = Arrays.asList("text");
+	List<String> onTerms = Arrays.asList("terms");
+	DEPENDENCIES.put("terms", onText);
+	DEPENDENCIES.put("timeExpressions", onText);
+	DEPENDENCIES.put("factualityLayer", onText);
+	DEPENDENCIES.put("markables", onText);
+	DEPENDENCIES.put("entities", onTerms);
+	DEPENDENCIES.put("constituency", onTerms);
+	DEPENDENCIES.put("chunks", onTerms);
+	DEPENDENCIES.put("coreferences", onTerms);
+	DEPENDENCIES.put("opinions", onTerms);
+	DEPENDENCIES.put("deps", onTerms);
+	DEPENDENCIES.put("srl", onTerms);
+	DEPENDENCIES.put("factualities", onTerms);
+	DEPENDENCIES.put("features", onTerms);
+	DEPENDENCIES.put("attribution", onTerms);
+	DEPENDENCIES.put("temporalRelations", Arrays.asList("srl", "timeExpressions"));
+	DEPENDENCIES.put("causalRelations", Arrays.asList("srl"));
+	DEPENDENCIES.put("relations", Arrays.asList("entities", "features"));
+    }
+
+    /** Names of the XML elements holding each layer */
+    private static final Map<KAFDocument.Layer, String> LAYER_ELEMENTS = new HashMap<KAFDocument.Layer, String>();
+
+    static {
+	LAYER_ELEMENTS.put(KAFDocument.Layer.TEXT, "text");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.TERMS, "terms");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.ENTITIES, "entities");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.CHUNKS, "chunks");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.DEPS, "deps");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.CONSTITUENCY, "constituency");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.COREFERENCES, "coreferences");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.OPINIONS, "opinions");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.CAUSAL_RELATIONS, "causalRelations");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.TEMPORAL_RELATIONS, "temporalRelations");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.SRL, "srl");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.TIME_EXPRESSIONS, "timeExpressions");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.FACTUALITIES, "factualities");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.FACTUALITY_LAYER, "factualityLayer");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.MARKABLES, "markables");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.PROPERTIES, "features");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.CATEGORIES, "features");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.RELATIONS, "relations");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.TOPICS, "topics");
+	LAYER_ELEMENTS.put(KAFDocument.Layer.ATTRIBUTION, "attribution");
+    }
+
+    private XMLInputFactory factory;
+    private XMLStreamReader reader;
+    /** True when the reader is already positioned on an event that has not been consumed yet. */
+    private boolean pending;
+    private KAFDocument kaf;
+    private HashMap<String, WF> wfIndex = new HashMap<String, WF>();
+    private HashMap<String, Term> termIndex = new HashMap<String, Term>();
+    private HashMap<String, Relational> relationalIndex = new HashMap<String, Relational>();
+    private HashMap<String, Predicate> predicateIndex = new HashMap<String, Predicate>();
+    private HashMap<String, Timex3> timexIndex = new HashMap<String, Timex3>();
+    private Set<String> seenLayers = new HashSet<String>();
+    private Set<String> loadedLayers = new HashSet<String>();
+    private List<Element> deferredLayers = new ArrayList<Element>();
+    /** Table shared by the documents read, or null to give each document its own */
+    private SymbolTable symbolTable;
+    /** Layers to build objects for, or null to load every layer */
+    private Set<String> selectedLayers;
+    /** The XML being read, if it is available as a whole */
+    private String source;
+    /** Position of the loaded layers among the elements under the root */
+    private Map<String, Integer> layerPositions = new HashMap<String, Integer>();
+    /** Names and {begin, end} in the source of the elements under the root, or null if they can not be copied out of the source */
+    private List<String> sourceNames;
+    private List<int[]> sourceRanges;
+    /** Layers which were not requested, skipped and written back from the source */
+    private Set<String> passedThrough = new HashSet<String>();
+
+    StAXLoader(XMLInputFactory factory, XMLStreamReader reader) {
+	this(factory, reader, null);
+    }
+
+    /** Creates a loader which only builds the objects of the given layers and of the layers they refer to.
+     * The rest of the layers are skipped, and the document writes them back from the source when it is saved (see setSource()). A null set loads every layer.
+     */
+    StAXLoader(XMLInputFactory factory, XMLStreamReader reader, Set<KAFDocument.Layer> layers) {
+	this.factory = factory;
+	this.reader = reader;
+	if (layers != null) {
+	    selectedLayers = new HashSet<String>();
+	    selectedLayers.add("nafHeader");
+	    selectedLayers.add("raw");
+	    for (KAFDocument.Layer layer : layers) {
+		String name = LAYER_ELEMENTS.get(layer);
+		if (name != null) {
+		    selectLayer(name);
+		}
+	    }
+	}
+    }
+
+    /** Makes the loaded document share the values of categorical attributes through the given table. */
+    void setSymbolTable(SymbolTable symbolTable) {
+	this.symbolTable = symbolTable;
+    }
+
+    /** Sets the text of the XML being read. The document keeps it so that the layers which are not modified, or not loaded, can be saved as they were read.
+     * Without it, or when its layers can not be copied out of it, every layer is loaded.
+     */
+    void setSource(String source) {
+	this.source = source;
+    }
+
+    /** Adds a layer and, recursively, the layers it depends on to the selected layers */
+    private void selectLayer(String name) {
+	if (selectedLayers.add(name)) {
+	    List<String> dependencies = DEPENDENCIES.get(name);
+	    if (dependencies != null) {
+		for (String dependency : dependencies) {
+		    selectLayer(dependency);
+		}
+	    }
+	}
+    }
+
+    /** Reads the whole document */
+    KAFDocument load() throws XMLStreamException, JDOMException, KAFNotValidException {
+	while (reader.next() != XMLStreamConstants.START_ELEMENT) {}
+	String lang = getAttribute(XMLConstants.XML_NS_URI, "lang");
+	String version = getAttribute("version");
+	kaf = new KAFDocument(lang, version);
+	if (symbolTable != null) {
+	    kaf.setSymbolTable(symbolTable);
+	}
+	if (source != null) {
+	    sourceNames = new ArrayList<String>();
+	    sourceRanges = findLayerRanges(source, sourceNames);
+	}
+	if (sourceRanges == null) {
+	    selectedLayers = null; // The layers which are not loaded could not be written back
+	}
+	kaf.beginBulkUpdate();
+	int position = 0;
+	while (nextChild()) {
+	    String name = reader.getLocalName();
+	    if (!LAYERS.contains(name) || seenLayers.contains(name)) { // These layers are not recognised by the library
+		kaf.addUnknownLayer(readElement());
+	    } else if ((selectedLayers != null) && !selectedLayers.contains(name)) { // Not requested: skipped, and written back from the source
+		seenLayers.add(name);
+		layerPositions.put(name, position);
+		passedThrough.add(name);
+		skipElement();
+	    } else if (!dependenciesLoaded(name)) {
+		seenLayers.add(name);
+		layerPositions.put(name, position);
+		deferredLayers.add(readElement());
+	    } else {
+		seenLayers.add(name);
+		layerPositions.put(name, position);
+		loadLayer(name);
+	    }
+	    position++;
+	}
+	loadDeferredLayers();
+	kaf.endBulkUpdate();
+	if (sourceRanges != null) {
+	    keepSource();
+	}
+	kaf.getAnnotationContainer().getTextColumns().trimToSize();
+	kaf.getAnnotationContainer().clearModified();
+	return kaf;
+    }
+
+    /** Reads the root element and the nafHeader layer only, and stops as soon as the header ends. The rest of the document is not read. */
+    KAFDocument loadHeaderOnly() throws XMLStreamException {
+	while (reader.next() != XMLStreamConstants.START_ELEMENT) {}
+	String lang = getAttribute(XMLConstants.XML_NS_URI, "lang");
+	String version = getAttribute("version");
+	kaf = new KAFDocument(lang, version);
+	if (symbolTable != null) {
+	    kaf.setSymbolTable(symbolTable);
+	}
+	while (nextChild()) {
+	    if (reader.getLocalName().equals("nafHeader")) {
+		loadHeader();
+		break;
+	    }
+	    skipElement();
+	}
+	kaf.getAnnotationContainer().clearModified();
+	return kaf;
+    }
+
+    /** Passes the original XML of the loaded layers, and of the layers which were not loaded, to the document */
+    private void keepSource() {
+	AnnotationContainer annotationContainer = kaf.getAnnotationContainer();
+	annotationContainer.setSource(source);
+	for (Map.Entry<String, Integer> entry : layerPositions.entrySet()) {
+	    String name = entry.getKey();
+	    int position = entry.getValue();
+	    if ((position < sourceNames.size()) && sourceNames.get(position).equals(name)) {
+		int[] range = sourceRanges.get(position);
+		if (passedThrough.contains(name)) {
+		    annotationContainer.setPassedThroughRange(name, range[0], range[1], layersOf(name));
+		} else {
+		    annotationContainer.setSourceRange(name, range[0], range[1], layersOf(name));
+		}
+	    } else if (passedThrough.contains(name)) {
+		throw new IllegalStateException("Couldn't find the " + name + " layer in the source");
+	    }
+	}
+    }
+
+    /** Returns the layers kept in a layer element */
+    static List<KAFDocument.Layer> layersOf(String element) {
+	List<KAFDocument.Layer> layers = new ArrayList<KAFDocument.Layer>();
+	for (Map.Entry<KAFDocument.Layer, String> entry : LAYER_ELEMENTS.entrySet()) {
+	    if (entry.getValue().equals(element)) {
+		layers.add(entry.getKey());
+	    }
+	}
+	return layers;
+    }
+
+    /** Finds where each element under the root element begins and ends in the given XML, adding their names to the given list.
+     * Returns null when the layers can not be copied out of the document as they are: when there is a DOCTYPE (which may declare entities) or the root element declares namespaces.
+     */
+    private static List<int[]> findLayerRanges(String xml, List<String> names) {
+	List<int[]> ranges = new ArrayList<int[]>();
+	int depth = 0;
+	int i = xml.indexOf('<');
+	while (i >= 0) {
+	    int end;
+	    if (xml.startsWith("<!--", i)) {
+		end = xml.indexOf("-->", i + 4) + 3;
+	    } else if (xml.startsWith("<![CDATA[", i)) {
+		end = xml.indexOf("]]>", i + 9) + 3;
+	    } else if (xml.startsWith("<?", i)) {
+		end = xml.indexOf("?>", i + 2) + 2;
+	    } else if (xml.startsWith("<!", i)) {
+		return null;
+	    } else if (xml.startsWith("</", i)) {
+		end = xml.indexOf('>', i) + 1;
+		if (end == 0) {
+		    return null;
+		}
+		depth--;
+		if (depth == 0) {
+		    return ranges;
+		} else if (depth == 1) {
+		    ranges.get(ranges.size() - 1)[1] = end;
+		}
+	    } else {
+		int j = i + 1;
+		while ((j < xml.length()) && (xml.charAt(j) != '>')) {
+		    char ch = xml.charAt(j);
+		    if ((ch == '"') || (ch == '\'')) {
+			j = xml.indexOf(ch, j + 1);
+			if (j < 0) {
+			    return null;
+			}
+		    }
+		    j++;
+		}
+		if (j == xml.length()) {
+		    return null;
+		}
+		end = j + 1;
+		boolean isEmpty = (xml.charAt(j - 1) == '/');
+		if (depth == 0) {
+		    if (xml.substring(i, end).contains("xmlns")) {
+			return null;
+		    }
+		} else if (depth == 1) {
+		    int nameEnd = i + 1;
+		    while ((nameEnd < j) && !Character.isWhitespace(xml.charAt(nameEnd)) && (xml.charAt(nameEnd) != '/')) {
+			nameEnd++;
+		    }
+		    names.add(xml.substring(i + 1, nameEnd));
+		    ranges.add(new int[] {i, isEmpty ? end : -1});
+		}
+		if (!isEmpty) {
+		    depth++;
+		}
+	    }
+	    if (end < i) { // Unterminated comment, CDATA section or processing instruction
+		return null;
+	    }
+	    i = xml.indexOf('<', end);
+	}
+	return null;
+    }
+
+    /** Loads the layers which appeared before the layers they refer to, once the whole document has been read. */
+    private void loadDeferredLayers() throws XMLStreamException, KAFNotValidException {
+	Collections.sort(deferredLayers, new Comparator<Element>() {
+		public int compare(Element layer1, Element layer2) {
+		    return LAYERS.indexOf(layer1.getName()) - LAYERS.indexOf(layer2.getName());
+		}
+	    });
+	XMLOutputter outputter = new XMLOutputter();
+	for (Element layer : deferredLayers) {
+	    StringReader input = new StringReader(outputter.outputString(layer));
+	    reader = factory.createXMLStreamReader(input);
+	    pending = false;
+	    while (reader.next() != XMLStreamConstants.START_ELEMENT) {}
+	    loadLayer(layer.getName());
+	    reader.close();
+	    input.close();
+	}
+    }
+
+    private boolean dependenciesLoaded(String layer) {
+	List<String> dependencies = DEPENDENCIES.get(layer);
+	return (dependencies == null) || loadedLayers.containsAll(dependencies);
+    }
+
+    private void loadLayer(String name) throws XMLStreamException, KAFNotValidException {
+	if (name.equals("nafHeader")) {
+	    loadHeader();
+	} else if (name.equals("raw")) {
+	    kaf.setRawText(readText());
+	} else if (name.equals("text")) {
+	    loadText();
+	} else if (name.equals("terms")) {
+	    while (nextChild()) {
+		loadTerm(false, null);
+	    }
+	} else if (name.equals("entities")) {
+	    loadEntities();
+	} else if (name.equals("constituency")) {
+	    loadConstituency();
+	} else if (name.equals("chunks")) {
+	    loadChunks();
+	} else if (name.equals("coreferences")) {
+	    loadCoreferences();
+	} else if (name.equals("opinions")) {
+	    loadOpinions();
+	} else if (name.equals("deps")) {
+	    loadDeps();
+	} else if (name.equals("srl")) {
+	    loadSrl();
+	} else if (name.equals("timeExpressions")) {
+	    loadTimeExpressions();
+	} else if (name.equals("temporalRelations")) {
+	    loadTemporalRelations();
+	} else if (name.equals("causalRelations")) {
+	    loadCausalRelations();
+	} else if (name.equals("factualities")) {
+	    loadFactualities();
+	} else if (name.equals("factualityLayer")) {
+	    loadFactualityLayer();
+	} else if (name.equals("features")) {
+	    loadFeatures();
+	} else if (name.equals("relations")) {
+	    loadRelations();
+	} else if (name.equals("topics")) {
+	    loadTopics();
+	} else if (name.equals("markables")) {
+	    loadMarkables();
+	} else if (name.equals("attribution")) {
+	    loadAttribution();
+	}
+	loadedLayers.add(name);
+    }
+
+    private void loadHeader() throws XMLStreamException {
+	while (nextChild()) {
+	    String name = reader.getLocalName();
+	    if (name.equals("linguisticProcessors")) {
+		String layer = getAttribute("layer");
+		while (nextChild()) {
+		    String lpName = getAttribute("name");
+		    KAFDocument.LinguisticProcessor newLp = kaf.addLinguisticProcessor(layer, lpName);
+		    String timestamp = getOptAttribute("timestamp");
+		    if (timestamp != null) {
+			newLp.setTimestamp(timestamp);
+		    }
+		    String beginTimestamp = getOptAttribute("beginTimestamp");
+		    if (beginTimestamp != null) {
+			newLp.beginTimestamp = beginTimestamp;
+		    }
+		    String endTimestamp = getOptAttribute("endTimestamp");
+		    if (endTimestamp != null) {
+			newLp.setEndTimestamp(endTimestamp);
+		    }
+		    String version = getOptAttribute("version");
+		    if (version != null) {
+			newLp.setVersion(version);
+		    }
+		    String hostname = getOptAttribute("hostname");
+		    if (hostname != null) {
+			newLp.setHostname(hostname);
+		    }
+		    skipElement();
+		}
+	    } else if (name.equals("fileDesc") && (kaf.getFileDesc() == null)) {
+		KAFDocument.FileDesc fd = kaf.createFileDesc();
+		fd.author = getOptAttribute("author");
+		fd.title = getOptAttribute("title");
+		fd.publisher = getOptAttribute("publisher");
+		fd.section = getOptAttribute("section");
+		fd.location = getOptAttribute("location");
+		fd.magazine = getOptAttribute("magazine");
+		fd.filename = getOptAttribute("filename");
+		fd.filetype = getOptAttribute("filetype");
+		String pages = getOptAttribute("pages");
+		if (pages != null) {
+		    fd.pages = Integer.parseInt(pages);
+		}
+		fd.creationtime = getOptAttribute("creationtime");
+		skipElement();
+	    } else if (name.equals("public") && (kaf.getPublic() == null)) {
+		KAFDocument.Public pub = kaf.createPublic();
+		pub.publicId = getOptAttribute("publicId");
+		pub.uri = getOptAttribute("uri");
+		skipElement();
+	    } else {
+		skipElement();
+	    }
+	}
+    }
+
+    private void loadText() throws XMLStreamException {
+	while (nextChild()) {
+	    String wid = getAttribute("id");
+	    String wOffset = getAttribute("offset");
+	    String wLength = getAttribute("length");
+	    String wSent = getAttribute("sent");
+	    String wPara = getOptAttribute("para");
+	    String wPage = getOptAttribute("page");
+	    String wXpath = getOptAttribute("xpath");
+	    String wForm = readText();
+	    WF newWf = kaf.newWF(wid, Integer.valueOf(wOffset), Integer.valueOf(wLength), wForm, Integer.valueOf(wSent));
+	    if (wPara != null) {
+		newWf.setPara(Integer.valueOf(wPara));
+	    }
+	    if (wPage != null) {
+		newWf.setPage(Integer.valueOf(wPage));
+	    }
+	    if (wXpath != null) {
+		newWf.setXpath(wXpath);
+	    }
+	    wfIndex.put(newWf.getId(), newWf);
+	}
+    }
+
+    private void loadTerm(boolean isComponent, Term parentTerm) throws XMLStreamException, KAFNotValidException {
+	String tid = getAttribute("id");
+	String type = getOptSymbol("type");
+	String lemma = getOptAttribute("lemma");
+	String pos = getOptSymbol("pos");
+	String tMorphofeat = getOptSymbol("morphofeat");
+	String termcase = getOptSymbol("case");
+	Span<WF> span = KAFDocument.newWFSpan();
+	boolean hasSpan = false;
+	Term.Sentiment sentiment = null;
+	List<ExternalRef> externalRefs = null;
+	Term newTerm = null;
+	while (nextChild()) {
+	    String name = reader.getLocalName();
+	    if (name.equals("span") && !hasSpan && (newTerm == null)) {
+		if (!isComponent) {
+		    loadTargets(span, wfIndex, "Wf", "term " + tid);
+		} else {
+		    skipElement();
+		}
+		hasSpan = true;
+	    } else if (name.equals("sentiment") && (sentiment == null)) {
+		sentiment = loadSentiment();
+	    } else if (name.equals("component") && !isComponent) {
+		if (newTerm == null) {
+		    newTerm = newTerm(tid, span, isComponent, hasSpan, type, lemma, pos, tMorphofeat, termcase);
+		}
+		loadTerm(true, newTerm);
+	    } else if (name.equals("externalReferences") && (externalRefs == null)) {
+		externalRefs = loadExternalReferences();
+	    } else {
+		skipElement();
+	    }
+	}
+	if (newTerm == null) {
+	    newTerm = newTerm(tid, span, isComponent, hasSpan, type, lemma, pos, tMorphofeat, termcase);
+	}
+	if (sentiment != null) {
+	    newTerm.setSentiment(sentiment);
+	}
+	if (isComponent) {
+	    parentTerm.addComponent(newTerm);
+	}
+	if (externalRefs != null) {
+	    newTerm.addExternalRefs(externalRefs);
+	}
+	termIndex.put(newTerm.getId(), newTerm);
+    }
+
+    private Term newTerm(String tid, Span<WF> span, boolean isComponent, boolean hasSpan, String type, String lemma, String pos, String tMorphofeat, String termcase) {
+	if (!isComponent && !hasSpan) {
+	    throw new IllegalStateException("Every term must contain a span element");
+	}
+	Term newTerm = kaf.newTerm(tid, span, isComponent);
+	if (type != null) {
+	    newTerm.setType(type);
+	}
+	if (lemma != null) {
+	    newTerm.setLemma(lemma);
+	}
+	if (pos != null) {
+	    newTerm.setPos(pos);
+	}
+	if (tMorphofeat != null) {
+	    newTerm.setMorphofeat(tMorphofeat);
+	}
+	if (termcase != null) {
+	    newTerm.setCase(termcase);
+	}
+	return newTerm;
+    }
+
+    private void loadEntities() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    String entId = getAttribute("id");
+	    String entType = getOptSymbol("type");
+	    String entSource = getOptSymbol("source");
+	    List<Span<Term>> references = null;
+	    List<ExternalRef> externalRefs = null;
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("references") && (references == null)) {
+		    references = loadTermSpans(termIndex, "entity " + entId, "Every entity must contain a 'span' element inside 'references'", "Every span in an entity must contain at least one target inside");
+		} else if (name.equals("externalReferences") && (externalRefs == null)) {
+		    externalRefs = loadExternalReferences();
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (references == null) {
+		throw new IllegalStateException("Every entity must contain a 'references' element");
+	    }
+	    Entity newEntity = kaf.newEntity(entId, references);
+	    if (entType != null) {
+		newEntity.setType(entType);
+	    }
+	    if (entSource != null) {
+		newEntity.setSource(entSource);
+	    }
+	    if (externalRefs != null) {
+		newEntity.addExternalRefs(externalRefs);
+	    }
+	    relationalIndex.put(newEntity.getId(), newEntity);
+	}
+    }
+
+    private void loadConstituency() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("tree")) {
+		skipElement();
+		continue;
+	    }
+	    String type = getOptAttribute("type");
+	    // Nodes are created once the whole tree has been read, terminals first, so edge IDs are assigned in the same order as always
+	    List<String> terminalIds = new ArrayList<String>();
+	    List<Span<Term>> terminalSpans = new ArrayList<Span<Term>>();
+	    List<String[]> nonTerminals = new ArrayList<String[]>();
+	    List<String[]> edges = new ArrayList<String[]>();
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("t")) {
+		    String id = getAttribute("id");
+		    Span<Term> span = null;
+		    while (nextChild()) {
+			if (reader.getLocalName().equals("span") && (span == null)) {
+			    span = loadTermSpan(id);
+			} else {
+			    skipElement();
+			}
+		    }
+		    if (span == null) {
+			throw new KAFNotValidException("Constituent non terminal nodes need a span");
+		    }
+		    terminalIds.add(id);
+		    terminalSpans.add(span);
+		} else if (name.equals("nt")) {
+		    nonTerminals.add(new String[] { getAttribute("id"), getAttribute("label") });
+		    skipElement();
+		} else if (name.equals("edge")) {
+		    edges.add(new String[] { getAttribute("from"), getAttribute("to"), getOptAttribute("id"), getOptAttribute("head") });
+		    skipElement();
+		} else {
+		    skipElement();
+		}
+	    }
+	    HashMap<String, TreeNode> treeNodes = new HashMap<String, TreeNode>();
+	    HashMap<String, Boolean> rootNodes = new HashMap<String, Boolean>();
+	    // Terminals
+	    for (int i = 0; i < terminalIds.size(); i++) {
+		String id = terminalIds.get(i);
+		treeNodes.put(id, kaf.newTerminal(id, terminalSpans.get(i)));
+		rootNodes.put(id, true);
+	    }
+	    // NonTerminals
+	    for (String[] nonTerminal : nonTerminals) {
+		treeNodes.put(nonTerminal[0], kaf.newNonTerminal(nonTerminal[0], nonTerminal[1]));
+		rootNodes.put(nonTerminal[0], true);
+	    }
+	    // Edges
+	    for (String[] edge : edges) {
+		String fromId = edge[0];
+		String toId = edge[1];
+		String edgeId = edge[2];
+		boolean isHead = (edge[3] != null && edge[3].equals("yes")) ? true : false;
+		TreeNode parentNode = treeNodes.get(toId);
+		TreeNode childNode = treeNodes.get(fromId);
+		if ((parentNode == null) || (childNode == null)) {
+		    throw new KAFNotValidException("There is a problem with the edge(" + fromId + ", " + toId + "). One of its targets doesn't exist.");
+		}
+		try {
+		    ((NonTerminal) parentNode).addChild(childNode);
+		} catch(Exception e) {}
+		rootNodes.put(fromId, false);
+		if (edgeId != null) {
+		    childNode.setEdgeId(edgeId);
+		}
+		if (isHead) {
+		    ((NonTerminal) childNode).setHead(isHead);
+		}
+	    }
+	    // Constituent objects
+	    for (Map.Entry<String, Boolean> areRoot : rootNodes.entrySet()) {
+		if (areRoot.getValue()) {
+		    TreeNode rootNode = treeNodes.get(areRoot.getKey());
+		    if (type == null) {
+			kaf.newConstituent(rootNode);
+		    } else {
+			kaf.newConstituent(rootNode, type);
+		    }
+		}
+	    }
+	}
+    }
+
+    private void loadChunks() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    String chunkId = getAttribute("id");
+	    String headId = getAttribute("head");
+	    String chunkPhrase = getOptAttribute("phrase");
+	    String chunkCase = getOptSymbol("case");
+	    Term chunkHead = termIndex.get(headId);
+	    if (chunkHead == null) {
+		throw new KAFNotValidException("Term " + headId + " not found when loading chunk " + chunkId);
+	    }
+	    Span<Term> span = null;
+	    while (nextChild()) {
+		if (reader.getLocalName().equals("span") && (span == null)) {
+		    span = KAFDocument.newTermSpan();
+		    while (nextChild()) {
+			if (!reader.getLocalName().equals("target")) {
+			    skipElement();
+			    continue;
+			}
+			String termId = getAttribute("id");
+			boolean isHead = isHead();
+			Term targetTerm = termIndex.get(termId);
+			if (targetTerm == null) {
+			    throw new KAFNotValidException("Term " + termId + " not found when loading chunk " + chunkId);
+			}
+			span.addTarget(targetTerm, ((targetTerm == chunkHead) || isHead));
+			skipElement();
+		    }
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (span == null) {
+		throw new IllegalStateException("Every chunk must contain a span element");
+	    }
+	    if (!span.hasTarget(chunkHead)) {
+		throw new KAFNotValidException("The head of the chunk is not in it's span.");
+	    }
+	    Chunk newChunk = kaf.newChunk(chunkId, chunkPhrase, span);
+	    if (chunkCase != null) {
+		newChunk.setCase(chunkCase);
+	    }
+	}
+    }
+
+    private void loadCoreferences() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    String coId = getAttribute("id");
+	    String corefType = getOptSymbol("type");
+	    List<Span<Term>> mentions = new ArrayList<Span<Term>>();
+	    List<ExternalRef> externalRefs = null;
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("span")) {
+		    Span<Term> span = KAFDocument.newTermSpan();
+		    loadTargets(span, termIndex, "Term", "coref " + coId);
+		    if (span.isEmpty()) {
+			throw new IllegalStateException("Every span in an entity must contain at least one target inside");
+		    }
+		    mentions.add(span);
+		} else if (name.equals("externalReferences") && (externalRefs == null)) {
+		    externalRefs = loadExternalReferences();
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (mentions.size() < 1) {
+		throw new IllegalStateException("Every coref must contain a 'span' element inside 'references'");
+	    }
+	    Coref newCoref = kaf.newCoref(coId, mentions);
+	    if (corefType != null) {
+		newCoref.setType(corefType);
+	    }
+	    if (externalRefs != null) {
+		newCoref.addExternalRefs(externalRefs);
+	    }
+	}
+    }
+
+    private void loadOpinions() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("opinion")) {
+		skipElement();
+		continue;
+	    }
+	    String opinionId = getAttribute("id");
+	    Opinion opinion = kaf.newOpinion(opinionId);
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("opinion_holder") && (opinion.getOpinionHolder() == null)) {
+		    Span<Term> span = KAFDocument.newTermSpan();
+		    Opinion.OpinionHolder opinionHolder = opinion.createOpinionHolder(span);
+		    String ohType = getOptSymbol("type");
+		    if (ohType != null) {
+			opinionHolder.setType(ohType);
+		    }
+		    loadOptionalSpan(span, "opinion " + opinionId);
+		} else if (name.equals("opinion_target") && (opinion.getOpinionTarget() == null)) {
+		    Span<Term> span = KAFDocument.newTermSpan();
+		    opinion.createOpinionTarget(span);
+		    loadOptionalSpan(span, "opinion " + opinionId);
+		} else if (name.equals("opinion_expression") && (opinion.getOpinionExpression() == null)) {
+		    Span<Term> span = KAFDocument.newTermSpan();
+		    String polarity = getOptSymbol("polarity");
+		    String strength = getOptSymbol("strength");
+		    String subjectivity = getOptSymbol("subjectivity");
+		    String sentimentSemanticType = getOptAttribute("sentiment_semantic_type");
+		    String sentimentProductFeature = getOptAttribute("sentiment_product_feature");
+		    Opinion.OpinionExpression opinionExpression = opinion.createOpinionExpression(span);
+		    if (polarity != null) {
+			opinionExpression.setPolarity(polarity);
+		    }
+		    if (strength != null) {
+			opinionExpression.setStrength(strength);
+		    }
+		    if (subjectivity != null) {
+			opinionExpression.setSubjectivity(subjectivity);
+		    }
+		    if (sentimentSemanticType != null) {
+			opinionExpression.setSentimentSemanticType(sentimentSemanticType);
+		    }
+		    if (sentimentProductFeature != null) {
+			opinionExpression.setSentimentProductFeature(sentimentProductFeature);
+		    }
+		    loadOptionalSpan(span, "opinion " + opinionId);
+		} else {
+		    skipElement();
+		}
+	    }
+	}
+    }
+
+    /** Fills the given span with the targets of the first span child of the current element, if there is any. */
+    private void loadOptionalSpan(Span<Term> span, String owner) throws XMLStreamException, KAFNotValidException {
+	boolean hasSpan = false;
+	while (nextChild()) {
+	    if (reader.getLocalName().equals("span") && !hasSpan) {
+		loadTargets(span, termIndex, "Term", owner);
+		hasSpan = true;
+	    } else {
+		skipElement();
+	    }
+	}
+    }
+
+    private void loadDeps() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    String fromId = getAttribute("from");
+	    String toId = getAttribute("to");
+	    Term from = termIndex.get(fromId);
+	    if (from == null) {
+		throw new KAFNotValidException("Term " + fromId + " not found when loading Dep (" + fromId + ", " + toId + ")");
+	    }
+	    Term to = termIndex.get(toId);
+	    if (to == null) {
+		throw new KAFNotValidException("Term " + toId + " not found when loading Dep (" + fromId + ", " + toId + ")");
+	    }
+	    String rfunc = getAttribute("rfunc");
+	    Dep newDep = kaf.newDep(from, to, rfunc);
+	    String depcase = getOptSymbol("case");
+	    if (depcase != null) {
+		newDep.setCase(depcase);
+	    }
+	    skipElement();
+	}
+    }
+
+    private void loadSrl() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("predicate")) {
+		skipElement();
+		continue;
+	    }
+	    String id = getAttribute("id");
+	    String uri = getOptAttribute("uri");
+	    String confidence = getOptAttribute("confidence");
+	    Span<Term> span = KAFDocument.newTermSpan();
+	    boolean hasSpan = false;
+	    boolean hasExternalRefs = false;
+	    Predicate newPredicate = null;
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("span") && !hasSpan && (newPredicate == null)) {
+		    loadTargets(span, termIndex, "Term object", "predicate " + id);
+		    hasSpan = true;
+		    continue;
+		}
+		if (newPredicate == null) {
+		    newPredicate = newPredicate(id, span, uri, confidence);
+		}
+		if (name.equals("externalReferences") && !hasExternalRefs) {
+		    newPredicate.addExternalRefs(loadExternalReferences());
+		    hasExternalRefs = true;
+		} else if (name.equals("role")) {
+		    newPredicate.addRole(loadRole(newPredicate));
+		} else if (name.equals("predType")) {
+		    getAttribute("uri");
+		    skipElement();
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (newPredicate == null) {
+		newPredicate = newPredicate(id, span, uri, confidence);
+	    }
+	    predicateIndex.put(newPredicate.getId(), newPredicate);
+	}
+    }
+
+    private Predicate newPredicate(String id, Span<Term> span, String uri, String confidence) {
+	Predicate newPredicate = kaf.newPredicate(id, span);
+	if (uri != null) {
+	    newPredicate.setUri(uri);
+	}
+	if (confidence != null) {
+	    newPredicate.setConfidence(Float.valueOf(confidence));
+	}
+	return newPredicate;
+    }
+
+    private Predicate.Role loadRole(Predicate predicate) throws XMLStreamException, KAFNotValidException {
+	String rid = getAttribute("id");
+	String semRole = getAttribute("semRole");
+	Span<Term> roleSpan = KAFDocument.newTermSpan();
+	boolean hasSpan = false;
+	List<ExternalRef> externalRefs = null;
+	while (nextChild()) {
+	    String name = reader.getLocalName();
+	    if (name.equals("span") && !hasSpan) {
+		loadTargets(roleSpan, termIndex, "Term object", "role " + rid);
+		hasSpan = true;
+	    } else if (name.equals("externalReferences") && (externalRefs == null)) {
+		externalRefs = loadExternalReferences();
+	    } else {
+		skipElement();
+	    }
+	}
+	Predicate.Role newRole = kaf.newRole(rid, predicate, semRole, roleSpan);
+	if (externalRefs != null) {
+	    newRole.addExternalRefs(externalRefs);
+	}
+	return newRole;
+    }
+
+    private void loadTimeExpressions() throws XMLStreamException, KAFNotValidException {
+	Map<Timex3, String> uncompleteBeginPointRefs = new HashMap<Timex3, String>();
+	Map<Timex3, String> uncompleteEndPointRefs = new HashMap<Timex3, String>();
+	while (nextChild()) {
+	    String timex3Id = getAttribute("id");
+	    String timex3Type = getAttribute("type");
+	    Timex3 timex3 = kaf.newTimex3(timex3Id, timex3Type);
+	    String timex3BeginPointId = getOptAttribute("beginPoint");
+	    if (timex3BeginPointId != null) {
+		Timex3 beginPoint = timexIndex.get(timex3BeginPointId);
+		if (beginPoint == null) {
+		    uncompleteBeginPointRefs.put(timex3, timex3BeginPointId);
+		} else {
+		    timex3.setBeginPoint(beginPoint);
+		}
+	    }
+	    String timex3EndPointId = getOptAttribute("endPoint");
+	    if (timex3EndPointId != null) {
+		Timex3 endPoint = timexIndex.get(timex3EndPointId);
+		if (endPoint == null) {
+		    uncompleteEndPointRefs.put(timex3, timex3EndPointId);
+		} else {
+		    timex3.setEndPoint(endPoint);
+		}
+	    }
+	    String timex3Quant = getOptAttribute("quant");
+	    if (timex3Quant != null) {
+		timex3.setQuant(timex3Quant);
+	    }
+	    String timex3Freq = getOptAttribute("freq");
+	    if (timex3Freq != null) {
+		timex3.setFreq(timex3Freq);
+	    }
+	    String timex3FuncInDoc = getOptAttribute("functionInDocument");
+	    if (timex3FuncInDoc != null) {
+		timex3.setFunctionInDocument(timex3FuncInDoc);
+	    }
+	    String timex3TempFunc = getOptAttribute("temporalFunction");
+	    if (timex3TempFunc != null) {
+		Boolean tempFunc = timex3TempFunc.equals("true");
+		timex3.setTemporalFunction(tempFunc);
+	    }
+	    String timex3Value = getOptAttribute("value");
+	    if (timex3Value != null) {
+		timex3.setValue(timex3Value);
+	    }
+	    String timex3ValueFromFunction = getOptAttribute("valueFromFunction");
+	    if (timex3ValueFromFunction != null) {
+		timex3.setValueFromFunction(timex3ValueFromFunction);
+	    }
+	    String timex3Mod = getOptAttribute("mod");
+	    if (timex3Mod != null) {
+		timex3.setMod(timex3Mod);
+	    }
+	    String timex3AnchorTimeId = getOptAttribute("anchorTimeId");
+	    if (timex3AnchorTimeId != null) {
+		timex3.setAnchorTimeId(timex3AnchorTimeId);
+	    }
+	    String timex3Comment = getOptAttribute("comment");
+	    if (timex3Comment != null) {
+		timex3.setComment(timex3Comment);
+	    }
+	    while (nextChild()) {
+		if (reader.getLocalName().equals("span") && !timex3.hasSpan()) {
+		    Span<WF> timex3Span = KAFDocument.newWFSpan();
+		    loadTargets(timex3Span, wfIndex, "Word form", "timex3 " + timex3Id);
+		    timex3.setSpan(timex3Span);
+		} else {
+		    skipElement();
+		}
+	    }
+	    timexIndex.put(timex3.getId(), timex3);
+	}
+	for (Timex3 timex3 : uncompleteBeginPointRefs.keySet()) {
+	    timex3.setBeginPoint(timexIndex.get(uncompleteBeginPointRefs.get(timex3)));
+	}
+	for (Timex3 timex3 : uncompleteEndPointRefs.keySet()) {
+	    timex3.setEndPoint(timexIndex.get(uncompleteEndPointRefs.get(timex3)));
+	}
+    }
+
+    private void loadTemporalRelations() throws XMLStreamException, KAFNotValidException {
+	// Predicate anchors are added after all the tlinks, as they have always been
+	List<String[]> predAnchors = new ArrayList<String[]>();
+	List<Span<Predicate>> predAnchorSpans = new ArrayList<Span<Predicate>>();
+	while (nextChild()) {
+	    String name = reader.getLocalName();
+	    if (name.equals("tlink")) {
+		String tlid = getAttribute("id");
+		String fromId = getAttribute("from");
+		String toId = getAttribute("to");
+		String fromType = getAttribute("fromType");
+		String toType = getAttribute("toType");
+		String relType = getAttribute("relType");
+		TLinkReferable from = fromType.equals("event")
+		    ? predicateIndex.get(fromId) : timexIndex.get(fromId);
+		TLinkReferable to = toType.equals("event")
+		    ? predicateIndex.get(toId) : timexIndex.get(toId);
+		kaf.newTLink(tlid, from, to, relType);
+		skipElement();
+	    } else if (name.equals("predicateAnchor")) {
+		String id = getAttribute("id");
+		predAnchors.add(new String[] { id, getOptAttribute("anchorTime"), getOptAttribute("beginPoint"), getOptAttribute("endPoint") });
+		Span<Predicate> predAnchorSpan = KAFDocument.newSpan();
+		boolean hasSpan = false;
+		while (nextChild()) {
+		    if (reader.getLocalName().equals("span") && !hasSpan) {
+			loadTargets(predAnchorSpan, predicateIndex, "Predicate", "PredicateAnchor " + id);
+			hasSpan = true;
+		    } else {
+			skipElement();
+		    }
+		}
+		predAnchorSpans.add(predAnchorSpan);
+	    } else {
+		skipElement();
+	    }
+	}
+	for (int i = 0; i < predAnchors.size(); i++) {
+	    String[] predAnchor = predAnchors.get(i);
+	    PredicateAnchor newPa = kaf.newPredicateAnchor(predAnchor[0], predAnchorSpans.get(i));
+	    if (predAnchor[1] != null) {
+		newPa.setAnchorTime(getTimex(predAnchor[1], predAnchor[0]));
+	    }
+	    if (predAnchor[2] != null) {
+		newPa.setBeginPoint(getTimex(predAnchor[2], predAnchor[0]));
+	    }
+	    if (predAnchor[3] != null) {
+		newPa.setEndPoint(getTimex(predAnchor[3], predAnchor[0]));
+	    }
+	}
+    }
+
+    /** Returns the timex referred to by a predicateAnchor */
+    private Timex3 getTimex(String timexId, String predAnchorId) {
+	Timex3 timex = timexIndex.get(timexId);
+	if (timex == null) {
+	    throw new IllegalStateException("Invalid timex ID (" + timexId + ") in predicateAnchor " + predAnchorId);
+	}
+	return timex;
+    }
+
+    private void loadCausalRelations() throws XMLStreamException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("clink")) {
+		skipElement();
+		continue;
+	    }
+	    String clid = getAttribute("id");
+	    String fromId = getAttribute("from");
+	    String toId = getAttribute("to");
+	    String relType = getOptSymbol("relType");
+	    Predicate from = predicateIndex.get(fromId);
+	    Predicate to = predicateIndex.get(toId);
+	    CLink clink = kaf.newCLink(clid, from, to);
+	    if (relType != null) {
+		clink.setRelType(relType);
+	    }
+	    skipElement();
+	}
+    }
+
+    private void loadFactualities() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("factuality")) {
+		skipElement();
+		continue;
+	    }
+	    String id = getAttribute("id");
+	    Span<Term> span = null;
+	    List<Factuality.FactVal> factVals = new ArrayList<Factuality.FactVal>();
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("span") && (span == null)) {
+		    span = loadTermSpan(id);
+		} else if (name.equals("factVal")) {
+		    factVals.add(loadFactVal());
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (span == null) {
+		throw new IllegalStateException("Every factuality must contain a 'span' element");
+	    }
+	    Factuality newFactuality = kaf.newFactuality(id, span);
+	    for (Factuality.FactVal factVal : factVals) {
+		newFactuality.addFactVal(factVal);
+	    }
+	}
+    }
+
+    private Factuality.FactVal loadFactVal() throws XMLStreamException {
+	String value = getAttribute("value");
+	String resource = getAttribute("resource");
+	Factuality.FactVal newFactVal = kaf.newFactVal(value, resource);
+	String source = getOptSymbol("source");
+	if (source != null) {
+	    newFactVal.setSource(source);
+	}
+	String confidence = getOptAttribute("confidence");
+	if (confidence != null) {
+	    newFactVal.setConfidence(Float.valueOf(confidence));
+	}
+	skipElement();
+	return newFactVal;
+    }
+
+    private void loadFactualityLayer() throws XMLStreamException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("factvalue")) {
+		skipElement();
+		continue;
+	    }
+	    String id = getAttribute("id");
+	    String prediction = getAttribute("prediction");
+	    String confidenceStr = getAttribute("confidence");
+	    Factvalue factuality = kaf.newFactvalue(wfIndex.get(id), prediction);
+	    factuality.setConfidence(Double.parseDouble(confidenceStr));
+	    skipElement();
+	}
+    }
+
+    private void loadFeatures() throws XMLStreamException, KAFNotValidException {
+	boolean hasProperties = false;
+	boolean hasCategories = false;
+	while (nextChild()) {
+	    String name = reader.getLocalName();
+	    if (name.equals("properties") && !hasProperties) {
+		loadFeatureList("property");
+		hasProperties = true;
+	    } else if (name.equals("categories") && !hasCategories) {
+		loadFeatureList("category");
+		hasCategories = true;
+	    } else {
+		skipElement();
+	    }
+	}
+    }
+
+    /** Loads the properties or the categories of the features layer */
+    private void loadFeatureList(String featureName) throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals(featureName)) {
+		skipElement();
+		continue;
+	    }
+	    String fid = getAttribute("id");
+	    String lemma = getAttribute("lemma");
+	    List<Span<Term>> references = null;
+	    List<ExternalRef> externalRefs = null;
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("references") && (references == null)) {
+		    references = loadTermSpans(termIndex, featureName + " " + fid, "Every " + featureName + " must contain a 'span' element inside 'references'", "Every span in a property must contain at least one target inside");
+		} else if (name.equals("externalReferences") && (externalRefs == null)) {
+		    externalRefs = loadExternalReferences();
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (references == null) {
+		throw new IllegalStateException("Every " + featureName + " must contain a 'references' element");
+	    }
+	    Feature newFeature = featureName.equals("property")
+		? kaf.newProperty(fid, lemma, references) : kaf.newCategory(fid, lemma, references);
+	    if (externalRefs != null) {
+		newFeature.addExternalRefs(externalRefs);
+	    }
+	    relationalIndex.put(newFeature.getId(), newFeature);
+	}
+    }
+
+    private void loadRelations() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("relation")) {
+		skipElement();
+		continue;
+	    }
+	    String id = getAttribute("id");
+	    String fromId = getAttribute("from");
+	    String toId = getAttribute("to");
+	    String confidenceStr = getOptAttribute("confidence");
+	    float confidence = -1.0f;
+	    if (confidenceStr != null) {
+		confidence = Float.parseFloat(confidenceStr);
+	    }
+	    Relational from = relationalIndex.get(fromId);
+	    if (from == null) {
+		throw new KAFNotValidException("Entity/feature object " + fromId + " not found when loading relation " + id);
+	    }
+	    Relational to = relationalIndex.get(toId);
+	    if (to == null) {
+		throw new KAFNotValidException("Entity/feature object " + toId + " not found when loading relation " + id);
+	    }
+	    Relation newRelation = kaf.newRelation(id, from, to);
+	    if (confidence >= 0) {
+		newRelation.setConfidence(confidence);
+	    }
+	    skipElement();
+	}
+    }
+
+    private void loadTopics() throws XMLStreamException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("topic")) {
+		skipElement();
+		continue;
+	    }
+	    String source = getOptSymbol("source");
+	    String method = getOptAttribute("method");
+	    String confidenceStr = getOptAttribute("confidence");
+	    String URI = getOptAttribute("uri");
+	    Topic topic = kaf.newTopic(readText());
+	    if (source != null) {
+		topic.setSource(source);
+	    }
+	    if (method != null) {
+		topic.setMethod(method);
+	    }
+	    if (confidenceStr != null) {
+		topic.setConfidence(Float.parseFloat(confidenceStr));
+	    }
+	    if (URI != null) {
+		topic.setURI(URI);
+	    }
+	}
+    }
+
+    private void loadMarkables() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    String sid = getAttribute("id");
+	    String source = getOptAttribute("source");
+	    String type = getOptSymbol("type");
+	    String lemma = getOptAttribute("lemma");
+	    String pos = getOptSymbol("pos");
+	    String tMorphofeat = getOptSymbol("morphofeat");
+	    String markcase = getOptSymbol("case");
+	    Span<WF> span = null;
+	    Term.Sentiment sentiment = null;
+	    List<ExternalRef> externalRefs = null;
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("span") && (span == null)) {
+		    span = KAFDocument.newWFSpan();
+		    loadTargets(span, wfIndex, "WF", "mark " + sid);
+		} else if (name.equals("sentiment") && (sentiment == null)) {
+		    sentiment = loadSentiment();
+		} else if (name.equals("externalReferences") && (externalRefs == null)) {
+		    externalRefs = loadExternalReferences();
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (span == null) {
+		throw new IllegalStateException("Every mark must contain a span element");
+	    }
+	    Mark newMark = (source == null) ? kaf.newMark(sid, span) : kaf.newMark(sid, source, span);
+	    if (sentiment != null) {
+		newMark.setSentiment(sentiment);
+	    }
+	    if (type != null) {
+		newMark.setType(type);
+	    }
+	    if (lemma != null) {
+		newMark.setLemma(lemma);
+	    }
+	    if (pos != null) {
+		newMark.setPos(pos);
+	    }
+	    if (tMorphofeat != null) {
+		newMark.setMorphofeat(tMorphofeat);
+	    }
+	    if (markcase != null) {
+		newMark.setCase(markcase);
+	    }
+	    if (externalRefs != null) {
+		newMark.addExternalRefs(externalRefs);
+	    }
+	}
+    }
+
+    private void loadAttribution() throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("statement")) {
+		skipElement();
+		continue;
+	    }
+	    String statementId = getAttribute("id");
+	    Span<Term> targetSpan = null;
+	    Span<Term> sourceSpan = null;
+	    Span<Term> cueSpan = null;
+	    while (nextChild()) {
+		String name = reader.getLocalName();
+		if (name.equals("statement_target") && (targetSpan == null)) {
+		    targetSpan = KAFDocument.newTermSpan();
+		    loadOptionalSpan(targetSpan, "statement " + statementId);
+		} else if (name.equals("statement_source") && (sourceSpan == null)) {
+		    sourceSpan = loadStatementSpan(statementId, "StatementSource elements need to contain the span element");
+		} else if (name.equals("statement_cue") && (cueSpan == null)) {
+		    cueSpan = loadStatementSpan(statementId, "StatementCue elements need to contain the span element");
+		} else {
+		    skipElement();
+		}
+	    }
+	    if (targetSpan == null) {
+		throw new KAFNotValidException("Statement " + statementId + " does not contain the compulsory StatementTarget element.");
+	    }
+	    Statement statement = kaf.newStatement(statementId, kaf.newStatementTarget(targetSpan));
+	    if (sourceSpan != null) {
+		statement.setSource(kaf.newStatementSource(sourceSpan));
+	    }
+	    if (cueSpan != null) {
+		statement.setCue(kaf.newStatementCue(cueSpan));
+	    }
+	}
+    }
+
+    private Span<Term> loadStatementSpan(String statementId, String errorMsg) throws XMLStreamException, KAFNotValidException {
+	Span<Term> span = null;
+	while (nextChild()) {
+	    if (reader.getLocalName().equals("span") && (span == null)) {
+		span = loadTermSpan(statementId);
+	    } else {
+		skipElement();
+	    }
+	}
+	if (span == null) {
+	    throw new KAFNotValidException(errorMsg);
+	}
+	return span;
+    }
+
+    private Term.Sentiment loadSentiment() throws XMLStreamException {
+	Term.Sentiment newSentiment = kaf.newSentiment();
+	String sentResource = getOptSymbol("resource");
+	if (sentResource != null) {
+	    newSentiment.setResource(sentResource);
+	}
+	String sentPolarity = getOptSymbol("polarity");
+	if (sentPolarity != null) {
+	    newSentiment.setPolarity(sentPolarity);
+	}
+	String sentStrength = getOptSymbol("strength");
+	if (sentStrength != null) {
+	    newSentiment.setStrength(sentStrength);
+	}
+	String sentSubjectivity = getOptSymbol("subjectivity");
+	if (sentSubjectivity != null) {
+	    newSentiment.setSubjectivity(sentSubjectivity);
+	}
+	String sentSentimentSemanticType = getOptAttribute("sentiment_semantic_type");
+	if (sentSentimentSemanticType != null) {
+	    newSentiment.setSentimentSemanticType(sentSentimentSemanticType);
+	}
+	String sentSentimentModifier = getOptAttribute("sentiment_modifier");
+	if (sentSentimentModifier != null) {
+	    newSentiment.setSentimentModifier(sentSentimentModifier);
+	}
+	String sentSentimentMarker = getOptAttribute("sentiment_marker");
+	if (sentSentimentMarker != null) {
+	    newSentiment.setSentimentMarker(sentSentimentMarker);
+	}
+	String sentSentimentProductFeature = getOptAttribute("sentiment_product_feature");
+	if (sentSentimentProductFeature != null) {
+	    newSentiment.setSentimentProductFeature(sentSentimentProductFeature);
+	}
+	skipElement();
+	return newSentiment;
+    }
+
+    private List<ExternalRef> loadExternalReferences() throws XMLStreamException {
+	List<ExternalRef> externalRefs = new ArrayList<ExternalRef>();
+	while (nextChild()) {
+	    externalRefs.add(loadExternalRef());
+	}
+	return externalRefs;
+    }
+
+    private ExternalRef loadExternalRef() throws XMLStreamException {
+	String resource = getAttribute("resource");
+	ExternalRef newExternalRef = kaf.newExternalRef(resource);
+	String references = getOptAttribute("reference");
+	if (references != null) {
+	    newExternalRef.setReference(references);
+	}
+	String confidence = getOptAttribute("confidence");
+	if (confidence != null) {
+	    newExternalRef.setConfidence(Float.valueOf(confidence));
+	}
+	String reftype = getOptSymbol("reftype");
+	if (reftype != null) {
+	    newExternalRef.setReftype(reftype);
+	}
+	String status = getOptSymbol("status");
+	if (status != null) {
+	    newExternalRef.setStatus(status);
+	}
+	String source = getOptSymbol("source");
+	if (source != null) {
+	    newExternalRef.setSource(source);
+	}
+	while (nextChild()) {
+	    String name = reader.getLocalName();
+	    if (name.equals("sentiment") && !newExternalRef.hasSentiment()) {
+		newExternalRef.setSentiment(loadSentiment());
+	    } else if (name.equals("externalRef")) {
+		newExternalRef.addExternalRef(loadExternalRef());
+	    } else {
+		skipElement();
+	    }
+	}
+	return newExternalRef;
+    }
+
+    /** Loads the span elements inside the current references element */
+    private List<Span<Term>> loadTermSpans(Map<String, Term> index, String owner, String noSpansMsg, String emptySpanMsg) throws XMLStreamException, KAFNotValidException {
+	List<Span<Term>> spans = new ArrayList<Span<Term>>();
+	while (nextChild()) {
+	    Span<Term> span = KAFDocument.newTermSpan();
+	    loadTargets(span, index, "Term", owner);
+	    if (span.isEmpty()) {
+		throw new IllegalStateException(emptySpanMsg);
+	    }
+	    spans.add(span);
+	}
+	if (spans.size() < 1) {
+	    throw new IllegalStateException(noSpansMsg);
+	}
+	return spans;
+    }
+
+    /** Loads the current span element, which can not be empty, into a new span of terms */
+    private Span<Term> loadTermSpan(String objId) throws XMLStreamException, KAFNotValidException {
+	Span<Term> span = KAFDocument.newTermSpan();
+	loadTargets(span, termIndex, "Term object", "object " + objId);
+	if (span.isEmpty()) {
+	    throw new KAFNotValidException("A span element can not be empty");
+	}
+	return span;
+    }
+
+    /** Adds the targets of the current span element to the given span, looking them up in the given index */
+    private <T extends IdentifiableAnnotation> void loadTargets(Span<T> span, Map<String, T> index, String targetDesc, String owner) throws XMLStreamException, KAFNotValidException {
+	while (nextChild()) {
+	    if (!reader.getLocalName().equals("target")) {
+		skipElement();
+		continue;
+	    }
+	    String targetId = getAttribute("id");
+	    boolean isHead = isHead();
+	    T target = index.get(targetId);
+	    if (target == null) {
+		throw new KAFNotValidException(targetDesc + " " + targetId + " not found when loading " + owner);
+	    }
+	    span.addTarget(target, isHead);
+	    skipElement();
+	}
+    }
+
+    /** Moves to the next child element of the current element. Returns false once the end of the current element is reached. */
+    private boolean nextChild() throws XMLStreamException {
+	int event = pending ? reader.getEventType() : reader.next();
+	pending = false;
+	while (true) {
+	    if (event == XMLStreamConstants.START_ELEMENT) {
+		return true;
+	    }
+	    if ((event == XMLStreamConstants.END_ELEMENT) || (event == XMLStreamConstants.END_DOCUMENT)) {
+		return false;
+	    }
+	    event = reader.next();
+	}
+    }
+
+    /** Skips the rest of the current element, including all its descendants. */
+    private void skipElement() throws XMLStreamException {
+	while (nextChild()) {
+	    skipElement();
+	}
+    }
+
+    /** Returns the text content of the current element. Text inside child elements is ignored. */
+    private String readText() throws XMLStreamException {
+	StringBuilder text = new StringBuilder();
+	while (true) {
+	    int event = reader.next();
+	    if ((event == XMLStreamConstants.CHARACTERS) || (event == XMLStreamConstants.CDATA) || (event == XMLStreamConstants.SPACE)) {
+		text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+	    } else if (event == XMLStreamConstants.START_ELEMENT) {
+		skipElement();
+	    } else if ((event == XMLStreamConstants.END_ELEMENT) || (event == XMLStreamConstants.END_DOCUMENT)) {
+		return text.toString();
+	    }
+	}
+    }
+
+    /** Reads the current element and all its content into a DOM element. */
+    private Element readElement() throws XMLStreamException, JDOMException {
+	Element elem = (Element) new StAXStreamBuilder().fragment(reader);
+	// The builder leaves the reader on the event following the end of the element
+	pending = true;
+	return elem;
+    }
+
+    private String getAttribute(String attName) {
+	return getAttribute(null, attName);
+    }
+
+    private String getAttribute(String namespace, String attName) {
+	String value = reader.getAttributeValue(namespace, attName);
+	if (value==null) {
+	    throw new IllegalStateException(attName+" attribute must be defined for element "+reader.getLocalName());
+	}
+	return value;
+    }
+
+    private String getOptAttribute(String attName) {
+	return reader.getAttributeValue(null, attName);
+    }
+
+    /** Returns the value of an optional attribute which takes its values from a small vocabulary, shared through the symbol table of the document. */
+    private String getOptSymbol(String attName) {
+	return kaf.getSymbolTable().intern(reader.getAttributeValue(null, attName));
+    }
+
+    private boolean isHead() {
+	String value = reader.getAttributeValue(null, "head");
+	return (value != null) && value.equals("yes");
+    }
+}
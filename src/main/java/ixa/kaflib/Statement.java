@@ -17,7 +17,7 @@ public class Statement extends IdentifiableAnnotation {
     
     public Statement(String id, StatementTarget target) {
 	super(id);
-	this.target = target;
+	this.target = own(target);
     }
 
     public StatementTarget getTarget() {
@@ -25,7 +25,8 @@ public class Statement extends IdentifiableAnnotation {
     }
     
     public void setTarget(StatementTarget target) {
-	this.target = target;
+	this.target = own(target);
+	this.modified();
     }
     
     public Boolean hasSource() {
@@ -37,7 +38,8 @@ public class Statement extends IdentifiableAnnotation {
     }
     
     public void setSource(StatementSource source) {
-	this.source = source;
+	this.source = own(source);
+	this.modified();
     }
     
     public Boolean hasCue() {
@@ -49,7 +51,8 @@ public class Statement extends IdentifiableAnnotation {
     }
     
     public void setCue(StatementCue cue) {
-	this.cue = cue;
+	this.cue = own(cue);
+	this.modified();
     }
     
     public Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -89,7 +92,7 @@ public class Statement extends IdentifiableAnnotation {
 	private Span<Term> span;
 	
 	public StatementTarget(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
 	}
 	
 	public Span<Term> getSpan() {
@@ -97,7 +100,8 @@ public class Statement extends IdentifiableAnnotation {
 	}
 	
 	public void setSpan(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
+	    this.modified();
 	}
 	
 	public Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -125,7 +129,7 @@ public class Statement extends IdentifiableAnnotation {
 	private Span<Term> span;
 	
 	public StatementSource(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
 	}
 	
 	public Span<Term> getSpan() {
@@ -133,7 +137,8 @@ public class Statement extends IdentifiableAnnotation {
 	}
 	
 	public void setSpan(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
+	    this.modified();
 	}
 	
 	public Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -161,7 +166,7 @@ public class Statement extends IdentifiableAnnotation {
 	private Span<Term> span;
 	
 	public StatementCue(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
 	}
 	
 	public Span<Term> getSpan() {
@@ -169,7 +174,8 @@ public class Statement extends IdentifiableAnnotation {
 	}
 	
 	public void setSpan(Span<Term> span) {
-	    this.span = span;
+	    this.span = own(span);
+	    this.modified();
 	}
 	
 	public Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
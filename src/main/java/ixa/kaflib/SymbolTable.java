@@ -0,0 +1,36 @@
+package ixa.kaflib;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/** Shares the values of the attributes which take their values from small vocabularies (part of speech tags, dependency functions, semantic roles, resources...),
+ * so a document keeps a single String for each distinct value instead of one per annotation.
+ * The loaders and the factory methods of KAFDocument (newTerm, newDep, newExternalRef...) intern the values they set; values given to the setters of annotations
+ * are kept as they are. Values are meant to be compared with equals(): the table saves memory, it doesn't make == reliable.
+ * Every document has a table of its own; a table can also be shared by several documents (see NafReader.setSymbolTable), and it can be used from several threads.
+ */
+public class SymbolTable {
+
+    private ConcurrentMap<String, String> symbols = new ConcurrentHashMap<String, String>();
+
+    /** Returns the canonical instance of a value (null for null). */
+    public String intern(String value) {
+	if (value == null) {
+	    return null;
+	}
+	String symbol = symbols.get(value);
+	if (symbol == null) {
+	    symbol = symbols.putIfAbsent(value, value);
+	    if (symbol == null) {
+		symbol = value;
+	    }
+	}
+	return symbol;
+    }
+
+    /** Returns the number of distinct values in the table. */
+    public int size() {
+	return symbols.size();
+    }
+}
@@ -31,6 +31,7 @@ public class TLink extends IdentifiableAnnotation {
 
     public void setFrom(TLinkReferable from) {
 	this.from = from;
+	this.modified();
     }
 
     public TLinkReferable getTo() {
@@ -39,6 +40,7 @@ public class TLink extends IdentifiableAnnotation {
 
     public void setTo(TLinkReferable to) {
 	this.to = to;
+	this.modified();
     }
 
     public String getFromType() {
@@ -55,6 +57,7 @@ public class TLink extends IdentifiableAnnotation {
 
     public void setRelType(String relType) {
 	this.relType = relType;
+	this.modified();
     }
     
     Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -135,6 +135,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setResource(String val) {
 	    resource = val;
+	    this.modified();
 	}
 
 	public boolean hasPolarity() {
@@ -147,6 +148,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setPolarity(String val) {
 	    polarity = val;
+	    this.modified();
 	}
 
 	public boolean hasStrength() {
@@ -159,6 +161,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setStrength(String val) {
 	    strength = val;
+	    this.modified();
 	}
 
 	public boolean hasSubjectivity() {
@@ -171,6 +174,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setSubjectivity(String val) {
 	    subjectivity = val;
+	    this.modified();
 	}
 
 	public boolean hasSentimentSemanticType() {
@@ -183,6 +187,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setSentimentSemanticType(String val) {
 	    sentimentSemanticType = val;
+	    this.modified();
 	}
 
 	public boolean hasSentimentModifier() {
@@ -195,6 +200,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setSentimentModifier(String val) {
 	    sentimentModifier = val;
+	    this.modified();
 	}
 
 	public boolean hasSentimentMarker() {
@@ -207,6 +213,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setSentimentMarker(String val) {
 	    sentimentMarker = val;
+	    this.modified();
 	}
 
 	public boolean hasSentimentProductFeature() {
@@ -219,6 +226,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
 	public void setSentimentProductFeature(String val) {
 	    sentimentProductFeature = val;
+	    this.modified();
 	}
 	
 	Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -251,7 +259,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 	*/
 	super(id);
 	this.components = new ArrayList();
-	this.span = span;
+	this.span = own(span);
 	this.externalReferences = new ArrayList<ExternalRef>();
 	this.isComponent = isComponent;
     }
@@ -267,7 +275,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 	this.termcase = term.termcase;
 	// Copy sentiment
 	if (term.hasSentiment()) {
-	    this.sentiment = new Sentiment(term.sentiment);
+	    this.sentiment = own(new Sentiment(term.sentiment));
 	}
 	// Copy components and head
 	HashMap<String, Term> newComponents = 
@@ -275,7 +283,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 	this.components = new ArrayList<Term>();
 	for (Term component : term.components) {
 	    Term copyComponent = new Term(component, wfs);
-	    this.components.add(copyComponent);
+	    this.components.add(own(copyComponent));
 	    newComponents.put(component.getId(), copyComponent);
 	}
 	if (term.hasHead()) {
@@ -293,15 +301,15 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 	}
 	if (term.span.hasHead()) {
 	    WF copiedHead = wfs.get(term.span.getHead().getId());
-	    this.span = new Span<WF>(copiedTargets, copiedHead);
+	    this.span = own(new Span<WF>(copiedTargets, copiedHead));
 	}
 	else {
-	    this.span = new Span<WF>(copiedTargets);
+	    this.span = own(new Span<WF>(copiedTargets));
 	}
 	// Copy external references
 	this.externalReferences = new ArrayList<ExternalRef>();
 	for (ExternalRef externalRef : term.getExternalRefs()) {
-	    this.externalReferences.add(new ExternalRef(externalRef));
+	    this.externalReferences.add(own(new ExternalRef(externalRef)));
 	}
     }
 
@@ -315,6 +323,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setType(String type) {
 	this.type = type;
+	this.modified();
     }
 
     public boolean hasLemma() {
@@ -327,6 +336,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setLemma(String lemma) {
 	this.lemma = lemma;
+	this.modified();
     }
 
     public boolean hasPos() {
@@ -339,6 +349,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setPos(String pos) {
 	this.pos = pos;
+	this.modified();
     }
 
     public boolean hasMorphofeat() {
@@ -351,6 +362,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setMorphofeat(String morphofeat) {
 	this.morphofeat = morphofeat;
+	this.modified();
     }
 
     public boolean hasCase() {
@@ -363,6 +375,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setCase(String termcase) {
 	this.termcase = termcase;
+	this.modified();
     }
 
     public String getForm() {
@@ -419,7 +432,8 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
     }
     
     public void setSentiment(Sentiment sentiment) {
-        this.sentiment = sentiment;
+        this.sentiment = own(sentiment);
+        this.modified();
     }
 
     public List<Term> getComponents() {
@@ -427,14 +441,16 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
     }
 
     public void addComponent(Term component) {
-	components.add(component);
+	components.add(own(component));
+	this.modified();
     }
 
     public void addComponent(Term component, boolean isHead) {
-	components.add(component);
+	components.add(own(component));
 	if (isHead) {
 	    this.head = component;
 	}
+	this.modified();
     }
 
     public List<WF> getWFs() {
@@ -447,10 +463,12 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void addWF(WF wf) {
 	this.span.addTarget(wf);
+	this.modified();
     }
 
     public void addWF(WF wf, boolean isHead) {
 	this.span.addTarget(wf, isHead);
+	this.modified();
     }
 
     public Span<WF> getSpan() {
@@ -458,7 +476,8 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
     }
 
     public void setSpan(Span<WF> span) {
-	this.span = span;
+	this.span = own(span);
+	this.modified();
     }
 
     public Integer getSent() {
@@ -482,16 +501,30 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 	return this.getSpan().getTargets().get(0).getPara();
     }
 
+    /** Returns the position of this term in the term layer of the document its word forms belong to (0 for the first one),
+     * or -1 if it is not in the layer (as the components of compound terms).
+     */
+    public int getIndex() {
+	return this.span.isEmpty() ? -1 : this.span.getFirstTarget().getAnnotationContainer().getIndex(this, AnnotationType.TERM);
+    }
+
+    /** Returns the position of this term among the terms of its sentence (0 for the first one), or -1 if it is not in the term layer. */
+    public int getSentenceIndex() {
+	return this.span.isEmpty() ? -1 : this.span.getFirstTarget().getAnnotationContainer().getSentIndex(this, AnnotationType.TERM);
+    }
+
     public List<ExternalRef> getExternalRefs() {
 	return externalReferences;
     }
 
     public void addExternalRef(ExternalRef externalRef) {
-	externalReferences.add(externalRef);
+	externalReferences.add(own(externalRef));
+	this.modified();
     }
 
     public void addExternalRefs(List<ExternalRef> externalRefs) {
-	externalReferences.addAll(externalRefs);
+	externalReferences.addAll(ownExternalRefs(externalRefs));
+	this.modified();
     }
 
     boolean isComponent() {
@@ -500,6 +533,7 @@ public class Term extends IdentifiableAnnotation implements SentenceLevelAnnotat
 
     public void setCompound(Term compound) {
 	this.compound = compound;
+	this.modified();
     }
 
     public Term getCompound() {
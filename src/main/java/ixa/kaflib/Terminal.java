@@ -15,7 +15,7 @@ public class Terminal extends TreeNode implements SentenceLevelAnnotation {
 
     Terminal(String id, Span<Term> span) {
 	super(id, false, true);
-	this.span = span;
+	this.span = own(span);
     }
 
     /** Returns the Span object */
@@ -0,0 +1,210 @@
+package ixa.kaflib;
+
+import java.io.Serializable;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/** Columnar storage of the word forms of a document. Each WF is a row: its numeric attributes are kept in int arrays
+ * and its form in a char buffer shared by all of them, so a WF object only needs to know its row.
+ * A form which is the same as the raw text at the offset of the WF is not copied: the row only points into the raw text.
+ * Rows are never removed; the rows of removed WFs are just not referenced anymore.
+ */
+class TextColumns implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] sents;
+    private int[] paras;
+    private int[] pages;
+    /** Begin of each form in the buffer, or -(begin + 1) for forms taken from the raw text */
+    private int[] formBegins;
+    private int[] formLengths;
+    private char[] forms;
+    private int formsSize;
+    /** xpath is rarely used, so it is only stored for the rows which have one */
+    private Map<Integer, String> xpaths;
+    private String rawText;
+    /** Number of changes of offsets and lengths, so that the indexes which depend on them know when to build again */
+    private transient int version;
+
+    TextColumns() {
+	offsets = new int[INITIAL_CAPACITY];
+	lengths = new int[INITIAL_CAPACITY];
+	sents = new int[INITIAL_CAPACITY];
+	paras = new int[INITIAL_CAPACITY];
+	pages = new int[INITIAL_CAPACITY];
+	formBegins = new int[INITIAL_CAPACITY];
+	formLengths = new int[INITIAL_CAPACITY];
+	forms = new char[8 * INITIAL_CAPACITY];
+    }
+
+    /** Adds a row and returns its number. para and page are unset (-1). */
+    int add(int offset, int length, String form, int sent) {
+	if (size == offsets.length) {
+	    resize(2 * size);
+	}
+	int row = size++;
+	version++;
+	offsets[row] = offset;
+	lengths[row] = length;
+	sents[row] = sent;
+	paras[row] = -1;
+	pages[row] = -1;
+	setForm(row, form);
+	return row;
+    }
+
+    /** Releases the spare capacity of the columns, once a whole document has been loaded. */
+    void trimToSize() {
+	if (size < offsets.length) {
+	    resize(Math.max(size, 1));
+	}
+	if (formsSize < forms.length) {
+	    forms = Arrays.copyOf(forms, formsSize);
+	}
+    }
+
+    private void resize(int capacity) {
+	offsets = Arrays.copyOf(offsets, capacity);
+	lengths = Arrays.copyOf(lengths, capacity);
+	sents = Arrays.copyOf(sents, capacity);
+	paras = Arrays.copyOf(paras, capacity);
+	pages = Arrays.copyOf(pages, capacity);
+	formBegins = Arrays.copyOf(formBegins, capacity);
+	formLengths = Arrays.copyOf(formLengths, capacity);
+    }
+
+    /** Sets the raw text the forms can be taken from. Forms taken from the previous raw text are copied first, if it changes. */
+    void setRawText(String rawText) {
+	if ((this.rawText != null) && !this.rawText.equals(rawText)) {
+	    for (int row = 0; row < size; row++) {
+		if (formBegins[row] < 0) {
+		    storeForm(row, getForm(row));
+		}
+	    }
+	}
+	this.rawText = rawText;
+    }
+
+    int size() {
+	return size;
+    }
+
+    int getVersion() {
+	return version;
+    }
+
+    int getOffset(int row) {
+	return offsets[row];
+    }
+
+    void setOffset(int row, int offset) {
+	offsets[row] = offset;
+	version++;
+    }
+
+    int getLength(int row) {
+	return lengths[row];
+    }
+
+    void setLength(int row, int length) {
+	lengths[row] = length;
+	version++;
+    }
+
+    int getSent(int row) {
+	return sents[row];
+    }
+
+    void setSent(int row, int sent) {
+	sents[row] = sent;
+    }
+
+    int getPara(int row) {
+	return paras[row];
+    }
+
+    void setPara(int row, int para) {
+	paras[row] = para;
+    }
+
+    int getPage(int row) {
+	return pages[row];
+    }
+
+    void setPage(int row, int page) {
+	pages[row] = page;
+    }
+
+    String getXpath(int row) {
+	return (xpaths == null) ? null : xpaths.get(row);
+    }
+
+    void setXpath(int row, String xpath) {
+	if (xpath == null) {
+	    if (xpaths != null) {
+		xpaths.remove(row);
+	    }
+	    return;
+	}
+	if (xpaths == null) {
+	    xpaths = new HashMap<Integer, String>();
+	}
+	xpaths.put(row, xpath);
+    }
+
+    /** Builds the form of a row. Forms are not kept as Strings, so each call returns a new one; getFormSequence() avoids the copy. */
+    String getForm(int row) {
+	int begin = formBegins[row];
+	if (begin < 0) {
+	    begin = -begin - 1;
+	    return rawText.substring(begin, begin + formLengths[row]);
+	}
+	return new String(forms, begin, formLengths[row]);
+    }
+
+    /** Returns the form of a row without copying it. */
+    CharSequence getFormSequence(int row) {
+	int begin = formBegins[row];
+	if (begin < 0) {
+	    begin = -begin - 1;
+	    return CharBuffer.wrap(rawText, begin, begin + formLengths[row]);
+	}
+	return CharBuffer.wrap(forms, begin, formLengths[row]).asReadOnlyBuffer();
+    }
+
+    /** Stores the form of a row. A form found in the raw text at the offset of the row is not copied.
+     * Otherwise, a form which fits in the place of the previous one overwrites it, or else it is appended to the buffer.
+     */
+    void setForm(int row, String form) {
+	int length = form.length();
+	int offset = offsets[row];
+	if ((rawText != null) && (offset >= 0) && (offset + length <= rawText.length()) && rawText.regionMatches(offset, form, 0, length)) {
+	    formBegins[row] = -offset - 1;
+	    formLengths[row] = length;
+	    return;
+	}
+	storeForm(row, form);
+    }
+
+    private void storeForm(int row, String form) {
+	int length = form.length();
+	if ((formBegins[row] < 0) || (length > formLengths[row])) {
+	    if (formsSize + length > forms.length) {
+		forms = Arrays.copyOf(forms, Math.max(2 * forms.length, formsSize + length));
+	    }
+	    formBegins[row] = formsSize;
+	    formsSize += length;
+	}
+	form.getChars(0, length, forms, formBegins[row]);
+	formLengths[row] = length;
+    }
+}
@@ -83,10 +83,10 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 	    }
 	    if (span.hasHead()) {
 		WF copiedHead = WFs.get(span.getHead().getId());
-		this.mentions.add(new Span<WF>(copiedTargets, copiedHead));
+		this.mentions.add(own(new Span<WF>(copiedTargets, copiedHead)));
 	    }
 	    else {
-		this.mentions.add(new Span<WF>(copiedTargets));
+		this.mentions.add(own(new Span<WF>(copiedTargets)));
 	    }
 	}
     }
@@ -98,6 +98,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setType(String type){
 	this.type = type;
+	this.modified();
     }
 
     public boolean hasBeginPoint() {
@@ -110,6 +111,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setBeginPoint(Timex3 beginPoint) {
 	this.beginPoint = beginPoint;
+	this.modified();
     }
 
     public boolean hasEndPoint() {
@@ -122,6 +124,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setEndPoint(Timex3 endPoint) {
 	this.endPoint = endPoint;
+	this.modified();
     }
 
     public boolean hasFreq() {
@@ -134,6 +137,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setFreq(String freq) {
 	this.freq = freq;
+	this.modified();
     }
 
     public boolean hasQuant() {
@@ -146,6 +150,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setQuant(String quant) {
 	this.quant = quant;
+	this.modified();
     }
 
     public boolean hasFunctionInDocument() {
@@ -158,6 +163,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setFunctionInDocument(String functionInDocument) {
 	this.functionInDocument = functionInDocument;
+	this.modified();
     }
 
     public boolean hasTemporalFunction() {
@@ -170,6 +176,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setTemporalFunction(Boolean temporalFunction) {
 	this.temporalFunction = temporalFunction;
+	this.modified();
     }
 
     public boolean hasValue() {
@@ -182,6 +189,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setValue(String value){
 	this.value = value;
+	this.modified();
     }
 
     public boolean hasValueFromFunction() {
@@ -194,6 +202,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setValueFromFunction(String valueFromFunction) {
 	this.valueFromFunction = valueFromFunction;
+	this.modified();
     }
 
     public boolean hasMod() {
@@ -206,6 +215,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setMod(String mod) {
 	this.mod = mod;
+	this.modified();
     }
 
     public boolean hasAnchorTimeId() {
@@ -218,6 +228,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setAnchorTimeId(String anchorTimeId) {
 	this.anchorTimeId = anchorTimeId;
+	this.modified();
     }
 
     public boolean hasComment() {
@@ -230,6 +241,7 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
 
     public void setComment(String comment) {
 	this.comment = comment;
+	this.modified();
     }
     
     /*
@@ -251,7 +263,8 @@ public class Timex3 extends IdentifiableAnnotation implements TLinkReferable {
     }
 
     public void setSpan(Span<WF> span) {
-	this.span = span;
+	this.span = own(span);
+	this.modified();
     }
 
     public String getSpanStr(Span<WF> span) {
@@ -28,6 +28,7 @@ public class Topic extends Annotation {
     
     public void setSource(String val) {
 	source = val;
+	this.modified();
     }
 
     public boolean hasSource() {
@@ -40,6 +41,7 @@ public class Topic extends Annotation {
 
     public void setMethod(String val) {
 	method = val;
+	this.modified();
     }
 
     public boolean hasMethod() {
@@ -52,6 +54,7 @@ public class Topic extends Annotation {
 
     public void setConfidence(Float val) {
 	confidence = val;
+	this.modified();
     }
 
     public boolean hasConfidence() {
@@ -64,6 +67,7 @@ public class Topic extends Annotation {
 
     public void setURI(String val) {
 	URI = val;
+	this.modified();
     }
 
     public boolean hasURI() {
@@ -76,6 +80,7 @@ public class Topic extends Annotation {
 
     public void setTopicValue(String val) {
 	value = val;
+	this.modified();
     }
 
     public Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -21,7 +21,7 @@ public class Tree extends Annotation implements MultiLayerAnnotation, SentenceLe
     private TreeNode root;
 
     Tree(TreeNode root, String type) {
-	this.root = root;
+	this.root = own(root);
 	this.type = type;
     }
 
@@ -31,6 +31,7 @@ public class Tree extends Annotation implements MultiLayerAnnotation, SentenceLe
 
     public void setType(String type) {
 	this.type = type;
+	this.modified();
     }
 
     public TreeNode getRoot() {
@@ -38,7 +39,8 @@ public class Tree extends Annotation implements MultiLayerAnnotation, SentenceLe
     }
 
     public void setRoot(TreeNode root) {
-	this.root = root;
+	this.root = own(root);
+	this.modified();
     }
     
     Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
@@ -32,6 +32,7 @@ public abstract class TreeNode extends IdentifiableAnnotation {
 
     public void setEdgeId(String edgeId) {
 	this.edgeId = edgeId;
+	this.modified();
     }
 
     public boolean getHead() {
@@ -40,6 +41,7 @@ public abstract class TreeNode extends IdentifiableAnnotation {
 
     public void setHead(boolean head) {
 	this.head = head;
+	this.modified();
     }
 
     public boolean isTerminal() {
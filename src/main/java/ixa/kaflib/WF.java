@@ -13,26 +13,12 @@ public class WF extends IdentifiableAnnotation implements SentenceLevelAnnotatio
 
     private AnnotationContainer annotationContainer;
 
-    /** Sentence id (required) */
-    private int sent;
-    
-    /** The offset (in characters) of the original word form (required) */
-    private int offset;
-
-    /** The length (in characters) of the word form (required) */
-    private int length;
-    
-    /** Paragraph id (optional) */
-    private int para;
-
-    /** Page id (optional) */
-    private int page;
-
-    /** In case of source xml files, the xpath expression identifying the original word form (optional) */
-    private String xpath;
-
-    /** The word form text (required) */
-    private String form;
+    /** Row of this word form in the text columns of the container, which hold its attributes:
+     * sentence id (required), offset and length in characters of the original word form (required),
+     * paragraph and page ids (optional), the xpath expression identifying the original word form in case of source xml files (optional)
+     * and the word form text (required), which is taken from the raw text when it is the same
+     */
+    private int row;
     
     private static final String ID_PREFIX = "w";
     
@@ -40,54 +26,69 @@ public class WF extends IdentifiableAnnotation implements SentenceLevelAnnotatio
     WF(AnnotationContainer annotationContainer, String id, int offset, int length, String form, int sent) {
 	super(id);
 	this.annotationContainer = annotationContainer;
-	this.offset = offset;
-	this.length = length;
-	this.form = form;
-        this.setSent(sent);
-	this.para = -1;
-	this.page = -1;
+	this.row = annotationContainer.getTextColumns().add(offset, length, form, sent);
     }
 
     WF(WF wf, AnnotationContainer annotationContainer) {
 	super(wf.getId());
 	this.annotationContainer = annotationContainer;
-	this.sent = wf.sent;
-	this.para = wf.para;
-	this.page = wf.page;
-	this.offset = wf.offset;
-	this.length = wf.length;
-	this.xpath = wf.xpath;
-	this.form = wf.form;
+	this.row = annotationContainer.getTextColumns().add(wf.getOffset(), wf.getLength(), wf.getForm(), wf.getSent());
+	TextColumns columns = columns();
+	columns.setPara(row, wf.getPara());
+	columns.setPage(row, wf.getPage());
+	columns.setXpath(row, wf.getXpath());
     }
     
+    private TextColumns columns() {
+	return annotationContainer.getTextColumns();
+    }
+
+    AnnotationContainer getAnnotationContainer() {
+	return annotationContainer;
+    }
+
+    /** Returns the position of this word form in the text layer of its document (0 for the first one), or -1 if it is not there. */
+    public int getIndex() {
+	return annotationContainer.getIndex(this, AnnotationType.WF);
+    }
+
+    /** Returns the position of this word form in its sentence (0 for the first one), or -1 if it is not in the text layer. */
+    public int getSentenceIndex() {
+	return annotationContainer.getSentIndex(this, AnnotationType.WF);
+    }
+
     String getIdPrefix() {
 	return ID_PREFIX;
     }
     
     public int getOffset() {
-	return offset;
+	return columns().getOffset(row);
     }
 
     public void setOffset(int offset) {
-	this.offset = offset;
+	columns().setOffset(row, offset);
+	this.modified();
     }
 
     public int getLength() {
-	return length;
+	return columns().getLength(row);
     }
 
     public void setLength(int length) {
-	this.length = length;
+	columns().setLength(row, length);
+	this.modified();
     }
 
     public Integer getSent() {
-	return sent;
+	return columns().getSent(row);
     }
 
     public void setSent(int sent) {
-	Integer oldSent = this.sent;
-	Integer oldPara = this.para;
-	this.sent = sent;
+	TextColumns columns = columns();
+	Integer oldSent = columns.getSent(row);
+	Integer oldPara = columns.getPara(row);
+	columns.setSent(row, sent);
+	this.modified();
 	if (oldSent > 0) {
 	    annotationContainer.reindexAnnotationParaSent(this, KAFDocument.AnnotationType.WF, oldSent, oldPara);
 	}
@@ -102,55 +103,67 @@ public class WF extends IdentifiableAnnotation implements SentenceLevelAnnotatio
     }
 
     public boolean hasPara() {
-	return para != -1;
+	return columns().getPara(row) != -1;
     }
 
     public Integer getPara() {
-	return para;
+	return columns().getPara(row);
     }
 
     public void setPara(int para) {
-	Integer oldSent = this.sent;
-	Integer oldPara = this.para;
-	this.para = para;
+	TextColumns columns = columns();
+	Integer oldSent = columns.getSent(row);
+	Integer oldPara = columns.getPara(row);
+	columns.setPara(row, para);
+	this.modified();
 	annotationContainer.reindexAnnotationParaSent(this, KAFDocument.AnnotationType.WF, oldSent, oldPara);
 	//this.annotationContainer.indexSentByPara(this.sent, para);
     }
 
     public boolean hasPage() {
-	return page != -1;
+	return columns().getPage(row) != -1;
     }
 
     public int getPage() {
-	return page;
+	return columns().getPage(row);
     }
 
     public void setPage(int page) {
-	this.page = page;
+	columns().setPage(row, page);
+	this.modified();
     }
 
     public boolean hasOffset() {
-	return offset != -1;
+	return columns().getOffset(row) != -1;
     }
 
     public boolean hasXpath() {
-	return xpath != null;
+	return columns().getXpath(row) != null;
     }
 
     public String getXpath() {
-	return xpath;
+	return columns().getXpath(row);
     }
 
     public void setXpath(String xpath) {
-	this.xpath = xpath;
+	columns().setXpath(row, xpath);
+	this.modified();
     }
 
     public String getForm() {
-	return form;
+	return columns().getForm(row);
+    }
+
+    /** Returns the form without copying it: forms which are the same as the raw text at the WF offset are a view of the raw text.
+     * The sequence is only valid until the form or the raw text change; use getForm() to keep it.
+     */
+    public CharSequence getFormSequence() {
+	return columns().getFormSequence(row);
     }
 
     public void setForm(String form) {
-	this.form = form;
+	columns().setForm(row, form);
+	this.modified();
     }
     
     Map<AnnotationType, List<Annotation>> getReferencedAnnotations() {
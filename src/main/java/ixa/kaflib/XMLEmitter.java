@@ -0,0 +1,326 @@
+package ixa.kaflib;
+
+import org.jdom2.Element;
+import org.jdom2.IllegalDataException;
+import org.jdom2.Verifier;
+import org.jdom2.output.Format;
+import org.jdom2.output.LineSeparator;
+import org.jdom2.output.support.AbstractXMLOutputProcessor;
+import org.jdom2.output.support.FormatStack;
+import org.jdom2.util.NamespaceStack;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/** Writes XML to a Writer as it is produced, one element at a time, without building a DOM tree first.
+ * The output has the same layout XMLOutputter produces with the pretty format (UNIX line separators and whitespace-only text trimmed), which is the format the library has always written.
+ * In compact mode elements follow each other without whitespace and comments are left out.
+ */
+class XMLEmitter {
+
+    private static final String INDENT = "  ";
+    /** Format and printer of DOM elements. Neither keeps any state, so they are shared by all emitters. */
+    private static final Format FORMAT = Format.getPrettyFormat().setLineSeparator(LineSeparator.UNIX).setTextMode(Format.TextMode.TRIM_FULL_WHITE);
+    private static final Format COMPACT_FORMAT = Format.getRawFormat().setLineSeparator(LineSeparator.UNIX).setTextMode(Format.TextMode.TRIM_FULL_WHITE);
+    private static final ElementOutputProcessor ELEMENT_PROCESSOR = new ElementOutputProcessor();
+
+    private Writer out;
+    private char[] buffer = new char[8192];
+    private int bufferSize;
+    /** Names of the elements started and not ended yet */
+    private List<String> openElements = new ArrayList<String>();
+    /** The start tag of the innermost open element still waits for its closing '>' */
+    private boolean startTagOpen;
+    /** The innermost open element has text content, so its end tag goes on the same line */
+    private boolean inlineContent;
+    /** Leaves out comments, line breaks and indentation */
+    private boolean compact;
+
+    XMLEmitter(Writer out) {
+	this.out = out;
+    }
+
+    /** Makes the emitter write a new document to the given writer, reusing its buffers. */
+    void reset(Writer out) {
+	this.out = out;
+	bufferSize = 0;
+	openElements.clear();
+	startTagOpen = false;
+	inlineContent = false;
+    }
+
+    /** Sets whether the output is compact: no comments, no line breaks and no indentation between elements. */
+    void setCompact(boolean compact) {
+	this.compact = compact;
+    }
+
+    boolean isCompact() {
+	return compact;
+    }
+
+    /** Returns false if comments are left out, so callers can avoid building their text. */
+    boolean writesComments() {
+	return !compact;
+    }
+
+    void startDocument() throws IOException {
+	write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    }
+
+    void endDocument() throws IOException {
+	write('\n');
+	flush();
+    }
+
+    void startElement(String name) throws IOException {
+	if (openElements.size() > 0) {
+	    closeStartTag();
+	    newLine();
+	}
+	write('<');
+	write(name);
+	openElements.add(name);
+	startTagOpen = true;
+	inlineContent = false;
+    }
+
+    void attribute(String name, String value) throws IOException {
+	write(' ');
+	write(name);
+	write("=\"");
+	escapeAttribute(value);
+	write('"');
+    }
+
+    /** Adds text content to the current element. Whitespace-only text is left out. */
+    void text(String text) throws IOException {
+	if (isAllWhitespace(text)) {
+	    return;
+	}
+	closeStartTag();
+	escapeText(text);
+	inlineContent = true;
+    }
+
+    void cdata(String text) throws IOException {
+	if (isAllWhitespace(text)) {
+	    return;
+	}
+	checkCharacters(text, "CDATA section");
+	closeStartTag();
+	write("<![CDATA[");
+	/* "]]>" would end the section, so it is split between two sections */
+	int begin = 0;
+	for (int end = text.indexOf("]]>"); end >= 0; end = text.indexOf("]]>", begin)) {
+	    write(text, begin, end + 2);
+	    write("]]><![CDATA[");
+	    begin = end + 2;
+	}
+	write(text, begin, text.length());
+	write("]]>");
+	inlineContent = true;
+    }
+
+    /** Writes a comment. The text is fixed the same way Comment objects fix it, so it is always a valid comment. */
+    void comment(String text) throws IOException {
+	if (compact) {
+	    return;
+	}
+	closeStartTag();
+	newLine();
+	String fixed = Comment.fixText(text);
+	checkCharacters(fixed, "comment");
+	write("<!--");
+	write(fixed);
+	write("-->");
+    }
+
+    /** Writes a fragment of XML as it is, on a new line at the current position. */
+    void raw(String xml, int begin, int end) throws IOException {
+	closeStartTag();
+	newLine();
+	flushBuffer();
+	out.write(xml, begin, end - begin);
+    }
+
+    /** Writes a whole DOM element at the current position. */
+    void element(Element elem) throws IOException {
+	closeStartTag();
+	newLine();
+	flushBuffer();
+	FormatStack fstack = new FormatStack(compact ? COMPACT_FORMAT : FORMAT);
+	for (int i = 0; i < openElements.size(); i++) {
+	    fstack.push();
+	}
+	ELEMENT_PROCESSOR.printElement(out, fstack, elem);
+    }
+
+    void endElement() throws IOException {
+	String name = openElements.remove(openElements.size() - 1);
+	if (startTagOpen) {
+	    write(" />");
+	    startTagOpen = false;
+	} else {
+	    if (!inlineContent) {
+		newLine();
+	    }
+	    write("</");
+	    write(name);
+	    write('>');
+	}
+	inlineContent = false;
+    }
+
+    /** Writes the buffered output to the underlying writer and flushes it. */
+    void flush() throws IOException {
+	flushBuffer();
+	out.flush();
+    }
+
+    private void closeStartTag() throws IOException {
+	if (startTagOpen) {
+	    write('>');
+	    startTagOpen = false;
+	}
+    }
+
+    private void newLine() throws IOException {
+	if (compact) {
+	    return;
+	}
+	write('\n');
+	for (int i = 0; i < openElements.size(); i++) {
+	    write(INDENT);
+	}
+    }
+
+    private void escapeAttribute(String value) throws IOException {
+	int length = value.length();
+	for (int i = 0; i < length; i++) {
+	    char ch = value.charAt(i);
+	    switch (ch) {
+	    case '<': write("&lt;"); break;
+	    case '>': write("&gt;"); break;
+	    case '"': write("&quot;"); break;
+	    case '&': write("&amp;"); break;
+	    case '\r': write("&#xD;"); break;
+	    case '\t': write("&#x9;"); break;
+	    case '\n': write("&#xA;"); break;
+	    default:
+		if (Character.isHighSurrogate(ch) && (i + 1 < length) && Character.isLowSurrogate(value.charAt(i + 1))) {
+		    writeCharRef(Character.toCodePoint(ch, value.charAt(++i)));
+		} else {
+		    checkCharacter(ch, value, "attribute");
+		    write(ch);
+		}
+	    }
+	}
+    }
+
+    private void escapeText(String text) throws IOException {
+	int length = text.length();
+	for (int i = 0; i < length; i++) {
+	    char ch = text.charAt(i);
+	    switch (ch) {
+	    case '<': write("&lt;"); break;
+	    case '>': write("&gt;"); break;
+	    case '&': write("&amp;"); break;
+	    case '\r': write("&#xD;"); break;
+	    default:
+		if (Character.isHighSurrogate(ch) && (i + 1 < length) && Character.isLowSurrogate(text.charAt(i + 1))) {
+		    writeCharRef(Character.toCodePoint(ch, text.charAt(++i)));
+		} else {
+		    checkCharacter(ch, text, "character content");
+		    write(ch);
+		}
+	    }
+	}
+    }
+
+    /** Checks that all the characters of a text are allowed in XML, as JDOM does when text is added to a tree. */
+    private static void checkCharacters(String text, String construct) {
+	int length = text.length();
+	for (int i = 0; i < length; i++) {
+	    char ch = text.charAt(i);
+	    if (Character.isHighSurrogate(ch) && (i + 1 < length) && Character.isLowSurrogate(text.charAt(i + 1))) {
+		i++;
+	    } else {
+		checkCharacter(ch, text, construct);
+	    }
+	}
+    }
+
+    private static void checkCharacter(char ch, String text, String construct) {
+	if (!Verifier.isXMLCharacter(ch)) {
+	    throw new IllegalDataException("The data \"" + text + "\" is not legal for a JDOM " + construct + ": 0x" + Integer.toHexString(ch) + " is not a legal XML character.");
+	}
+    }
+
+    /** Characters outside the BMP are written as character references, as XMLOutputter does. */
+    private void writeCharRef(int codePoint) throws IOException {
+	write("&#x");
+	write(Integer.toHexString(codePoint));
+	write(';');
+    }
+
+    private void write(char ch) throws IOException {
+	if (bufferSize == buffer.length) {
+	    flushBuffer();
+	}
+	buffer[bufferSize++] = ch;
+    }
+
+    private void write(String str) throws IOException {
+	int length = str.length();
+	if (length > buffer.length - bufferSize) {
+	    flushBuffer();
+	    if (length > buffer.length) {
+		out.write(str);
+		return;
+	    }
+	}
+	str.getChars(0, length, buffer, bufferSize);
+	bufferSize += length;
+    }
+
+    private void write(String str, int begin, int end) throws IOException {
+	int length = end - begin;
+	if (length > buffer.length - bufferSize) {
+	    flushBuffer();
+	    if (length > buffer.length) {
+		out.write(str, begin, length);
+		return;
+	    }
+	}
+	str.getChars(begin, end, buffer, bufferSize);
+	bufferSize += length;
+    }
+
+    private void flushBuffer() throws IOException {
+	if (bufferSize > 0) {
+	    out.write(buffer, 0, bufferSize);
+	    bufferSize = 0;
+	}
+    }
+
+    private static boolean isAllWhitespace(String text) {
+	for (int i = 0; i < text.length(); i++) {
+	    char ch = text.charAt(i);
+	    if ((ch != ' ') && (ch != '\n') && (ch != '\t') && (ch != '\r')) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+
+    /** Gives access to the element printing of XMLOutputter, so DOM elements get exactly the same layout. */
+    private static class ElementOutputProcessor extends AbstractXMLOutputProcessor {
+	void printElement(Writer out, FormatStack fstack, Element elem) throws IOException {
+	    printElement(out, fstack, new NamespaceStack(), elem);
+	}
+    }
+}
@@ -0,0 +1,124 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class AnnotationPositionTest {
+
+    @Test
+    public void navigatesTermsAndWFs() {
+	KAFDocument naf = NafGenerator.generate(3);
+	List<Term> terms = naf.getTerms();
+	List<WF> wfs = naf.getWFs();
+	assertEquals(terms.size(), naf.getNumTerms());
+	assertEquals(wfs.size(), naf.getNumWFs());
+	for (int i = 0; i < terms.size(); i++) {
+	    Term term = terms.get(i);
+	    assertSame(term, naf.getTermAt(i));
+	    assertEquals(i, term.getIndex());
+	    assertSame(i > 0 ? terms.get(i - 1) : null, naf.prevTerm(term));
+	    assertSame(i < terms.size() - 1 ? terms.get(i + 1) : null, naf.nextTerm(term));
+	    assertEquals(naf.getTermsBySent(term.getSent()).indexOf(term), term.getSentenceIndex());
+	}
+	for (int i = 0; i < wfs.size(); i++) {
+	    WF wf = wfs.get(i);
+	    assertSame(wf, naf.getWFAt(i));
+	    assertEquals(i, wf.getIndex());
+	    assertSame(i > 0 ? wfs.get(i - 1) : null, naf.prevWF(wf));
+	    assertSame(i < wfs.size() - 1 ? wfs.get(i + 1) : null, naf.nextWF(wf));
+	    assertEquals(naf.getWFsBySent(wf.getSent()).indexOf(wf), wf.getSentenceIndex());
+	}
+	try {
+	    naf.getTermAt(terms.size());
+	    fail("Term found after the last one");
+	} catch (IndexOutOfBoundsException e) {
+	}
+    }
+
+    @Test
+    public void removesComponentsOfCompounds() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	String[] forms = {"John", "lives", "in", "New", "York", "."};
+	for (int i = 0; i < forms.length; i++) {
+	    naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(naf.newWF(10 * i, forms[i], 1))));
+	}
+	List<Term> terms = naf.getTerms();
+	Term newTerm = terms.get(3);
+	Term york = terms.get(4);
+	Term compound = naf.newCompound(Arrays.asList(newTerm, york), "new york");
+	assertEquals(5, naf.getNumTerms());
+	assertEquals(-1, newTerm.getIndex());
+	assertEquals(-1, york.getSentenceIndex());
+	assertNull(naf.nextTerm(york));
+	assertEquals(5, naf.getTermsBySent(1).size());
+	assertTrue(naf.getTermsBySent(1).contains(compound));
+    }
+
+    @Test
+    public void placesCompoundsWhereTheirComponentsWere() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(StAXLoaderTest.sampleFile());
+	List<Term> terms = naf.getTerms();
+	Term in = terms.get(2);
+	Term newTerm = terms.get(3);
+	Term york = terms.get(4);
+	Term stop = terms.get(5);
+	Term compound = naf.newCompound(Arrays.asList(newTerm, york), "new york");
+	assertEquals(3, compound.getIndex());
+	assertEquals(3, compound.getSentenceIndex());
+	assertEquals(4, stop.getIndex());
+	assertEquals(4, stop.getSentenceIndex());
+	assertEquals(Arrays.asList(terms.get(0), terms.get(1), in, compound, stop), naf.getTermsBySent(1));
+	assertSame(in, naf.prevTerm(compound));
+	assertSame(stop, naf.nextTerm(compound));
+	assertEquals(-1, newTerm.getIndex());
+	assertEquals(-1, york.getSentenceIndex());
+	assertNull(naf.nextTerm(york));
+    }
+
+    @Test
+    public void placesTermsInsertedAtAPosition() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF first = naf.newWF(0, "a", 1);
+	WF second = naf.newWF(2, "b", 1);
+	Term last = naf.newTerm("t2", KAFDocument.newWFSpan(Arrays.asList(second)));
+	Term inserted = naf.newTerm("t1", KAFDocument.newWFSpan(Arrays.asList(first)), 0);
+	assertEquals(0, inserted.getIndex());
+	assertEquals(1, last.getIndex());
+	assertEquals(Arrays.asList(inserted, last), naf.getTermsBySent(1));
+	assertEquals(0, inserted.getSentenceIndex());
+    }
+
+    @Test
+    public void findsAnnotationsOfOtherDocuments() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(StAXLoaderTest.sampleFile());
+	KAFDocument other = KAFDocument.createFromFile(StAXLoaderTest.sampleFile());
+	Term term = other.getTerms().get(1);
+	assertEquals(-1, naf.getAnnotationContainer().getIndex(term, KAFDocument.AnnotationType.TERM));
+	assertNull(naf.nextTerm(term));
+	assertSame(other.getTerms().get(2), other.nextTerm(term));
+    }
+
+    @Test
+    public void findsAnnotationsSharedByDocuments() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(StAXLoaderTest.sampleFile());
+	List<Term> terms = naf.getTerms();
+	KAFDocument other = new KAFDocument("en", "v3");
+	other.addExistingAnnotation(terms.get(1), KAFDocument.Layer.TERMS, KAFDocument.AnnotationType.TERM);
+	other.addExistingAnnotation(terms.get(2), KAFDocument.Layer.TERMS, KAFDocument.AnnotationType.TERM);
+	for (int i = 0; i < 2; i++) {
+	    assertSame(terms.get(3), naf.nextTerm(terms.get(2)));
+	    assertNull(other.nextTerm(terms.get(2)));
+	    assertSame(terms.get(1), other.prevTerm(terms.get(2)));
+	    assertSame(terms.get(0), naf.prevTerm(terms.get(1)));
+	}
+    }
+}
@@ -0,0 +1,99 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+
+public class BinaryFormatTest {
+
+    static byte[] write(KAFDocument naf) throws Exception {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	naf.saveBinary(out);
+	return out.toByteArray();
+    }
+
+    static KAFDocument roundTrip(KAFDocument naf) throws Exception {
+	return KAFDocument.createFromBinary(new ByteArrayInputStream(write(naf)));
+    }
+
+    @Test
+    public void readsWhatWasWritten() throws Exception {
+	KAFDocument naf = NafGenerator.generate(50);
+	KAFDocument read = roundTrip(naf);
+	assertEquals(naf.toString(), read.toString());
+	assertEquals(naf.getSentences().size(), read.getSentences().size());
+	assertEquals(naf.getDepToTerm(naf.getTerms().get(1)).getFrom().getId(), read.getDepToTerm(read.getTerms().get(1)).getFrom().getId());
+    }
+
+    @Test
+    public void readsEveryKindOfLayer() throws Exception {
+	KAFDocument naf = NafGenerator.generate(2);
+	Span<Term> first = KAFDocument.newTermSpan(naf.getTerms().subList(0, 1));
+	Span<Term> second = KAFDocument.newTermSpan(naf.getTerms().subList(1, 2));
+	naf.newChunk("NP", KAFDocument.newTermSpan(naf.getTerms().subList(0, 1), naf.getTerms().get(0)));
+	Predicate predicate = naf.newPredicate(second);
+	predicate.addRole(naf.newRole(predicate, "A0", first));
+	naf.newCLink(predicate, naf.newPredicate(first));
+	naf.newTLink(naf.newTimex3("DATE"), predicate, "BEFORE");
+	naf.newOpinion().createOpinionExpression(second).setPolarity("positive");
+	naf.newTopic("news");
+	Statement statement = naf.newStatement(naf.newStatementTarget(first));
+	statement.setSource(naf.newStatementSource(second));
+	assertEquals(naf.toString(), roundTrip(naf).toString());
+    }
+
+    @Test
+    public void readsLoadedDocuments() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(StAXLoaderTest.sampleFile());
+	KAFDocument read = roundTrip(naf);
+	assertEquals(StAXLoaderTest.write(naf), StAXLoaderTest.write(read));
+	assertEquals(2, read.getEntities().size());
+	assertEquals(1, read.getMarks("gazetteer").size());
+    }
+
+    @Test
+    public void keepsLayersNotLoaded() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(StAXLoaderTest.sampleFile(), EnumSet.of(Layer.TEXT, Layer.TERMS));
+	KAFDocument read = roundTrip(naf);
+	assertEquals(StAXLoaderTest.write(naf), StAXLoaderTest.write(read));
+    }
+
+    @Test
+    public void continuesIds() throws Exception {
+	KAFDocument read = roundTrip(NafGenerator.generate(5));
+	int wfs = read.getWFs().size();
+	WF wf = read.newWF(0, "new", 6);
+	assertEquals("w" + (wfs + 1), wf.getId());
+	assertNull(read.getAnnotationContainer().getSource());
+    }
+
+    @Test
+    public void rejectsOtherFormats() throws Exception {
+	try {
+	    KAFDocument.createFromBinary(new ByteArrayInputStream("<?xml version=\"1.0\"?>".getBytes("UTF-8")));
+	    fail("XML read as binary");
+	} catch (IOException e) {
+	}
+    }
+
+    @Test
+    public void rejectsTruncatedDocuments() throws Exception {
+	byte[] bytes = write(NafGenerator.generate(5));
+	try {
+	    KAFDocument.createFromBinary(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2)));
+	    fail("Truncated document read");
+	} catch (IOException e) {
+	}
+    }
+}
@@ -0,0 +1,86 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+
+public class BulkUpdateTest {
+
+    private static Term newTerm(KAFDocument naf, WF wf) {
+	return naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+    }
+
+    @Test
+    public void answersQueriesDuringTheUpdate() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.beginBulkUpdate();
+	WF john = naf.newWF(0, "John", 1);
+	WF sleeps = naf.newWF(5, "sleeps", 1);
+	Term term = newTerm(naf, john);
+	assertEquals(Arrays.asList(john, sleeps), naf.getWFsBySent(1));
+	assertEquals(Arrays.asList(term), naf.getTermsFromWFs(Arrays.asList(john.getId())));
+	WF mary = naf.newWF(12, "Mary", 2);
+	newTerm(naf, mary);
+	assertEquals(Arrays.asList(mary), naf.getWFsBySent(2));
+	assertEquals(1, naf.getTermsBySent(2).size());
+	naf.endBulkUpdate();
+	assertEquals(2, naf.getSentences().size());
+    }
+
+    @Test
+    public void indexesWithoutEndingTheUpdate() throws Exception {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.beginBulkUpdate();
+	for (int sent = 1; sent <= 5; sent++) {
+	    WF wf = naf.newWF(sent, "w", sent);
+	    wf.setPara(sent);
+	    newTerm(naf, wf);
+	}
+	assertEquals(5, naf.getTerms().size());
+	assertEquals(1, naf.getTermsBySent(3).size());
+	assertEquals(1, naf.getWFsByPara(4).size());
+	assertEquals(5, (int) naf.getNumParagraphs());
+	assertEquals(5, new NafReader().read(naf.toString()).getWFs().size());
+    }
+
+    @Test
+    public void indexesFinalValuesOfChangedAnnotations() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF before = naf.newWF(0, "a", 1);
+	before.setPara(1);
+	naf.beginBulkUpdate();
+	WF added = naf.newWF(2, "b", 1);
+	added.setSent(2);
+	added.setPara(2);
+	before.setSent(3);
+	before.setPara(3);
+	naf.endBulkUpdate();
+	assertEquals(Arrays.asList(added), naf.getWFsBySent(2));
+	assertEquals(Arrays.asList(before), naf.getWFsBySent(3));
+	assertTrue(naf.getWFsBySent(1).isEmpty());
+	assertEquals(Arrays.asList(added), naf.getWFsByPara(2));
+	assertEquals(Arrays.asList(before), naf.getWFsByPara(3));
+	assertTrue(naf.getWFsByPara(1).isEmpty());
+    }
+
+    @Test
+    public void endsOnTheOutermostUpdate() {
+	KAFDocument bulk = new KAFDocument("en", "v3");
+	KAFDocument plain = new KAFDocument("en", "v3");
+	bulk.beginBulkUpdate();
+	for (int i = 0; i < 10; i++) {
+	    bulk.beginBulkUpdate();
+	    newTerm(bulk, bulk.newWF(2 * i, "w", 1 + i / 4));
+	    bulk.endBulkUpdate();
+	    newTerm(plain, plain.newWF(2 * i, "w", 1 + i / 4));
+	}
+	bulk.endBulkUpdate();
+	assertEquals(plain.getSentences().size(), bulk.getSentences().size());
+	assertEquals(plain.getTermsBySent(3).size(), bulk.getTermsBySent(3).size());
+	assertEquals(plain.toString(), bulk.toString());
+    }
+}
@@ -0,0 +1,59 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class CompactOutputTest {
+
+    private static String compact(KAFDocument naf) {
+	return new NafWriter().setCompact(true).toString(naf);
+    }
+
+    private static void assertSameAnnotations(KAFDocument expected, KAFDocument actual) {
+	assertEquals(expected.getRawText(), actual.getRawText());
+	assertEquals(expected.getWFs().size(), actual.getWFs().size());
+	assertEquals(expected.getTerms().size(), actual.getTerms().size());
+	assertEquals(expected.getDeps().size(), actual.getDeps().size());
+	assertEquals(expected.getChunks().size(), actual.getChunks().size());
+	assertEquals(expected.getEntities().size(), actual.getEntities().size());
+	assertEquals(expected.getTerms().get(7).getLemma(), actual.getTerms().get(7).getLemma());
+    }
+
+    @Test
+    public void leavesOutCommentsAndWhitespace() {
+	KAFDocument naf = NafGenerator.generate(5);
+	String xml = compact(naf);
+	assertFalse(xml.contains("<!--"));
+	assertFalse(xml.contains("\n "));
+	assertTrue(xml.length() < naf.toString().length());
+    }
+
+    @Test
+    public void compactOutputStillParses() throws Exception {
+	KAFDocument naf = NafGenerator.generate(20);
+	KAFDocument read = new NafReader().read(compact(naf));
+	assertSameAnnotations(naf, read);
+	assertEquals(compact(naf), compact(read));
+    }
+
+    @Test
+    public void serializesUnmodifiedLayers() throws Exception {
+	KAFDocument read = new NafReader().read(NafGenerator.generate(5).toString());
+	String written = compact(read);
+	assertFalse(written.contains("<!--"));
+	assertFalse(written.contains("\n "));
+	assertSameAnnotations(read, new NafReader().read(written));
+    }
+
+    @Test
+    public void keepsDefaultOutput() {
+	NafWriter writer = new NafWriter();
+	assertFalse(writer.isCompact());
+	KAFDocument naf = NafGenerator.generate(3);
+	assertEquals(naf.toString(), writer.toString(naf));
+    }
+}
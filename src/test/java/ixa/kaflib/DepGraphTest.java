@@ -0,0 +1,94 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class DepGraphTest {
+
+    @Test
+    public void findsHeadsAndDepths() {
+	KAFDocument naf = NafGenerator.sample();
+	List<Term> terms = naf.getTerms();
+	DepGraph graph = new DepGraph(new ArrayList<Annotation>(terms.subList(0, 6)), new ArrayList<Annotation>(naf.getDeps().subList(0, 5)), 0);
+	assertEquals(0, graph.depth(graph.node(terms.get(1))));
+	assertEquals(3, graph.depth(graph.node(terms.get(3))));
+	assertNull(graph.headDep(graph.node(terms.get(1))));
+	assertSame(terms.get(4), graph.headDep(graph.node(terms.get(3))).getFrom());
+	assertEquals(-1, graph.node(terms.get(6)));
+	List<Term> dependents = new ArrayList<Term>();
+	graph.addDependents(graph.node(terms.get(1)), dependents);
+	assertEquals(Arrays.asList(terms.get(0), terms.get(2), terms.get(5)), dependents);
+    }
+
+    @Test
+    public void findsPathsThroughCommonAncestor() {
+	KAFDocument naf = NafGenerator.sample();
+	List<Term> terms = naf.getTerms();
+	List<Dep> deps = naf.getDeps();
+	assertEquals(Arrays.asList(deps.get(0), deps.get(1), deps.get(2), deps.get(3)), naf.getDepPath(terms.get(0), terms.get(3)));
+	assertEquals(Arrays.asList(deps.get(3), deps.get(2)), naf.getDepPath(terms.get(3), terms.get(2)));
+	assertEquals(0, naf.getDepPath(terms.get(2), terms.get(2)).size());
+	assertNull(naf.getDepPath(terms.get(0), terms.get(6))); // Different sentences
+	assertSame(deps.get(3), naf.getDepToTerm(terms.get(3)));
+	assertNull(naf.getDepToTerm(terms.get(7)));
+	assertEquals(new HashSet<Term>(terms.subList(2, 5)), naf.getTermsByDepAncestors(Arrays.asList(terms.get(2))));
+    }
+
+    @Test
+    public void breaksCycles() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	List<Term> terms = new ArrayList<Term>();
+	for (int i = 0; i < 3; i++) {
+	    terms.add(naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(naf.newWF(2 * i, "w", 1)))));
+	}
+	naf.newDep(terms.get(0), terms.get(1), "A");
+	naf.newDep(terms.get(1), terms.get(2), "B");
+	naf.newDep(terms.get(2), terms.get(0), "C");
+	DepGraph graph = naf.getAnnotationContainer().getDepGraph(terms.get(0));
+	int roots = 0;
+	for (Term term : terms) {
+	    if (graph.headDep(graph.node(term)) == null) {
+		roots++;
+		assertEquals(0, graph.depth(graph.node(term)));
+	    }
+	}
+	assertEquals(1, roots);
+	assertEquals(3, naf.getTermsByDepAncestors(Arrays.asList(terms.get(1))).size());
+    }
+
+    @Test
+    public void compilesAgainAfterChanges() {
+	KAFDocument naf = NafGenerator.sample();
+	List<Term> terms = naf.getTerms();
+	assertNull(naf.getDepToTerm(terms.get(1)));
+	Dep dep = naf.newDep(terms.get(5), terms.get(1), "X");
+	assertSame(dep, naf.getDepToTerm(terms.get(1)));
+	naf.newDep(terms.get(7), terms.get(1), "Y"); // The first head is kept
+	assertSame(dep, naf.getDepToTerm(terms.get(1)));
+	Dep across = naf.newDep(terms.get(1), terms.get(7), "Z"); // Between sentences
+	assertSame(across, naf.getDepToTerm(terms.get(7)));
+	assertEquals(Arrays.asList(naf.getDeps().get(0), across), naf.getDepPath(terms.get(0), terms.get(7)));
+    }
+
+    @Test
+    public void keepsFirstHeadFromAnotherSentence() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	Term first = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(naf.newWF(0, "Yes", 1))));
+	Term dependent = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(naf.newWF(4, "he", 2))));
+	Term head = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(naf.newWF(7, "sleeps", 2))));
+	Dep across = naf.newDep(first, dependent, "X");
+	naf.newDep(head, dependent, "Y"); // Added later, so not the head
+	assertSame(across, naf.getDepToTerm(dependent));
+	assertEquals(Arrays.asList(across), naf.getDepPath(first, dependent));
+	assertNull(naf.getDepPath(head, dependent));
+    }
+}
@@ -0,0 +1,74 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class GzipTest {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+	directory = File.createTempFile("naf", "");
+	directory.delete();
+	directory.mkdir();
+    }
+
+    @After
+    public void deleteDirectory() {
+	for (File file : directory.listFiles()) {
+	    file.delete();
+	}
+	directory.delete();
+    }
+
+    private static boolean isGzipped(File file) throws Exception {
+	InputStream stream = new FileInputStream(file);
+	try {
+	    return (stream.read() == 0x1f) && (stream.read() == 0x8b);
+	} finally {
+	    stream.close();
+	}
+    }
+
+    @Test
+    public void readsWhatWasWritten() throws Exception {
+	KAFDocument naf = NafGenerator.generate(10);
+	File file = new File(directory, "doc.naf.gz");
+	naf.save(file);
+	assertTrue(isGzipped(file));
+	assertEquals(naf.toString(), KAFDocument.createFromFile(file).toString());
+    }
+
+    @Test
+    public void readsFilesByContentNotByName() throws Exception {
+	KAFDocument naf = NafGenerator.generate(10);
+	File plain = new File(directory, "plain.naf");
+	naf.save(plain);
+	File plainNamedGz = new File(directory, "plain.naf.gz");
+	plain.renameTo(plainNamedGz);
+	assertFalse(isGzipped(plainNamedGz));
+	assertEquals(naf.toString(), KAFDocument.createFromFile(plainNamedGz).toString());
+	File gzipped = new File(directory, "gzipped.naf");
+	naf.save(gzipped, 9);
+	assertTrue(isGzipped(gzipped));
+	assertEquals(naf.toString(), KAFDocument.createFromFile(gzipped).toString());
+    }
+
+    @Test
+    public void writesPlainFilesUnlessNamedGz() throws Exception {
+	File file = new File(directory, "doc.naf");
+	NafGenerator.generate(2).save(file);
+	assertFalse(isGzipped(file));
+    }
+}
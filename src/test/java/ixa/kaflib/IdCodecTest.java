@@ -0,0 +1,67 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+
+public class IdCodecTest {
+
+    @Test
+    public void readsCounters() {
+	assertEquals(12, IdCodec.counter("t12"));
+	assertEquals(3, IdCodec.counter("nter_3"));
+	assertEquals(4, IdCodec.counter("t.mw4"));
+	assertEquals(7, IdCodec.counter("7"));
+	assertEquals(5, IdCodec.counter("t0005"));
+	assertEquals(Integer.MAX_VALUE, IdCodec.counter("w2147483647"));
+    }
+
+    @Test
+    public void readsNumbers() {
+	assertEquals(12, IdCodec.number("t12"));
+	assertEquals(3, IdCodec.number("nter_3"));
+	assertEquals(7, IdCodec.number("7"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number("t.mw4"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number("T12"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number("t_"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number("t__1"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number("t1a"));
+    }
+
+    @Test
+    public void rejectsOddIds() {
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.counter(""));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.counter("t"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.counter("t1x"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.counter("w٣"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number(""));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number("٣"));
+    }
+
+    @Test
+    public void rejectsOverflowingNumbers() {
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.counter("w2147483648"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.counter("w99999999999999999999999"));
+	assertEquals(IdCodec.NO_NUMBER, IdCodec.number("w2147483648"));
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.newWF("w99999999999", 0, "a", 1);
+	try {
+	    naf.newWF(2, "b", 1);
+	    fail("New ID created after an unrecognised one");
+	} catch (IllegalStateException e) {
+	}
+    }
+
+    @Test
+    public void readsNumbersOfAnnotationIdsAgainWhenTheyChange() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF wf = naf.newWF(0, "a", 1);
+	assertEquals(1, wf.getIdNumber());
+	wf.setId("w_42");
+	assertEquals(42, wf.getIdNumber());
+	wf.setId("w.1");
+	assertEquals(IdCodec.NO_NUMBER, wf.getIdNumber());
+    }
+}
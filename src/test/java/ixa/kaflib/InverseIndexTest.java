@@ -0,0 +1,78 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ixa.kaflib.KAFDocument.AnnotationType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class InverseIndexTest {
+
+    private static List<WF> wfs(int count) {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	for (int i = 0; i < count; i++) {
+	    naf.newWF(2 * i, "w", 1);
+	}
+	return naf.getWFs();
+    }
+
+    private static Term term(String id, WF wf) {
+	return new Term(id, KAFDocument.newWFSpan(Arrays.asList(wf)), false);
+    }
+
+    @Test
+    public void findsReferringAnnotations() {
+	List<WF> wfs = wfs(3);
+	Term t1 = term("t1", wfs.get(0));
+	Term t2 = term("t2", wfs.get(0));
+	Term t3 = term("t3", wfs.get(2));
+	InverseIndex index = new InverseIndex();
+	index.add(t1, AnnotationType.TERM, wfs.get(0));
+	index.add(t2, AnnotationType.TERM, wfs.get(0));
+	index.add(t3, AnnotationType.TERM, wfs.get(2));
+	assertEquals(Arrays.<Annotation>asList(t1, t2), index.get(wfs.get(0), AnnotationType.TERM));
+	assertEquals(Arrays.<Annotation>asList(t3), index.get(wfs.get(2), AnnotationType.TERM));
+	assertTrue(index.get(wfs.get(1), AnnotationType.TERM).isEmpty());
+	assertTrue(index.get(wfs.get(0), AnnotationType.MARK).isEmpty());
+    }
+
+    @Test
+    public void indexesReferencesAddedOutOfOrder() {
+	List<WF> wfs = wfs(40);
+	InverseIndex index = new InverseIndex();
+	/* The WFs get their ordinals from the terms, and the marks refer to them backwards */
+	for (WF wf : wfs) {
+	    index.add(term("t", wf), AnnotationType.TERM, wf);
+	}
+	Mark[] marks = new Mark[wfs.size()];
+	for (int i = wfs.size() - 1; i >= 0; i--) {
+	    marks[i] = new Mark("m" + i, KAFDocument.newWFSpan(Arrays.asList(wfs.get(i))));
+	    index.add(marks[i], AnnotationType.MARK, wfs.get(i));
+	}
+	for (int i = 0; i < wfs.size(); i++) {
+	    assertEquals(Arrays.<Annotation>asList(marks[i]), index.get(wfs.get(i), AnnotationType.MARK));
+	    assertEquals(2, index.get(wfs.get(i)).size());
+	}
+    }
+
+    @Test
+    public void indexesAnnotationsOfOtherIndexes() {
+	List<WF> wfs = wfs(2);
+	Term t1 = term("t1", wfs.get(1));
+	Term t2 = term("t2", wfs.get(1));
+	InverseIndex first = new InverseIndex();
+	InverseIndex second = new InverseIndex();
+	first.add(t1, AnnotationType.TERM, wfs.get(1));
+	second.add(t2, AnnotationType.TERM, wfs.get(1));
+	second.add(t2, AnnotationType.TERM, wfs.get(0));
+	assertEquals(Arrays.<Annotation>asList(t1), first.get(wfs.get(1), AnnotationType.TERM));
+	assertEquals(Arrays.<Annotation>asList(t2), second.get(wfs.get(1), AnnotationType.TERM));
+	assertEquals(Arrays.<Annotation>asList(t2), second.get(wfs.get(0), AnnotationType.TERM));
+	assertTrue(first.get(wfs.get(0), AnnotationType.TERM).isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.StringReader;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+
+public class LayerSelectionTest {
+
+    private static KAFDocument read(String xml, EnumSet<Layer> layers) throws Exception {
+	return KAFDocument.createFromStream(new StringReader(xml), layers);
+    }
+
+    @Test
+    public void loadsOnlyRequestedLayers() throws Exception {
+	KAFDocument naf = NafGenerator.generate(10);
+	KAFDocument read = read(naf.toString(), EnumSet.of(Layer.TEXT, Layer.TERMS));
+	assertEquals(naf.getWFs().size(), read.getWFs().size());
+	assertEquals(naf.getTerms().size(), read.getTerms().size());
+	assertEquals(naf.getRawText(), read.getRawText());
+	assertTrue(read.getDeps().isEmpty());
+	assertTrue(read.getEntities().isEmpty());
+	assertTrue(read.getChunks().isEmpty());
+    }
+
+    @Test
+    public void loadsLayersReferredByRequestedOnes() throws Exception {
+	KAFDocument naf = NafGenerator.generate(10);
+	KAFDocument read = read(naf.toString(), EnumSet.of(Layer.DEPS));
+	assertEquals(naf.getDeps().size(), read.getDeps().size());
+	assertEquals(naf.getTerms().size(), read.getTerms().size());
+	assertEquals(naf.getWFs().size(), read.getWFs().size());
+	assertTrue(read.getEntities().isEmpty());
+    }
+
+    @Test
+    public void writesLayersNotLoaded() throws Exception {
+	String xml = NafGenerator.generate(10).toString();
+	KAFDocument naf = KAFDocument.createFromStream(new StringReader(xml));
+	KAFDocument read = read(xml, EnumSet.of(Layer.TEXT));
+	KAFDocument again = KAFDocument.createFromStream(new StringReader(read.toString()));
+	assertEquals(naf.getTerms().size(), again.getTerms().size());
+	assertEquals(naf.getDeps().size(), again.getDeps().size());
+	assertEquals(naf.getEntities().size(), again.getEntities().size());
+	assertEquals(naf.getMarks("gazetteer").size(), again.getMarks("gazetteer").size());
+    }
+}
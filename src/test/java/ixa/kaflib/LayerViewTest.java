@@ -0,0 +1,97 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class LayerViewTest {
+
+    @Test
+    public void rejectsWrites() {
+	KAFDocument naf = NafGenerator.generate(2);
+	List<Term> terms = naf.getTerms();
+	try {
+	    terms.remove(0);
+	    fail("Term removed through a view");
+	} catch (UnsupportedOperationException e) {
+	}
+	try {
+	    naf.getWFs().add(naf.getWFs().get(0));
+	    fail("WF added through a view");
+	} catch (UnsupportedOperationException e) {
+	}
+	try {
+	    naf.getDeps().clear();
+	    fail("Layer cleared through a view");
+	} catch (UnsupportedOperationException e) {
+	}
+	assertEquals(naf.getNumTerms(), terms.size());
+    }
+
+    @Test
+    public void reflectsLaterAdditions() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF first = naf.newWF(0, "a", 1);
+	Term firstTerm = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(first)));
+	List<WF> wfs = naf.getWFs();
+	List<Term> terms = naf.getTerms();
+	WF wf = naf.newWF(2, "b", 1);
+	Term term = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+	assertEquals(Arrays.asList(first, wf), wfs);
+	assertEquals(Arrays.asList(firstTerm, term), terms);
+	assertSame(naf.getTerms(), naf.getTerms());
+    }
+
+    @Test
+    public void concatenatesGroups() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF wf = naf.newWF(0, "a", 1);
+	Mark first = naf.newMark("m1", "first", KAFDocument.newWFSpan(Arrays.asList(wf)));
+	List<Mark> firstMarks = naf.getMarks("first");
+	Mark second = naf.newMark("m2", "second", KAFDocument.newWFSpan(Arrays.asList(wf)));
+	Mark third = naf.newMark("m3", "first", KAFDocument.newWFSpan(Arrays.asList(wf)));
+	assertEquals(Arrays.asList(first, third), firstMarks);
+	assertEquals(Arrays.asList(second), naf.getMarks("second"));
+	List<Annotation> marks = naf.getAnnotationContainer().getAnnotations(KAFDocument.AnnotationType.MARK);
+	assertEquals(3, marks.size());
+	assertTrue(marks.containsAll(Arrays.asList(first, second, third)));
+	try {
+	    marks.remove(first);
+	    fail("Mark removed through a view");
+	} catch (UnsupportedOperationException e) {
+	}
+    }
+
+    @Test
+    public void keepsViewsOfSentences() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF first = naf.newWF(0, "New", 1);
+	WF second = naf.newWF(4, "York", 1);
+	Term firstTerm = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(first)));
+	List<Term> terms = naf.getTermsBySent(1);
+	assertSame(terms, naf.getTermsBySent(1));
+	assertSame(naf.getWFsBySent(1), naf.getWFsBySent(1));
+	try {
+	    terms.clear();
+	    fail("Sentence cleared through a view");
+	} catch (UnsupportedOperationException e) {
+	}
+	try {
+	    naf.getBySent(KAFDocument.AnnotationType.WF, 1).remove(0);
+	    fail("WF removed through a view");
+	} catch (UnsupportedOperationException e) {
+	}
+	Term secondTerm = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(second)));
+	assertEquals(Arrays.asList(firstTerm, secondTerm), terms);
+	Term compound = naf.newCompound(Arrays.asList(firstTerm, secondTerm), "New York");
+	assertEquals(Arrays.asList(compound), terms);
+	assertTrue(naf.getTermsBySent(2).isEmpty());
+    }
+}
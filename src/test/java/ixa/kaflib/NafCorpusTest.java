@@ -0,0 +1,133 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class NafCorpusTest {
+
+    private File directory;
+
+    @Before
+    public void createCorpus() throws Exception {
+	directory = File.createTempFile("corpus", "");
+	directory.delete();
+	directory.mkdir();
+	File subdirectory = new File(directory, "sub");
+	subdirectory.mkdir();
+	for (int i = 1; i <= 6; i++) {
+	    NafGenerator.generate(i).save(new File(i % 2 == 0 ? subdirectory : directory, "doc" + i + ".naf"));
+	}
+	NafGenerator.generate(7).save(new File(directory, "doc7.naf.gz"));
+	FileWriter out = new FileWriter(new File(directory, "notes.txt"));
+	out.write("not a NAF file");
+	out.close();
+    }
+
+    @After
+    public void deleteCorpus() {
+	delete(directory);
+    }
+
+    private static void delete(File file) {
+	File[] children = file.listFiles();
+	if (children != null) {
+	    for (File child : children) {
+		delete(child);
+	    }
+	}
+	file.delete();
+    }
+
+    @Test
+    public void findsNafFiles() {
+	NafCorpus corpus = NafCorpus.open(directory);
+	assertEquals(7, corpus.size());
+	List<File> files = corpus.getFiles();
+	for (int i = 1; i < files.size(); i++) {
+	    assertTrue(files.get(i - 1).compareTo(files.get(i)) < 0);
+	}
+    }
+
+    @Test
+    public void loadsDocumentsInFileOrder() {
+	NafCorpus corpus = NafCorpus.open(directory).setThreads(3).setPrefetch(2);
+	List<File> files = new ArrayList<File>();
+	for (NafCorpus.Entry entry : corpus) {
+	    assertFalse(entry.isFailed());
+	    String name = entry.getFile().getName();
+	    int sentences = Integer.parseInt(name.substring(3, name.indexOf('.')));
+	    assertEquals(NafGenerator.generate(sentences).getWFs().size(), entry.getDocument().getWFs().size());
+	    files.add(entry.getFile());
+	}
+	assertEquals(corpus.getFiles(), files);
+    }
+
+    @Test
+    public void returnsErrorsAsEntries() throws Exception {
+	File broken = new File(directory, "broken.naf");
+	FileWriter out = new FileWriter(broken);
+	out.write("<NAF><text>");
+	out.close();
+	List<File> files = new ArrayList<File>();
+	files.add(broken);
+	files.add(new File(directory, "doc1.naf"));
+	NafCorpus.CorpusIterator entries = NafCorpus.open(files).iterator();
+	NafCorpus.Entry entry = entries.next();
+	assertTrue(entry.isFailed());
+	assertNull(entry.getDocument());
+	assertEquals(broken, entry.getFile());
+	assertFalse(entries.next().isFailed());
+	assertFalse(entries.hasNext());
+    }
+
+    @Test
+    public void loadsRequestedLayers() {
+	for (NafCorpus.Entry entry : NafCorpus.open(directory).setLayers(EnumSet.of(Layer.TEXT))) {
+	    assertFalse(entry.getDocument().getWFs().isEmpty());
+	    assertTrue(entry.getDocument().getTerms().isEmpty());
+	}
+    }
+
+    @Test
+    public void stopsWhenClosed() {
+	NafCorpus.CorpusIterator entries = NafCorpus.open(directory).setThreads(2).iterator();
+	entries.next();
+	entries.close();
+	assertFalse(entries.hasNext());
+    }
+
+    @Test
+    public void loadsOneDocumentAheadAtMost() {
+	NafCorpus corpus = NafCorpus.open(directory).setThreads(1).setPrefetch(1);
+	List<File> files = new ArrayList<File>();
+	for (NafCorpus.Entry entry : corpus) {
+	    assertFalse(entry.isFailed());
+	    files.add(entry.getFile());
+	}
+	assertEquals(corpus.getFiles(), files);
+    }
+
+    @Test
+    public void closesAsCloseable() throws Exception {
+	Closeable entries = NafCorpus.open(directory).iterator();
+	entries.close();
+	entries.close();
+	assertFalse(((NafCorpus.CorpusIterator) entries).hasNext());
+    }
+}
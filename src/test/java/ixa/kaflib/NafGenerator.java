@@ -0,0 +1,123 @@
+package ixa.kaflib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/** Generates synthetic NAF documents with text, terms, dependencies, chunks, entities and markables, to be used as test fixtures.
+ * The tests use small documents. The same number of sentences always gives the same document: the 17MB document
+ * the loading and writing timings were taken with is generate(1850), saved as XML.
+ */
+public class NafGenerator {
+
+    private static final String[] WORDS = {"the", "a", "city", "river", "government", "people", "report", "said", "built",
+	"new", "old", "market", "north", "years", "company", "announced", "after", "before", "with", "council",
+	"bridge", "station", "museum", "opened", "closed", "plans", "and", "of", "in", "to"};
+    private static final String[] POS = {"D", "D", "N", "N", "N", "N", "N", "V", "V", "G", "G", "N", "N", "N", "N", "V",
+	"P", "P", "P", "N", "N", "N", "N", "V", "V", "N", "C", "P", "P", "P"};
+    private static final String[] FUNCTIONS = {"SBJ", "OBJ", "NMOD", "PMOD", "ADV", "COORD"};
+    private static final String[] NAMES = {"Bilbao", "Donostia", "Gasteiz", "Iruñea", "Baiona", "Nerbioi", "Urola", "Oria"};
+    private static final String[] ENTITY_TYPES = {"LOC", "ORG", "PER"};
+
+    /** Generates a document with the given number of sentences, of 5 to 34 words each. */
+    public static KAFDocument generate(int sentences) {
+	Random random = new Random(sentences);
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.addLinguisticProcessor("text", "generator").setVersion("1.0");
+	naf.addLinguisticProcessor("terms", "generator").setVersion("1.0");
+	naf.addLinguisticProcessor("deps", "generator").setVersion("1.0");
+	StringBuilder rawText = new StringBuilder();
+	naf.beginBulkUpdate();
+	for (int sent = 1; sent <= sentences; sent++) {
+	    int para = (sent - 1) / 10 + 1;
+	    int length = 5 + random.nextInt(30);
+	    List<Term> terms = new ArrayList<Term>(length);
+	    for (int i = 0; i < length; i++) {
+		boolean name = random.nextInt(8) == 0;
+		int word = random.nextInt(WORDS.length);
+		String form = name ? NAMES[random.nextInt(NAMES.length)] : WORDS[word];
+		if (rawText.length() > 0) {
+		    rawText.append(' ');
+		}
+		WF wf = naf.newWF(rawText.length(), form, sent);
+		wf.setPara(para);
+		rawText.append(form);
+		Term term = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+		term.setType(name ? "close" : "open");
+		term.setLemma(form.toLowerCase());
+		term.setPos(name ? "R" : POS[word]);
+		term.setMorphofeat(name ? "NNP" : POS[word] + "000");
+		if (random.nextInt(4) == 0) {
+		    ExternalRef externalRef = naf.newExternalRef("WordNet-3.0", "ili-30-" + (1000000 + random.nextInt(9000000)) + "-n");
+		    externalRef.setConfidence(random.nextFloat());
+		    term.addExternalRef(externalRef);
+		}
+		terms.add(term);
+	    }
+	    /* Each term but the first depends on a term before it */
+	    for (int i = 1; i < length; i++) {
+		naf.newDep(terms.get(random.nextInt(i)), terms.get(i), FUNCTIONS[random.nextInt(FUNCTIONS.length)]);
+	    }
+	    for (int begin = 0; begin + 3 <= length; begin += 3 + random.nextInt(3)) {
+		Span<Term> span = KAFDocument.newTermSpan(terms.subList(begin, begin + 3), terms.get(begin + 2));
+		naf.newChunk("NP", span);
+	    }
+	    for (int i = 0; i < length; i++) {
+		if (terms.get(i).getType().equals("close")) {
+		    Entity entity = naf.newEntity(Arrays.asList(KAFDocument.newTermSpan(Arrays.asList(terms.get(i)))));
+		    entity.setType(ENTITY_TYPES[random.nextInt(ENTITY_TYPES.length)]);
+		    naf.newMark(KAFDocument.newWFSpan(terms.get(i).getWFs()), "gazetteer").setLemma(terms.get(i).getLemma());
+		}
+	    }
+	    rawText.append(" .");
+	    WF stop = naf.newWF(rawText.length() - 1, ".", sent);
+	    stop.setPara(para);
+	    Term term = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(stop)));
+	    term.setType("close");
+	    term.setLemma(".");
+	    term.setPos("O");
+	    naf.newDep(terms.get(0), term, "P");
+	}
+	naf.endBulkUpdate();
+	naf.setRawText(rawText.toString());
+	return naf;
+    }
+
+    /** Builds a small document by hand: "John lives in New York. He likes it.", with a term for each word form,
+     * the dependencies of both sentences, a PER entity on John, a LOC entity on New York and a gazetteer mark on New York.
+     */
+    public static KAFDocument sample() {
+	String rawText = "John lives in New York. He likes it.";
+	String[] forms = {"John", "lives", "in", "New", "York", ".", "He", "likes", "it", "."};
+	String[] pos = {"N", "V", "P", "N", "N", "O", "Q", "V", "Q", "O"};
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.setRawText(rawText);
+	List<Term> terms = new ArrayList<Term>();
+	int offset = 0;
+	for (int i = 0; i < forms.length; i++) {
+	    offset = rawText.indexOf(forms[i], offset);
+	    WF wf = naf.newWF(offset, forms[i], (i < 6) ? 1 : 2);
+	    wf.setPara(1);
+	    offset += forms[i].length();
+	    Term term = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+	    term.setType("open");
+	    term.setLemma(forms[i].toLowerCase());
+	    term.setPos(pos[i]);
+	    terms.add(term);
+	}
+	naf.newDep(terms.get(1), terms.get(0), "SBJ");
+	naf.newDep(terms.get(1), terms.get(2), "LOC");
+	naf.newDep(terms.get(2), terms.get(4), "PMOD");
+	naf.newDep(terms.get(4), terms.get(3), "NMOD");
+	naf.newDep(terms.get(1), terms.get(5), "P");
+	naf.newDep(terms.get(7), terms.get(6), "SBJ");
+	naf.newDep(terms.get(7), terms.get(8), "OBJ");
+	naf.newDep(terms.get(7), terms.get(9), "P");
+	naf.newEntity(Arrays.asList(KAFDocument.newTermSpan(new ArrayList<Term>(terms.subList(0, 1))))).setType("PER");
+	naf.newEntity(Arrays.asList(KAFDocument.newTermSpan(new ArrayList<Term>(terms.subList(3, 5))))).setType("LOC");
+	naf.newMark(KAFDocument.newWFSpan(new ArrayList<WF>(naf.getWFs().subList(3, 5))), "gazetteer").setLemma("new york");
+	return naf;
+    }
+}
@@ -0,0 +1,105 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+
+public class NafReadTest {
+
+    private static KAFDocument read(String xml) throws Exception {
+	return KAFDocument.createFromStream(new StringReader(xml));
+    }
+
+    @Test
+    public void readsWhatWasWritten() throws Exception {
+	KAFDocument naf = NafGenerator.generate(20);
+	String xml = naf.toString();
+	KAFDocument read = read(xml);
+	assertEquals(naf.getWFs().size(), read.getWFs().size());
+	assertEquals(naf.getTerms().size(), read.getTerms().size());
+	assertEquals(naf.getDeps().size(), read.getDeps().size());
+	assertEquals(naf.getEntities().size(), read.getEntities().size());
+	assertEquals(naf.getRawText(), read.getRawText());
+	assertEquals(xml, read.toString());
+    }
+
+    @Test
+    public void readsAttributesAndReferences() throws Exception {
+	KAFDocument naf = read("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			       + "<NAF xml:lang=\"en\" version=\"v3\">\n"
+			       + "<text><wf id=\"w1\" offset=\"0\" length=\"4\" sent=\"1\" para=\"1\">John</wf>"
+			       + "<wf id=\"w2\" offset=\"5\" length=\"5\" sent=\"1\" para=\"1\">sleeps</wf></text>\n"
+			       + "<terms><term id=\"t1\" type=\"close\" lemma=\"John\" pos=\"R\"><span><target id=\"w1\"/></span></term>"
+			       + "<term id=\"t2\" type=\"open\" lemma=\"sleep\" pos=\"V\"><span><target id=\"w2\"/></span></term></terms>\n"
+			       + "<deps><dep from=\"t2\" to=\"t1\" rfunc=\"SBJ\"/></deps>\n"
+			       + "</NAF>\n");
+	assertEquals("en", naf.getLang());
+	assertEquals(2, naf.getWFs().size());
+	assertEquals(5, naf.getWFs().get(1).getOffset());
+	Term term = naf.getTerms().get(1);
+	assertEquals("sleep", term.getLemma());
+	assertEquals("V", term.getPos());
+	assertEquals(naf.getWFs().get(1), term.getWFs().get(0));
+	Dep dep = naf.getDeps().get(0);
+	assertEquals(term, dep.getFrom());
+	assertEquals(naf.getTerms().get(0), dep.getTo());
+	assertEquals("SBJ", dep.getRfunc());
+    }
+
+    @Test
+    public void keepsUnknownLayers() throws Exception {
+	KAFDocument naf = read("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			       + "<NAF xml:lang=\"en\" version=\"v3\">\n"
+			       + "<myLayer><item id=\"i1\">value</item></myLayer>\n"
+			       + "</NAF>\n");
+	assertEquals(1, naf.getUnknownLayers().size());
+	assertEquals("myLayer", naf.getUnknownLayers().iterator().next().getName());
+	assertEquals(1, read(naf.toString()).getUnknownLayers().size());
+    }
+
+    @Test
+    public void keepsSourceOnlyWhenAsked() throws Exception {
+	String xml = NafGenerator.generate(3).toString();
+	assertNull(read(xml).getAnnotationContainer().getSource());
+	assertNull(new NafReader().read(xml).getAnnotationContainer().getSource());
+	KAFDocument naf = new NafReader().setKeepSource(true).read(xml);
+	assertNotNull(naf.getAnnotationContainer().getSource());
+	assertEquals(xml, naf.toString());
+    }
+
+    @Test
+    public void readsFilesInTheirEncoding() throws Exception {
+	String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+	    + "<NAF xml:lang=\"eu\" version=\"v3\">\n"
+	    + "<text><wf id=\"w1\" offset=\"0\" length=\"6\" sent=\"1\">Iruñea</wf></text>\n"
+	    + "</NAF>\n";
+	File file = File.createTempFile("latin1", ".naf");
+	File gzipped = File.createTempFile("latin1", ".naf.gz");
+	try {
+	    OutputStream out = new FileOutputStream(file);
+	    out.write(xml.getBytes("ISO-8859-1"));
+	    out.close();
+	    out = new GZIPOutputStream(new FileOutputStream(gzipped));
+	    out.write(xml.getBytes("ISO-8859-1"));
+	    out.close();
+	    for (File input : new File[] {file, gzipped}) {
+		assertEquals("Iruñea", new NafReader().read(input).getWFs().get(0).getForm());
+		KAFDocument naf = new NafReader().setKeepSource(true).read(input);
+		assertNotNull(naf.getAnnotationContainer().getSource());
+		assertEquals("Iruñea", naf.getWFs().get(0).getForm());
+	    }
+	} finally {
+	    file.delete();
+	    gzipped.delete();
+	}
+    }
+}
@@ -0,0 +1,98 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+
+public class NafReaderWriterTest {
+
+    @Test
+    public void reusesReaderAndWriter() throws Exception {
+	NafReader reader = new NafReader();
+	NafWriter writer = new NafWriter();
+	for (int sentences = 1; sentences <= 5; sentences++) {
+	    String xml = NafGenerator.generate(sentences).toString();
+	    StringWriter out = new StringWriter();
+	    writer.write(reader.read(xml), out);
+	    assertEquals(xml, out.toString());
+	}
+    }
+
+    @Test
+    public void readsAndWritesFromSeveralThreads() throws Exception {
+	final List<String> documents = new ArrayList<String>();
+	for (int sentences = 1; sentences <= 8; sentences++) {
+	    documents.add(NafGenerator.generate(sentences).toString());
+	}
+	ExecutorService executor = Executors.newFixedThreadPool(2);
+	try {
+	    List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+	    for (int thread = 0; thread < 2; thread++) {
+		final boolean ownInstances = thread == 0;
+		results.add(executor.submit(new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+			    NafReader reader = new NafReader();
+			    NafWriter writer = new NafWriter();
+			    for (int round = 0; round < 10; round++) {
+				for (String xml : documents) {
+				    String written;
+				    if (ownInstances) {
+					written = writer.toString(reader.read(xml));
+				    } else {
+					written = KAFDocument.createFromStream(new StringReader(xml)).toString();
+				    }
+				    if (!written.equals(xml)) {
+					return false;
+				    }
+				}
+			    }
+			    return true;
+			}
+		    }));
+	    }
+	    for (Future<Boolean> result : results) {
+		assertTrue(result.get());
+	    }
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void doesNotResolveExternalEntities() throws Exception {
+	File secret = File.createTempFile("secret", ".txt");
+	FileWriter out = new FileWriter(secret);
+	out.write("secret");
+	out.close();
+	try {
+	    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+		+ "<!DOCTYPE NAF [<!ENTITY secret SYSTEM \"" + secret.toURI() + "\">]>\n"
+		+ "<NAF xml:lang=\"en\" version=\"v3\">\n"
+		+ "  <raw>&secret;</raw>\n"
+		+ "</NAF>\n";
+	    String rawText;
+	    try {
+		rawText = new NafReader().read(xml).getRawText();
+	    } catch (Exception e) {
+		rawText = null;
+	    }
+	    assertFalse("secret".equals(rawText));
+	} finally {
+	    secret.delete();
+	}
+    }
+}
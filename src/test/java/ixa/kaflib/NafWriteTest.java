@@ -0,0 +1,94 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Scanner;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.output.Format;
+import org.jdom2.output.LineSeparator;
+import org.jdom2.output.XMLOutputter;
+import org.junit.Test;
+
+
+public class NafWriteTest {
+
+    @Test
+    public void writesThePrettyFormatLayout() throws Exception {
+	Element root = new Element("root");
+	Element empty = new Element("empty");
+	empty.setAttribute("a", "<\"&'>\n\t");
+	root.addContent(empty);
+	Element text = new Element("text");
+	text.setText("x < y & z > w");
+	root.addContent(text);
+	root.addContent(new Comment("a -- comment-"));
+	Element nested = new Element("nested");
+	nested.addContent(new Element("inner").setAttribute("b", "c"));
+	root.addContent(nested);
+	XMLOutputter outputter = new XMLOutputter(Format.getPrettyFormat().setLineSeparator(LineSeparator.UNIX).setTextMode(Format.TextMode.TRIM_FULL_WHITE));
+
+	StringWriter out = new StringWriter();
+	XMLEmitter emitter = new XMLEmitter(out);
+	emitter.startDocument();
+	emitter.startElement("root");
+	emitter.startElement("empty");
+	emitter.attribute("a", "<\"&'>\n\t");
+	emitter.endElement();
+	emitter.startElement("text");
+	emitter.text("x < y & z > w");
+	emitter.endElement();
+	emitter.comment("a -- comment-");
+	emitter.startElement("nested");
+	emitter.startElement("inner");
+	emitter.attribute("b", "c");
+	emitter.endElement();
+	emitter.endElement();
+	emitter.endElement();
+	emitter.endDocument();
+	assertEquals(outputter.outputString(new Document(root)), out.toString());
+    }
+
+    @Test
+    public void writesTheSameToEveryOutput() throws Exception {
+	KAFDocument naf = NafGenerator.generate(10);
+	String xml = naf.toString();
+	StringWriter writer = new StringWriter();
+	naf.write(writer);
+	assertEquals(xml, writer.toString());
+	ByteArrayOutputStream stream = new ByteArrayOutputStream();
+	naf.save(stream);
+	assertEquals(xml, stream.toString("UTF-8"));
+	File file = File.createTempFile("naf", ".naf");
+	try {
+	    naf.save(file);
+	    Scanner scanner = new Scanner(file, "UTF-8").useDelimiter("\\A");
+	    assertEquals(xml, scanner.next());
+	    scanner.close();
+	} finally {
+	    file.delete();
+	}
+    }
+
+    @Test
+    public void writesUnknownLayers() throws Exception {
+	KAFDocument naf = KAFDocument.createFromStream(new StringReader("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+									  + "<NAF xml:lang=\"en\" version=\"v3\">\n"
+									  + "  <myLayer>\n"
+									  + "    <item id=\"i1\">value</item>\n"
+									  + "  </myLayer>\n"
+									  + "</NAF>\n"));
+	assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+		     + "<NAF xml:lang=\"en\" version=\"v3\">\n"
+		     + "  <nafHeader />\n"
+		     + "  <myLayer>\n"
+		     + "    <item id=\"i1\">value</item>\n"
+		     + "  </myLayer>\n"
+		     + "</NAF>\n", naf.toString());
+    }
+}
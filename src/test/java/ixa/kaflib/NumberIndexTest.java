@@ -0,0 +1,86 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+
+public class NumberIndexTest {
+
+    @Test
+    public void keepsValuesInOrder() {
+	NumberIndex<String> index = new NumberIndex<String>();
+	index.put(3, "c");
+	index.put(1, "a");
+	index.put(2, "b");
+	index.put(2, "B");
+	assertEquals(Arrays.asList("a", "B", "c"), index.values());
+	assertEquals("c", index.get(3));
+	assertNull(index.get(0));
+	assertNull(index.get(-5));
+    }
+
+    @Test
+    public void keepsDistantNumbers() {
+	NumberIndex<Integer> index = new NumberIndex<Integer>();
+	index.put(5, 5);
+	index.put(1000000, 1000000);
+	index.put(-1000000, -1000000);
+	assertEquals(Arrays.asList(-1000000, 5, 1000000), index.values());
+	assertEquals(Integer.valueOf(1000000), index.get(1000000));
+    }
+
+    @Test
+    public void indexesSentencesAndParagraphs() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	for (int sent = 1; sent <= 6; sent++) {
+	    for (int i = 0; i < 3; i++) {
+		WF wf = naf.newWF(10 * sent + i, "w", sent);
+		wf.setPara((sent + 1) / 2);
+		naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+	    }
+	}
+	assertEquals(6, (int) naf.getNumSentences());
+	assertEquals(3, (int) naf.getNumParagraphs());
+	assertEquals(3, naf.getWFsBySent(4).size());
+	assertEquals(Integer.valueOf(4), naf.getTermsBySent(4).get(0).getSent());
+	assertEquals(6, naf.getSentences().size());
+	assertEquals(3, naf.getSentences().get(5).size());
+    }
+
+    @Test
+    public void keepsDistantNumbersOnceTheArrayReachesThem() {
+	NumberIndex<Integer> index = new NumberIndex<Integer>();
+	for (int key = 1; key <= 10; key++) {
+	    index.put(key, key);
+	}
+	index.put(2000, 2000);
+	for (int key = 11; key <= 1500; key++) {
+	    index.put(key, key);
+	}
+	assertEquals(Integer.valueOf(2000), index.get(2000));
+	assertEquals(1501, index.size());
+	assertFalse(index.values().contains(null));
+	assertEquals(Integer.valueOf(2000), index.values().get(1500));
+	index.put(2000, -2000);
+	assertEquals(Integer.valueOf(-2000), index.get(2000));
+    }
+
+    @Test
+    public void findsWFsOfDistantSentences() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	for (int sent = 1; sent <= 10; sent++) {
+	    naf.newWF(sent, "w", sent);
+	}
+	WF distant = naf.newWF(2000, "w", 2000);
+	for (int sent = 11; sent <= 1500; sent++) {
+	    naf.newWF(sent, "w", sent);
+	}
+	assertEquals(Arrays.asList(distant), naf.getWFsBySent(2000));
+	assertFalse(naf.getSentences().contains(null));
+    }
+}
@@ -0,0 +1,65 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class OffsetIndexTest {
+
+    @Test
+    public void findsWFsByOffset() {
+	KAFDocument naf = NafGenerator.sample();
+	List<WF> wfs = naf.getWFs();
+	assertSame(wfs.get(0), naf.getWFAtOffset(0));
+	assertSame(wfs.get(0), naf.getWFAtOffset(3));
+	assertNull(naf.getWFAtOffset(4)); // Space between words
+	assertSame(wfs.get(4), naf.getWFAtOffset(21));
+	assertNull(naf.getWFAtOffset(100));
+	assertEquals(wfs.subList(3, 5), naf.getWFsInRange(14, 22));
+	assertEquals(wfs.subList(1, 4), naf.getWFsInRange(9, 15));
+	assertTrue(naf.getWFsInRange(4, 5).isEmpty());
+	assertTrue(naf.getWFsInRange(10, 10).isEmpty());
+	assertEquals(naf.getTerms().subList(3, 5), naf.getTermsInRange(14, 22));
+	assertEquals(1, naf.getEntitiesInRange(14, 15).size());
+    }
+
+    @Test
+    public void findsOverlappingWFs() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF longWF = naf.newWF(0, 20, "a long word", 1);
+	WF inside = naf.newWF(2, 3, "abc", 1);
+	WF after = naf.newWF(25, 2, "de", 1);
+	OffsetIndex index = new OffsetIndex(new ArrayList<Annotation>(naf.getWFs()));
+	assertSame(longWF, index.get(10));
+	assertEquals(Arrays.asList(longWF, inside), index.get(3, 4));
+	assertEquals(Arrays.asList(longWF), index.get(15, 25));
+	assertEquals(Arrays.asList(longWF, inside, after), index.get(0, 30));
+	assertNull(index.get(22));
+    }
+
+    @Test
+    public void sortsWFsByOffset() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF second = naf.newWF(10, "second", 1);
+	WF first = naf.newWF(0, "first", 1);
+	OffsetIndex index = new OffsetIndex(new ArrayList<Annotation>(naf.getWFs()));
+	assertEquals(Arrays.asList(first, second), index.get(0, 20));
+	assertSame(second, index.get(12));
+    }
+
+    @Test
+    public void followsChangesInText() {
+	KAFDocument naf = NafGenerator.sample();
+	assertNull(naf.getWFAtOffset(40));
+	WF wf = naf.newWF(37, "More", 3);
+	assertSame(wf, naf.getWFAtOffset(40));
+    }
+}
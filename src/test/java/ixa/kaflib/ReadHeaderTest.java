@@ -0,0 +1,65 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.Test;
+
+
+public class ReadHeaderTest {
+
+    private static File write(String xml) throws Exception {
+	File file = File.createTempFile("naf", ".naf");
+	Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+	try {
+	    out.write(xml);
+	} finally {
+	    out.close();
+	}
+	return file;
+    }
+
+    @Test
+    public void readsHeader() throws Exception {
+	KAFDocument naf = NafGenerator.generate(10);
+	naf.createFileDesc().title = "Generated";
+	File file = File.createTempFile("naf", ".naf");
+	try {
+	    naf.save(file);
+	    KAFDocument header = KAFDocument.readHeader(file);
+	    assertEquals("en", header.getLang());
+	    assertEquals("v3", header.getVersion());
+	    assertEquals("Generated", header.getFileDesc().title);
+	    assertEquals(3, header.getLinguisticProcessors().size());
+	    assertTrue(header.getWFs().isEmpty());
+	    assertTrue(header.getTerms().isEmpty());
+	} finally {
+	    file.delete();
+	}
+    }
+
+    @Test
+    public void stopsBeforeTheTextLayer() throws Exception {
+	File file = write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			  + "<NAF xml:lang=\"eu\" version=\"v3\">\n"
+			  + "  <nafHeader>\n"
+			  + "    <linguisticProcessors layer=\"text\">\n"
+			  + "      <lp name=\"tokenizer\" version=\"1.0\" />\n"
+			  + "    </linguisticProcessors>\n"
+			  + "  </nafHeader>\n"
+			  + "  <text>\n"
+			  + "    <wf id=\"w1\" <<< not XML\n");
+	try {
+	    KAFDocument header = KAFDocument.readHeader(file);
+	    assertEquals("eu", header.getLang());
+	    assertEquals("tokenizer", header.getLinguisticProcessors().get("text").get(0).getName());
+	} finally {
+	    file.delete();
+	}
+    }
+}
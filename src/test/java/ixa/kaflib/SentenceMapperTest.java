@@ -0,0 +1,131 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import ixa.kaflib.KAFDocument.AnnotationType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class SentenceMapperTest {
+
+    private static final SentenceFunction<WF, String> TEXT = new SentenceFunction<WF, String>() {
+	    public String apply(List<WF> sentence) {
+		StringBuilder text = new StringBuilder();
+		for (WF wf : sentence) {
+		    text.append(wf.getForm()).append(' ');
+		}
+		return text.toString();
+	    }
+	};
+
+    private static final SentenceFunction<Term, List<Integer>> POSITIONS = new SentenceFunction<Term, List<Integer>>() {
+	    public List<Integer> apply(List<Term> sentence) {
+		List<Integer> positions = new ArrayList<Integer>();
+		for (Term term : sentence) {
+		    positions.add(term.getIndex());
+		    positions.add(term.getSentenceIndex());
+		}
+		return positions;
+	    }
+	};
+
+    @Test
+    public void returnsResultsInSentenceOrder() {
+	KAFDocument naf = NafGenerator.generate(200);
+	List<String> parallel = naf.mapSentences(AnnotationType.WF, TEXT, 4);
+	List<String> expected = new ArrayList<String>();
+	for (List<WF> sentence : naf.getSentences()) {
+	    expected.add(TEXT.apply(sentence));
+	}
+	assertEquals(200, parallel.size());
+	assertEquals(expected, parallel);
+	assertEquals(expected, naf.mapSentences(AnnotationType.WF, TEXT, 1));
+    }
+
+    @Test
+    public void groupsAnnotationsBySentence() {
+	KAFDocument naf = NafGenerator.generate(10);
+	List<List<Annotation>> sentences = naf.getSentences(AnnotationType.TERM);
+	assertEquals(10, sentences.size());
+	for (int sent = 1; sent <= 10; sent++) {
+	    assertEquals(naf.getTermsBySent(sent), sentences.get(sent - 1));
+	}
+    }
+
+    @Test
+    public void givesReadOnlySentences() {
+	KAFDocument naf = NafGenerator.generate(3);
+	List<List<Annotation>> sentences = naf.getSentences(AnnotationType.TERM);
+	try {
+	    sentences.get(0).clear();
+	    fail("Sentence cleared through getSentences");
+	} catch (UnsupportedOperationException e) {
+	}
+	try {
+	    naf.getSentences().get(1).remove(0);
+	    fail("WF removed through getSentences");
+	} catch (UnsupportedOperationException e) {
+	}
+	try {
+	    sentences.remove(0);
+	    fail("Sentence removed through getSentences");
+	} catch (UnsupportedOperationException e) {
+	}
+	assertSame(naf.getTermsBySent(1), sentences.get(0));
+	assertTrue(naf.getAnnotationContainer().getSentences(AnnotationType.TERM, "other").isEmpty());
+    }
+
+    @Test
+    public void mapsReadOnlySentences() {
+	KAFDocument naf = NafGenerator.generate(20);
+	List<Boolean> rejected = naf.mapSentences(AnnotationType.WF, new SentenceFunction<WF, Boolean>() {
+		public Boolean apply(List<WF> sentence) {
+		    try {
+			sentence.clear();
+			return false;
+		    } catch (UnsupportedOperationException e) {
+			return true;
+		    }
+		}
+	    }, 4);
+	assertEquals(20, rejected.size());
+	assertTrue(!rejected.contains(false));
+    }
+
+    @Test
+    public void readsPositionsInParallel() {
+	KAFDocument naf = NafGenerator.generate(200);
+	List<List<Integer>> parallel = naf.mapSentences(AnnotationType.TERM, POSITIONS, 4);
+	List<List<Integer>> serial = naf.mapSentences(AnnotationType.TERM, POSITIONS, 1);
+	assertEquals(200, parallel.size());
+	assertEquals(serial, parallel);
+	assertEquals(Integer.valueOf(0), parallel.get(0).get(1));
+    }
+
+    @Test
+    public void readsPositionsAfterInsertions() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(StAXLoaderTest.sampleFile());
+	List<Term> terms = naf.getTerms();
+	naf.newCompound(Arrays.asList(terms.get(3), terms.get(4)), "new york");
+	List<List<Integer>> positions = naf.mapSentences(AnnotationType.TERM, POSITIONS, 2);
+	assertEquals(Arrays.asList(0, 0, 1, 1, 2, 2, 3, 3, 4, 4), positions.get(0));
+	assertEquals(Arrays.asList(5, 0, 6, 1, 7, 2, 8, 3), positions.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void throwsExceptionsOfTheFunction() {
+	NafGenerator.generate(20).mapSentences(AnnotationType.WF, new SentenceFunction<WF, Void>() {
+		public Void apply(List<WF> sentence) {
+		    throw new IllegalStateException();
+		}
+	    }, 3);
+    }
+}
@@ -0,0 +1,63 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class SerializedKAFDocumentTest {
+
+    private static KAFDocument serialize(KAFDocument naf) throws Exception {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	ObjectOutputStream out = new ObjectOutputStream(bytes);
+	out.writeObject(naf);
+	out.close();
+	ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+	try {
+	    return (KAFDocument) in.readObject();
+	} finally {
+	    in.close();
+	}
+    }
+
+    @Test
+    public void readsWhatWasWritten() throws Exception {
+	KAFDocument naf = NafGenerator.generate(30);
+	KAFDocument read = serialize(naf);
+	assertEquals(naf.toString(), read.toString());
+    }
+
+    @Test
+    public void buildsIndexesAgain() throws Exception {
+	KAFDocument naf = NafGenerator.generate(5);
+	KAFDocument read = serialize(naf);
+	Term term = read.getTerms().get(3);
+	Dep dep = read.getDepToTerm(term);
+	assertSame(term, dep.getTo());
+	assertSame(read.getTerms().get(naf.getTerms().indexOf(naf.getDepToTerm(naf.getTerms().get(3)).getFrom())), dep.getFrom());
+	List<Term> sentence = read.getTermsBySent(2);
+	assertEquals(naf.getTermsBySent(2).size(), sentence.size());
+	assertEquals(naf.getTermsBySent(2).get(0).getId(), sentence.get(0).getId());
+	Entity entity = read.getEntities().get(0);
+	assertEquals(1, read.getEntitiesByTerm(entity.getTerms().get(0)).size());
+    }
+
+    @Test
+    public void keepsIdCounters() throws Exception {
+	KAFDocument naf = NafGenerator.generate(3);
+	naf.newDep(naf.getTerms().get(0), naf.getTerms().get(2), "X");
+	KAFDocument read = serialize(naf);
+	WF wf = naf.newWF(0, "a", 4);
+	WF readWF = read.newWF(0, "a", 4);
+	assertEquals(wf.getId(), readWF.getId());
+	assertEquals(naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf))).getId(), read.newTerm(KAFDocument.newWFSpan(Arrays.asList(readWF))).getId());
+    }
+}
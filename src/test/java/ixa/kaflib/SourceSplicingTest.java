@@ -0,0 +1,105 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.EnumSet;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+
+public class SourceSplicingTest {
+
+    private static String read(File file) throws Exception {
+	Scanner scanner = new Scanner(file, "UTF-8").useDelimiter("\\A");
+	try {
+	    return scanner.next();
+	} finally {
+	    scanner.close();
+	}
+    }
+
+    private static KAFDocument load(File file) throws Exception {
+	return new NafReader().setKeepSource(true).read(file);
+    }
+
+    @Test
+    public void writesUnmodifiedDocumentAsRead() throws Exception {
+	File file = StAXLoaderTest.sampleFile();
+	KAFDocument naf = load(file);
+	assertEquals(read(file), StAXLoaderTest.write(naf));
+    }
+
+    @Test
+    public void tracksModifiedLayers() throws Exception {
+	KAFDocument naf = load(StAXLoaderTest.sampleFile());
+	AnnotationContainer annotationContainer = naf.getAnnotationContainer();
+	naf.getEntities();
+	naf.getTerms();
+	naf.getWFs();
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("entities", Layer.ENTITIES));
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("terms", Layer.TERMS));
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("text", Layer.TEXT));
+	naf.getEntities().get(0).setType("LOC");
+	assertNull(annotationContainer.getUnmodifiedSourceRange("entities", Layer.ENTITIES));
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("terms", Layer.TERMS)); // Only referred by the entities
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("text", Layer.TEXT));
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("deps", Layer.DEPS));
+	assertNotNull(annotationContainer.getSource());
+    }
+
+    @Test
+    public void tracksChangesOfSpansAndParts() throws Exception {
+	KAFDocument naf = load(StAXLoaderTest.sampleFile());
+	AnnotationContainer annotationContainer = naf.getAnnotationContainer();
+	naf.getEntities().get(0).getSpans().get(0).addTarget(naf.getTerms().get(0));
+	assertNull(annotationContainer.getUnmodifiedSourceRange("entities", Layer.ENTITIES));
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("terms", Layer.TERMS));
+	naf.getTerms().get(0).getSpan().setHead(naf.getWFs().get(0));
+	assertNull(annotationContainer.getUnmodifiedSourceRange("terms", Layer.TERMS));
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("deps", Layer.DEPS));
+	naf.getDeps().get(0).setRfunc("X");
+	assertNull(annotationContainer.getUnmodifiedSourceRange("deps", Layer.DEPS));
+	assertNotNull(annotationContainer.getUnmodifiedSourceRange("text", Layer.TEXT));
+    }
+
+    @Test
+    public void writesModifiedLayersAgain() throws Exception {
+	KAFDocument naf = load(StAXLoaderTest.sampleFile());
+	naf.getTerms().get(0).setLemma("Johnny");
+	String xml = StAXLoaderTest.write(naf);
+	KAFDocument read = KAFDocument.createFromStream(new StringReader(xml));
+	assertEquals("Johnny", read.getTerms().get(0).getLemma());
+	assertEquals(8, read.getDeps().size());
+    }
+
+    @Test
+    public void releasesSourceOnceAllLayersAreModified() throws Exception {
+	KAFDocument naf = load(StAXLoaderTest.sampleFile());
+	String unmodified = StAXLoaderTest.write(naf);
+	AnnotationContainer annotationContainer = naf.getAnnotationContainer();
+	annotationContainer.setModified(Layer.TEXT);
+	annotationContainer.setModified(Layer.TERMS);
+	annotationContainer.setModified(Layer.DEPS);
+	annotationContainer.setModified(Layer.ENTITIES);
+	assertNotNull(annotationContainer.getSource()); // The markables are still unmodified
+	annotationContainer.setModified(Layer.MARKABLES);
+	assertNull(annotationContainer.getSource());
+	assertEquals(unmodified, StAXLoaderTest.write(naf));
+    }
+
+    @Test
+    public void keepsSourceOfSkippedLayers() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(StAXLoaderTest.sampleFile(), EnumSet.of(Layer.TEXT, Layer.TERMS));
+	naf.getTerms();
+	assertNotNull(naf.getAnnotationContainer().getSource());
+	assertTrue(StAXLoaderTest.write(naf).contains("<deps>"));
+    }
+}
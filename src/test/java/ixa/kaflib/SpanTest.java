@@ -0,0 +1,127 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+public class SpanTest {
+
+    private static List<WF> wfs(int count) {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	List<WF> wfs = new ArrayList<WF>();
+	for (int i = 0; i < count; i++) {
+	    wfs.add(naf.newWF(2 * i, "w", 1));
+	}
+	return wfs;
+    }
+
+    @Test
+    public void hashesSpansBuiltFromListsLikeTheRest() {
+	List<WF> wfs = wfs(3);
+	Span<WF> added = KAFDocument.newWFSpan();
+	for (WF wf : wfs) {
+	    added.addTarget(wf);
+	}
+	Span<WF> fromList = KAFDocument.newWFSpan(wfs);
+	Span<WF> reversed = KAFDocument.newWFSpan(Arrays.asList(wfs.get(2), wfs.get(1), wfs.get(0)));
+	Span<WF> addedAll = KAFDocument.newWFSpan();
+	addedAll.addTargets(wfs);
+	assertEquals(added.hashCode(), fromList.hashCode());
+	assertEquals(added.hashCode(), reversed.hashCode());
+	assertEquals(added.hashCode(), addedAll.hashCode());
+	assertFalse(added.hashCode() == KAFDocument.newWFSpan(wfs.subList(0, 2)).hashCode());
+    }
+
+    @Test
+    public void keepsTargetsInTheOrderAdded() {
+	List<WF> wfs = wfs(4);
+	Span<WF> span = KAFDocument.newWFSpan(new ArrayList<WF>(Arrays.asList(wfs.get(3), wfs.get(0))));
+	span.addTarget(wfs.get(2));
+	span.addTargets(Arrays.asList(wfs.get(1)));
+	assertEquals(Arrays.asList(wfs.get(3), wfs.get(0), wfs.get(2), wfs.get(1)), span.getTargets());
+	assertEquals(4, span.size());
+    }
+
+    @Test
+    public void keepsHeadsOfSpansBuiltFromLists() {
+	List<WF> wfs = wfs(3);
+	Span<WF> span = KAFDocument.list2Span(wfs, wfs.get(1));
+	assertSame(wfs.get(1), span.getHead());
+	assertEquals(wfs, span.getTargets());
+	assertNull(KAFDocument.list2Span(wfs.subList(0, 1), wfs.get(2)).getHead());
+    }
+
+    @Test
+    public void buildsLargeSpans() {
+	List<WF> wfs = wfs(20000);
+	Span<WF> span = KAFDocument.newWFSpan();
+	for (WF wf : wfs) {
+	    span.addTarget(wf);
+	}
+	assertEquals(20000, span.size());
+	assertEquals(KAFDocument.newWFSpan(wfs).hashCode(), span.hashCode());
+    }
+
+    @Test
+    public void comparesSpansByTheirTargets() {
+	List<WF> wfs = wfs(3);
+	Span<WF> span = KAFDocument.newWFSpan(new ArrayList<WF>(wfs));
+	assertEquals(span, KAFDocument.newWFSpan(Arrays.asList(wfs.get(2), wfs.get(0), wfs.get(1))));
+	assertNotEquals(span, KAFDocument.newWFSpan(Arrays.asList(wfs.get(2), wfs.get(0), wfs.get(0))));
+	assertNotEquals(span, KAFDocument.newWFSpan(wfs.subList(0, 2)));
+	assertNotEquals(span, KAFDocument.newWFSpan(wfs, wfs.get(0)));
+	assertNotEquals(span, KAFDocument.newWFSpan(wfs(3)));
+	Set<Span<WF>> spans = new HashSet<Span<WF>>();
+	spans.add(span);
+	spans.add(KAFDocument.newWFSpan(Arrays.asList(wfs.get(1), wfs.get(2), wfs.get(0))));
+	assertEquals(1, spans.size());
+    }
+
+    @Test
+    public void hashesAgainAfterAddingTargets() {
+	List<WF> wfs = wfs(3);
+	Span<WF> span = KAFDocument.newWFSpan();
+	span.addTarget(wfs.get(0));
+	int hash = span.hashCode();
+	span.addTarget(wfs.get(1));
+	assertNotEquals(hash, span.hashCode());
+	span.addTargets(wfs.subList(2, 3));
+	assertEquals(KAFDocument.newWFSpan(wfs).hashCode(), span.hashCode());
+	assertEquals(KAFDocument.newWFSpan(wfs), span);
+    }
+
+    @Test
+    public void hashesSpansWithDifferentHeadsAlike() {
+	List<WF> wfs = wfs(2);
+	Span<WF> first = KAFDocument.list2Span(wfs, wfs.get(0));
+	Span<WF> second = KAFDocument.list2Span(new ArrayList<WF>(wfs), wfs.get(1));
+	assertEquals(first.hashCode(), second.hashCode());
+	assertNotEquals(first, second);
+	second.setHead(wfs.get(0));
+	assertEquals(first, second);
+    }
+
+    @Test
+    public void findsEqualSpansInLists() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF wf = naf.newWF(0, "John", 1);
+	Term term = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+	Span<Term> first = KAFDocument.newTermSpan(Arrays.asList(term));
+	Span<Term> second = KAFDocument.newTermSpan(Arrays.asList(term));
+	Entity entity = naf.newEntity(new ArrayList<Span<Term>>(Arrays.asList(first)));
+	entity.addSpan(second);
+	assertEquals(0, entity.getSpans().indexOf(second));
+	assertSame(second, entity.getSpans().get(1));
+    }
+}
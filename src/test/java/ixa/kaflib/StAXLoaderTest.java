@@ -0,0 +1,104 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import ixa.kaflib.KAFDocument.Layer;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+
+public class StAXLoaderTest {
+
+    static File sampleFile() throws Exception {
+	return new File(StAXLoaderTest.class.getResource("sample.naf").toURI());
+    }
+
+    static String write(KAFDocument naf) throws Exception {
+	StringWriter out = new StringWriter();
+	naf.write(out);
+	return out.toString();
+    }
+
+    @Test
+    public void loadsAllLayers() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(sampleFile());
+	assertEquals(10, naf.getWFs().size());
+	assertEquals(10, naf.getTerms().size());
+	assertEquals(8, naf.getDeps().size());
+	assertEquals(2, naf.getEntities().size());
+	assertEquals(1, naf.getMarks("gazetteer").size());
+	assertEquals("t2", naf.getDeps().get(0).getFrom().getId());
+    }
+
+    @Test
+    public void skipsLayersNotRequested() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(sampleFile(), EnumSet.of(Layer.TEXT, Layer.TERMS));
+	assertEquals(10, naf.getTerms().size());
+	assertTrue(naf.getDeps().isEmpty());
+	assertTrue(naf.getEntities().isEmpty());
+	assertTrue(naf.getUnknownLayers().isEmpty());
+    }
+
+    @Test
+    public void writesSkippedLayersBackInPlace() throws Exception {
+	KAFDocument full = KAFDocument.createFromFile(sampleFile());
+	KAFDocument naf = KAFDocument.createFromFile(sampleFile(), EnumSet.of(Layer.TEXT, Layer.TERMS));
+	naf.getTerms().get(0).setLemma("Johnny");
+	full.getTerms().get(0).setLemma("Johnny");
+	assertEquals(write(full), write(naf));
+    }
+
+    @Test
+    public void loadsLayersReferred() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(sampleFile(), EnumSet.of(Layer.ENTITIES));
+	assertEquals(2, naf.getEntities().size());
+	assertEquals(10, naf.getTerms().size());
+	assertTrue(naf.getDeps().isEmpty());
+    }
+
+    @Test
+    public void refusesAnnotationsInSkippedLayers() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(sampleFile(), EnumSet.of(Layer.TEXT, Layer.TERMS));
+	try {
+	    naf.newDep(naf.getTerms().get(0), naf.getTerms().get(1), "X");
+	    fail("Dependency added to a layer which was not loaded");
+	} catch (IllegalStateException e) {
+	}
+	assertEquals(1, count(write(naf), "<deps>"));
+    }
+
+    @Test
+    public void replacesRemovedSkippedLayers() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(sampleFile(), EnumSet.of(Layer.TEXT, Layer.TERMS));
+	naf.removeLayer(Layer.DEPS);
+	naf.newDep(naf.getTerms().get(0), naf.getTerms().get(1), "X");
+	String xml = write(naf);
+	assertEquals(1, count(xml, "<deps>"));
+	assertEquals(1, count(xml, "<dep "));
+    }
+
+    @Test
+    public void writesSkippedLayersInCompactOutput() throws Exception {
+	KAFDocument naf = KAFDocument.createFromFile(sampleFile(), EnumSet.of(Layer.TEXT));
+	StringWriter out = new StringWriter();
+	new NafWriter().setCompact(true).write(naf, out);
+	KAFDocument read = KAFDocument.createFromStream(new StringReader(out.toString()));
+	assertEquals(8, read.getDeps().size());
+	assertEquals(2, read.getEntities().size());
+    }
+
+    static int count(String text, String pattern) {
+	int count = 0;
+	for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+	    count++;
+	}
+	return count;
+    }
+}
@@ -0,0 +1,91 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+
+public class SymbolTableTest {
+
+    @Test
+    public void keepsOneInstanceOfEachValue() {
+	SymbolTable symbolTable = new SymbolTable();
+	String noun = symbolTable.intern(new String("NN"));
+	assertSame(noun, symbolTable.intern(new String("NN")));
+	assertEquals("NN", noun);
+	symbolTable.intern("VB");
+	assertEquals(2, symbolTable.size());
+	assertNull(symbolTable.intern(null));
+    }
+
+    @Test
+    public void sharesValuesOfLoadedDocuments() throws Exception {
+	KAFDocument naf = NafGenerator.generate(5);
+	KAFDocument read = new NafReader().read(naf.toString());
+	Term first = read.getTerms().get(0);
+	for (Term term : read.getTerms()) {
+	    if (term.getPos().equals(first.getPos())) {
+		assertSame(first.getPos(), term.getPos());
+	    }
+	}
+	for (Dep dep : read.getDeps()) {
+	    assertSame(read.getSymbolTable().intern(dep.getRfunc()), dep.getRfunc());
+	}
+    }
+
+    @Test
+    public void sharesTablesAcrossDocuments() throws Exception {
+	SymbolTable symbolTable = new SymbolTable();
+	NafReader reader = new NafReader().setSymbolTable(symbolTable);
+	KAFDocument a = reader.read(NafGenerator.generate(3).toString());
+	KAFDocument b = reader.read(NafGenerator.generate(3).toString());
+	assertSame(symbolTable, a.getSymbolTable());
+	assertSame(a.getTerms().get(0).getMorphofeat(), b.getTerms().get(0).getMorphofeat());
+	assertSame(a.getDeps().get(0).getRfunc(), b.getDeps().get(0).getRfunc());
+    }
+
+    @Test
+    public void internsValuesOfNewAnnotations() {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF wf1 = naf.newWF(0, "John", 1);
+	WF wf2 = naf.newWF(5, "sleeps", 1);
+	Term john = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf1)));
+	Term sleeps = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf2)));
+	Dep dep = naf.newDep(sleeps, john, new String("SBJ"));
+	SymbolTable symbolTable = naf.getSymbolTable();
+	assertSame(symbolTable, naf.getSymbolTable());
+	assertSame(symbolTable.intern(new String("SBJ")), dep.getRfunc());
+	ExternalRef externalRef = naf.newExternalRef(new String("WordNet-3.0"), "ili-30-1-n");
+	assertSame(symbolTable.intern(new String("WordNet-3.0")), externalRef.getResource());
+    }
+
+    @Test
+    public void usesTableGivenBeforeFirstValue() {
+	SymbolTable symbolTable = new SymbolTable();
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.setSymbolTable(symbolTable);
+	WF wf = naf.newWF(0, "John", 1);
+	Term john = naf.newTerm("close", "John", "R", KAFDocument.newWFSpan(Arrays.asList(wf)));
+	assertSame(symbolTable, naf.getSymbolTable());
+	assertSame(symbolTable.intern(new String("R")), john.getPos());
+    }
+
+    @Test
+    public void keepsValuesGivenToSetters() {
+	SymbolTable symbolTable = new SymbolTable();
+	String value = new String("NNP");
+	assertSame(value, symbolTable.intern(value));
+	assertNotSame("NNP", symbolTable.intern("NNP"));
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF wf = naf.newWF(0, "John", 1);
+	Term john = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+	String pos = new String("R");
+	john.setPos(pos);
+	assertSame(pos, john.getPos());
+    }
+}
@@ -0,0 +1,143 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+
+public class TextColumnsTest {
+
+    @Test
+    public void storesRows() {
+	TextColumns columns = new TextColumns();
+	for (int i = 0; i < 1000; i++) {
+	    assertEquals(i, columns.add(10 * i, 3, "w" + i, i / 10));
+	}
+	columns.setPara(500, 7);
+	columns.setPage(500, 2);
+	columns.setXpath(500, "/a/b");
+	columns.trimToSize();
+	assertEquals(1000, columns.size());
+	assertEquals(9990, columns.getOffset(999));
+	assertEquals(3, columns.getLength(999));
+	assertEquals(99, columns.getSent(999));
+	assertEquals("w999", columns.getForm(999));
+	assertEquals(7, columns.getPara(500));
+	assertEquals(2, columns.getPage(500));
+	assertEquals(-1, columns.getPara(501));
+	assertEquals("/a/b", columns.getXpath(500));
+	assertNull(columns.getXpath(501));
+	columns.setXpath(500, null);
+	assertNull(columns.getXpath(500));
+    }
+
+    @Test
+    public void replacesForms() {
+	TextColumns columns = new TextColumns();
+	columns.add(0, 5, "house", 1);
+	columns.add(6, 3, "car", 1);
+	columns.setForm(0, "hut");
+	assertEquals("hut", columns.getForm(0));
+	columns.setForm(0, "mansions");
+	assertEquals("mansions", columns.getForm(0));
+	assertEquals("car", columns.getForm(1));
+	columns.trimToSize();
+	columns.setForm(1, "bicycle");
+	assertEquals("bicycle", columns.getForm(1));
+	assertEquals("mansions", columns.getForm(0));
+    }
+
+    @Test
+    public void keepsAttributesOfWFs() throws Exception {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF wf = naf.newWF(4, "dogs", 2);
+	wf.setPara(3);
+	wf.setForm("cats");
+	wf.setXpath("/p[3]");
+	WF copy = naf.newWF(9, "bark", 2);
+	assertEquals("cats", wf.getForm());
+	assertEquals(4, wf.getOffset());
+	assertEquals(4, wf.getLength());
+	assertEquals(2, (int) wf.getSent());
+	assertEquals(3, (int) wf.getPara());
+	assertEquals("/p[3]", wf.getXpath());
+	assertEquals("bark", copy.getForm());
+	assertEquals(9, copy.getOffset());
+	KAFDocument read = new NafReader().read(naf.toString());
+	assertEquals("cats", read.getWFs().get(0).getForm());
+	assertEquals("/p[3]", read.getWFs().get(0).getXpath());
+    }
+
+    @Test
+    public void takesFormsFromRawText() {
+	TextColumns columns = new TextColumns();
+	columns.setRawText("John sleeps.");
+	columns.add(0, 4, "John", 1);
+	columns.add(5, 6, "sleep", 1);
+	columns.add(11, 1, ".", 1);
+	columns.add(20, 3, "out", 1);
+	assertEquals("John", columns.getForm(0));
+	assertEquals("sleep", columns.getForm(1));
+	assertEquals(".", columns.getForm(2));
+	assertEquals("out", columns.getForm(3));
+	assertEquals("John", columns.getFormSequence(0).toString());
+	assertEquals("sleep", columns.getFormSequence(1).toString());
+	columns.setForm(0, "Jon");
+	assertEquals("Jon", columns.getForm(0));
+	columns.setForm(1, "sleeps");
+	assertEquals("sleeps", columns.getForm(1));
+    }
+
+    @Test
+    public void copiesFormsWhenRawTextChanges() {
+	TextColumns columns = new TextColumns();
+	columns.setRawText("John sleeps.");
+	columns.add(0, 4, "John", 1);
+	columns.add(5, 6, "sleeps", 1);
+	columns.setRawText("Mary walks.");
+	assertEquals("John", columns.getForm(0));
+	assertEquals("sleeps", columns.getForm(1));
+	columns.setRawText(null);
+	assertEquals("John", columns.getForm(0));
+    }
+
+    @Test
+    public void writesFormsTakenFromRawText() throws Exception {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.setRawText("John sleeps.");
+	naf.newWF(0, "John", 1);
+	naf.newWF(5, "sleep", 1);
+	naf.newWF(11, ".", 1);
+	KAFDocument read = new NafReader().read(naf.toString());
+	assertEquals("John", read.getWFs().get(0).getForm());
+	assertEquals("sleep", read.getWFs().get(1).getForm());
+	assertEquals(".", read.getWFs().get(2).getFormSequence().toString());
+	read.setRawText("Mary walks.");
+	assertEquals("John", read.getWFs().get(0).getForm());
+    }
+
+    @Test
+    public void buildsFormsAfterSerialization() throws Exception {
+	TextColumns columns = new TextColumns();
+	columns.setRawText("John sleeps.");
+	columns.add(0, 4, "John", 1);
+	columns.add(5, 6, "snores", 1);
+	assertEquals("John", columns.getForm(0));
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	ObjectOutputStream out = new ObjectOutputStream(bytes);
+	out.writeObject(columns);
+	out.close();
+	TextColumns read = (TextColumns) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+	assertEquals("John", read.getForm(0));
+	assertEquals("snores", read.getForm(1));
+	read.setForm(1, "sleeps");
+	assertEquals("sleeps", read.getForm(1));
+	assertEquals("snores", columns.getForm(1));
+    }
+}
@@ -0,0 +1,111 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class UnmodifiedLayersTest {
+
+    private static final String LAYERS = "  <text>\n"
+	+ "    <wf id=\"w1\" offset=\"0\" length=\"4\" sent=\"1\">John</wf>\n"
+	+ "    <wf id=\"w2\" offset=\"5\" length=\"6\" sent=\"1\">sleeps</wf>\n"
+	+ "  </text>\n"
+	+ "  <terms>\n"
+	+ "    <term id=\"t1\" type=\"close\" lemma=\"John\" pos=\"R\"><span><target id=\"w1\"/></span></term>\n"
+	+ "    <term id=\"t2\" type=\"open\" lemma=\"sleep\" pos=\"V\"><span><target id=\"w2\"/></span></term>\n"
+	+ "  </terms>\n"
+	+ "  <deps><dep from=\"t2\" to=\"t1\" rfunc=\"SBJ\"/></deps>\n";
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+	+ "<NAF xml:lang=\"en\" version=\"v3\">\n"
+	+ "  <nafHeader />\n"
+	+ LAYERS
+	+ "</NAF>\n";
+
+    private static KAFDocument read(String xml) throws Exception {
+	return new NafReader().setKeepSource(true).read(xml);
+    }
+
+    @Test
+    public void copiesUnmodifiedLayers() throws Exception {
+	assertEquals(XML, read(XML).toString());
+    }
+
+    @Test
+    public void writesModifiedLayersAgain() throws Exception {
+	KAFDocument naf = read(XML);
+	naf.newDep(naf.getTerms().get(0), naf.getTerms().get(1), "X");
+	String xml = naf.toString();
+	assertFalse(xml.contains("<deps><dep"));
+	assertTrue(xml.contains("<dep from=\"t1\" to=\"t2\" rfunc=\"X\" />"));
+	assertEquals(2, read(xml).getDeps().size());
+    }
+
+    @Test
+    public void copiesLayersReferredByModifiedOnes() throws Exception {
+	KAFDocument naf = read(XML);
+	naf.newDep(naf.getTerms().get(0), naf.getTerms().get(1), "X");
+	String xml = naf.toString();
+	assertTrue(xml.contains("<term id=\"t1\" type=\"close\" lemma=\"John\" pos=\"R\"><span>"));
+	assertEquals(2, read(xml).getTerms().size());
+	assertEquals("t1", read(xml).getDeps().get(1).getFrom().getId());
+    }
+
+    @Test
+    public void writesLayersWhoseAnnotationsChangedAgain() throws Exception {
+	KAFDocument naf = read(XML);
+	naf.getTerms().get(1).setLemma("sleep");
+	String xml = naf.toString();
+	assertFalse(xml.contains("<term id=\"t1\" type=\"close\" lemma=\"John\" pos=\"R\"><span>"));
+	assertTrue(xml.contains("<deps><dep"));
+    }
+
+    @Test
+    public void writesLayersWhoseExternalRefsChangedAgain() throws Exception {
+	KAFDocument naf = read(XML);
+	naf.getTerms().get(1).addExternalRef(naf.newExternalRef("wn", "sleep-v"));
+	naf = read(naf.toString());
+	String unmodified = naf.toString();
+	naf.getTerms().get(1).getExternalRefs().get(0).setConfidence(0.5f);
+	assertFalse(unmodified.equals(naf.toString()));
+	assertEquals(0.5f, read(naf.toString()).getTerms().get(1).getExternalRefs().get(0).getConfidence(), 0.0f);
+    }
+
+    @Test
+    public void writesLayersWhosePartsChangedAgain() throws Exception {
+	KAFDocument naf = read(XML);
+	Predicate predicate = naf.newPredicate(KAFDocument.newTermSpan(naf.getTerms().subList(1, 2)));
+	predicate.addRole(naf.newRole(predicate, "A0", KAFDocument.newTermSpan(naf.getTerms().subList(0, 1))));
+	naf = read(naf.toString());
+	String unmodified = naf.toString();
+	naf.getPredicates().get(0).getRoles().get(0).setSemRole("A1");
+	assertFalse(unmodified.equals(naf.toString()));
+	assertEquals("A1", read(naf.toString()).getPredicates().get(0).getRoles().get(0).getSemRole());
+	assertTrue(naf.toString().contains("<deps><dep"));
+    }
+
+    @Test
+    public void copiesLayersReferringToModifiedOnes() throws Exception {
+	KAFDocument naf = read(XML);
+	naf.newTerm(KAFDocument.newWFSpan(naf.getWFs().subList(0, 1)));
+	String xml = naf.toString();
+	assertTrue(xml.contains("<deps><dep"));
+	assertEquals(3, read(xml).getTerms().size());
+	assertEquals(1, read(xml).getDeps().size());
+    }
+
+    @Test
+    public void writesEverythingAgainWithDoctype() throws Exception {
+	String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+	    + "<!DOCTYPE NAF [<!ENTITY who \"John\">]>\n"
+	    + "<NAF xml:lang=\"en\" version=\"v3\">\n"
+	    + LAYERS
+	    + "</NAF>\n";
+	String written = read(xml).toString();
+	assertFalse(written.contains("<deps><dep"));
+	assertEquals(1, read(written).getDeps().size());
+    }
+}
@@ -0,0 +1,49 @@
+package ixa.kaflib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.jdom2.IllegalDataException;
+import org.junit.Test;
+
+
+public class XMLEmitterTest {
+
+    @Test
+    public void splitsCdataEnd() throws Exception {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	naf.setRawText("a]]>b]]>");
+	StringWriter out = new StringWriter();
+	naf.write(out);
+	KAFDocument read = KAFDocument.createFromStream(new StringReader(out.toString()));
+	assertEquals("a]]>b]]>", read.getRawText());
+    }
+
+    @Test
+    public void rejectsInvalidCharacters() throws Exception {
+	KAFDocument naf = new KAFDocument("en", "v3");
+	WF wf = naf.newWF(0, "a", 1);
+	Term term = naf.newTerm(KAFDocument.newWFSpan(Arrays.asList(wf)));
+	term.setPos("N\u0001");
+	try {
+	    naf.write(new StringWriter());
+	    fail("Invalid XML character written");
+	} catch (IllegalDataException e) {
+	}
+    }
+
+    @Test
+    public void writesSupplementaryCharactersAsReferences() throws Exception {
+	StringWriter out = new StringWriter();
+	XMLEmitter emitter = new XMLEmitter(out);
+	emitter.startElement("a");
+	emitter.attribute("b", "😀");
+	emitter.endElement();
+	emitter.flush();
+	assertEquals("<a b=\"&#x1f600;\" />", out.toString());
+    }
+}